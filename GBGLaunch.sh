@@ -1,3 +1,4 @@
 #!/bin/sh
 # This script starts jartools/GBGLaunch.jar from . so that agents can be loaded from agents.
-java -ea -Xmx12096M -jar jartools/GBGLaunch.jar 
+# --add-modules jdk.incubator.vector: Vector API for the n-tuple score kernel (optional, see LutIndexer)
+java --add-modules jdk.incubator.vector -ea -Xmx12096M -jar jartools/GBGLaunch.jar 
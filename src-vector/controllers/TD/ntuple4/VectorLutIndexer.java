@@ -0,0 +1,43 @@
+package controllers.TD.ntuple4;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link LutIndexer} with the JDK Vector API: the rows are processed in chunks of {@link #SPECIES} lanes, the cells
+ * of a position are gathered from the board vector with one vector load, the remaining rows are processed scalar.
+ * <p>
+ * This source folder ({@code src-vector}) has to be compiled with {@code --add-modules jdk.incubator.vector} and the
+ * JVM has to be started with the same option, otherwise {@link LutIndexer#get()} returns null (no score kernel).
+ */
+final class VectorLutIndexer implements LutIndexer {
+
+	// at most 256 bit: the 512-bit gather crashed the C2 compiler of JDK 17 (AVX-512)
+	private static final VectorSpecies<Integer> SPECIES = (IntVector.SPECIES_PREFERRED.vectorBitSize() > 256)
+			? IntVector.SPECIES_256 : IntVector.SPECIES_PREFERRED;
+
+	@Override
+	public void indices(int[] bvec, int[] cells, int[] strides, int L, int R, int[] idx) {
+		int upper = SPECIES.loopBound(R);
+		int r = 0;
+		for (; r < upper; r += SPECIES.length()) {
+			IntVector acc = IntVector.zero(SPECIES);
+			for (int b = r; b < L*R; b += R) {
+				IntVector cellValues = IntVector.fromArray(SPECIES, bvec, 0, cells, b);
+				acc = cellValues.mul(IntVector.fromArray(SPECIES, strides, b)).add(acc);
+			}
+			acc.intoArray(idx, r);
+		}
+		for (; r < R; r++) {
+			int index = 0;
+			for (int b = r; b < L*R; b += R)
+				index += strides[b] * bvec[cells[b]];
+			idx[r] = index;
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "vector " + SPECIES;
+	}
+}
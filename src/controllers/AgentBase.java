@@ -180,6 +180,12 @@ abstract public class AgentBase implements PlayAgent, Serializable {
 	 */
     @Override
 	public boolean isTrainable() { return true; }
+
+	/**
+	 * @return {@code null} (no snapshot support) for agents not overriding this method
+	 */
+	@Override
+	public PlayAgent getSnapshot() { return null; }
 	
 	/**
 	 * 'Train' the agent for one complete game episode using self-play. This base training is valid for <b>all</b> agents 
@@ -310,8 +310,15 @@ public class ExpectimaxNAgent extends AgentBase implements PlayAgent, Serializab
 			//
 			ArrayList<ACTIONS> acts = soND.getAvailableActions();
 			scBest=new ScoreTuple(soND,true);		// make a new ScoreTuple with all values as low as possible
+			// at maximum depth: estimate all afterstates at once, if possible without creating them
+			ScoreTuple[] fusedTuples = (depth<this.m_depth) ? null : estimateAfterstateTuples(soND, acts);
 			for(i = 0; i < acts.size(); ++i)
 			{
+				if (fusedTuples!=null) {
+					countMaxDepth++;
+					scBest.combine(fusedTuples[i], cOpMax, player, 0.0);
+					continue;
+				}
 				NewSO = soND.copy();
 				NewSO.advanceDeterministic(acts.get(i));
 
@@ -653,6 +660,21 @@ public class ExpectimaxNAgent extends AgentBase implements PlayAgent, Serializab
 		return sc;
 	}
 
+	/**
+	 * When the recursion tree has reached its maximal depth m_depth in state {@code soND}: return the estimates
+	 * {@link #estimateGameValueTuple(StateObservation, ScoreTuple)} of all afterstates of {@code soND} at once,
+	 * without creating the afterstates. This may be overridden by classes derived from {@link ExpectimaxNAgent},
+	 * whose estimate can be calculated directly from {@code soND} (see {@link ExpectimaxNWrapper}).
+	 *
+	 * @param soND	the state, its next action is deterministic
+	 * @param acts	the available actions of {@code soND}
+	 * @return		the estimated score tuple for each afterstate (the afterstates must not be game over) or null,
+	 * 				if the afterstates have to be created and estimated one by one (this stub method)
+	 */
+	protected ScoreTuple[] estimateAfterstateTuples(StateObsNondeterministic soND, ArrayList<ACTIONS> acts) {
+		return null;
+	}
+
 	@Override
 	public String stringDescr() {
 		String cs = getClass().getName();
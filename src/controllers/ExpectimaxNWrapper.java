@@ -1,7 +1,12 @@
 package controllers;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
+import controllers.TD.ntuple4.TDNTuple4Agt;
+
+import games.StateObsNondeterministic;
 import games.StateObservation;
 import tools.ScoreTuple;
 import tools.Types;
@@ -60,6 +65,17 @@ public class ExpectimaxNWrapper extends ExpectimaxNAgent implements Serializable
 
 	}
 
+	/**
+	 * If the wrapped agent is a {@link TDNTuple4Agt}, it may estimate the afterstates directly from the board of
+	 * {@code soND}, see {@link TDNTuple4Agt#estimateAfterstateTuples(StateObservation, List)}.
+	 */
+	@Override
+	protected ScoreTuple[] estimateAfterstateTuples(StateObsNondeterministic soND, ArrayList<Types.ACTIONS> acts) {
+		if (wrapped_pa instanceof TDNTuple4Agt tda)
+			return tda.estimateAfterstateTuples(soND, acts);
+		return null;
+	}
+
 	public PlayAgent getWrappedPlayAgent() {
 		return wrapped_pa;
 	}
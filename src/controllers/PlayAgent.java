@@ -120,6 +120,13 @@ public interface PlayAgent {
 	 * @return true, if it is a trainable agent
 	 */
 	boolean isTrainable();
+
+	/**
+	 * @return a frozen copy of this agent which can be evaluated on another thread while this agent continues
+	 * 		training (its weights are copied, its parameters may be shared), or {@code null}, if the agent does not
+	 * 		support snapshots
+	 */
+	PlayAgent getSnapshot();
 	
 	/**
 	 * @return true, if it was retrained (default: false) <br>
@@ -4,6 +4,7 @@ import controllers.ReplayBuffer.ConfigReplayBuffer;
 import controllers.ReplayBuffer.Pusher.BasePusher;
 import controllers.ReplayBuffer.Pusher.IPusher;
 import controllers.ReplayBuffer.Selector.ISelector;
+import controllers.ReplayBuffer.Selector.PrioritizedSelector;
 import controllers.ReplayBuffer.Selector.RandomSelector;
 import controllers.ReplayBuffer.Transition.ITransition;
 import controllers.ReplayBuffer.Transition.Transition;
@@ -30,8 +31,20 @@ public class BaseBuffer{
     private int batchSize;
     private ISelector selector;
     private IPusher pusher;
+    private double alpha = ParRB.DEFAULT_PER_ALPHA;
+    private double beta = ParRB.DEFAULT_PER_BETA;
 
     public BaseBuffer(int capacity, int selector, int pusher,int batchSize){
+        this(capacity, selector, pusher, batchSize, ParRB.DEFAULT_PER_ALPHA, ParRB.DEFAULT_PER_BETA);
+    }
+
+    /**
+     * @param alpha the priority exponent, only for the prioritized selector
+     * @param beta  the importance sampling exponent, only for the prioritized selector
+     */
+    public BaseBuffer(int capacity, int selector, int pusher, int batchSize, double alpha, double beta){
+        this.alpha = alpha;
+        this.beta = beta;
         this.batchSize = batchSize;
         this.capacity = capacity;
         buffer = new ITransition[capacity];
@@ -44,7 +57,8 @@ public class BaseBuffer{
 
 
     public BaseBuffer(ParRB params) {
-        this(params.getCapacity(),params.getSelectorV(),params.getPusherV(),params.getBatchSize());
+        this(params.getCapacity(),params.getSelectorV(),params.getPusherV(),params.getBatchSize(),
+                params.getPerAlpha(),params.getPerBeta());
         if(ConfigReplayBuffer.DBG) System.out.println(this);
     }
 
@@ -86,6 +100,30 @@ public class BaseBuffer{
         return selector.selectBatch();
     }
 
+    /**
+     * @param k position in the last batch returned by {@link #getBatch()}
+     * @return the importance sampling weight of the {@code k}-th transition of the last batch (1.0 if the selector
+     * samples uniformly)
+     */
+    public double getWeight(int k){
+        return selector.getWeight(k);
+    }
+
+    /**
+     * Feed back the TD errors of the last batch returned by {@link #getBatch()} (in batch order), so that a
+     * prioritized selector can update the priorities of these transitions
+     */
+    public void updatePriorities(double[] tdErrors){
+        selector.updatePriorities(tdErrors);
+    }
+
+    /**
+     * @return true, if the selector samples by priority and uses the TD errors of {@link #updatePriorities(double[])}
+     */
+    public boolean isPrioritized(){
+        return selector instanceof PrioritizedSelector;
+    }
+
     /**
      * Empty the buffer and reset the pointers
      */
@@ -93,6 +131,7 @@ public class BaseBuffer{
         buffer = new ITransition[capacity];
         indexPointer = 0;
         bufferMaxPointer = 0;
+        selector.reset();
     }
 
     /**
@@ -105,6 +144,7 @@ public class BaseBuffer{
     private ISelector setSelector(int i){
         switch(i){
             case 0: return new RandomSelector(this);
+            case 1: return new PrioritizedSelector(this, alpha, beta);
             default: throw new RuntimeException("No Selector has been selected");
         }
     }
@@ -154,6 +194,7 @@ public class BaseBuffer{
         if(!pusher.pushTransition(t)) return;
         if(ConfigReplayBuffer.DBG) System.out.println("Adding transition at point: " + indexPointer );
         buffer[indexPointer] = t;
+        selector.transitionAdded(indexPointer);
         incrementIndexPointer();
         incrementBufferMaxPointer();
     }
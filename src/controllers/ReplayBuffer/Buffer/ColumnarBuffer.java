@@ -0,0 +1,285 @@
+package controllers.ReplayBuffer.Buffer;
+
+import controllers.ReplayBuffer.Selector.PrioritizedSelector;
+import controllers.ReplayBuffer.Selector.SumTree;
+import games.BoardVector;
+import games.StateObsWithBoardVector;
+import games.XNTupleFuncs;
+import params.ParRB;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Replay buffer which stores its transitions columnar in primitive arrays: one column each for player, kind and
+ * reward and one flat array with the encoded board vectors (board and optionally next board) of all transitions.
+ * <p>
+ * In contrast to {@link BaseBuffer}, which keeps an {@link controllers.ReplayBuffer.Transition.ITransition} with
+ * several {@link games.StateObservation} copies per transition, a transition needs here only a few bytes per board
+ * cell. The arrays are allocated once, adding a transition overwrites the oldest one, and sampling a batch fills a
+ * reused index array. So capacities of millions of transitions are possible without allocation and GC load.
+ * <p>
+ * The boards are stored without their {@link games.StateObservation}. {@link #getBoard(int)} and
+ * {@link #getNextBoard(int)} return reused {@link StateObsWithBoardVector} objects with state null. So this buffer
+ * can only be used if the game's symmetries do not need the state or are switched off (see
+ * {@link games.XNTupleBase#symmetriesNeedState(XNTupleFuncs)}).
+ * <p>
+ * With selector 1 ("Prioritized", see {@link ParRB#getSelectorV()}) the batches are sampled by priority, as in
+ * {@link PrioritizedSelector}, and the agent reports the TD errors with {@link #updatePriorities(double[])}.
+ * <p>
+ * Subclasses may store the rows elsewhere (see {@link MappedBuffer}) by overriding {@link #writeRow}, {@link #readCells}
+ * and the getters of the columns.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class ColumnarBuffer {
+
+    /**
+     * Kinds of transitions (same codes as {@link controllers.ReplayBuffer.Transition.ITransition#isFinalTransition()}):
+     * target {@code reward + gamma*V(next)}, target {@code reward} and target 0
+     */
+    public static final int BOOTSTRAP = 0, FINAL = 1, FINAL_ZERO = 2;
+
+    protected final int capacity;
+    private final int batchSize;
+    protected final int width;          // cells per board vector
+    protected final int rowLength;      // cells per transition: width (board) or 2*width (board and next board)
+    protected final boolean withNext;
+    protected final boolean byteCells;  // true: all position values are <= 256, a cell fits into a byte
+    private final byte[] player;
+    private final byte[] kind;
+    private final double[] reward;
+    private final byte[] cellsB;        // the board cells, if all position values are <= 256 (else null)
+    private final int[] cellsI;         // the board cells, if cellsB==null
+    private int indexPointer = 0;       // slot for the next transition
+    private int size = 0;
+    private final Random random = new Random();
+    private final int[] batch;
+    private final SumTree tree;         // the priorities (null: uniform sampling)
+    private final double alpha, beta;
+    private final double[] weights;     // importance sampling weights of the last batch
+    private final BoardVector board, nextBoard;
+    private final StateObsWithBoardVector boardSOWB, nextSOWB;
+
+    /**
+     * @param capacity  maximum number of transitions
+     * @param batchSize number of transitions per {@link #sampleBatch()}
+     * @param xnf       the game's n-tuple functions (for number of cells and position values)
+     * @param withNext  whether to store a next board for {@link #BOOTSTRAP} transitions
+     */
+    public ColumnarBuffer(int capacity, int batchSize, XNTupleFuncs xnf, boolean withNext) {
+        this(capacity, batchSize, xnf, withNext, false, ParRB.DEFAULT_PER_ALPHA, ParRB.DEFAULT_PER_BETA);
+    }
+
+    /**
+     * @param prioritized   whether to sample by priority
+     * @param alpha         the priority exponent, only if prioritized
+     * @param beta          the importance sampling exponent, only if prioritized
+     */
+    public ColumnarBuffer(int capacity, int batchSize, XNTupleFuncs xnf, boolean withNext,
+                          boolean prioritized, double alpha, double beta) {
+        this(capacity, batchSize, xnf, withNext, prioritized, alpha, beta, true);
+    }
+
+    /**
+     * @param onHeap    whether to allocate the columns on the heap (false: the subclass stores the rows)
+     */
+    protected ColumnarBuffer(int capacity, int batchSize, XNTupleFuncs xnf, boolean withNext,
+                             boolean prioritized, double alpha, double beta, boolean onHeap) {
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.width = xnf.getNumCells();
+        this.withNext = withNext;
+        this.rowLength = withNext ? 2*width : width;
+        if (onHeap && (long) capacity * rowLength > Integer.MAX_VALUE)
+            throw new RuntimeException("[ColumnarBuffer] capacity "+capacity+" is too large for "+width+" cells");
+        int maxPosVals = 0;
+        for (int p : xnf.getPositionValuesVector()) maxPosVals = Math.max(maxPosVals, p);
+        byteCells = (maxPosVals <= 256);
+        player = onHeap ? new byte[capacity] : null;
+        kind = onHeap ? new byte[capacity] : null;
+        reward = onHeap ? new double[capacity] : null;
+        cellsB = (onHeap && byteCells) ? new byte[capacity * rowLength] : null;
+        cellsI = (onHeap && !byteCells) ? new int[capacity * rowLength] : null;
+        batch = new int[batchSize];
+        tree = prioritized ? new SumTree(capacity) : null;
+        this.alpha = alpha;
+        this.beta = beta;
+        weights = new double[batchSize];
+        Arrays.fill(weights, 1.0);
+        board = new BoardVector(new int[width]);
+        nextBoard = new BoardVector(new int[width]);
+        boardSOWB = new StateObsWithBoardVector(null, board);
+        nextSOWB = new StateObsWithBoardVector(null, nextBoard);
+    }
+
+    public ColumnarBuffer(ParRB params, XNTupleFuncs xnf, boolean withNext) {
+        this(params.getCapacity(), params.getBatchSize(), xnf, withNext,
+                params.getSelectorV() == 1, params.getPerAlpha(), params.getPerBeta());
+    }
+
+    /**
+     * Add a transition. If the buffer is full, the oldest transition is overwritten.
+     *
+     * @param p     the player
+     * @param s     the board vector of the state to adapt
+     * @param next  the board vector to bootstrap from (only for {@code k==}{@link #BOOTSTRAP}, else ignored)
+     * @param r     the reward
+     * @param k     the kind {@link #BOOTSTRAP}, {@link #FINAL} or {@link #FINAL_ZERO}
+     */
+    public void add(int p, BoardVector s, BoardVector next, double r, int k) {
+        if (k == BOOTSTRAP && !withNext)
+            throw new RuntimeException("[ColumnarBuffer] BOOTSTRAP transitions need a buffer withNext");
+        checkWidth(s.bvec);
+        if (k == BOOTSTRAP) checkWidth(next.bvec);
+        int slot = indexPointer;
+        writeRow(slot, p, k, r, s.bvec, (k == BOOTSTRAP) ? next.bvec : null);
+        if (tree != null) tree.setMax(slot);
+        indexPointer = (indexPointer + 1) % capacity;
+        if (size < capacity) size++;
+        pointersChanged();
+    }
+
+    private void checkWidth(int[] bvec) {
+        if (bvec.length != width)
+            throw new RuntimeException("[ColumnarBuffer] board vector has "+bvec.length+" cells instead of "+width);
+    }
+
+    /**
+     * Store a transition in row {@code slot}
+     *
+     * @param next  the next board, null if not {@link #BOOTSTRAP}
+     */
+    protected void writeRow(int slot, int p, int k, double r, int[] s, int[] next) {
+        player[slot] = (byte) p;
+        kind[slot] = (byte) k;
+        reward[slot] = r;
+        int off = slot * rowLength;
+        if (cellsB != null) {
+            for (int j = 0; j < width; j++) cellsB[off + j] = (byte) s[j];
+            if (next != null) for (int j = 0; j < width; j++) cellsB[off + width + j] = (byte) next[j];
+        } else {
+            System.arraycopy(s, 0, cellsI, off, width);
+            if (next != null) System.arraycopy(next, 0, cellsI, off + width, width);
+        }
+    }
+
+    /**
+     * Read the board ({@code part=0}) or next board ({@code part=1}) of row {@code slot} into {@code bvec}
+     */
+    protected void readCells(int slot, int part, int[] bvec) {
+        int off = slot * rowLength + part * width;
+        if (cellsB != null) {
+            for (int j = 0; j < width; j++) bvec[j] = cellsB[off + j] & 0xFF;
+        } else {
+            System.arraycopy(cellsI, off, bvec, 0, width);
+        }
+    }
+
+    /**
+     * Called after the ring pointers have changed (by {@link #add} or {@link #resetBuffer()})
+     */
+    protected void pointersChanged() { }
+
+    /**
+     * Set the ring pointers of a buffer whose rows were stored before (e.g. by a previous run). If prioritized, the
+     * restored transitions get all the same priority.
+     */
+    protected void restore(int indexPointer, int size) {
+        if (indexPointer < 0 || indexPointer >= capacity || size < 0 || size > capacity)
+            throw new RuntimeException("[ColumnarBuffer] invalid pointers "+indexPointer+", "+size);
+        this.indexPointer = indexPointer;
+        this.size = size;
+        if (tree != null) {
+            tree.clear();
+            for (int i = 0; i < size; i++) tree.setMax(i);
+        }
+    }
+
+    /**
+     * @return the slot for the next transition
+     */
+    protected int getIndexPointer() { return indexPointer; }
+
+    /**
+     * Sample {@code batchSize} transitions uniformly at random or - if prioritized - by priority (with replacement).
+     *
+     * @return the slots of the sampled transitions. The array is reused by the next call.
+     */
+    public int[] sampleBatch() {
+        if (tree != null) {
+            tree.sample(random, size, beta, batch, weights);
+        } else {
+            for (int i = 0; i < batchSize; i++) batch[i] = random.nextInt(size);
+        }
+        return batch;
+    }
+
+    /**
+     * @return the importance sampling weight of the {@code k}-th transition of the last batch (1.0 if not
+     * prioritized)
+     */
+    public double getWeight(int k) { return weights[k]; }
+
+    /**
+     * Feed back the TD errors of the last batch (in batch order). Ignored if not prioritized.
+     */
+    public void updatePriorities(double[] tdErrors) {
+        if (tree == null) return;
+        for (int k = 0; k < batchSize; k++) tree.set(batch[k], PrioritizedSelector.priority(tdErrors[k], alpha));
+    }
+
+    public boolean isPrioritized() { return tree != null; }
+
+    public int getPlayer(int slot) { return player[slot]; }
+
+    public int getKind(int slot) { return kind[slot]; }
+
+    public double getReward(int slot) { return reward[slot]; }
+
+    /**
+     * @return the board of transition {@code slot} (state null). The object is reused by the next call.
+     */
+    public StateObsWithBoardVector getBoard(int slot) {
+        readCells(slot, 0, board.bvec);
+        return boardSOWB;
+    }
+
+    /**
+     * @return the next board of {@link #BOOTSTRAP} transition {@code slot} (state null). The object is reused by the
+     * next call.
+     */
+    public StateObsWithBoardVector getNextBoard(int slot) {
+        readCells(slot, 1, nextBoard.bvec);
+        return nextSOWB;
+    }
+
+    /**
+     * Empty the buffer and reset the pointers
+     */
+    public void resetBuffer() {
+        indexPointer = 0;
+        size = 0;
+        if (tree != null) tree.clear();
+        pointersChanged();
+    }
+
+    public int getCapacity() { return capacity; }
+
+    /**
+     * @return the number of transitions in the buffer
+     */
+    public int size() { return size; }
+
+    public int getBatchSize() { return batchSize; }
+
+    public String toString() {
+        String s = "-------------------REPLAY-BUFFER------------------\n";
+        s += getClass().getSimpleName() + ", capacity: " + capacity + "\n";
+        s += "Batch Size: " + batchSize + "\n";
+        s += "Sampling: " + (tree != null ? "prioritized (alpha=" + alpha + ", beta=" + beta + ")" : "uniform") + "\n";
+        s += "Bytes per transition: " + (10 + rowLength * (byteCells ? 1 : 4)) + "\n";
+        s += "--------------------------------------------------";
+        return s;
+    }
+}
@@ -0,0 +1,312 @@
+package controllers.ReplayBuffer.Buffer;
+
+import games.XNTupleFuncs;
+import params.ParRB;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * {@link ColumnarBuffer} whose rows live in memory-mapped files instead of the heap, so that the capacity is limited
+ * by the disk, not by the heap. The OS pages the rows in and out as needed.
+ * <p>
+ * Each transition is a fixed-width record (little-endian)
+ * <pre>
+ *     byte player, byte kind, double reward, board cells [, next board cells]  </pre>
+ * with 1 byte per cell (4 bytes if a position value exceeds 256). The records are spread over segment files
+ * {@code segment-000.bin, segment-001.bin, ...} of at most {@link #SEGMENT_BYTES} bytes each, ring-organised as in
+ * {@link ColumnarBuffer}. On the heap are only the mapped segments and the ring pointers (plus the priorities, if
+ * prioritized).
+ * <p>
+ * The file {@code header.bin} holds the layout and the ring pointers and is updated with each transition. If a
+ * {@link MappedBuffer} is created with {@code resume==true} on a directory with a header of the same layout (e.g. when
+ * a loaded agent continues its training after a restart), it continues with the transitions stored there. Otherwise
+ * (new agent, different game, capacity, ...) the old transitions are discarded.
+ * <p>
+ * Each agent has its own directory below {@link ParRB#getBufferDir()} (see {@link #newDir(String, String)}). A
+ * buffer locks its directory (file {@code lock}) until {@link #close()} or the end of the JVM, a second buffer on the
+ * same directory (in this or another JVM) is refused.
+ * <p>
+ * The segment files take the full capacity on disk. When an agent is saved, it marks its directory (file
+ * {@code saved}, see {@link #markSaved()}). {@link #close()} deletes a directory which is not marked, and
+ * {@link #newDir(String, String)} deletes the unmarked directories of earlier runs with the same agent name which are
+ * no longer in use (runs which ended without {@link #close()}, or agents of this JVM which were garbage collected). The
+ * directories of saved agents are kept until they are deleted by hand.
+ *
+ * @see ParRB#getBufferDir()
+ */
+public class MappedBuffer extends ColumnarBuffer {
+
+    /** maximum size of a segment file (a {@link MappedByteBuffer} is limited to 2 GB) */
+    public static final int SEGMENT_BYTES = 1 << 30;
+
+    private static final int MAGIC = 0x42523447;    // "G4RB"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int POS_POINTER = 24;      // position of indexPointer and size in header.bin
+    private static final int POS_SIZE = 28;
+
+    private static final String SAVED = "saved";      // marker file: a saved agent refers to the directory
+
+    private static final AtomicInteger dirCount = new AtomicInteger();
+
+    private final String dir;
+    private final FileChannel lockChannel;
+    private final int cellBytes;
+    private final int recordBytes;
+    private final int recordsPerSegment;
+    private MappedByteBuffer header;
+    private MappedByteBuffer[] segments;
+
+    /**
+     * @param dir       the directory for the segment files (created, if it does not exist)
+     * @param resume    if true, continue with the transitions stored in {@code dir} (if they have the same layout),
+     *                  if false, start with an empty buffer
+     * @see ColumnarBuffer#ColumnarBuffer(int, int, XNTupleFuncs, boolean, boolean, double, double)
+     */
+    public MappedBuffer(int capacity, int batchSize, XNTupleFuncs xnf, boolean withNext,
+                        boolean prioritized, double alpha, double beta, String dir, boolean resume) {
+        super(capacity, batchSize, xnf, withNext, prioritized, alpha, beta, false);
+        this.dir = dir;
+        this.cellBytes = byteCells ? 1 : 4;
+        this.recordBytes = 10 + rowLength * cellBytes;
+        if (recordBytes > SEGMENT_BYTES)
+            throw new RuntimeException("[MappedBuffer] a transition of "+recordBytes+" bytes does not fit into a segment");
+        this.recordsPerSegment = SEGMENT_BYTES / recordBytes;
+        int numSegments = (capacity + recordsPerSegment - 1) / recordsPerSegment;
+        File fdir = new File(dir);
+        if (!fdir.exists() && !fdir.mkdirs())
+            throw new RuntimeException("[MappedBuffer] cannot create directory "+dir);
+        this.lockChannel = lock(dir);
+        try {
+            header = map(Path.of(dir, "header.bin"), HEADER_BYTES);
+            boolean sameLayout = header.getInt(0) == MAGIC && header.getInt(4) == VERSION
+                    && header.getInt(8) == capacity && header.getInt(12) == width
+                    && header.getInt(16) == rowLength && header.getInt(20) == cellBytes;
+            segments = new MappedByteBuffer[numSegments];
+            for (int g = 0; g < numSegments; g++) {
+                long records = Math.min(recordsPerSegment, capacity - (long) g * recordsPerSegment);
+                segments[g] = map(Path.of(dir, String.format("segment-%03d.bin", g)), records * recordBytes);
+            }
+            if (resume && sameLayout) {
+                restore(header.getInt(POS_POINTER), header.getInt(POS_SIZE));
+                System.out.println("[MappedBuffer] resumed "+size()+" transitions from "+dir);
+            } else {
+                if (resume && header.getInt(0) == MAGIC)
+                    System.out.println("[MappedBuffer] layout in "+dir+" has changed, discarding old transitions");
+                header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, capacity).putInt(12, width)
+                        .putInt(16, rowLength).putInt(20, cellBytes);
+                pointersChanged();
+            }
+        } catch (IOException e) {
+            closeQuietly(lockChannel);
+            throw new RuntimeException("[MappedBuffer] cannot map segment files in "+dir+": "+e.getMessage());
+        }
+    }
+
+    public MappedBuffer(ParRB params, XNTupleFuncs xnf, boolean withNext, String dir, boolean resume) {
+        this(params.getCapacity(), params.getBatchSize(), xnf, withNext,
+                params.getSelectorV() == 1, params.getPerAlpha(), params.getPerBeta(), dir, resume);
+    }
+
+    /**
+     * Delete the unmarked directories of earlier runs with the same agent name (see {@link #prune(String, String)}).
+     *
+     * @param baseDir   the parent directory, usually {@link ParRB#getBufferDir()}
+     * @param name      the agent name
+     * @return a directory {@code baseDir/<name>-<date>-<time>-<k>}, which does not exist yet. {@code k} counts the
+     *          directories of this JVM, so that runs started in the same second (e.g. parallel runs of
+     *          {@code multiTrain}) get different directories.
+     */
+    public static String newDir(String baseDir, String name) {
+        String safeName = name.replaceAll("[^A-Za-z0-9._-]", "_");
+        prune(baseDir, safeName);
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        String prefix = safeName + "-" + stamp + "-";
+        File d;
+        do {
+            d = new File(baseDir, prefix + dirCount.getAndIncrement());
+        } while (d.exists());
+        return d.getPath();
+    }
+
+    /**
+     * Delete the directories {@code baseDir/<safeName>-<date>-<time>-<k>} which are not marked as saved and not locked
+     * by a buffer (in this or another JVM). Directories without lock file are skipped, since their buffer may just be
+     * starting.
+     */
+    private static void prune(String baseDir, String safeName) {
+        File[] dirs = new File(baseDir).listFiles();
+        if (dirs == null) return;
+        Pattern pattern = Pattern.compile(Pattern.quote(safeName) + "-\\d{8}-\\d{6}-\\d+");
+        for (File d : dirs) {
+            if (!d.isDirectory() || !pattern.matcher(d.getName()).matches()) continue;
+            if (new File(d, SAVED).exists() || !new File(d, "lock").exists()) continue;
+            FileChannel ch;
+            try {
+                ch = lock(d.getPath());
+            } catch (RuntimeException e) {
+                continue;       // in use
+            }
+            deleteDir(d);
+            closeQuietly(ch);
+        }
+    }
+
+    /**
+     * Delete the files in {@code d} and {@code d} itself. Files which cannot be deleted (e.g. still mapped on Windows)
+     * are left over.
+     */
+    private static void deleteDir(File d) {
+        File[] files = d.listFiles();
+        if (files != null)
+            for (File f : files) f.delete();
+        d.delete();
+    }
+
+    /**
+     * @return a channel on the file {@code lock} in {@code dir}, which holds the lock of the directory
+     * @throws RuntimeException if another buffer (in this or another JVM) has locked {@code dir}
+     */
+    private static FileChannel lock(String dir) {
+        FileChannel ch;
+        try {
+            ch = FileChannel.open(Path.of(dir, "lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new RuntimeException("[MappedBuffer] cannot open lock file in "+dir+": "+e.getMessage());
+        }
+        try {
+            if (ch.tryLock() != null) return ch;
+        } catch (OverlappingFileLockException e) {
+            // locked by another buffer of this JVM
+        } catch (IOException e) {
+            closeQuietly(ch);
+            throw new RuntimeException("[MappedBuffer] cannot lock "+dir+": "+e.getMessage());
+        }
+        closeQuietly(ch);
+        throw new RuntimeException("[MappedBuffer] directory "+dir+" is in use by another replay buffer");
+    }
+
+    private static void closeQuietly(FileChannel ch) {
+        try {
+            ch.close();
+        } catch (IOException e) {
+            // nothing to do, the lock is released at the latest when the JVM ends
+        }
+    }
+
+    private static MappedByteBuffer map(Path path, long bytes) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            MappedByteBuffer mb = ch.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            mb.order(ByteOrder.LITTLE_ENDIAN);
+            return mb;
+        }
+    }
+
+    private MappedByteBuffer segment(int slot) {
+        return segments[slot / recordsPerSegment];
+    }
+
+    private int offset(int slot) {
+        return (slot % recordsPerSegment) * recordBytes;
+    }
+
+    @Override
+    protected void writeRow(int slot, int p, int k, double r, int[] s, int[] next) {
+        MappedByteBuffer seg = segment(slot);
+        int off = offset(slot);
+        seg.put(off, (byte) p).put(off + 1, (byte) k).putDouble(off + 2, r);
+        putCells(seg, off + 10, s);
+        if (next != null) putCells(seg, off + 10 + width * cellBytes, next);
+    }
+
+    private void putCells(MappedByteBuffer seg, int off, int[] bvec) {
+        if (byteCells) {
+            for (int j = 0; j < width; j++) seg.put(off + j, (byte) bvec[j]);
+        } else {
+            for (int j = 0; j < width; j++) seg.putInt(off + 4 * j, bvec[j]);
+        }
+    }
+
+    @Override
+    protected void readCells(int slot, int part, int[] bvec) {
+        MappedByteBuffer seg = segment(slot);
+        int off = offset(slot) + 10 + part * width * cellBytes;
+        if (byteCells) {
+            for (int j = 0; j < width; j++) bvec[j] = seg.get(off + j) & 0xFF;
+        } else {
+            for (int j = 0; j < width; j++) bvec[j] = seg.getInt(off + 4 * j);
+        }
+    }
+
+    @Override
+    protected void pointersChanged() {
+        header.putInt(POS_POINTER, getIndexPointer()).putInt(POS_SIZE, size());
+    }
+
+    @Override
+    public int getPlayer(int slot) { return segment(slot).get(offset(slot)); }
+
+    @Override
+    public int getKind(int slot) { return segment(slot).get(offset(slot) + 1); }
+
+    @Override
+    public double getReward(int slot) { return segment(slot).getDouble(offset(slot) + 2); }
+
+    /**
+     * Write all changes to the segment files on disk. (Without this, the changes reach the disk when the OS decides,
+     * but they are not lost if only the JVM stops.)
+     */
+    public void flush() {
+        for (MappedByteBuffer seg : segments) seg.force();
+        header.force();
+    }
+
+    /**
+     * Mark the directory as referred to by a saved agent, so that it is kept by {@link #close()} and
+     * {@link #newDir(String, String)}, and write all changes to disk.
+     */
+    public void markSaved() {
+        flush();
+        try {
+            Files.write(Path.of(dir, SAVED), new byte[0]);
+        } catch (IOException e) {
+            throw new RuntimeException("[MappedBuffer] cannot mark "+dir+" as saved: "+e.getMessage());
+        }
+    }
+
+    /**
+     * @return true, if a saved agent refers to the directory (see {@link #markSaved()})
+     */
+    public boolean isSaved() {
+        return new File(dir, SAVED).exists();
+    }
+
+    /**
+     * Write all changes to disk, release the lock of the directory and drop the mappings (they are unmapped when
+     * garbage collected). If no saved agent refers to the directory (see {@link #markSaved()}), the directory is
+     * deleted. The buffer must not be used afterwards.
+     */
+    public void close() {
+        if (header == null) return;     // already closed
+        flush();
+        header = null;
+        segments = new MappedByteBuffer[0];
+        closeQuietly(lockChannel);
+        if (!isSaved()) deleteDir(new File(dir));
+    }
+
+    public String getDir() { return dir; }
+}
@@ -2,6 +2,5 @@ package controllers.ReplayBuffer;
 
 public class ConfigReplayBuffer {
 
-    public static boolean USE_REPLAYBUFFER = false;
     public static boolean DBG = false;
 }
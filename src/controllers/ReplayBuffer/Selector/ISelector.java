@@ -5,4 +5,25 @@ import controllers.ReplayBuffer.Transition.ITransition;
 public interface ISelector {
     public ITransition[] selectBatch();
     public String toString();
+
+    /**
+     * Called by the buffer after a transition was stored at {@code index}
+     */
+    public default void transitionAdded(int index) { }
+
+    /**
+     * @return the importance sampling weight of the {@code k}-th transition of the last batch (1.0 for uniform
+     * selectors)
+     */
+    public default double getWeight(int k) { return 1.0; }
+
+    /**
+     * Feed back the TD errors of the last batch (in batch order). Only prioritized selectors use them.
+     */
+    public default void updatePriorities(double[] tdErrors) { }
+
+    /**
+     * Called by the buffer when it is emptied
+     */
+    public default void reset() { }
 }
@@ -0,0 +1,81 @@
+package controllers.ReplayBuffer.Selector;
+
+import controllers.ReplayBuffer.Buffer.BaseBuffer;
+import controllers.ReplayBuffer.ConfigReplayBuffer;
+import controllers.ReplayBuffer.Transition.ITransition;
+
+/**
+ * Selector for prioritized experience replay [Schaul2016]: samples a transition with probability proportional to its
+ * priority {@code (|TD error| + EPS)^alpha}, using a {@link SumTree}. New transitions get the largest priority seen
+ * so far. The bias of the non-uniform sampling is corrected with the importance sampling weights
+ * {@code (N*P(i))^(-beta)} (see {@link #getWeight(int)}).
+ * <p>
+ * The agent has to report the TD errors of each batch with {@link #updatePriorities(double[])}.
+ */
+public class PrioritizedSelector extends BaseSelector {
+
+    /** small constant added to |TD error|, so that no transition gets priority 0 */
+    public static final double EPS = 1e-6;
+
+    private final double alpha;
+    private final double beta;
+    private final SumTree tree;
+    private final int[] slots;
+    private final double[] weights;
+
+    /**
+     * @param alpha the priority exponent (0: uniform sampling)
+     * @param beta  the importance sampling exponent (0: no correction, 1: full correction)
+     */
+    public PrioritizedSelector(BaseBuffer buffer, double alpha, double beta) {
+        super(buffer);
+        this.alpha = alpha;
+        this.beta = beta;
+        this.tree = new SumTree(getCapacity());
+        this.slots = new int[getBatchSize()];
+        this.weights = new double[getBatchSize()];
+    }
+
+    /**
+     * @return the priority for a transition with TD error {@code tdError}
+     */
+    public static double priority(double tdError, double alpha) {
+        return Math.pow(Math.abs(tdError) + EPS, alpha);
+    }
+
+    @Override
+    public ITransition[] selectBatch() {
+        ITransition[] transitions = new ITransition[getBatchSize()];
+        if(ConfigReplayBuffer.DBG) System.out.println("Maximal buffer size: " + getMaxBufferPosition()
+                + ", total priority: " + tree.total());
+        tree.sample(random, getMaxBufferPosition(), beta, slots, weights);
+        for(int i = 0; i < getBatchSize(); i++){
+            transitions[i] = getBuffer()[slots[i]];
+        }
+        return transitions;
+    }
+
+    @Override
+    public void transitionAdded(int index) {
+        tree.setMax(index);
+    }
+
+    @Override
+    public double getWeight(int k) {
+        return weights[k];
+    }
+
+    @Override
+    public void updatePriorities(double[] tdErrors) {
+        for (int k = 0; k < slots.length; k++) tree.set(slots[k], priority(tdErrors[k], alpha));
+    }
+
+    @Override
+    public void reset() {
+        tree.clear();
+    }
+
+    public String toString(){
+        return "Prioritized Selector (alpha=" + alpha + ", beta=" + beta + ")";
+    }
+}
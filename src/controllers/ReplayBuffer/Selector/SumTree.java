@@ -0,0 +1,112 @@
+package controllers.ReplayBuffer.Selector;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Binary sum tree over the priorities of {@code capacity} buffer slots: each inner node holds the sum of its two
+ * children, the root the total priority. Setting a priority and finding the slot for a prefix sum are O(log n).
+ * <p>
+ * The tree is a flat array with the root at index 1 and the leaves at {@code [leaves, 2*leaves)}, where
+ * {@code leaves} is the smallest power of 2 &ge; {@code capacity}. Unused leaves have priority 0 and are never found.
+ */
+public class SumTree {
+
+    private final int capacity;
+    private final int leaves;
+    private final double[] tree;
+    private double maxPriority = 1.0;   // priority for new transitions
+
+    public SumTree(int capacity) {
+        this.capacity = capacity;
+        this.leaves = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.tree = new double[2 * leaves];
+    }
+
+    /**
+     * Set the priority of slot {@code i} and update the sums on the path to the root
+     */
+    public void set(int i, double priority) {
+        if (priority < 0 || Double.isNaN(priority))
+            throw new RuntimeException("[SumTree] invalid priority " + priority + " for slot " + i);
+        if (priority > maxPriority) maxPriority = priority;
+        int node = leaves + i;
+        tree[node] = priority;
+        // recompute the sums from the children (no accumulated rounding drift as with adding differences)
+        for (node >>>= 1; node >= 1; node >>>= 1) tree[node] = tree[2 * node] + tree[2 * node + 1];
+    }
+
+    /**
+     * Set the priority of slot {@code i} to the largest priority seen so far (for new transitions, so that each is
+     * sampled at least with the probability of the currently most important one)
+     */
+    public void setMax(int i) {
+        set(i, maxPriority);
+    }
+
+    public double get(int i) {
+        return tree[leaves + i];
+    }
+
+    /**
+     * @return the sum of all priorities
+     */
+    public double total() {
+        return tree[1];
+    }
+
+    /**
+     * @param u a prefix sum in {@code [0, total())}
+     * @return the slot {@code i} with {@code sum(0..i-1) <= u < sum(0..i)}. Slots with priority 0 are never
+     * returned (if {@code total() > 0}), also not if {@code u} is slightly too large due to rounding.
+     */
+    public int find(double u) {
+        int node = 1;
+        while (node < leaves) {
+            int left = 2 * node;
+            if (u < tree[left] || tree[left + 1] == 0.0) {
+                node = left;
+            } else {
+                u -= tree[left];
+                node = left + 1;
+            }
+        }
+        return node - leaves;
+    }
+
+    /**
+     * Sample {@code slots.length} slots proportional to their priority, stratified: the k-th sample is drawn from the
+     * k-th of {@code slots.length} equal segments of {@code [0, total())}. Fill {@code weights} with the importance
+     * sampling weights {@code (n*P(i))^(-beta)}, normalized by their maximum in the batch.
+     *
+     * @param random    the random generator
+     * @param n         the number of used slots
+     * @param beta      the importance sampling exponent (0: no correction, 1: full correction)
+     * @param slots     on output: the sampled slots
+     * @param weights   on output: the importance sampling weights of the sampled slots
+     */
+    public void sample(Random random, int n, double beta, int[] slots, double[] weights) {
+        double total = total();
+        double segment = total / slots.length;
+        double maxW = 0.0;
+        for (int k = 0; k < slots.length; k++) {
+            int i = find((k + random.nextDouble()) * segment);
+            slots[k] = i;
+            weights[k] = Math.pow(n * get(i) / total, -beta);
+            if (weights[k] > maxW) maxW = weights[k];
+        }
+        for (int k = 0; k < slots.length; k++) weights[k] /= maxW;
+    }
+
+    /**
+     * Set all priorities to 0
+     */
+    public void clear() {
+        Arrays.fill(tree, 0.0);
+        maxPriority = 1.0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
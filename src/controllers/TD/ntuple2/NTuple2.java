@@ -5,7 +5,6 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Serializable;
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.Random;
 
 import controllers.TD.ntuple4.NTuple4;
@@ -33,7 +32,7 @@ import params.ParNT;
  *
  * @see NTuple4
  */
-public class NTuple2 implements Serializable {
+public class NTuple2 implements Serializable, Cloneable {
 
 	private double INIT; // samine// N and A will be initialized with the same number(INIT)
 
@@ -56,7 +55,14 @@ public class NTuple2 implements Serializable {
 
 	private int[] nTuple;
 	private int posVals; // # of possible values for a field of the board
+	private transient int[] stride;	// stride[i] = posVals^i, the LUT index weight of position i (see getIndex)
+	private transient int[][] cellPerm = null;	// the permutation tables symCells was built for
+	private transient int[][] symCells = null;	// symCells[s][i] = cellPerm[s][nTuple[i]] (see getSymCells)
 	private double lut[];
+	private float[] lutF;		// the LUT in case precision==PREC_FLOAT (lut and lutS are then null)
+	private short[] lutS;		// the LUT in case precision==PREC_INT16 (lut and lutF are then null)
+	private float lutScale = 1.0f;	// weight = lutS[i]*lutScale (only for precision==PREC_INT16)
+	private int precision = PREC_DOUBLE;	// which of lut, lutF, lutS holds the weights (see ParNT#getWeightPrecision)
 	private transient double tcN[] = null;
 	private transient double tcA[] = null;
 	private transient double tcFactorArray[] = null;
@@ -68,7 +74,10 @@ public class NTuple2 implements Serializable {
 	// is realized by remembering the already visited indices in indexList.
 	// It ensures that an update with ALPHA=1.0 changes the LUT in such a way that a subsequent
 	// call getScoreI() returns a value identical to the target of that update.
-	private transient LinkedList indexList = new LinkedList();
+	// indexList[0..indexCount-1] is a primitive array (no boxing, no allocation per update). Between two calls
+	// of clearIndices() it holds at most as many indices as there are symmetries, so a linear scan is fastest.
+	private transient int[] indexList = new int[8];
+	private transient int indexCount = 0;
 //	private transient int trainCounter[] = null;
 //	private boolean useIndexList = true;	// true: use indexList in updateNew()
 //											// false: use trainCounter in updateNew()
@@ -94,6 +103,11 @@ public class NTuple2 implements Serializable {
 	 */
 	private static final long  serialVersionUID = 12L;
 
+	// the weight precisions, see ParNT#getWeightPrecision()
+	private static final int PREC_DOUBLE = NTuple4.PREC_DOUBLE;
+	private static final int PREC_FLOAT = NTuple4.PREC_FLOAT;
+	private static final int PREC_INT16 = NTuple4.PREC_INT16;
+
 	/**
 	 * Each NTuple consists of {@link NTuple2#getLength()} positions on the game
 	 * board.<br>
@@ -118,16 +132,23 @@ public class NTuple2 implements Serializable {
 		rand = new Random();
 		this.nTuple = nTuple.clone();
 		this.posVals = posVals;
-		lut = new double[(int) Math.pow(posVals, nTuple.length)];
+		initStrides();
+		precision = ntPar.getWeightPrecision();
+		switch (precision) {
+			case PREC_FLOAT -> lutF = new float[(int) Math.pow(posVals, nTuple.length)];
+			case PREC_INT16 -> throw new RuntimeException("[NTuple2] Weight precision int16 is only for inference: "
+					+ "train the agent with precision double or float and convert it afterwards");
+			default -> lut = new double[(int) Math.pow(posVals, nTuple.length)];
+		}
 		if (TC) {
-			tcN = new double[lut.length]; // matrix N in TC
-			tcA = new double[lut.length]; // matrix A in TC
-			tcFactorArray = new double[lut.length]; // tcFactor=|N|/A
+			tcN = new double[getLutLength()]; // matrix N in TC
+			tcA = new double[getLutLength()]; // matrix A in TC
+			tcFactorArray = new double[getLutLength()]; // tcFactor=|N|/A
 			//tcDampArray = new double[lut.length]; // /WK/ for NEW_WK
 			//dWArray = new double[lut.length];	// for accumulating TC (tcImm==false)
 			
 			// initializing N and A matrices and tcFactor=|N|/A
-			for (int i = 0; i < lut.length; i++) {
+			for (int i = 0; i < getLutLength(); i++) {
 				tcN[i] = INIT;
 				tcA[i] = INIT;
 				tcFactorArray[i] = 1.0;
@@ -136,26 +157,46 @@ public class NTuple2 implements Serializable {
 		}
 		
 		if (DW_DBG) {
-			dWOld = new double[lut.length];
-			countP = new int[lut.length];
-			countM = new int[lut.length];
+			dWOld = new double[getLutLength()];
+			countP = new int[getLutLength()];
+			countM = new int[getLutLength()];
 		}
 
 //		if (useIndexList==false)
 //			trainCounter = new int[lut.length];
 	}
 
+	/**
+	 * @return a copy of this n-tuple for a snapshot (see {@link NTuple2ValueFunc#snapshot(NTupleAgt)}): the weights
+	 * 		are frozen copies of the current weights, the TC arrays (only read during evaluation) are shared
+	 */
+	NTuple2 snapshotCopy() {
+		try {
+			NTuple2 nt = (NTuple2) super.clone();
+			if (lut!=null) nt.lut = lut.clone();
+			if (lutF!=null) nt.lutF = lutF.clone();
+			if (lutS!=null) nt.lutS = lutS.clone();
+			nt.indexList = new int[8];
+			nt.indexCount = 0;
+			return nt;
+		} catch (CloneNotSupportedException e) {
+			throw new RuntimeException("[NTuple2] "+e.getMessage());
+		}
+	}
+
 	public boolean instantiateAfterLoading() {
-		indexList = new LinkedList();
+		indexList = new int[8];
+		indexCount = 0;
+		initStrides();
 		if (TC) {
-			tcN = new double[lut.length]; // matrix N in TC
-			tcA = new double[lut.length]; // matrix A in TC
-			tcFactorArray = new double[lut.length]; // tcFactor=|N|/A
+			tcN = new double[getLutLength()]; // matrix N in TC
+			tcA = new double[getLutLength()]; // matrix A in TC
+			tcFactorArray = new double[getLutLength()]; // tcFactor=|N|/A
 			//tcDampArray = new double[lut.length]; // /WK/ for NEW_WK
 			//dWArray = new double[lut.length];	// for accumulating TC (tcImm==false)
 			
 			// initializing N and A matrices and tcFactor=|N|/A
-			for (int i = 0; i < lut.length; i++) {
+			for (int i = 0; i < getLutLength(); i++) {
 				tcN[i] = INIT;
 				tcA[i] = INIT;
 				tcFactorArray[i] = 1.0;
@@ -175,12 +216,54 @@ public class NTuple2 implements Serializable {
 	 */
 	public int getIndex(int[] board) {
 		int index = 0;
-		int P=1; 		// P = (posVals)^i in i-loop below
+		for (int i = 0; i < nTuple.length; i++)
+			index += stride[i] * board[nTuple[i]];
+		return index;
+	}
+
+	/**
+	 * Get the LUT index for a symmetric board of {@code board}, without constructing the symmetric board.
+	 *
+	 * @param board	the representation of a game board
+	 * @param cells	the cells of {@code board} read by the n-tuple positions in the symmetric board, i.e. an element
+	 * 				of {@link #getSymCells(int[][])}
+	 * @return the corresponding index into the LUT
+	 */
+	public int getIndex(int[] board, int[] cells) {
+		int index = 0;
+		for (int i = 0; i < cells.length; i++)
+			index += stride[i] * board[cells[i]];
+		return index;
+	}
+
+	/**
+	 * @param perm	permutation tables from {@link XNTupleFuncs#symmetryPermutations(int)}
+	 * @return {@code cells} with {@code cells[s][i] = perm[s][nTuple[i]]}, the cell of the original board which is
+	 * 		read by position {@code i} of this n-tuple in the {@code s}th symmetric board. Cached for the last
+	 * 		{@code perm}, so that the LUT index of each symmetry costs no more than {@link #getIndex(int[])}.
+	 */
+	int[][] getSymCells(int[][] perm) {
+		if (perm!=cellPerm) {
+			int[][] cells = new int[perm.length][nTuple.length];
+			for (int s = 0; s < perm.length; s++)
+				for (int i = 0; i < nTuple.length; i++)
+					cells[s][i] = perm[s][nTuple[i]];
+			symCells = cells;
+			cellPerm = perm;
+		}
+		return symCells;
+	}
+
+	/**
+	 * Precompute the strides {@code posVals^i} of {@link #getIndex(int[])}
+	 */
+	private void initStrides() {
+		stride = new int[nTuple.length];
+		int P=1;
 		for (int i = 0; i < nTuple.length; i++) {
-			index += P * ( board[nTuple[i]]);
+			stride[i] = P;
 			P = P*posVals;
 		}
-		return index;
 	}
 
 //	/**
@@ -241,8 +324,62 @@ public class NTuple2 implements Serializable {
 	 *            If {@code false}, all weights are set to 0.0.
 	 */
 	public void initWeights(boolean random) {
-		for (int i = 0; i < lut.length; i++)
-			lut[i] = (random ? EPS * (rand.nextDouble() * 2 - 1) : 0.0);
+		for (int i = 0; i < getLutLength(); i++)
+			lutSet(i, (random ? EPS * (rand.nextDouble() * 2 - 1) : 0.0));
+	}
+
+	/**
+	 * @param i index into the LUT
+	 * @return the weight stored at {@code i}, whatever the weight precision is
+	 */
+	private double lutGet(int i) {
+		return switch (precision) {
+			case PREC_FLOAT -> lutF[i];
+			case PREC_INT16 -> lutS[i]*lutScale;
+			default -> lut[i];
+		};
+	}
+
+	private void lutSet(int i, double w) {
+		switch (precision) {
+			case PREC_FLOAT -> lutF[i] = (float) w;
+			case PREC_INT16 -> throw new RuntimeException("[NTuple2] int16 weights are inference-only and cannot be changed");
+			default -> lut[i] = w;
+		}
+	}
+
+	/**
+	 * Convert the weights of this n-tuple to another weight precision. Converting to int16 chooses
+	 * the scale such that the weight with largest magnitude maps to {@link Short#MAX_VALUE}.
+	 *
+	 * @param prec  the new weight precision, see {@link ParNT#getWeightPrecision()}
+	 *
+	 * @see NTuple2ValueFunc#convertWeightPrecision(int)
+	 */
+	void convertPrecision(int prec) {
+		if (prec==precision) return;
+		double[] w = getWeights();
+		lut = null; lutF = null; lutS = null;
+		switch (prec) {
+			case PREC_DOUBLE -> lut = w;
+			case PREC_FLOAT -> {
+				lutF = new float[w.length];
+				for (int i=0; i<w.length; i++) lutF[i] = (float) w[i];
+			}
+			case PREC_INT16 -> {
+				lutS = new short[w.length];
+				double maxAbs = 0;
+				for (double v : w) maxAbs = Math.max(maxAbs, Math.abs(v));
+				lutScale = (maxAbs==0) ? 1.0f : (float) (maxAbs / Short.MAX_VALUE);
+				for (int i=0; i<w.length; i++) lutS[i] = (short) Math.round(w[i] / lutScale);
+			}
+			default -> throw new RuntimeException("[NTuple2] Unknown weight precision "+prec);
+		}
+		precision = prec;
+	}
+
+	public int getPrecision() {
+		return precision;
 	}
 
     /**
@@ -258,7 +395,7 @@ public class NTuple2 implements Serializable {
 	 */
 	public double getScore(int[] board) {
 		int Index = getIndex(board);
-		double score = lut[Index];
+		double score = lutGet(Index);
 		
 //		final double MAXSCORE = 3932156; 
 //		System.out.println(Index + " ["+score*MAXSCORE+"]");  //debug
@@ -266,6 +403,22 @@ public class NTuple2 implements Serializable {
 		return score;
 	}
 
+	/**
+	 * Same as {@link #getScore(int[])} for a symmetric board of {@code board}
+	 *
+	 * @param cells an element of {@link #getSymCells(int[][])}, see {@link #getIndex(int[], int[])}
+	 */
+	public double getScore(int[] board, int[] cells) {
+		return lutGet(getIndex(board, cells));
+	}
+
+	/**
+	 * @return the weight at LUT index {@code index} (from {@link #getIndex(int[])} of an n-tuple with the same shape)
+	 */
+	double getWeightAt(int index) {
+		return lutGet(index);
+	}
+
 //	/**
 //	 * Update the weights of this NTuple for one specific board (not using
 //	 * symmetries)
@@ -338,9 +491,14 @@ public class NTuple2 implements Serializable {
 	 * @see NTuple2ValueFunc#update(StateObsWithBoardVector, int, int, double, double, boolean, boolean)
 	 */
 	public void updateNew(int[] board, double alphaM, double delta, double e /*, double LAMBDA*/) {
-		int index = getIndex(board);
-		Integer indexI = new Integer(index);
+		updateIndex(getIndex(board), alphaM, delta, e);
+	}
 
+	/**
+	 * Same as {@link #updateNew(int[], double, double, double)}, but for the LUT index {@code index} (from
+	 * {@link #getIndex(int[])} of an n-tuple with the same shape)
+	 */
+	void updateIndex(int index, double alphaM, double delta, double e) {
 		double tcFactor = getTcFactor(index);	// returns 1 if (!TC)
 				
 		double rW = delta * e;					// recommended weight change
@@ -355,11 +513,11 @@ public class NTuple2 implements Serializable {
 		}
 
 //		if (useIndexList) {		// useIndexList==true is the recommended choice
+			boolean visited = visitIndex(index);
 			if (!TC || (TC && tcImm)) {
-				if (!indexList.contains(indexI)) 
-					lut[index] += dW;				
+				if (!visited) 
+					lutSet(index, lutGet(index) + dW);
 			}		
-			indexList.add(indexI);
 //		} 
 
 //		if (TC)
@@ -395,8 +553,8 @@ public class NTuple2 implements Serializable {
 	// currently not used
 	@Deprecated
 	public void weightDecay(double factor) {
-		for (int k=0; k<lut.length; k++)
-			lut[k] *= factor;
+		for (int k=0; k<getLutLength(); k++)
+			lutSet(k, lutGet(k) * factor);
 	}
 	
 	/**
@@ -405,8 +563,8 @@ public class NTuple2 implements Serializable {
 	 * @return the kth weight for this NTuple
 	 */
 	public double getWeight(int k) {
-		assert (k >= 0 && k < lut.length) : " k is not a valid LUT index";
-		return lut[k];
+		assert (k >= 0 && k < getLutLength()) : " k is not a valid LUT index";
+		return lutGet(k);
 	}
 
 //	/**
@@ -430,8 +588,14 @@ public class NTuple2 implements Serializable {
 //		return tcA[k];
 //	}
 
+	/**
+	 * @return the LUT of this n-tuple (a copy, if the weight precision is not double)
+	 */
 	public double[] getWeights() {
-		return lut;
+		if (precision==PREC_DOUBLE) return lut;
+		double[] w = new double[getLutLength()];
+		for (int i=0; i<w.length; i++) w[i] = lutGet(i);
+		return w;
 	}
 	
 	public double[] getTcFactorArray() {
@@ -452,7 +616,7 @@ public class NTuple2 implements Serializable {
 
 	public void clearIndices() {
 //		if (useIndexList) {
-			indexList.clear();			
+			indexCount = 0;
 //		} else {
 //			// very slow!!!
 //			for (int k=0; k<trainCounter.length; k++)
@@ -460,15 +624,28 @@ public class NTuple2 implements Serializable {
 //		}
 	}
 
+	/**
+	 * Remember {@code index} in indexList (if it is not yet there).
+	 *
+	 * @return true, if {@code index} was already in indexList (i.e. visited since the last {@link #clearIndices()})
+	 */
+	private boolean visitIndex(int index) {
+		for (int k=0; k<indexCount; k++)
+			if (indexList[k]==index) return true;
+		if (indexCount==indexList.length) indexList = Arrays.copyOf(indexList, 2*indexCount);
+		indexList[indexCount++] = index;
+		return false;
+	}
+
 	public int getCountP(int k) {
 		if (!DW_DBG) return 0;
-		assert (k >= 0 && k < lut.length) : " k is not a valid LUT index";
+		assert (k >= 0 && k < getLutLength()) : " k is not a valid LUT index";
 		return countP[k];
 	}
 
 	public int getCountM(int k) {
 		if (!DW_DBG) return 0;
-		assert (k >= 0 && k < lut.length) : " k is not a valid LUT index";
+		assert (k >= 0 && k < getLutLength()) : " k is not a valid LUT index";
 		return countM[k];
 	}
 
@@ -488,7 +665,11 @@ public class NTuple2 implements Serializable {
 	 * @return the length of the LUT for this NTuple
 	 */
 	public int getLutLength() {
-		return lut.length;
+		return switch (precision) {
+			case PREC_FLOAT -> lutF.length;
+			case PREC_INT16 -> lutS.length;
+			default -> lut.length;
+		};
 	}
 
 	public int getPosVals() {
@@ -508,9 +689,9 @@ public class NTuple2 implements Serializable {
 			//for (int i = 0; i < lut.length; i++)
 			//	tcFactorArray[i] = (double) Math.abs(tcN[i]) / tcA[i];
 
-			for (int i = 0; i < lut.length; i++) {
+			for (int i = 0; i < getLutLength(); i++) {
 				tcFactorArray[i] = (double) Math.abs(tcN[i]) / tcA[i];
-				lut[i] += tcFactorArray[i]* dWArray[i];				// ??correct to update lut here?? TODO
+				lutSet(i, lutGet(i) + tcFactorArray[i]* dWArray[i]);	// ??correct to update lut here?? TODO
 				dWArray[i]=0.0;
 			}
 		}
@@ -562,17 +743,17 @@ public class NTuple2 implements Serializable {
 
 	public int lutHashSum() {
 		int hs=0; 
-		for (int i=0; i<lut.length; i++) if (lut[i]>0) hs += i;
+		for (int i=0; i<getLutLength(); i++) if (lutGet(i)>0) hs += i;
 		return (hs%100);
 	}
 	public double lutSum() {
 		double ls=0; 
-		for (int i=0; i<lut.length; i++) ls += lut[i];
+		for (int i=0; i<getLutLength(); i++) ls += lutGet(i);
 		return ls;
 	}
 	public double lutSumAbs() {
 		double ls=0; 
-		for (int i=0; i<lut.length; i++) ls += Math.abs(lut[i]);
+		for (int i=0; i<getLutLength(); i++) ls += Math.abs(lutGet(i));
 		return ls;
 	}
 }
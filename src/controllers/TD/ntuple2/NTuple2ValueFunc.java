@@ -8,8 +8,7 @@ import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.ListIterator;
+import java.util.List;
 import java.util.Locale;
 
 import org.apache.commons.math3.stat.descriptive.rank.Min;
@@ -38,7 +37,7 @@ import tools.Types;
  * 
  * @author Markus Thill, Wolfgang Konen (extension TD(lambda)), TH Koeln, 2017-2020  
  */
-public class NTuple2ValueFunc implements Serializable {
+public class NTuple2ValueFunc implements Serializable, Cloneable {
 	/* Experimental Parameters: */
 	// protected double EPS = 0.5; /* random weights init scale */
 	// protected double BIAS = 1.0; /* strength of the bias (constant input) */
@@ -82,7 +81,10 @@ public class NTuple2ValueFunc implements Serializable {
 	// elements needed for TD(lambda)-update with finite horizon, 
 	// see update(int[],int,double,double):
 	private int horizon=0;
-	private transient LinkedList<EligStates>[] eList;
+	private transient EligRing[] eRing;		// one ring buffer per player (built lazily in update)
+
+	private transient int[][] symOut = null;	// symOut[o]: equivalent actions of output o (see getSymActions)
+	private transient int[][] idPerm = null;	// the identity permutation (see getSymPermutations)
 
 	private final boolean PRINTNTUPLES = false;	// /WK/ control the file printout of n-tuples (when loading agents)
 	private final DecimalFormat frmS = new DecimalFormat("+0.00000;-0.00000");
@@ -128,8 +130,7 @@ public class NTuple2ValueFunc implements Serializable {
 		this.xnf = xnf;
 		this.numPlayers = xnf.getNumPlayers();
 		this.numOutputs = numOutputs;
-		this.eList = new LinkedList[this.numPlayers];
-		for (int ie=0; ie<eList.length; ie++) eList[ie] = new LinkedList<EligStates>();
+		this.eRing = new EligRing[this.numPlayers];
 		this.tdAgt = parent;
 		
 		if (nTuplesI!=null) {
@@ -163,8 +164,7 @@ public class NTuple2ValueFunc implements Serializable {
 	}
 
 	public boolean instantiateAfterLoading() {
-		this.eList = new LinkedList[this.numPlayers];
-		for (int ie=0; ie<eList.length; ie++) eList[ie] = new LinkedList<EligStates>();
+		this.eRing = new EligRing[this.numPlayers];
 		for (int i = 0; i < numTuples; i++) {
 			for (int o=0; o<numOutputs; o++) {
 				for (int k=0; k<numPlayers; k++) {
@@ -172,8 +172,30 @@ public class NTuple2ValueFunc implements Serializable {
 				}				
 			}
 		}
+		// convert the weights, if the agent's ParNT requests another precision than the one stored
+		convertWeightPrecision(tdAgt.getParNT().getWeightPrecision());
 		return true;
 	}
+
+	/**
+	 * @return the weight precision in which the n-tuple weights are currently stored
+	 */
+	public int getWeightPrecision() {
+		return nTuples[0][0][0].getPrecision();
+	}
+
+	/**
+	 * Convert the weights of all n-tuples to weight precision {@code prec} (see {@link ParNT#getWeightPrecision()}).
+	 * Nothing happens if the weights have already this precision.
+	 *
+	 * @param prec 0: double, 1: float, 2: int16 (inference only)
+	 */
+	public void convertWeightPrecision(int prec) {
+		for (NTuple2[][] nTuple : nTuples)
+			for (NTuple2[] nT : nTuple)
+				for (NTuple2 nt : nT)
+					nt.convertPrecision(prec);
+	}
 	
 	/**
 	 * @return The list of n-Tuples
@@ -207,12 +229,15 @@ public class NTuple2ValueFunc implements Serializable {
 	public double getQFunc(StateObsWithBoardVector curSOWB, int player, Types.ACTIONS act) {
 		int i, j;
 		double score = 0.0;
-		BoardVector[] equiv;
 		int[] equivAction;
 
-		// Get equivalent boards (including self)
-		equiv = getSymBoards2(curSOWB, getUSESYMMETRY(), getNSym());
-		equivAction = xnf.symmetryActions(act.toInt());
+		// Get equivalent boards (including self). If the symmetries are cell permutations, only the board itself
+		// is needed, its symmetric LUT indices are calculated via perm:
+		int[][] perm = getSymPermutations(getUSESYMMETRY(), getNSym());
+		BoardVector[] equiv = (perm==null) ? getSymBoards2(curSOWB, getUSESYMMETRY(), getNSym()) : null;
+		int numEquiv = (perm==null) ? equiv.length : perm.length;
+		int[] bvec = curSOWB.getBoardVector().bvec;
+		equivAction = getSymActions(act.toInt(), true);
 
 		for (i=0; i<equivAction.length; i++) {
 			if (equivAction[i]>=nTuples.length) {
@@ -223,13 +248,52 @@ public class NTuple2ValueFunc implements Serializable {
 		}
 		
 		for (i = 0; i < numTuples; i++) {
-			for (j = 0; j < equiv.length; j++) {
-				score += nTuples[equivAction[j]][player][i].getScore(equiv[j].bvec);
+			int[][] cells = (perm==null) ? null : nTuples[0][0][i].getSymCells(perm);
+			for (j = 0; j < numEquiv; j++) {
+				NTuple2 nt = nTuples[equivAction[j]][player][i];
+				score += (perm==null) ? nt.getScore(equiv[j].bvec) : nt.getScore(bvec, cells[j]);
 			}
 		}
 
 		return (hasSigmoid() ? Math.tanh(score) : score);
 	}
+
+	/**
+	 * Get the action-value function Q for state {@code curSOWB} and all actions in {@code acts} in one pass over
+	 * the n-tuples and symmetries: the LUT index of each n-tuple and each symmetry is calculated only once and then
+	 * looked up in the LUTs of all actions' output cells. Yields the same values as
+	 * {@link #getQFunc(StateObsWithBoardVector, int, Types.ACTIONS)} for each action.
+	 *
+	 * @param curSOWB	the state
+	 * @param player	the player who has to move on {@code curSOWB} (0,...,N-1)
+	 * @param acts		the actions
+	 * @param qValues	array of length &ge; {@code acts.size()}, receives Q for each action
+	 */
+	public void getQFuncs(StateObsWithBoardVector curSOWB, int player, List<Types.ACTIONS> acts, double[] qValues) {
+		int nA = acts.size();
+		int[][] perm = getSymPermutations(getUSESYMMETRY(), getNSym());
+		BoardVector[] equiv = (perm==null) ? getSymBoards2(curSOWB, getUSESYMMETRY(), getNSym()) : null;
+		int numEquiv = (perm==null) ? equiv.length : perm.length;
+		int[] bvec = curSOWB.getBoardVector().bvec;
+		int[][] out = new int[nA][];
+		for (int a = 0; a < nA; a++) {
+			out[a] = getSymActions(acts.get(a).toInt(), true);
+			qValues[a] = 0.0;
+		}
+
+		for (int i = 0; i < numTuples; i++) {
+			NTuple2 shape = nTuples[0][0][i];		// all n-tuple objects for tuple i have the same LUT indices
+			int[][] cells = (perm==null) ? null : shape.getSymCells(perm);
+			for (int j = 0; j < numEquiv; j++) {
+				int index = (perm==null) ? shape.getIndex(equiv[j].bvec) : shape.getIndex(bvec, cells[j]);
+				for (int a = 0; a < nA; a++)
+					qValues[a] += nTuples[out[a][j]][player][i].getWeightAt(index);
+			}
+		}
+
+		if (hasSigmoid())
+			for (int a = 0; a < nA; a++) qValues[a] = Math.tanh(qValues[a]);
+	}
 	
 	/**
 	 * Get the value for this state in int[]-representation
@@ -243,16 +307,21 @@ public class NTuple2ValueFunc implements Serializable {
 	public double getScoreI(StateObsWithBoardVector curSOWB, int player) {
 		int i, j;
 		double score = 0.0; 
-		BoardVector[] equiv;
 
-		// Get equivalent boards (including self)
-		equiv = getSymBoards2(curSOWB, getUSESYMMETRY(), getNSym());
+		// Get equivalent boards (including self). If the symmetries are cell permutations, only the board itself
+		// is needed, its symmetric LUT indices are calculated via perm:
+		int[][] perm = getSymPermutations(getUSESYMMETRY(), getNSym());
+		BoardVector[] equiv = (perm==null) ? getSymBoards2(curSOWB, getUSESYMMETRY(), getNSym()) : null;
+		int numEquiv = (perm==null) ? equiv.length : perm.length;
+		int[] bvec = curSOWB.getBoardVector().bvec;
 		//equiv = getSymBoards2(board, false);    // DON'T, at least for TTT clearly inferior
 
 		for (i = 0; i < numTuples; i++) {
-			for (j = 0; j < equiv.length; j++) {
+			NTuple2 nt = nTuples[0][player][i];
+			int[][] cells = (perm==null) ? null : nTuples[0][0][i].getSymCells(perm);
+			for (j = 0; j < numEquiv; j++) {
 				//System.out.println("g(i,j)=("+i+","+j+"):  ");		//debug
-				score += nTuples[0][player][i].getScore(equiv[j].bvec);
+				score += (perm==null) ? nt.getScore(equiv[j].bvec) : nt.getScore(bvec, cells[j]);
 			}
 		}
 		//if (getUSESYMMETRY()) score /= equiv.length; // DON'T, at least for TTT clearly inferior
@@ -277,20 +346,8 @@ public class NTuple2ValueFunc implements Serializable {
 	private BoardVector[] getSymBoards2(StateObsWithBoardVector curSOWB, boolean useSymmetry, int nSym) {
 		BoardVector[] equiv;
 		
-		assert nSym >= 0 : "Ooops, nSym="+nSym+" is negative!";
-		assert nSym <= xnf.getNumSymmetries() 
-				: "Oops, nSym="+nSym+" is larger than xnf.getNumSymmetries()="+xnf.getNumSymmetries()+"!";
-		
-		
 		if (useSymmetry) {
-			if (nSym==0) nSym=xnf.getNumSymmetries();
-			if (tdAgt instanceof SarsaAgt && nSym < xnf.getNumSymmetries())
-				// in the SarsaAgt case we can only handle the case n=getNumSymmetries() (use all symmetries). 
-				// This is because symmetryActions currently assumes that all symmetries are taken.
-				// (symmetryActions is ONLY needed by SarsaAgt - and perhaps later by QLearnAgt)
-				throw new RuntimeException("[NTuple2ValueFunc] Sorry, cannot handle case SarsaAgt and 0 < nSym < s (symmetryActions not yet adapted).");
-
-			equiv = xnf.symmetryVectors(curSOWB,nSym);
+			equiv = xnf.symmetryVectors(curSOWB,checkNSym(nSym));
 		} else {
 			equiv = new BoardVector[1];
 			equiv[0] = curSOWB.getBoardVector();			
@@ -299,17 +356,58 @@ public class NTuple2ValueFunc implements Serializable {
 		return equiv;
 	}
 
-	private int[] getSymActions(int output, boolean useSymmetry) {
-		int[] equivActions;
-		if (useSymmetry) {
-			equivActions = xnf.symmetryActions(output);
-
-		} else {
-			equivActions = new int[1];
-			equivActions[0] = output;			
+	/**
+	 * Get the permutation tables for the equivalent positions (see {@link XNTupleFuncs#symmetryPermutations(int)}),
+	 * so that the LUT indices of the equivalent positions can be calculated from the board itself.
+	 *
+	 * @param useSymmetry if false, return only the identity permutation (the board itself)
+	 * @param nSym the number of symmetry vectors to use (if = 0, use all symmetries)
+	 * @return the permutation tables or null, if the symmetries of the game are no cell permutations (then
+	 * 		{@link #getSymBoards2(StateObsWithBoardVector, boolean, int)} is needed)
+	 */
+	private int[][] getSymPermutations(boolean useSymmetry, int nSym) {
+		if (!useSymmetry) {
+			int[][] id = idPerm;
+			if (id==null) {
+				id = new int[1][xnf.getNumCells()];
+				for (int c=0; c<id[0].length; c++) id[0][c] = c;
+				idPerm = id;
+			}
+			return id;
 		}
-		
-		return equivActions;
+		return xnf.symmetryPermutations(checkNSym(nSym));
+	}
+
+	/**
+	 * @return the number of symmetries to use ({@link XNTupleFuncs#getNumSymmetries()}, if {@code nSym=0})
+	 */
+	private int checkNSym(int nSym) {
+		assert nSym >= 0 : "Ooops, nSym="+nSym+" is negative!";
+		assert nSym <= xnf.getNumSymmetries() 
+				: "Oops, nSym="+nSym+" is larger than xnf.getNumSymmetries()="+xnf.getNumSymmetries()+"!";
+
+		if (nSym==0) nSym=xnf.getNumSymmetries();
+		if (tdAgt instanceof SarsaAgt && nSym < xnf.getNumSymmetries())
+			// in the SarsaAgt case we can only handle the case n=getNumSymmetries() (use all symmetries). 
+			// This is because symmetryActions currently assumes that all symmetries are taken.
+			// (symmetryActions is ONLY needed by SarsaAgt - and perhaps later by QLearnAgt)
+			throw new RuntimeException("[NTuple2ValueFunc] Sorry, cannot handle case SarsaAgt and 0 < nSym < s (symmetryActions not yet adapted).");
+		return nSym;
+	}
+
+	/**
+	 * @return the equivalent actions of {@code output} ({@link XNTupleFuncs#symmetryActions(int)}, cached in
+	 * 		{@link #symOut}), or only {@code output} itself, if {@code !useSymmetry}
+	 * @throws RuntimeException if {@code output} is not a valid output (checked before the cache is accessed)
+	 */
+	private int[] getSymActions(int output, boolean useSymmetry) {
+		if (output<0 || output>=numOutputs)
+			throw new RuntimeException("[NTuple2ValueFunc] action "+output+" is not in [0,"+numOutputs+"), the number of outputs");
+		if (!useSymmetry) return new int[] {output};
+		int[][] so = symOut;
+		if (so==null) so = symOut = new int[numOutputs][];
+		if (so[output]==null) so[output] = xnf.symmetryActions(output);
+		return so[output];
 	}
 
 //	/**
@@ -548,45 +646,60 @@ public class NTuple2ValueFunc implements Serializable {
 		int i, j, out;
 		double alphaM, lamFactor;
 
-		// Get equivalent boards (including self) and corresponding actions
-		BoardVector[] equiv = getSymBoards2(curSOWB, getUSESYMMETRY(), getNSym());
-		int[] equivAction = (QMODE ? getSymActions(output, getUSESYMMETRY()) : null); 
+		// Get equivalent boards (including self) and corresponding actions. If the symmetries are cell
+		// permutations, only the board itself is needed, its symmetric LUT indices are calculated via perm:
+		boolean useSymmetry = getUSESYMMETRY();
+		int[][] perm = getSymPermutations(useSymmetry, getNSym());
+		BoardVector[] equiv = (perm==null) ? getSymBoards2(curSOWB, useSymmetry, getNSym()) : null;
+		int numEquiv = (perm==null) ? equiv.length : perm.length;
+		int[] equivAction = (QMODE && useSymmetry ? getSymActions(output, true) : null); 
 		// equivAction only needed for QMODE==true
 
-		alphaM = ALPHA / (numTuples*equiv.length); 
+		alphaM = ALPHA / (numTuples*numEquiv); 
 
-		// construct new EligStates object, add it at head of LinkedList eList[ie] and remove 
-		// from the list the element 'beyond horizon' t_0 = t-horizon (if any).
-		// The LinkedList to use is either always the same one (ie=0, if ELIST_PP==false) or 
-		// the list kept for each specific player 'player' (if ELIST_PP==true):
+		// store the LUT indices of the new state in the ring buffer eRing[ie], overwriting the element 'beyond
+		// horizon' t_0 = t-horizon (if any). The ring buffer to use is either always the same one (ie=0, if
+		// ELIST_PP==false) or the one kept for each specific player 'player' (if ELIST_PP==true):
 		int ie = (ELIST_PP ? player : 0);
-		EligStates elem = new EligStates(equiv,equivAction,e);
-		eList[ie].addFirst(elem);
 		assert (horizon>0) : "[NTuple2ValueFunc.update] Error: horizon is 0 !";
-		if (eList[ie].size()>horizon) eList[ie].pollLast();
+		EligRing ring = eRing[ie];
+		if (ring==null || ring.capacity()!=horizon)
+			ring = eRing[ie] = new EligRing(horizon, ring);
+		int slot = ring.push(numTuples*numEquiv, numEquiv);
+		int[] idx = ring.idx[slot];
+		int[] bvec = curSOWB.getBoardVector().bvec;
+		for (i = 0; i < numTuples; i++) {
+			NTuple2 shape = nTuples[0][0][i];		// all n-tuple objects for tuple i have the same LUT indices
+			int[][] cells = (perm==null) ? null : shape.getSymCells(perm);
+			for (j = 0; j < numEquiv; j++)
+				idx[i*numEquiv+j] = (perm==null) ? shape.getIndex(equiv[j].bvec) : shape.getIndex(bvec, cells[j]);
+		}
+		if (QMODE) {
+			int[] outs = ring.outs[slot];
+			for (j = 0; j < numEquiv; j++) {
+				// this assertion is only valid for TicTacToe, where each action should be 
+				// on an empty field which is coded as '1' here:
+				//assert (equiv[j][equivAction[j]]==1) : "Oops, action TicTacToe not viable";
+				outs[j] = (equivAction!=null) ? equivAction[j] : output;
+			}
+		}
+		ring.sigDeriv[slot] = e;
 		
-		// iterate over all list elements in horizon  (at most h+1 elements from t down to t_0):
-		ListIterator<EligStates> iter = eList[ie].listIterator();		
-		lamFactor=1;  // holds 1, LAMBDA, LAMBDA^2,... in successive passes through while-loop
-		while(iter.hasNext()) {
-			elem=iter.next();
-			equiv=elem.equiv;
-			equivAction=elem.equivAction;
-//			printEquivs(equiv,equivAction);		// debug (TTT only)
-			//System.out.println(eList[ie].size()+" "+lamFactor+"   ["+ equiv[0]+"]");	// debug
+		// iterate over all elements in horizon  (at most h elements from t down to t_0), newest first:
+		lamFactor=1;  // holds 1, LAMBDA, LAMBDA^2,... in successive passes through for-loop
+		for (int age = 0; age < ring.size; age++) {
+			slot = ring.slot(age);
+			idx = ring.idx[slot];
+			int S = ring.numEquiv[slot];
+			int[] outs = ring.outs[slot];
 			assert (lamFactor >= tdAgt.getParTD().getHorizonCut()) 
 					: "Error: lamFactor < ParTD.getHorizonCut";
-			e = lamFactor*elem.sigDeriv;
+			e = lamFactor*ring.sigDeriv[slot];
 			for (i = 0; i < numTuples; i++) {
 				nTuples[output][player][i].clearIndices();
-				for (j = 0; j < equiv.length; j++) {
-					// this assertion is only valid for TicTacToe, where each action should be 
-					// on an empty field which is coded as '1' here:
-					//assert (equiv[j][equivAction[j]]==1) : "Oops, action TicTacToe not viable";
-					
-					out = (QMODE ? equivAction[j] : output);
-//					System.out.print("(i,j)=("+i+","+j+"):  ");		//debug
-					nTuples[out][player][i].updateNew(equiv[j].bvec, alphaM, delta, e);
+				for (j = 0; j < S; j++) {
+					out = (QMODE ? outs[j] : output);
+					nTuples[out][player][i].updateIndex(idx[i*S+j], alphaM, delta, e);
 				}
 			}
 			lamFactor *= getLambda(); 
@@ -696,9 +809,34 @@ public class NTuple2ValueFunc implements Serializable {
 	}
 
 
+	/**
+	 * @return a snapshot of this value function for evaluation while training continues (see
+	 * {@link NTupleBase#getSnapshot()}): it has a frozen copy of all n-tuple weights, its own eligibility lists and
+	 * its own learn action counter
+	 *
+	 * @param owner the agent which owns the snapshot (used to access the parameters)
+	 */
+	NTuple2ValueFunc snapshot(NTupleAgt owner) {
+		NTuple2ValueFunc snap;
+		try {
+			snap = (NTuple2ValueFunc) super.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new RuntimeException("[NTuple2ValueFunc] "+e.getMessage());
+		}
+		snap.tdAgt = owner;
+		snap.numLearnActions = 0L;
+		snap.eRing = new EligRing[numPlayers];
+		snap.nTuples = new NTuple2[numOutputs][numPlayers][numTuples];
+		for (int o=0; o<numOutputs; o++)
+			for (int k=0; k<numPlayers; k++)
+				for (int i=0; i<numTuples; i++)
+					snap.nTuples[o][k][i] = nTuples[o][k][i].snapshotCopy();
+		return snap;
+	}
+
 	public void clearEligList() {
-		for (int ie=0; ie<eList.length; ie++)
-			eList[ie].clear();
+		for (EligRing ring : eRing)
+			if (ring!=null) ring.size = 0;
 	}
 	
 	public void clearEligList(NTupleAgt.EligType m_elig) {
@@ -713,16 +851,64 @@ public class NTuple2ValueFunc implements Serializable {
 	}
 
 	
-	// class EligStates is needed in update(int[],int,int,double,double,boolean)
-	private class EligStates implements Serializable {
-		BoardVector[] equiv;
-		int[] equivAction;
-		double sigDeriv;
-		
-		EligStates(BoardVector[] equiv, int[] equivAction, double sigDeriv) {
-			this.equiv=equiv.clone();
-			this.equivAction=(equivAction==null ? null : equivAction.clone());
-			this.sigDeriv=sigDeriv;
+	/**
+	 * Ring buffer for the LAMBDA-horizon mechanism in
+	 * {@link #update(StateObsWithBoardVector, int, int, double, double, boolean, boolean) update}: it holds for the
+	 * last (at most {@link #horizon}) updates the LUT indices of all n-tuples and symmetries, the output cells
+	 * (QMODE only) and the sigmoid derivative. The slots are reused, so that an update with LAMBDA &gt; 0 needs no
+	 * allocations and the LUT indices of each state are calculated only once.
+	 */
+	private static class EligRing {
+		int[][] idx;		// idx[slot][i*S+j]: LUT index of n-tuple i, symmetry j
+		int[] numEquiv;		// numEquiv[slot]: number S of symmetries
+		int[][] outs;		// outs[slot][j]: output cell for symmetry j (QMODE only)
+		double[] sigDeriv;
+		int head = -1;		// slot of the newest element
+		int size = 0;
+
+		/**
+		 * @param capacity	the horizon
+		 * @param old		if not null, the newest elements of {@code old} are taken over (horizon changed)
+		 */
+		EligRing(int capacity, EligRing old) {
+			idx = new int[capacity][0];
+			numEquiv = new int[capacity];
+			outs = new int[capacity][0];
+			sigDeriv = new double[capacity];
+			if (old!=null) {
+				for (int age = Math.min(old.size, capacity)-1; age >= 0; age--) {
+					int o = old.slot(age);
+					int slot = push(0, 0);
+					idx[slot] = old.idx[o];
+					numEquiv[slot] = old.numEquiv[o];
+					outs[slot] = old.outs[o];
+					sigDeriv[slot] = old.sigDeriv[o];
+				}
+			}
+		}
+
+		int capacity() {
+			return sigDeriv.length;
+		}
+
+		/**
+		 * Make room for a new element (overwriting the oldest one, if the ring is full).
+		 * @return the slot of the new element, its arrays can hold {@code idxLength} indices and {@code S} outputs
+		 */
+		int push(int idxLength, int S) {
+			head = (head + 1) % capacity();
+			if (size < capacity()) size++;
+			if (idx[head].length < idxLength) idx[head] = new int[idxLength];
+			if (outs[head].length < S) outs[head] = new int[S];
+			numEquiv[head] = S;
+			return head;
+		}
+
+		/**
+		 * @return the slot of the element with age {@code age} (0: newest)
+		 */
+		int slot(int age) {
+			return (head - age + capacity()) % capacity();
 		}
 	}
 
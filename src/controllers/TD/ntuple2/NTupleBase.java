@@ -12,6 +12,7 @@ import java.util.Random;
 import controllers.AgentBase;
 import controllers.PlayAgent;
 import controllers.RandomAgent;
+import controllers.TD.ntuple4.NTuple4;
 import games.Arena;
 import games.StateObsWithBoardVector;
 import games.StateObservation;
@@ -24,7 +25,7 @@ import params.ParTD;
  *	@see SarsaAgt
  *	@see TDNTuple3Agt
  */
-abstract public class NTupleBase extends AgentBase implements NTupleAgt, Serializable {
+abstract public class NTupleBase extends AgentBase implements NTupleAgt, Serializable, Cloneable {
 	public Random rand; // generate random Numbers
 	
 	/**
@@ -262,8 +263,31 @@ abstract public class NTupleBase extends AgentBase implements NTupleAgt, Seriali
 		return m_Net;
 	}
 	
+	/**
+	 * @return false, if the weights are stored as int16 (see {@link ParNT#getWeightPrecision()}), since the agent is
+	 * 		inference-only then
+	 */
+	@Override
+	public boolean isTrainable() { return m_Net.getWeightPrecision()!=NTuple4.PREC_INT16; }
+
+	/**
+	 * @return a shallow copy of this agent with a frozen copy of the n-tuple weights (see
+	 * 		{@link NTuple2ValueFunc#snapshot(NTupleAgt)}) and its own random generators. Parameters and training
+	 * 		state are shared, since the snapshot is only used for evaluation.
+	 */
 	@Override
-	public boolean isTrainable() { return true; }
+	public PlayAgent getSnapshot() {
+		NTupleBase snap;
+		try {
+			snap = (NTupleBase) super.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new RuntimeException("[NTupleBase] "+e.getMessage());
+		}
+		snap.m_Net = m_Net.snapshot(snap);
+		snap.rand = new Random(rand.nextLong());
+		snap.randomAgent = new RandomAgent("Random");
+		return snap;
+	}
 
 	public ParTD getParTD() {
 		return m_tdPar;
@@ -276,6 +300,17 @@ abstract public class NTupleBase extends AgentBase implements NTupleAgt, Seriali
 	}
 	public void setParNT(ParNT m_ntPar) {
 		this.m_ntPar = new ParNT(m_ntPar);
+		if (m_Net!=null) m_Net.convertWeightPrecision(m_ntPar.getWeightPrecision());
+	}
+
+	/**
+	 * Set the weight precision in {@link #m_ntPar} and convert the n-tuple weights accordingly
+	 *
+	 * @param prec 0: double, 1: float, 2: int16 (inference only), see {@link ParNT#getWeightPrecision()}
+	 */
+	public void setWeightPrecision(int prec) {
+		m_ntPar.setWeightPrecision(prec);
+		m_Net.convertWeightPrecision(prec);
 	}
 
 
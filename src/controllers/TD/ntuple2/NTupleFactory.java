@@ -26,7 +26,9 @@ public class NTupleFactory {
 	private boolean PRINTNTUPLES = false;	// /WK/ control the file printout of n-tuples
 
 	// needed for generating random n-Tuples
-	private Random rand = new Random(System.currentTimeMillis());	
+	// (not seeded with the time, since factories constructed within the same ms, e.g. for concurrent training
+	// runs, have to generate different n-tuples)
+	private Random rand = new Random();
 
 	/**
 	 * 
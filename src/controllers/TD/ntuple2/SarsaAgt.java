@@ -257,6 +257,14 @@ public class SarsaAgt extends NTupleBase implements PlayAgent,NTupleAgt,Serializ
         VTable = new double[acts.size()];  
         
         assert acts.size()>0 : "Oops, no available action";
+        double[] qValues = null;
+        if (!randomSelect) {
+			// the Q values of all actions in one pass over the n-tuples and symmetries: the symmetric LUT
+			// indices are calculated only once and looked up in the LUTs of the actions' output cells
+    		StateObsWithBoardVector curSOWB = new StateObsWithBoardVector(so, m_Net.xnf);
+    		qValues = new double[acts.size()];
+    		m_Net.getQFuncs(curSOWB,so.getPlayer(),acts,qValues);
+        }
         for(i = 0; i < acts.size(); ++i)
         {
     		if (randomSelect) {
@@ -266,8 +274,7 @@ public class SarsaAgt extends NTupleBase implements PlayAgent,NTupleAgt,Serializ
     			// TODO: currently we cannot mirror in Q-learning the afterstate logic 
     			// that we have optionally in TDNTuple3Agt
     			
-        		StateObsWithBoardVector curSOWB = new StateObsWithBoardVector(so, m_Net.xnf);
-            	qValue = m_Net.getQFunc(curSOWB,so.getPlayer(),acts.get(i));
+            	qValue = qValues[i];
             	
             	// It is a bit funny, that the decision is made based only on qValue, not 
             	// on the reward we might receive for action a=acts.get(i). So an action leading to 
@@ -0,0 +1,296 @@
+package controllers.TD.ntuple4;
+
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import games.StateObsWithBoardVector;
+import games.StateObservation;
+import games.XNTupleBase;
+import games.XNTupleFuncs;
+import tools.Types.ACTIONS;
+
+/**
+ * Actor-learner self-play training for {@link NTuple4Base} agents ({@link TDNTuple4Agt}, {@link Sarsa4Agt} and
+ * {@link games.RubiksCube.DAVI3Agent}):
+ * <ul>
+ * <li> Several <b>actor</b> threads play the episodes with a read-only snapshot of the n-tuple weights (see
+ * 		{@link NTuple4ValueFunc#snapshot(NTuple4Agt)}). Each actor records the transitions of its episode as compact
+ * 		{@link Episode} (board vectors, players, actions, rewards) and puts it into a bounded queue.
+ * <li> One <b>learner</b> thread (the calling thread) takes the episodes from the queue and applies the TD updates
+ * 		of each episode in order to the agent's weights. Since only the learner writes the weights, this works also
+ * 		for sparse LUTs and gives the same kind of updates as sequential training.
+ * <li> Every {@code refresh} learned episodes the learner takes a new snapshot. Each actor switches to it at the
+ * 		start of its next episode.
+ * </ul>
+ * The queue holds {@value #QUEUE_PER_ACTOR} episodes per actor. If the learner falls behind, the actors block on
+ * the full queue (<b>backpressure</b>), so that the episodes are never more than a few refresh intervals old.
+ * The targets of an episode are computed by the learner with the current weights, only the actions (and for
+ * {@link games.RubiksCube.DAVI3Agent} the targets) stem from the snapshot. {@link Metrics} reports the
+ * <b>staleness</b> of the snapshots and how long actors and learner had to wait.
+ *
+ * @see NTuple4Base#trainActorLearner(StateObservation[], int, int)
+ */
+public class ActorLearner {
+	private static final int QUEUE_PER_ACTOR = 4;
+
+	private final NTuple4Base agent;
+	private final int numActors;
+	private final int refresh;
+	private final XNTupleFuncs xnf;
+	private final boolean keepState;		// whether the steps need the state itself
+	private final NTuple4Agt.EligType elig;
+	private volatile NTuple4Base[] actors;	// the actors of the current snapshot
+	private final Metrics metrics = new Metrics();
+
+	/**
+	 * @param agent		the agent to train (the learner)
+	 * @param numActors	number of actor threads
+	 * @param refresh	number of learned episodes between two snapshots
+	 */
+	ActorLearner(NTuple4Base agent, int numActors, int refresh) {
+		this.agent = agent;
+		this.numActors = Math.max(numActors, 1);
+		this.refresh = Math.max(refresh, 1);
+		this.xnf = agent.m_Net.getXnf();
+		this.keepState = XNTupleBase.symmetriesNeedState(xnf) || NTuple4Base.DBG_REWARD || NTuple4Base.DBG_OLD_3P;
+		this.elig = (agent.getParTD().getEligMode()==0) ? NTuple4Agt.EligType.STANDARD : NTuple4Agt.EligType.RESET;
+	}
+
+	/**
+	 * Train the agent for {@code soArr.length} episodes, one from each start state in {@code soArr}.
+	 *
+	 * @return the metrics of this training
+	 */
+	Metrics train(StateObservation[] soArr) {
+		int num = soArr.length;
+		ArrayBlockingQueue<Episode> queue = new ArrayBlockingQueue<>(QUEUE_PER_ACTOR * numActors);
+		AtomicInteger next = new AtomicInteger(0);
+		AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+		// one evaluation in this thread creates all lazily built tables (symmetry permutations, incremental map),
+		// which the snapshots inherit:
+		agent.getNextAction2(soArr[0].partialState(), false, true, true);
+		newSnapshot();
+
+		Thread[] threads = new Thread[numActors];
+		for (int t=0; t<numActors; t++) {
+			final int a = t;
+			threads[t] = new Thread(() -> {
+				try {
+					int k;
+					while ((k = next.getAndIncrement()) < num && failure.get()==null) {
+						NTuple4Base actor = actors[a];
+						Episode ep = new Episode(actor.getGameNum());
+						actor.actEpisode(soArr[k], ep);
+						if (!queue.offer(ep)) {
+							long t0 = System.nanoTime();
+							queue.put(ep);
+							metrics.blockedPuts.incrementAndGet();
+							metrics.blockedNanos.addAndGet(System.nanoTime() - t0);
+						}
+					}
+				} catch (InterruptedException e) {
+					// the learner has stopped after a failure
+				} catch (RuntimeException e) {
+					failure.compareAndSet(null, e);
+				}
+			}, "ActorLearner-actor-"+t);
+			threads[t].setDaemon(true);
+			threads[t].start();
+		}
+
+		try {
+			int learned = 0;
+			while (learned < num && failure.get()==null) {
+				long t0 = System.nanoTime();
+				int size = queue.size();
+				Episode ep = queue.poll(100, TimeUnit.MILLISECONDS);
+				metrics.waitNanos += System.nanoTime() - t0;
+				if (ep==null) continue;
+				metrics.sumQueueSize += size;
+				long stale = agent.getGameNum() - ep.version;
+				metrics.sumStaleness += stale;
+				metrics.maxStaleness = Math.max(metrics.maxStaleness, stale);
+				learn(ep);
+				learned++;
+				if (learned % refresh == 0 && learned < num) newSnapshot();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			failure.compareAndSet(null, new RuntimeException("[ActorLearner] interrupted while waiting for episodes"));
+		} catch (RuntimeException e) {
+			failure.compareAndSet(null, e);
+		}
+		for (Thread thread : threads) {
+			if (failure.get()!=null) thread.interrupt();	// unblock actors waiting on the full queue
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("[ActorLearner] interrupted while waiting for actor threads");
+			}
+		}
+		if (failure.get()!=null) throw failure.get();
+		return metrics;
+	}
+
+	/**
+	 * Take a new snapshot of the agent's weights and publish one actor per thread for it
+	 */
+	private void newSnapshot() {
+		long t0 = System.nanoTime();
+		NTuple4ValueFunc frozen = agent.m_Net.snapshot(agent);
+		NTuple4Base[] acts = new NTuple4Base[numActors];
+		for (int t=0; t<numActors; t++)
+			acts[t] = agent.newActor(frozen);
+		actors = acts;
+		metrics.numSnapshots++;
+		metrics.snapshotNanos += System.nanoTime() - t0;
+	}
+
+	/**
+	 * Apply the TD updates of episode {@code ep} in order, then finish the episode as in sequential training
+	 */
+	private void learn(Episode ep) {
+		NTuple4ValueFunc net = agent.m_Net;
+		double gamma = agent.getGamma();
+		for (Step st : ep.steps) {
+			if (st.cur==null) {
+				net.clearEligList(elig);	// the list is only cleared if elig==RESET
+				continue;
+			}
+			double target = st.reward;
+			if (st.action==null) {
+				if (st.next!=null) target += gamma*net.getScoreI(st.next, st.player);
+				double vLast = net.getScoreI(st.cur, st.player);
+				net.updateWeightsTD(st.cur, st.player, vLast, target, st.reward, st.cur.getStateObservation());
+			} else {
+				if (st.next!=null) target += gamma*net.getQFunc(st.next, st.player, st.nextAction);
+				double qLast = net.getQFunc(st.cur, st.player, st.action);
+				net.updateWeightsQ(st.cur, st.player, st.action, qLast, target, st.reward,
+						st.cur.getStateObservation());
+			}
+		}
+		metrics.numEpisodes++;
+		metrics.numSteps += ep.steps.size();
+		agent.finishLearnedEpisode(ep.numMoves, ep.finishUpdate);
+	}
+
+	/**
+	 * One TD update: Adapt the value (or the Q-value of {@code action}, if not null) of {@code cur} for
+	 * {@code player} towards {@code reward + gamma*V(next)} (or {@code reward + gamma*Q(next,nextAction)}). If
+	 * {@code next} is null, the target is {@code reward}. If {@code cur} is null, the step just clears the
+	 * eligibility lists (random move).
+	 */
+	private record Step(int player, StateObsWithBoardVector cur, ACTIONS action,
+						StateObsWithBoardVector next, ACTIONS nextAction, double reward) { }
+
+	/**
+	 * The transitions of one episode, recorded by an actor (see {@link NTuple4Base#actEpisode(StateObservation,
+	 * Episode)}) and applied by the learner in order. The states are stored only as board vectors, unless the
+	 * game's symmetries need the state itself.
+	 */
+	public class Episode {
+		private final long version;		// gameNum of the learner when the actor's snapshot was taken
+		private final ArrayList<Step> steps = new ArrayList<>();
+		private long numMoves = 0;
+		private boolean finishUpdate = true;
+
+		private Episode(long version) {
+			this.version = version;
+		}
+
+		private StateObsWithBoardVector sowb(StateObservation so) {
+			return (so==null) ? null : new StateObsWithBoardVector(keepState ? so.copy() : null,
+					xnf.getBoardVector(so));
+		}
+
+		/**
+		 * Add a V-update: Adapt V({@code so}) for {@code player} towards {@code reward + gamma*V(next)}
+		 *
+		 * @param next	the state to bootstrap from, null for target {@code reward}
+		 */
+		public void addUpdate(int player, StateObservation so, StateObservation next, double reward) {
+			steps.add(new Step(player, sowb(so), null, sowb(next), null, reward));
+		}
+
+		/**
+		 * Add a Q-update: Adapt Q({@code so},{@code action}) for {@code player} towards
+		 * {@code reward + gamma*Q(next,nextAction)}
+		 *
+		 * @param next	the state to bootstrap from, null for target {@code reward}
+		 */
+		public void addUpdateQ(int player, StateObservation so, ACTIONS action,
+							   StateObservation next, ACTIONS nextAction, double reward) {
+			steps.add(new Step(player, sowb(so), action, sowb(next), nextAction, reward));
+		}
+
+		/**
+		 * Add a step which clears the eligibility lists (if eligibility mode is RESET) instead of an update
+		 */
+		public void addClear() {
+			steps.add(new Step(0, null, null, null, null, 0.0));
+		}
+
+		/**
+		 * Count one train move (see {@link controllers.AgentBase#getNumTrnMoves()})
+		 */
+		public void addMove() {
+			numMoves++;
+		}
+
+		/**
+		 * @param finish whether the learner calls {@link NTuple4Base#finishUpdateWeights()} after this episode
+		 * 		(default: true)
+		 */
+		public void setFinishUpdate(boolean finish) {
+			this.finishUpdate = finish;
+		}
+	}
+
+	/**
+	 * Metrics of an actor-learner training:
+	 * <ul>
+	 * <li> <b>staleness</b>: the number of episodes the learner has learned between taking the snapshot an episode
+	 * 		was played with and learning this episode,
+	 * <li> <b>queue</b>: the mean number of episodes waiting in the queue when the learner takes the next one,
+	 * <li> <b>blocked</b>: how often and how long the actors waited on the full queue (backpressure),
+	 * <li> <b>learner waited</b>: how long the learner waited on the empty queue.
+	 * </ul>
+	 */
+	public static class Metrics {
+		private long numEpisodes = 0;
+		private long numSteps = 0;
+		private long numSnapshots = 0;
+		private long snapshotNanos = 0;
+		private long sumStaleness = 0;
+		private long maxStaleness = 0;
+		private long sumQueueSize = 0;
+		private long waitNanos = 0;
+		private final AtomicLong blockedPuts = new AtomicLong();
+		private final AtomicLong blockedNanos = new AtomicLong();
+
+		public long getNumEpisodes() { return numEpisodes; }
+		public long getNumSteps() { return numSteps; }
+		public long getNumSnapshots() { return numSnapshots; }
+		public double getMeanStaleness() { return (numEpisodes==0) ? 0.0 : (double) sumStaleness/numEpisodes; }
+		public long getMaxStaleness() { return maxStaleness; }
+		public double getMeanQueueSize() { return (numEpisodes==0) ? 0.0 : (double) sumQueueSize/numEpisodes; }
+		public long getBlockedPuts() { return blockedPuts.get(); }
+		public double getBlockedMillis() { return blockedNanos.get()/1e6; }
+		public double getLearnerWaitMillis() { return waitNanos/1e6; }
+		public double getSnapshotMillis() { return snapshotNanos/1e6; }
+
+		@Override
+		public String toString() {
+			return String.format("actor-learner: %d episodes, %d updates, staleness mean=%.1f max=%d, queue=%.1f, "
+					+ "blocked puts=%d (%.0f ms), learner waited %.0f ms, %d snapshots (%.0f ms)",
+					numEpisodes, numSteps, getMeanStaleness(), maxStaleness, getMeanQueueSize(),
+					getBlockedPuts(), getBlockedMillis(), getLearnerWaitMillis(), numSnapshots, getSnapshotMillis());
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package controllers.TD.ntuple4;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Read-only compacted LUT for {@link NTuple4}, built from a dense LUT and the visit counts of a calibration run
+ * (see {@link NTuple4ValueFunc#compactLUTs()}):
+ * <ul>
+ * <li> <b>hot</b> entries (visited during calibration, non-zero weight) are stored in a small open-addressing hash
+ * 		table, which is probed first,
+ * <li> <b>cold</b> entries (not visited, but non-zero weight) are stored as sorted index array and found by binary
+ * 		search,
+ * <li> all other entries (weight 0) are not stored.
+ * </ul>
+ * Since trained agents usually leave a large share of their LUT entries at 0 and visit only a part of the others
+ * during play, this needs a fraction of the memory of the dense LUT, and the hot entries are more likely to be in
+ * the cache. Weights are stored as {@code float} (as in {@link SparseLUT}).
+ */
+public class CompactLUT implements Serializable {
+	private static final int EMPTY = -1;		// LUT indices are >= 0
+	private static final double MAX_LOAD = 0.5;
+
+	private final int[] hotKeys;
+	private final float[] hotVals;
+	private final int mask;				// hotKeys.length-1 (hotKeys.length is a power of 2)
+	private final int[] coldKeys;		// sorted
+	private final float[] coldVals;
+	private final int length;			// length of the original LUT
+
+	/**
+	 * change the version ID for serialization only if a newer version is no longer
+	 * compatible with an older one (older .agt.zip will become unreadable or you have
+	 * to provide a special version transformation)
+	 */
+	@Serial
+	private static final long  serialVersionUID = 12L;
+
+	/**
+	 * @param w		the dense LUT
+	 * @param visits	the visit counts for each entry of {@code w}
+	 */
+	CompactLUT(double[] w, int[] visits) {
+		length = w.length;
+		int nHot = 0, nCold = 0;
+		for (int i = 0; i < w.length; i++) {
+			if (w[i] == 0.0) continue;
+			if (visits[i] > 0) nHot++; else nCold++;
+		}
+		int len = Integer.highestOneBit((int) Math.ceil(Math.max(nHot, 1) / MAX_LOAD));
+		if (len < nHot / MAX_LOAD) len <<= 1;
+		hotKeys = new int[Math.max(len, 2)];
+		Arrays.fill(hotKeys, EMPTY);
+		hotVals = new float[hotKeys.length];
+		mask = hotKeys.length - 1;
+		coldKeys = new int[nCold];
+		coldVals = new float[nCold];
+		for (int i = 0, c = 0; i < w.length; i++) {
+			if (w[i] == 0.0) continue;
+			if (visits[i] > 0) {
+				int h = home(i);
+				while (hotKeys[h] != EMPTY) h = (h + 1) & mask;
+				hotKeys[h] = i;
+				hotVals[h] = (float) w[i];
+			} else {
+				coldKeys[c] = i;		// ascending, since i is ascending
+				coldVals[c++] = (float) w[i];
+			}
+		}
+	}
+
+	private int home(int key) {
+		int x = key * 0x9E3779B9;
+		return (x ^ (x >>> 16)) & mask;
+	}
+
+	/**
+	 * @return the weight for LUT index {@code key}
+	 */
+	public float get(int key) {
+		int h = home(key);
+		int k;
+		while ((k = hotKeys[h]) != EMPTY) {
+			if (k == key) return hotVals[h];
+			h = (h + 1) & mask;
+		}
+		if (coldKeys.length == 0) return 0.0f;
+		int c = Arrays.binarySearch(coldKeys, key);
+		return (c >= 0) ? coldVals[c] : 0.0f;
+	}
+
+	/**
+	 * @return the length of the original (dense) LUT
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	public int getNumHot() {
+		int n = 0;
+		for (int k : hotKeys) if (k != EMPTY) n++;
+		return n;
+	}
+
+	public int getNumCold() {
+		return coldKeys.length;
+	}
+
+	/**
+	 * @return the approximate memory footprint of the stored entries in bytes
+	 */
+	public long getBytes() {
+		return 8L * hotKeys.length + 8L * coldKeys.length;
+	}
+}
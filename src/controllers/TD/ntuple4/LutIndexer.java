@@ -0,0 +1,63 @@
+package controllers.TD.ntuple4;
+
+import params.ParNT;
+
+/**
+ * Index step of the gather-sum score kernel of {@link NTuple4ValueFunc} (see {@link ParNT#getScoreKernel()}): for
+ * the rows r = 0,...,R-1 (one row per n-tuple and symmetry) it calculates the relative LUT indices
+ * <pre>
+ *     idx[r] = sum_{p&lt;L} strides[p*R+r] * bvec[cells[p*R+r]]  </pre>
+ * The tables are position-major, so that the entries of consecutive rows are consecutive in memory. Rows of
+ * n-tuples shorter than L are padded with stride 0.
+ * <p>
+ * The implementation uses the JDK Vector API ({@code VectorLutIndexer} in source folder {@code src-vector}). It is
+ * available, if the module {@code jdk.incubator.vector} is present (JVM option
+ * {@code --add-modules jdk.incubator.vector}) and the class is on the class path. Otherwise {@link #get()} returns
+ * null and the n-tuple values are calculated by the scalar path of {@link NTuple4ValueFunc} (a scalar version of
+ * the kernel is slower than that for some n-tuple sets).
+ */
+public interface LutIndexer {
+
+	/**
+	 * @param bvec		the board vector
+	 * @param cells		position-major table of the cells, length {@code L*R}
+	 * @param strides	position-major table of the strides, length {@code L*R}
+	 * @param L			the maximum n-tuple length
+	 * @param R			the number of rows
+	 * @param idx		receives the relative LUT index of each row, length &ge; R
+	 */
+	void indices(int[] bvec, int[] cells, int[] strides, int L, int R, int[] idx);
+
+	/**
+	 * @return a short name of the implementation (for log output)
+	 */
+	String getName();
+
+	/**
+	 * @return the Vector API implementation or null, if it is not available
+	 */
+	static LutIndexer get() {
+		return Holder.INSTANCE;
+	}
+
+	/**
+	 * Lazy holder: the implementation is chosen once, on first use
+	 */
+	final class Holder {
+		static final LutIndexer INSTANCE = choose();
+
+		private Holder() { }
+
+		private static LutIndexer choose() {
+			if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+				try {
+					return (LutIndexer) Class.forName("controllers.TD.ntuple4.VectorLutIndexer")
+							.getDeclaredConstructor().newInstance();
+				} catch (ReflectiveOperationException | LinkageError e) {
+					// not compiled into this build (source folder src-vector) --> scalar path
+				}
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package controllers.TD.ntuple4;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serial;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only LUT for {@link NTuple4}, which reads its weights directly from a memory-mapped LUT file (see
+ * {@link NTuple4ValueFunc#exportLUTs(String)} and {@link NTuple4ValueFunc#mapLUTs(String)}). The weights are not
+ * copied to the heap: they are paged in by the OS on first access, and all JVMs mapping the same LUT file share
+ * the same pages of the page cache.
+ * <p>
+ * Only the file name and the LUT length are serialized, so an agent with mapped LUTs is saved and loaded in a
+ * fraction of the time. After loading, the LUT file is mapped again (it has to be still at the same place and
+ * unchanged, see {@link NTuple4ValueFunc#instantiateAfterLoading()}).
+ * <p>
+ * The LUT file (little-endian) consists of the header
+ * <pre>
+ *     int MAGIC, int VERSION, int bytes per weight (4: float, 8: double), int number of LUTs n,
+ *     long[n] LUT lengths </pre>
+ * followed by the weights of each LUT, in the order of {@link NTuple4ValueFunc#getNTuples()}. Header and LUTs
+ * start at multiples of 8 bytes.
+ */
+public class MappedLUT implements Serializable {
+	private static final int MAGIC = 0x4C54344E;		// "N4TL"
+	private static final int VERSION = 1;
+	private static final int CHUNK = 1 << 16;			// weights per write
+
+	private final String path;		// absolute path of the LUT file
+	private final int length;		// number of weights
+	private final boolean isFloat;	// true: 4 bytes per weight, false: 8
+	private transient FloatBuffer bufF = null;
+	private transient DoubleBuffer bufD = null;
+
+	/**
+	 * change the version ID for serialization only if a newer version is no longer
+	 * compatible with an older one (older .agt.zip will become unreadable or you have
+	 * to provide a special version transformation)
+	 */
+	@Serial
+	private static final long  serialVersionUID = 12L;
+
+	private MappedLUT(String path, long offset, int length, boolean isFloat, FileChannel ch) throws IOException {
+		this.path = path;
+		this.length = length;
+		this.isFloat = isFloat;
+		ByteBuffer bb = ch.map(FileChannel.MapMode.READ_ONLY, offset, (long) length * bytes(isFloat))
+				.order(ByteOrder.LITTLE_ENDIAN);
+		if (isFloat) bufF = bb.asFloatBuffer();
+		else bufD = bb.asDoubleBuffer();
+	}
+
+	private static int bytes(boolean isFloat) {
+		return isFloat ? 4 : 8;
+	}
+
+	private static long align8(long pos) {
+		return (pos + 7) & ~7L;
+	}
+
+	/**
+	 * Write the LUTs of {@code nts} to a new LUT file {@code path} (an existing file is overwritten).
+	 *
+	 * @param asFloat	whether to store the weights as {@code float} or as {@code double}
+	 */
+	static void write(String path, NTuple4[] nts, boolean asFloat) throws IOException {
+		int bpw = bytes(asFloat);
+		ByteBuffer head = ByteBuffer.allocate((int) align8(16 + 8L * nts.length)).order(ByteOrder.LITTLE_ENDIAN);
+		head.putInt(MAGIC).putInt(VERSION).putInt(bpw).putInt(nts.length);
+		for (NTuple4 nt : nts) {
+			if (nt.getSparseLUT()!=null)
+				throw new RuntimeException("[MappedLUT] Sparse LUTs cannot be exported");
+			head.putLong(nt.getLutLength());
+		}
+		head.position(head.capacity()).flip();
+		ByteBuffer buf = ByteBuffer.allocate(CHUNK * bpw).order(ByteOrder.LITTLE_ENDIAN);
+		try (FileChannel ch = FileChannel.open(Path.of(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			writeFully(ch, head);
+			long pos = head.capacity();
+			for (NTuple4 nt : nts) {
+				int len = nt.getLutLength();
+				for (int k = 0; k < len; ) {
+					buf.clear();
+					for (int end = Math.min(k + CHUNK, len); k < end; k++) {
+						if (asFloat) buf.putFloat((float) nt.getWeight(k));
+						else buf.putDouble(nt.getWeight(k));
+					}
+					buf.flip();
+					writeFully(ch, buf);
+				}
+				pos += (long) len * bpw;
+				long next = align8(pos);
+				if (next > pos) writeFully(ch, ByteBuffer.allocate((int) (next - pos)));
+				pos = next;
+			}
+		}
+	}
+
+	private static void writeFully(FileChannel ch, ByteBuffer bb) throws IOException {
+		while (bb.hasRemaining()) ch.write(bb);
+	}
+
+	/**
+	 * Map the LUTs of LUT file {@code path}. The file has to contain exactly one LUT for each element of {@code nts},
+	 * with the same length.
+	 *
+	 * @return the mapped LUTs, {@code result[i]} belongs to {@code nts[i]}
+	 */
+	static MappedLUT[] map(String path, NTuple4[] nts) throws IOException {
+		String absPath = new File(path).getAbsolutePath();
+		try (FileChannel ch = FileChannel.open(Path.of(absPath), StandardOpenOption.READ)) {
+			ByteBuffer head = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(ch, head, absPath);
+			int bpw = head.getInt(8);
+			if (head.getInt(0)!=MAGIC || head.getInt(4)!=VERSION || (bpw!=4 && bpw!=8))
+				throw new RuntimeException("[MappedLUT] "+absPath+" is no LUT file (or of an unknown version)");
+			int n = head.getInt(12);
+			if (n!=nts.length)
+				throw new RuntimeException("[MappedLUT] "+absPath+" has "+n+" LUTs, but the agent has "+nts.length);
+			ByteBuffer lens = ByteBuffer.allocate(8 * n).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(ch, lens, absPath);
+			long pos = align8(16 + 8L * n);
+			MappedLUT[] luts = new MappedLUT[n];
+			for (int i = 0; i < n; i++) {
+				long len = lens.getLong(8 * i);
+				if (len!=nts[i].getLutLength())
+					throw new RuntimeException("[MappedLUT] LUT "+i+" in "+absPath+" has length "+len+", but the "
+							+ "n-tuple needs "+nts[i].getLutLength());
+				if (len * bpw > Integer.MAX_VALUE)
+					throw new RuntimeException("[MappedLUT] LUT "+i+" in "+absPath+" is too large to be mapped");
+				if (pos + len * bpw > ch.size())
+					throw new RuntimeException("[MappedLUT] "+absPath+" is truncated");
+				luts[i] = new MappedLUT(absPath, pos, (int) len, bpw==4, ch);
+				pos = align8(pos + len * bpw);
+			}
+			return luts;
+		}
+	}
+
+	private static void readFully(FileChannel ch, ByteBuffer bb, String path) throws IOException {
+		while (bb.hasRemaining())
+			if (ch.read(bb) < 0) throw new RuntimeException("[MappedLUT] "+path+" is truncated");
+	}
+
+	/**
+	 * @return the weight for LUT index {@code key}
+	 */
+	public double get(int key) {
+		return isFloat ? bufF.get(key) : bufD.get(key);
+	}
+
+	/**
+	 * @return the absolute path of the LUT file
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @return the number of weights in this LUT
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * @return true, if the weights are stored as {@code float}, false for {@code double}
+	 */
+	public boolean isFloat() {
+		return isFloat;
+	}
+}
@@ -5,7 +5,6 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Serializable;
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.Random;
 
 import controllers.TD.ntuple2.NTuple2;
@@ -48,7 +47,7 @@ import params.ParNT;
  *
  * @see NTuple2
  */
-public class NTuple4 implements Serializable {
+public class NTuple4 implements Serializable, Cloneable {
 
 	private final double INIT; // samine// N and A will be initialized with the same number(INIT)
 
@@ -65,16 +64,30 @@ public class NTuple4 implements Serializable {
 	private boolean tcEXP=true;		// If true, use exponential transfer function g(N/A)
 									// If false, use N/A directly for tcFactor
 	private double tcBeta=2.7;		// parameter for tcEXP (TCL-EXP in [Bagh14])
+	private boolean tcLazy=false;	// If true, the TC accumulators are in tcAcc (lazy blocks) instead of
+									// tcN, tcA and tcFactorArray (see ParNT#getTcLazy)
 
 	private final double EPS = 0.5; /* random weights init scale */
 	Random rand;
 
 	private final int[] nTuple;
 	private final int[] posVals; // posVals[i] = # of possible values for cell i of BoardVector
-	private final double[] lut;
+	private double[] lut;		// the LUT of this n-tuple or - in weight arena mode - the arena shared by all n-tuples
+	private float[] lutF;		// the LUT in case precision==PREC_FLOAT (lut and lutS are then null)
+	private short[] lutS;		// the LUT in case precision==PREC_INT16 (lut and lutF are then null)
+	private float lutScale = 1.0f;	// weight = lutS[i]*lutScale (only for precision==PREC_INT16)
+	private int precision = PREC_DOUBLE;	// which of lut, lutF, lutS holds the weights (see ParNT#getWeightPrecision)
+	private int lutOffset = 0;	// start of this n-tuple's LUT in lut[] (0, if lut[] is owned by this n-tuple)
+	private int lutLength;		// length of this n-tuple's LUT (0 for agents stored before weight arenas existed)
+	private SparseLUT sparse = null;	// the LUT in case of sparse storage (lut, lutF, lutS are then null)
+	private CompactLUT compact = null;	// the LUT in case precision==PREC_COMPACT (lut, lutF, lutS are then null)
+	private MappedLUT mapped = null;	// the LUT in case precision==PREC_MAPPED (lut, lutF, lutS are then null)
+	private transient int[] visits = null;	// visit counts per LUT entry during profiling (see startProfiling)
+	private transient WeightStats stats = null;	// online update statistics (see startWeightStats)
 	private transient double[] tcN = null;
 	private transient double[] tcA = null;
 	private transient double[] tcFactorArray = null;
+	private transient TCAccumulator tcAcc = null;
 
 	// indexList is needed in update(): if a certain index of the LUT is
 	// invoked more than once during a weight update for state s_k (multiple calls to updateNew(), 
@@ -82,7 +95,10 @@ public class NTuple4 implements Serializable {
 	// is realized by remembering the already visited indices in indexList.
 	// It ensures that an update with ALPHA=1.0 changes the LUT in such a way that a subsequent
 	// call getScoreI() returns a value identical to the target of that update.
-	private transient LinkedList<Integer> indexList = new LinkedList<>();
+	// indexList[0..indexCount-1] is a primitive array (no boxing, no allocation per update). Between two calls
+	// of clearIndices() it holds at most as many indices as there are symmetries, so a linear scan is fastest.
+	private transient long[] indexList = new long[8];
+	private transient int indexCount = 0;
 
 	// /WK/
 	private transient double[] dWArray=null;		// recommended weight changes
@@ -101,6 +117,13 @@ public class NTuple4 implements Serializable {
 	 */
 	private static final long  serialVersionUID = 12L;
 
+	// the weight precisions, see ParNT#getWeightPrecision()
+	public static final int PREC_DOUBLE = 0;
+	public static final int PREC_FLOAT = 1;
+	public static final int PREC_INT16 = 2;
+	public static final int PREC_COMPACT = 3;	// read-only compacted LUT (see compact()), not selectable in ParNT
+	public static final int PREC_MAPPED = 4;	// read-only memory-mapped LUT (see map()), not selectable in ParNT
+
 	/**
 	 * Each NTuple consists of L = {@link NTuple4#getLength()} positions P[i] ={@link #getPosition(int)}
 	 * on the game board.<br>
@@ -114,6 +137,25 @@ public class NTuple4 implements Serializable {
 	 *            posVals[b] is the number of possible values at position b = 0, ..., B-1
 	 */
 	NTuple4(int[] nTuple, int[] posVals, ParNT ntPar) {
+		this(nTuple, posVals, ntPar, null, 0, null);
+	}
+
+	/**
+	 * Same as {@link #NTuple4(int[], int[], ParNT)}, but the LUT of this n-tuple may live in a weight arena, i.e. in
+	 * a contiguous array shared by all n-tuples of a {@link NTuple4ValueFunc}.
+	 *
+	 * @param arena
+	 *            the shared weight array, a {@code double[]} or {@code float[]} according to
+	 *            {@link ParNT#getWeightPrecision()}. If {@code null}, this n-tuple allocates its own LUT.
+	 * @param offset
+	 *            the start of this n-tuple's LUT in {@code arena} (ignored if {@code arena==null})
+	 * @param tcArena
+	 *            if TC is active: the shared arrays {tcN, tcA, tcFactorArray} with the same layout as {@code arena}.
+	 *            If {@code null}, this n-tuple allocates its own TC arrays.
+	 *
+	 * @see NTuple4ValueFunc#initNTuples(int[][], int[], boolean, ParNT, int)
+	 */
+	NTuple4(int[] nTuple, int[] posVals, ParNT ntPar, Object arena, int offset, double[][] tcArena) {
 
 		// samine//
 		INIT = ntPar.getTcInit();// samine//
@@ -122,27 +164,33 @@ public class NTuple4 implements Serializable {
 		tcAccRW = (ntPar.getTcAccumulMode()==1);
 		tcEXP = (ntPar.getTcTransferMode()==1);
 		tcBeta = ntPar.getTcBeta();
+		tcLazy = ntPar.getTcLazy();
 		rand = new Random();
 		this.nTuple = nTuple.clone();
 		this.posVals = posVals.clone();
-		int L=1;
-		for (int j : nTuple) L *= posVals[j];
-		lut = new double[L];
-		if (TC) {
-			tcN = new double[lut.length]; // matrix N in TC
-			tcA = new double[lut.length]; // matrix A in TC
-			tcFactorArray = new double[lut.length]; // tcFactor=|N|/A
-			//tcDampArray = new double[lut.length]; // /WK/ for NEW_WK
-			//dWArray = new double[lut.length];	// for accumulating TC (tcImm==false)
-			
-			// initializing N and A matrices and tcFactor=|N|/A
-			for (int i = 0; i < lut.length; i++) {
-				tcN[i] = INIT;
-				tcA[i] = INIT;
-				tcFactorArray[i] = 1.0;
-				//tcDampArray[i] = 1.0;			
-			}
+		if (ntPar.getSparseLut()) {
+			if (TC || arena!=null)
+				throw new RuntimeException("[NTuple4] Sparse LUTs cannot be combined with TC or weight arena");
+			keyRange(nTuple, posVals);		// throws, if the LUT indices exceed the long range
+			precision = PREC_FLOAT;
+			sparse = new SparseLUT(ntPar.getSparseCap());
+			return;
 		}
+		lutLength = lutLength(nTuple, posVals);
+		precision = ntPar.getWeightPrecision();
+		if (precision==PREC_INT16)
+			throw new RuntimeException("[NTuple4] Weight precision int16 is only for inference: train the agent with "
+					+ "precision double or float and convert it afterwards");
+		if (arena==null) {
+			if (precision==PREC_FLOAT) lutF = new float[lutLength];
+			else lut = new double[lutLength];
+		} else {
+			if (precision==PREC_FLOAT) lutF = (float[]) arena;
+			else lut = (double[]) arena;
+			assert (offset+lutLength <= lutArrayLength()) : "Weight arena too small for n-tuple at offset "+offset;
+			lutOffset = offset;
+		}
+		initTcArrays(tcArena);
 		
 //		if (DW_DBG) {
 //			dWOld = new double[lut.length];
@@ -154,23 +202,85 @@ public class NTuple4 implements Serializable {
 //			trainCounter = new int[lut.length];
 	}
 
-	public boolean instantiateAfterLoading() {
-		indexList = new LinkedList<>();
+	/**
+	 * @return the LUT length {@code posVals[P[0]]} * ... *  {@code posVals[P[L-1]]} of an n-tuple with positions
+	 * 		{@code nTuple}
+	 * @throws RuntimeException if the LUT length exceeds the {@code int} range
+	 */
+	public static int lutLength(int[] nTuple, int[] posVals) {
+		long L=1;
+		for (int j : nTuple) L *= posVals[j];
+		if (L > Integer.MAX_VALUE)
+			throw new RuntimeException("[NTuple4] LUT length "+L+" of n-tuple "+Arrays.toString(nTuple)+" is too large");
+		return (int) L;
+	}
+
+	/**
+	 * @return the number of possible LUT indices of an n-tuple with positions {@code nTuple} (needed for
+	 * 		sparse LUTs, where this number may exceed the {@code int} range)
+	 * @throws RuntimeException if the number exceeds the {@code long} range
+	 */
+	public static long keyRange(int[] nTuple, int[] posVals) {
+		long L=1;
+		try {
+			for (int j : nTuple) L = Math.multiplyExact(L, posVals[j]);
+		} catch (ArithmeticException e) {
+			throw new RuntimeException("[NTuple4] n-tuple "+Arrays.toString(nTuple)+" is too long even for a sparse LUT");
+		}
+		return L;
+	}
+
+	/**
+	 * If TC, set tcN, tcA and tcFactorArray to the shared arrays in {@code tcArena} (or allocate own arrays, if
+	 * {@code tcArena==null}) and initialize this n-tuple's part of them. In case {@link #tcLazy}, only the
+	 * (empty) block table of a {@link TCAccumulator} is created.
+	 */
+	private void initTcArrays(double[][] tcArena) {
 		if (TC) {
-			tcN = new double[lut.length]; // matrix N in TC
-			tcA = new double[lut.length]; // matrix A in TC
-			tcFactorArray = new double[lut.length]; // tcFactor=|N|/A
+			if (tcLazy) {
+				if (!tcImm)
+					throw new RuntimeException("[NTuple4] Lazy TC accumulators require TC immediate (tcImm==true)");
+				tcAcc = new TCAccumulator(lutLength, INIT);
+				return;
+			}
+			if (tcArena==null) {
+				tcN = new double[lutOffset+lutLength]; // matrix N in TC
+				tcA = new double[lutOffset+lutLength]; // matrix A in TC
+				tcFactorArray = new double[lutOffset+lutLength]; // tcFactor=|N|/A
+			} else {
+				tcN = tcArena[0];
+				tcA = tcArena[1];
+				tcFactorArray = tcArena[2];
+			}
 			//tcDampArray = new double[lut.length]; // /WK/ for NEW_WK
 			//dWArray = new double[lut.length];	// for accumulating TC (tcImm==false)
-			
+
 			// initializing N and A matrices and tcFactor=|N|/A
-			for (int i = 0; i < lut.length; i++) {
+			for (int i = lutOffset; i < lutOffset+lutLength; i++) {
 				tcN[i] = INIT;
 				tcA[i] = INIT;
 				tcFactorArray[i] = 1.0;
-				//tcDampArray[i] = 1.0;			
+				//tcDampArray[i] = 1.0;
 			}
 		}
+	}
+
+	public boolean instantiateAfterLoading() {
+		return instantiateAfterLoading(null);
+	}
+
+	/**
+	 * @param tcArena if TC is active and this n-tuple lives in a weight arena: the shared arrays
+	 * 		{tcN, tcA, tcFactorArray}, see {@link #NTuple4(int[], int[], ParNT, Object, int, double[][])}
+	 * 		(not needed, if {@link #tcLazy})
+	 * @return true
+	 */
+	public boolean instantiateAfterLoading(double[][] tcArena) {
+		indexList = new long[8];
+		indexCount = 0;
+		if (lutLength==0 && sparse==null) lutLength = lut.length;	// agent stored before weight arenas existed (always PREC_DOUBLE)
+		if (compact==null && mapped==null) initTcArrays(tcArena);	// compacted and mapped n-tuples are inference-only
+																	// and need no TC
 		return true;
 	}
 	
@@ -182,7 +292,7 @@ public class NTuple4 implements Serializable {
 	 *            carrying 0 ("O"), 1 (empty) or 2 ("X") in each element)
 	 * @return the corresponding index into the LUT
 	 */
-	private int getIndex(int[] board) {
+	int getIndex(int[] board) {
 		int index = 0;
 		int Q=1; 		// Q = posVals[P[0]]*...*posVals[P[i]] in i-loop below
 		for (int n_i : nTuple) {
@@ -193,6 +303,48 @@ public class NTuple4 implements Serializable {
 		return index;
 	}
 
+	/**
+	 * Same as {@link #getIndex(int[])}, but for the symmetric board vector {@code sym} with
+	 * {@code sym[j] = board[perm[j]]}, which is not constructed explicitly.
+	 *
+	 * @param perm a permutation table from {@link XNTupleFuncs#symmetryPermutations(int)}
+	 */
+	int getIndex(int[] board, int[] perm) {
+		int index = 0;
+		int Q=1; 		// Q = posVals[P[0]]*...*posVals[P[i]] in i-loop below
+		for (int n_i : nTuple) {
+			index += Q * board[perm[n_i]];
+			Q = Q * posVals[n_i];
+		}
+		return index;
+	}
+
+	/**
+	 * Same as {@link #getIndex(int[])}, but as {@code long} (for sparse LUTs)
+	 */
+	private long getKey(int[] board) {
+		long index = 0;
+		long Q=1;
+		for (int n_i : nTuple) {
+			index += Q * board[n_i];
+			Q = Q * posVals[n_i];
+		}
+		return index;
+	}
+
+	/**
+	 * Same as {@link #getIndex(int[], int[])}, but as {@code long} (for sparse LUTs)
+	 */
+	private long getKey(int[] board, int[] perm) {
+		long index = 0;
+		long Q=1;
+		for (int n_i : nTuple) {
+			index += Q * board[perm[n_i]];
+			Q = Q * posVals[n_i];
+		}
+		return index;
+	}
+
 	/**
 	 * Initialize the weights
 	 * 
@@ -202,8 +354,195 @@ public class NTuple4 implements Serializable {
 	 *            If {@code false}, all weights are set to 0.0.
 	 */
 	public void initWeights(boolean random) {
-		for (int i = 0; i < lut.length; i++)
-			lut[i] = (random ? EPS * (rand.nextDouble() * 2 - 1) : 0.0);
+		if (sparse!=null) return;		// sparse LUT entries are created (with weight 0) when first updated
+		for (int i = lutOffset; i < lutOffset+lutLength; i++)
+			lutSet(i, (random ? EPS * (rand.nextDouble() * 2 - 1) : 0.0));
+	}
+
+	/**
+	 * @param i index into the LUT array (i.e. including {@link #lutOffset})
+	 * @return the weight stored at {@code i}, whatever the weight precision is
+	 */
+	private double lutGet(int i) {
+		return switch (precision) {
+			case PREC_FLOAT -> lutF[i];
+			case PREC_INT16 -> lutS[i]*lutScale;
+			case PREC_COMPACT -> compact.get(i);
+			case PREC_MAPPED -> mapped.get(i);
+			default -> lut[i];
+		};
+	}
+
+	private void lutSet(int i, double w) {
+		switch (precision) {
+			case PREC_FLOAT -> lutF[i] = (float) w;
+			case PREC_INT16 -> throw new RuntimeException("[NTuple4] int16 weights are inference-only and cannot be changed");
+			case PREC_COMPACT -> throw new RuntimeException("[NTuple4] compacted LUTs are inference-only and cannot be changed");
+			case PREC_MAPPED -> throw new RuntimeException("[NTuple4] memory-mapped LUTs are read-only and cannot be changed");
+			default -> lut[i] = w;
+		}
+	}
+
+	/**
+	 * @return the array (own LUT or weight arena) holding the weights: {@code double[]}, {@code float[]} or
+	 * 		{@code short[]} according to {@link #getPrecision()}, {@code null} for a sparse, compacted or mapped LUT
+	 */
+	Object getLutArray() {
+		return switch (precision) {
+			case PREC_FLOAT -> lutF;
+			case PREC_INT16 -> lutS;
+			case PREC_COMPACT, PREC_MAPPED -> null;
+			default -> lut;
+		};
+	}
+
+	/**
+	 * @return the length of the array (own LUT or weight arena) holding the weights
+	 */
+	private int lutArrayLength() {
+		return switch (precision) {
+			case PREC_FLOAT -> lutF.length;
+			case PREC_INT16 -> lutS.length;
+			case PREC_COMPACT -> compact.getLength();
+			case PREC_MAPPED -> mapped.getLength();
+			default -> lut.length;
+		};
+	}
+
+	/**
+	 * Convert the weights of this n-tuple to another weight precision. Converting to {@link #PREC_INT16} chooses
+	 * the per-tuple scale such that the weight with largest magnitude maps to {@link Short#MAX_VALUE}.
+	 *
+	 * @param prec  the new weight precision, see {@link ParNT#getWeightPrecision()}
+	 * @param arena {@code null}, if this n-tuple owns its LUT. Otherwise the new weight arena (an array
+	 * 			{@code double[]}, {@code float[]} or {@code short[]} according to {@code prec}) which receives the
+	 * 			weights at the same offset as before.
+	 *
+	 * @see NTuple4ValueFunc#convertWeightPrecision(int)
+	 */
+	void convertPrecision(int prec, Object arena) {
+		if (sparse!=null)
+			throw new RuntimeException("[NTuple4] Sparse LUTs store their weights always as float");
+		double[] w = getWeights();
+		int len = getLutLength();
+		int off = (arena==null) ? 0 : lutOffset;
+		lut = null; lutF = null; lutS = null; compact = null; mapped = null;
+		switch (prec) {
+			case PREC_DOUBLE -> {
+				lut = (arena==null) ? new double[len] : (double[]) arena;
+				for (int i=0; i<len; i++) lut[off+i] = w[i];
+			}
+			case PREC_FLOAT -> {
+				lutF = (arena==null) ? new float[len] : (float[]) arena;
+				for (int i=0; i<len; i++) lutF[off+i] = (float) w[i];
+			}
+			case PREC_INT16 -> {
+				lutS = (arena==null) ? new short[len] : (short[]) arena;
+				double maxAbs = 0;
+				for (double v : w) maxAbs = Math.max(maxAbs, Math.abs(v));
+				lutScale = (maxAbs==0) ? 1.0f : (float) (maxAbs / Short.MAX_VALUE);
+				for (int i=0; i<len; i++) lutS[off+i] = (short) Math.round(w[i] / lutScale);
+			}
+			default -> throw new RuntimeException("[NTuple4] Unknown weight precision "+prec);
+		}
+		lutLength = len;
+		lutOffset = off;
+		precision = prec;
+	}
+
+	public int getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * Start counting the visits of each LUT entry on the read paths ({@link #getScore(int[])},
+	 * {@link #getScore(int[], int[])}, {@link #getWeight(int)}), which is needed by {@link #compact()}
+	 */
+	void startProfiling() {
+		if (sparse!=null)
+			throw new RuntimeException("[NTuple4] Sparse LUTs cannot be compacted");
+		visits = new int[getLutLength()];
+	}
+
+	/**
+	 * @return the visit counts per LUT entry since {@link #startProfiling()} or {@code null}, if not profiling
+	 */
+	public int[] getVisits() {
+		return visits;
+	}
+
+	/**
+	 * Start collecting online update statistics (see {@link WeightStats}) from now on (a running collection is
+	 * restarted)
+	 */
+	void startWeightStats() {
+		stats = new WeightStats((sparse!=null) ? 0 : getLutLength());
+	}
+
+	void stopWeightStats() {
+		stats = null;
+	}
+
+	/**
+	 * @return the online update statistics since {@link #startWeightStats()} or {@code null}, if not collecting
+	 */
+	public WeightStats getWeightStats() {
+		return stats;
+	}
+
+	/**
+	 * Rewrite the LUT of this n-tuple into a read-only {@link CompactLUT}, based on the visit counts collected since
+	 * {@link #startProfiling()}. Afterwards, this n-tuple owns its LUT (it no longer lives in a weight arena), the
+	 * weights cannot be changed and the TC arrays are released.
+	 */
+	void compact() {
+		if (visits==null)
+			throw new RuntimeException("[NTuple4] No visit counts available, call startProfiling() first");
+		compact = new CompactLUT(getWeights(), visits);
+		lut = null; lutF = null; lutS = null;
+		tcN = null; tcA = null; tcFactorArray = null; tcAcc = null;
+		lutLength = compact.getLength();
+		lutOffset = 0;
+		precision = PREC_COMPACT;
+		visits = null;
+	}
+
+	/**
+	 * Replace the LUT of this n-tuple by the read-only, memory-mapped LUT {@code m}, which has to hold the same
+	 * weights (see {@link NTuple4ValueFunc#mapLUTs(String)}). Afterwards, this n-tuple owns its LUT (it no longer
+	 * lives in a weight arena), the weights cannot be changed and the TC arrays are released.
+	 */
+	void map(MappedLUT m) {
+		if (sparse!=null)
+			throw new RuntimeException("[NTuple4] Sparse LUTs cannot be mapped");
+		mapped = m;
+		lut = null; lutF = null; lutS = null; compact = null;
+		tcN = null; tcA = null; tcFactorArray = null; tcAcc = null;
+		lutLength = m.getLength();
+		lutOffset = 0;
+		precision = PREC_MAPPED;
+		visits = null;
+	}
+
+	/**
+	 * @return the memory-mapped LUT of this n-tuple or {@code null}, if it is not mapped
+	 */
+	public MappedLUT getMappedLUT() {
+		return mapped;
+	}
+
+	/**
+	 * @return the compacted LUT of this n-tuple or {@code null}, if it is not compacted
+	 */
+	public CompactLUT getCompactLUT() {
+		return compact;
+	}
+
+	/**
+	 * @return the sparse LUT of this n-tuple or {@code null}, if it has a dense LUT
+	 */
+	public SparseLUT getSparseLUT() {
+		return sparse;
 	}
 
     /**
@@ -218,8 +557,10 @@ public class NTuple4 implements Serializable {
 	 * @see NTuple4ValueFunc#getScoreI(StateObsWithBoardVector,int)
 	 */
 	public double getScore(int[] board) {
+		if (sparse!=null) return sparse.get(getKey(board));
 		int Index = getIndex(board);
-		double score = lut[Index];
+		if (visits!=null) visits[Index]++;
+		double score = lutGet(lutOffset+Index);
 		
 //		final double MAXSCORE = 3932156; 
 //		System.out.println(Index + " ["+score*MAXSCORE+"]");  //debug
@@ -227,6 +568,18 @@ public class NTuple4 implements Serializable {
 		return score;
 	}
 
+	/**
+	 * Same as {@link #getScore(int[])}, but for the symmetric board vector {@code board[perm[j]]}, j=0,...,B-1
+	 *
+	 * @param perm a permutation table from {@link XNTupleFuncs#symmetryPermutations(int)}
+	 */
+	public double getScore(int[] board, int[] perm) {
+		if (sparse!=null) return sparse.get(getKey(board, perm));
+		int Index = getIndex(board, perm);
+		if (visits!=null) visits[Index]++;
+		return lutGet(lutOffset+Index);
+	}
+
 	/**
 	 * Update the weights of this NTuple for one specific board (not using symmetries). 
 	 * <p>
@@ -244,7 +597,67 @@ public class NTuple4 implements Serializable {
 	 * @see NTuple4ValueFunc#update(StateObsWithBoardVector, int, int, double, double, boolean, boolean)
 	 */
 	public void updateNew(int[] board, double alphaM, double delta, double e /*, double LAMBDA*/) {
-		int index = getIndex(board);
+		if (sparse!=null) {
+			updateSparse(getKey(board), alphaM, delta, e);
+			return;
+		}
+		updateNewIndex(getIndex(board), alphaM, delta, e);
+	}
+
+	/**
+	 * Same as {@link #updateNew(int[], double, double, double)}, but for the symmetric board vector
+	 * {@code board[perm[j]]}, j=0,...,B-1
+	 *
+	 * @param perm a permutation table from {@link XNTupleFuncs#symmetryPermutations(int)}
+	 */
+	public void updateNew(int[] board, int[] perm, double alphaM, double delta, double e) {
+		if (sparse!=null) {
+			updateSparse(getKey(board, perm), alphaM, delta, e);
+			return;
+		}
+		updateNewIndex(getIndex(board, perm), alphaM, delta, e);
+	}
+
+	/**
+	 * @param board	the board vector
+	 * @param perm	a permutation table from {@link XNTupleFuncs#symmetryPermutations(int)} or null (board itself)
+	 * @return the LUT index of {@code board[perm[j]]} (the key in case of a sparse LUT)
+	 */
+	long getLutKey(int[] board, int[] perm) {
+		if (sparse!=null) return (perm==null) ? getKey(board) : getKey(board, perm);
+		return (perm==null) ? getIndex(board) : getIndex(board, perm);
+	}
+
+	/**
+	 * @return the weight for a LUT index (or key) which was calculated before with {@link #getLutKey(int[], int[])}
+	 */
+	double getWeightAt(long index) {
+		if (sparse!=null) return sparse.get(index);
+		if (visits!=null) visits[(int)index]++;
+		return lutGet(lutOffset+(int)index);
+	}
+
+	/**
+	 * Same as {@link #updateNew(int[], double, double, double)}, but for a LUT index (or key) which was
+	 * calculated before with {@link #getLutKey(int[], int[])}
+	 */
+	void updateIndex(long index, double alphaM, double delta, double e) {
+		if (sparse!=null) {
+			updateSparse(index, alphaM, delta, e);
+			return;
+		}
+		updateNewIndex((int) index, alphaM, delta, e);
+	}
+
+	private void updateSparse(long key, double alphaM, double delta, double e) {
+		if (!visitIndex(key)) {
+			float dW = (float) (alphaM * delta * e);
+			sparse.add(key, dW);
+			if (stats!=null) stats.record(0, dW, 1.0);
+		}
+	}
+
+	private void updateNewIndex(int index, double alphaM, double delta, double e) {
 //		Integer indexI = index;
 
 		double tcFactor = getTcFactor(index);	// returns 1 if (!TC)
@@ -261,11 +674,13 @@ public class NTuple4 implements Serializable {
 		}
 
 //		if (useIndexList) {		// useIndexList==true is the recommended choice
+			boolean visited = visitIndex(index);
 			if (!TC || (TC && tcImm)) {
-				if (!indexList.contains(index))
-					lut[index] += dW;				
+				if (!visited) {
+					lutSet(lutOffset+index, lutGet(lutOffset+index) + dW);
+					if (stats!=null) stats.record(index, dW, tcFactor);
+				}
 			}		
-			indexList.add(index);
 //		} 
 
 //		if (TC)
@@ -280,7 +695,21 @@ public class NTuple4 implements Serializable {
 	 * @param accum
 	 */
 	private void setTcFactor(int index, double accum) {
-		if (TC) {
+		if (TC && tcAcc!=null) {
+			double[] blk = tcAcc.block(index);
+			int p = TCAccumulator.pos(index);
+			blk[p] += accum;
+			blk[p+1] += Math.abs(accum);
+
+			if (tcImm) {
+				double arg = Math.abs(blk[p]) / blk[p+1];
+				if (tcEXP) {
+					arg = Math.exp(tcBeta*(arg-1));
+				}
+				blk[p+2] = arg;
+			}
+		} else if (TC) {
+			index += lutOffset;
 			tcN[index] += accum;
 			tcA[index] += Math.abs(accum);
 
@@ -297,30 +726,64 @@ public class NTuple4 implements Serializable {
 	// currently not used
 	@Deprecated
 	public void weightDecay(double factor) {
-		for (int k=0; k<lut.length; k++)
-			lut[k] *= factor;
+		for (int k=lutOffset; k<lutOffset+getLutLength(); k++)
+			lutSet(k, lutGet(k) * factor);
 	}
 	
 	/**
 	 * @param k
-	 *            index into LUT
+	 *            index into LUT. For a sparse LUT, this is the key (the LUT index of {@link #getLutKey(int[], int[])}),
+	 *            not a position in {@code [0, getLutLength())}, since {@link #getLutLength()} is then the number of
+	 *            stored entries (see {@link SparseLUT#getKeys()} for the keys of these entries)
 	 * @return the kth weight for this NTuple
 	 */
 	public double getWeight(int k) {
-		assert (k >= 0 && k < lut.length) : " k is not a valid LUT index";
-		return lut[k];
+		if (sparse!=null) return sparse.get(k);
+		assert (k >= 0 && k < getLutLength()) : " k is not a valid LUT index";
+		if (visits!=null) visits[k]++;
+		return lutGet(lutOffset+k);
 	}
 
+	/**
+	 * @return the LUT of this n-tuple. If the LUT lives in a weight arena or if the weight precision is not
+	 * 		{@link #PREC_DOUBLE}, this is a copy. For a sparse LUT, these are only the stored weights.
+	 */
 	public double[] getWeights() {
-		return lut;
+		if (sparse!=null) return sparse.getValues();
+		if (precision==PREC_DOUBLE) {
+			if (isOwnArray(lut)) return lut;
+			return Arrays.copyOfRange(lut, lutOffset, lutOffset+getLutLength());
+		}
+		double[] w = new double[getLutLength()];
+		for (int i=0; i<w.length; i++) w[i] = lutGet(lutOffset+i);
+		return w;
 	}
 	
+	/**
+	 * @return the TC factors of this n-tuple (or {@code null}, if not available). If they live in a weight arena,
+	 * 		this is a copy.
+	 */
 	public double[] getTcFactorArray() {
-		return tcFactorArray;
+		if (tcAcc!=null) return tcAcc.column(2);
+		if (tcFactorArray==null || isOwnArray(tcFactorArray)) return tcFactorArray;
+		return Arrays.copyOfRange(tcFactorArray, lutOffset, lutOffset+getLutLength());
 	}
 	
 	public double getTcFactor(int Index) {
-		return (TC) ? tcFactorArray[Index] : 1.0;
+		if (!TC) return 1.0;
+		return (tcAcc!=null) ? tcAcc.getFactor(Index) : tcFactorArray[lutOffset+Index];
+	}
+
+	private boolean isOwnArray(double[] arr) {
+		return lutOffset==0 && arr.length==getLutLength();
+	}
+
+	/**
+	 * @return the start of this n-tuple's LUT within the array returned by {@link #getWeights()} in the
+	 * 		non-arena case and within the weight arena otherwise
+	 */
+	public int getLutOffset() {
+		return lutOffset;
 	}
 	
 	public boolean getTc() {
@@ -331,8 +794,98 @@ public class NTuple4 implements Serializable {
 		return tcImm;
 	}
 
+	public boolean getTcLazy() {
+		return tcLazy;
+	}
+
+	/**
+	 * @return the lazy TC accumulators of this n-tuple or {@code null}, if TC is off or not {@link #tcLazy}
+	 */
+	public TCAccumulator getTCAccumulator() {
+		return tcAcc;
+	}
+
 	public void clearIndices() {
-		indexList.clear();
+		indexCount = 0;
+	}
+
+	/**
+	 * @return a copy of this n-tuple for a parallel training worker (see
+	 * {@link TDNTuple4Agt#trainAgentParallel(games.StateObservation[], int)}). The copy shares the LUT and the TC
+	 * arrays with this n-tuple, so that the updates of all workers go to the same weights (Hogwild-style). Only the
+	 * index list for {@link #clearIndices()} and the stripe of the update statistics (see
+	 * {@link WeightStats#newStripe()}) are private to the copy.
+	 */
+	NTuple4 workerCopy() {
+		NTuple4 nt = shallowCopy();
+		if (stats!=null) nt.stats = stats.newStripe();
+		return nt;
+	}
+
+	/**
+	 * Add the update statistics of {@code worker}, a finished {@link #workerCopy()} of this n-tuple, to the statistics
+	 * of this n-tuple
+	 */
+	void mergeWorkerStats(NTuple4 worker) {
+		if (stats!=null && worker.stats!=null) stats.mergeStripe(worker.stats);
+	}
+
+	private NTuple4 shallowCopy() {
+		try {
+			NTuple4 nt = (NTuple4) super.clone();
+			nt.indexList = new long[8];
+			nt.indexCount = 0;
+			return nt;
+		} catch (CloneNotSupportedException e) {
+			throw new RuntimeException("[NTuple4] "+e.getMessage());
+		}
+	}
+
+	/**
+	 * @param arena	the copy of the weight arena (see {@link NTuple4ValueFunc#snapshot(NTuple4Agt)}) or null, if this
+	 * 				n-tuple has its own LUT
+	 * @return a copy of this n-tuple for a snapshot: the weights are frozen copies of the current weights, the
+	 * 		TC arrays and a compacted or mapped LUT (only read during evaluation) are shared
+	 */
+	NTuple4 snapshotCopy(Object arena) {
+		NTuple4 nt = shallowCopy();
+		nt.visits = null;
+		nt.stats = null;
+		if (sparse!=null) {
+			nt.sparse = sparse.copy();
+			return nt;
+		}
+		if (precision==PREC_COMPACT || precision==PREC_MAPPED) return nt;
+		Object arr = (arena!=null) ? arena : copyOf(getLutArray());
+		switch (precision) {
+			case PREC_FLOAT -> nt.lutF = (float[]) arr;
+			case PREC_INT16 -> nt.lutS = (short[]) arr;
+			default -> nt.lut = (double[]) arr;
+		}
+		return nt;
+	}
+
+	/**
+	 * @return a copy of {@code arr}, which is a {@code double[]}, {@code float[]} or {@code short[]} (see
+	 * 		{@link #getLutArray()})
+	 */
+	static Object copyOf(Object arr) {
+		if (arr instanceof float[] f) return f.clone();
+		if (arr instanceof short[] s) return s.clone();
+		return ((double[]) arr).clone();
+	}
+
+	/**
+	 * Remember {@code index} in indexList (if it is not yet there).
+	 *
+	 * @return true, if {@code index} was already in indexList (i.e. visited since the last {@link #clearIndices()})
+	 */
+	private boolean visitIndex(long index) {
+		for (int k=0; k<indexCount; k++)
+			if (indexList[k]==index) return true;
+		if (indexCount==indexList.length) indexList = Arrays.copyOf(indexList, 2*indexCount);
+		indexList[indexCount++] = index;
+		return false;
 	}
 
 //	public int getCountP(int k) {
@@ -360,10 +913,11 @@ public class NTuple4 implements Serializable {
 	}
 
 	/**
-	 * @return the length of the LUT for this NTuple
+	 * @return the length of the LUT for this NTuple (for a sparse LUT: the number of stored weights)
 	 */
 	public int getLutLength() {
-		return lut.length;
+		if (sparse!=null) return sparse.size();
+		return (lutLength==0) ? lutArrayLength() : lutLength;
 	}
 
 	public int getPosVals(int i) {
@@ -383,10 +937,10 @@ public class NTuple4 implements Serializable {
 			//for (int i = 0; i < lut.length; i++)
 			//	tcFactorArray[i] = (double) Math.abs(tcN[i]) / tcA[i];
 
-			for (int i = 0; i < lut.length; i++) {
+			for (int i = lutOffset; i < lutOffset+lutLength; i++) {
 				tcFactorArray[i] = Math.abs(tcN[i]) / tcA[i];
-				lut[i] += tcFactorArray[i]* dWArray[i];				// ??correct to update lut here?? TODO
-				dWArray[i]=0.0;
+				lutSet(i, lutGet(i) + tcFactorArray[i]* dWArray[i-lutOffset]);		// ??correct to update lut here?? TODO
+				dWArray[i-lutOffset]=0.0;
 			}
 		}
 	}
@@ -410,12 +964,14 @@ public class NTuple4 implements Serializable {
 			e.printStackTrace();
 		}
 		if (tableN!=null) {
-			tableN.println("" +Arrays.toString(tcN));
+			tableN.println("" +Arrays.toString((tcAcc!=null) ? tcAcc.column(0)
+					: Arrays.copyOfRange(tcN, lutOffset, lutOffset+lutLength)));
 			tableN.close();
 		}
 
 		if (tableA!=null) {
-			tableA.println("" +Arrays.toString(tcA));
+			tableA.println("" +Arrays.toString((tcAcc!=null) ? tcAcc.column(1)
+					: Arrays.copyOfRange(tcA, lutOffset, lutOffset+lutLength)));
 			tableA.close();
 		}
 
@@ -441,17 +997,31 @@ public class NTuple4 implements Serializable {
 
 	public int lutHashSum() {
 		int hs=0; 
-		for (int i=0; i<lut.length; i++) if (lut[i]>0) hs += i;
+		if (sparse!=null) {		// the LUT index of a stored entry is its key
+			long[] keys = sparse.getKeys();
+			double[] vals = sparse.getValues();
+			for (int j=0; j<keys.length; j++) if (vals[j]>0) hs += (int) keys[j];
+			return (hs%100);
+		}
+		for (int i=0; i<getLutLength(); i++) if (lutGet(lutOffset+i)>0) hs += i;
 		return (hs%100);
 	}
 	public double lutSum() {
 		double ls=0;
-		for (double lut_i : lut) ls += lut_i;
+		if (sparse!=null) {
+			for (double w : sparse.getValues()) ls += w;
+			return ls;
+		}
+		for (int i=lutOffset; i<lutOffset+getLutLength(); i++) ls += lutGet(i);
 		return ls;
 	}
 	public double lutSumAbs() {
 		double ls=0;
-		for (double lut_i : lut) ls += Math.abs(lut_i);
+		if (sparse!=null) {
+			for (double w : sparse.getValues()) ls += Math.abs(w);
+			return ls;
+		}
+		for (int i=lutOffset; i<lutOffset+getLutLength(); i++) ls += Math.abs(lutGet(i));
 		return ls;
 	}
 }
@@ -3,8 +3,12 @@ package controllers.TD.ntuple4;
 import java.io.*;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.util.ArrayList;
 import java.util.Locale;
 import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import controllers.AgentBase;
 import controllers.PlayAgent;
@@ -14,6 +18,8 @@ import games.StateObsWithBoardVector;
 import games.StateObservation;
 import games.RubiksCube.CubeConfig;
 import params.*;
+import tools.Types;
+import tools.Types.ACTIONS;
 
 /**
  *  Abstract superclass for {@link Sarsa4Agt} and {@link TDNTuple4Agt}.
@@ -21,7 +27,7 @@ import params.*;
  *	@see Sarsa4Agt
  *	@see TDNTuple4Agt
  */
-abstract public class NTuple4Base extends AgentBase implements NTuple4Agt, Serializable {
+abstract public class NTuple4Base extends AgentBase implements NTuple4Agt, Serializable, Cloneable {
 	public Random rand; // generate random Numbers
 	
 	/**
@@ -66,6 +72,18 @@ abstract public class NTuple4Base extends AgentBase implements NTuple4Agt, Seria
 	protected ParNT m_ntPar;
 	
 	protected boolean PRINTTABLES = false;	// /WK/ control the printout of tableA, tableN, epsilon
+
+	// directory for the n-tuple update statistics (see setStatsDir), null: agents/csv
+	private transient String statsDir = null;
+
+	// true for the worker copies of a parallel training (see TDNTuple4Agt#trainAgentParallel): only the owning
+	// agent, which counts the episodes, writes the update statistics
+	protected transient boolean isWorker = false;
+
+	// writes the n-tuple update statistics in the background, in submission order. The thread is not a daemon (so
+	// pending rows are written before the JVM exits) and ends when idle.
+	private static final ThreadPoolExecutor STATS_WRITER = new ThreadPoolExecutor(0, 1, 5, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<>());
 	
 	//
 	// variables needed in various train methods
@@ -169,7 +187,12 @@ abstract public class NTuple4Base extends AgentBase implements NTuple4Agt, Seria
 	}
 	
 	/**
-	 * Adjust {@code ALPHA} and adjust {@code m_epsilon}.
+	 * Adjust {@code ALPHA} and adjust {@code m_epsilon}. Every {@link ParNT#getStatsInterval()} episodes, append the
+	 * n-tuple update statistics to {@link #getStatsDir()}{@code /}{@link Types#WEIGHTSTATS_FILENAME}.
+	 * <p>
+	 * Only the snapshot of the statistics (one CSV row per n-tuple) is taken on the training thread, the file is
+	 * written in the background. Worker copies of a parallel training do not write statistics (their episode
+	 * counters and update statistics are only a part of the owning agent's).
 	 */
 	public void finishUpdateWeights() {
 
@@ -178,6 +201,19 @@ abstract public class NTuple4Base extends AgentBase implements NTuple4Agt, Seria
 		// linear decrease of m_epsilon (re-activated 08/2017)
 		m_epsilon = m_epsilon - m_EpsilonChangeDelta;
 
+		int statsInterval = m_ntPar.getStatsInterval();
+		if (statsInterval>0 && !isWorker && (getGameNum()+1) % statsInterval == 0) {	// gameNum is incremented after this call
+			String path = getStatsDir()+"/"+Types.WEIGHTSTATS_FILENAME;
+			String rows = m_Net.snapshotWeightStats(getGameNum()+1);
+			if (rows!=null) STATS_WRITER.execute(() -> {
+				try {
+					NTuple4ValueFunc.writeWeightStats(path, rows);
+				} catch (IOException e) {
+					System.out.println("*** Warning *** Could not write "+path+": "+e.getMessage());
+				}
+			});
+		}
+
 		if (PRINTTABLES) {
 			try {
 				print(m_epsilon);
@@ -188,6 +224,18 @@ abstract public class NTuple4Base extends AgentBase implements NTuple4Agt, Seria
 
 	}
 
+	/**
+	 * @return the directory for the n-tuple update statistics: {@code agents/<gameName>[/subDir]/csv}, if set by the
+	 * 		Arena before training, else {@code agents/csv}
+	 */
+	public String getStatsDir() {
+		return (statsDir!=null) ? statsDir : Types.GUI_DEFAULT_DIR_AGENT+"/csv";
+	}
+
+	public void setStatsDir(String statsDir) {
+		this.statsDir = statsDir;
+	}
+
 	private void print(double m_epsilon2) throws IOException {
 		PrintWriter epsilon = new PrintWriter(new FileWriter("epsilon",true));
 		epsilon.println("" +m_epsilon2);
@@ -293,8 +341,100 @@ abstract public class NTuple4Base extends AgentBase implements NTuple4Agt, Seria
 		return m_Net;
 	}
 	
+	/**
+	 * @return false, if the LUTs are compacted (see {@link #compactLUTs(StateObservation, int, double)}),
+	 * 		memory-mapped (see {@link NTuple4ValueFunc#mapLUTs(String)}) or stored as int16 (see
+	 * 		{@link ParNT#getWeightPrecision()}), since the agent is inference-only then
+	 */
+	@Override
+	public boolean isTrainable() {
+		return !m_Net.isCompact() && !m_Net.isMapped() && m_Net.getWeightPrecision()!=NTuple4.PREC_INT16;
+	}
+
+	/**
+	 * @return a shallow copy of this agent with a frozen copy of the n-tuple weights (see
+	 * 		{@link NTuple4ValueFunc#snapshot(NTuple4Agt)}) and its own random generators. Parameters and training
+	 * 		state are shared, since the snapshot is only used for evaluation.
+	 */
 	@Override
-	public boolean isTrainable() { return true; }
+	public PlayAgent getSnapshot() {
+		NTuple4Base snap;
+		try {
+			snap = (NTuple4Base) super.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new RuntimeException("[NTuple4Base] "+e.getMessage());
+		}
+		snap.m_Net = m_Net.snapshot(snap);
+		snap.rand = new Random(rand.nextLong());
+		snap.randomAgent = new RandomAgent("Random");
+		return snap;
+	}
+
+	/**
+	 * Train the agent for {@code soArr.length} self-play episodes, one from each start state in {@code soArr}, in
+	 * actor-learner mode (see {@link ActorLearner}): {@code numActors} threads play the episodes with a weight
+	 * snapshot, which is refreshed every {@code refresh} episodes, and this thread learns from them in order.
+	 * <p>
+	 * Side effects: Same as {@code soArr.length} calls of {@link #trainAgent(StateObservation)}. Falls back to
+	 * sequential training, if the agent does not support actor-learner training (see
+	 * {@link #supportsActorLearner()}).
+	 *
+	 * @return the metrics of the actor-learner training or null, if trained sequentially
+	 */
+	public ActorLearner.Metrics trainActorLearner(StateObservation[] soArr, int numActors, int refresh) {
+		if (!supportsActorLearner() || !isTrainable()) {
+			for (StateObservation so : soArr) trainAgent(so);
+			return null;
+		}
+		return new ActorLearner(this, numActors, refresh).train(soArr);
+	}
+
+	/**
+	 * @return true, if {@link #actEpisode(StateObservation, ActorLearner.Episode)} is implemented for the current
+	 * 		settings (default: false)
+	 */
+	protected boolean supportsActorLearner() {
+		return false;
+	}
+
+	/**
+	 * Play one self-play episode from {@code so} as actor of {@link ActorLearner} and record in {@code ep} the
+	 * updates which {@link #trainAgent(StateObservation)} would do, without changing any weights.
+	 * <p>
+	 * This is called on an actor (see {@link #newActor(NTuple4ValueFunc)}), possibly concurrently with other
+	 * actors, so all per-episode state has to be local.
+	 */
+	protected void actEpisode(StateObservation so, ActorLearner.Episode ep) {
+		throw new RuntimeException("[NTuple4Base] "+getClass().getSimpleName()+" does not support actor-learner training");
+	}
+
+	/**
+	 * @return an actor for {@link ActorLearner}: a shallow copy of this agent which plays with a view of the frozen
+	 * 		weights {@code frozen} (see {@link NTuple4ValueFunc#snapshot(NTuple4Agt)}) and has its own random
+	 * 		generators. Subclasses with further random generators have to override this.
+	 */
+	protected NTuple4Base newActor(NTuple4ValueFunc frozen) {
+		NTuple4Base actor;
+		try {
+			actor = (NTuple4Base) super.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new RuntimeException("[NTuple4Base] "+e.getMessage());
+		}
+		actor.m_Net = frozen.workerView(actor);
+		actor.rand = (rand==null) ? new Random() : new Random(rand.nextLong());	// DAVI3Agent has its own rand
+		actor.randomAgent = new RandomAgent("Random");
+		return actor;
+	}
+
+	/**
+	 * Called by the learner of {@link ActorLearner} after the updates of an episode: count its train moves,
+	 * adjust ALPHA and epsilon (if {@code finish}) and increment gameNum.
+	 */
+	void finishLearnedEpisode(long numMoves, boolean finish) {
+		m_numTrnMoves += numMoves;
+		if (finish) finishUpdateWeights();
+		incrementGameNum();
+	}
 
 	public ParTD getParTD() {
 		return m_tdPar;
@@ -307,6 +447,21 @@ abstract public class NTuple4Base extends AgentBase implements NTuple4Agt, Seria
 	}
 	public void setParNT(ParNT m_ntPar) {
 		this.m_ntPar = new ParNT(m_ntPar);
+		if (m_Net!=null) {
+			m_Net.convertWeightPrecision(m_ntPar.getWeightPrecision());
+			if (m_ntPar.getStatsInterval()==0) m_Net.stopWeightStats();
+			else if (!m_Net.hasWeightStats() && isTrainable()) m_Net.startWeightStats();
+		}
+	}
+
+	/**
+	 * Set the weight precision in {@link #m_ntPar} and convert the n-tuple weights accordingly
+	 *
+	 * @param prec 0: double, 1: float, 2: int16 (inference only), see {@link ParNT#getWeightPrecision()}
+	 */
+	public void setWeightPrecision(int prec) {
+		m_ntPar.setWeightPrecision(prec);
+		m_Net.convertWeightPrecision(prec);
 	}
 
 	public boolean getAFTERSTATE() {
@@ -334,6 +489,34 @@ abstract public class NTuple4Base extends AgentBase implements NTuple4Agt, Seria
 		if (reward== 1.0 & ns.refer.getPlayer()==1) winXCounter++;
 	}
 	
+	/**
+	 * Compact the LUTs of this (trained) agent for inference, see {@link NTuple4ValueFunc#compactLUTs()}. The visit
+	 * counts are collected in a calibration run of {@code numEpisodes} self-play episodes from {@code startSO}: each
+	 * move is selected by {@code getNextAction2}, so that all LUT entries read during play are counted, and with
+	 * probability {@code randomMoves} replaced by a random move to cover also positions off the agent's own lines.
+	 * <p>
+	 * The compacted agent cannot be trained any longer.
+	 *
+	 * @return {hot entries, cold entries, bytes} summed over all LUTs
+	 */
+	public long[] compactLUTs(StateObservation startSO, int numEpisodes, double randomMoves) {
+		int epiLength = m_oPar.getEpisodeLength();
+		if (epiLength==-1) epiLength = Integer.MAX_VALUE;
+		m_Net.startProfiling();
+		for (int k=0; k<numEpisodes; k++) {
+			StateObservation so = startSO.copy();
+			for (int m=0; m<epiLength && !so.isGameOver(); m++) {
+				ACTIONS act = getNextAction2(so.partialState(), false, false, true);
+				if (rand.nextDouble() < randomMoves) {
+					ArrayList<ACTIONS> acts = so.getAvailableActions();
+					act = acts.get(rand.nextInt(acts.size()));
+				}
+				so.advance(act, rand);
+			}
+		}
+		return m_Net.compactLUTs();
+	}
+
 	/**
 	 * see {@link NTuple4ValueFunc#weightAnalysis(double[])}
 	 */
@@ -32,7 +32,7 @@ import tools.Types.ACTIONS;
  * 
  * @author Wolfgang Konen, TH Koeln, 2020 -2023
  */
-public class NTuple4ValueFunc implements Serializable {
+public class NTuple4ValueFunc implements Serializable, Cloneable {
 	/* Experimental Parameters: */
 	// protected double EPS = 0.5; /* random weight's init scale */
 	// protected double BIAS = 1.0; /* strength of the bias (constant input) */
@@ -69,6 +69,27 @@ public class NTuple4ValueFunc implements Serializable {
 	 * Array with n-tuple weights. Dimensions: {@code [numOutputs][numPlayers][numTuples]}.
 	 */
 	private NTuple4[][][] nTuples;
+
+	/**
+	 * If true, the LUTs of all {@link #nTuples} live in one contiguous weight arena (see {@link ParNT#getWeightArena()}).
+	 * The arena is serialized only once, since all n-tuples share the same array reference.
+	 */
+	private boolean weightArena = false;
+
+	/**
+	 * If true, all players share the LUTs of player 0 (see {@link ParNT#getSharePlayers()}): {@code nTuples[o][k]} is
+	 * the same array as {@code nTuples[o][0]} and the board is seen from player 0 via
+	 * {@link XNTupleFuncs#playerValueMap(int)}.
+	 */
+	private boolean sharePlayers = false;
+
+	/**
+	 * If true, the outputs which are equivalent under the game symmetries share the LUTs of their representative
+	 * output (see {@link ParNT#getShareOutputs()}): {@code nTuples[o][k]} is the same array as
+	 * {@code nTuples[repOut[o]][k]} and output o is evaluated on the board transformed by a symmetry which maps o to
+	 * {@code repOut[o]}.
+	 */
+	private boolean shareOutputs = false;
 	
 	public XNTupleFuncs xnf;
 
@@ -77,11 +98,33 @@ public class NTuple4ValueFunc implements Serializable {
 	 * a {@link HashMap} that maps all available actions to consecutive {@link Integer}s.
 	 */
 	private HashMap<ACTIONS,Integer> actionMap;
+
+	// primitive versions of actionMap and of the symmetric output cells, built lazily (see getOutput):
+	private transient int[] outputOf = null;		// outputOf[a]: output cell of action a (-1: no output)
+	private transient int[][] symOut = null;		// symOut[o]: output cells for the equivalent actions of output o
+
+	// weight sharing (see sharePlayers, shareOutputs), built lazily:
+	private transient int[][] valueMap = null;		// valueMap[k]: xnf.playerValueMap(k)
+	private transient int[] repOut = null;			// repOut[o]: representative (smallest) output equivalent to o
+	private transient int[] toRep = null;			// toRep[o]: a symmetry s which maps output o to repOut[o]
+	private transient int[][] outPermsFor = null;	// the permutation tables outPerms was built for
+	private transient int[][][] outPerms = null;	// outPerms[o][j]: see outputPerms
+	private transient int[][] viewBuf = null;			// viewBuf[k]: scratch for the k-th board view of a call (see playerView)
+	private transient BoardVector[][] viewEquiv = null;	// viewEquiv[k]: scratch for the k-th equivalent boards view
+	private transient int[][] batchBvecs = null;			// scratch of getScoresI: board views of the batch
+	private transient BoardVector[][] batchEquiv = null;	// scratch of getScoresI: equivalent boards of the batch
+	private transient int[] baseIdxBuf = null;				// scratch of getBaseIndices
 	
 	// elements needed for TD(lambda)-update with finite horizon, 
 	// see update(int[],int,double,double):
 	private int horizon=0;
-	private transient LinkedList<EligStates>[] eList;
+	private transient EligRing[] eRing;		// one ring buffer per player (built lazily in update)
+
+	// incremental evaluation (see ParNT#getIncrementalEval), built lazily:
+	private transient IncrementalMap incMap = null;
+
+	// gather-sum kernel for scoring (see ParNT#getScoreKernel), built lazily:
+	private transient ScoreKernel kernel = null;
 
 	private final boolean PRINTNTUPLES = true;	// /WK/ control the file printout of n-tuples (when loading agents)
 	private final DecimalFormat frmS = new DecimalFormat("+0.00000;-0.00000");
@@ -132,8 +175,7 @@ public class NTuple4ValueFunc implements Serializable {
 		this.xnf = xnf;
 		this.numPlayers = xnf.getNumPlayers();
 		this.numOutputs = numOutputs;
-		this.eList = new LinkedList[this.numPlayers];
-		for (int ie=0; ie<eList.length; ie++) eList[ie] = new LinkedList<>();
+		this.eRing = new EligRing[this.numPlayers];
 		this.tdAgt = parent;
 		if (xnf.useActionMap() && allAvailActions != null) {
 			bUseActionMap=true;
@@ -153,20 +195,276 @@ public class NTuple4ValueFunc implements Serializable {
 			ParNT ntPar, int numCells) {
 		assert (numOutputs!=0) : "initNTuples: numOutputs is 0!";
 		this.nTuples = new NTuple4[numOutputs][numPlayers][numTuples];
+		this.weightArena = ntPar.getWeightArena() && !ntPar.getSparseLut();	// sparse LUTs have no arena
+		this.sharePlayers = ntPar.getSharePlayers() && numPlayers>1;
+		this.shareOutputs = ntPar.getShareOutputs() && numOutputs>1;
+		checkSharing();
 		for (int i = 0; i < numTuples; i++) {
 			for (int j=0; j<nTuplesI[i].length; j++) {
 				int v = nTuplesI[i][j];
 				assert (v>=0 && v<numCells) : "Invalid cell number "+v+" in n-tuple no. "+i;
 			}
-			for (int o=0; o<numOutputs; o++) {
-				for (int k=0; k<numPlayers; k++) {
-					this.nTuples[o][k][i] = new NTuple4(nTuplesI[i], posVals, ntPar);
+		}
+
+		// in weight arena mode: the LUTs are laid out in the order o, k, i (n-tuple index i running fastest), so that
+		// the LUTs visited by getScoreI for one output and one player are adjacent in memory
+		Object arena = null;
+		double[][] tcArena = null;
+		int[] lutLengths = new int[numTuples];
+		if (weightArena) {
+			for (int i = 0; i < numTuples; i++) lutLengths[i] = NTuple4.lutLength(nTuplesI[i], posVals);
+			int arenaLength = arenaLength(lutLengths);
+			arena = newArena(ntPar.getWeightPrecision(), arenaLength);
+			if (ntPar.getTc() && !ntPar.getTcLazy()) tcArena = new double[][]{new double[arenaLength], new double[arenaLength], new double[arenaLength]};
+		}
+
+		int offset = 0;
+		for (int o=0; o<numOutputs; o++) {
+			for (int k=0; k<numPlayers; k++) {
+				if (!ownsRow(o,k)) {
+					this.nTuples[o][k] = ownerRow(nTuples, o, k);	// the owner has a smaller (o,k), it exists already
+					continue;
+				}
+				for (int i = 0; i < numTuples; i++) {
+					this.nTuples[o][k][i] = new NTuple4(nTuplesI[i], posVals, ntPar, arena, offset, tcArena);
 					if (randInitWeights) {
 						this.nTuples[o][k][i].initWeights(true);
-					}				
+					}
+					if (weightArena) offset += lutLengths[i];
 				}				
 			}
 		}
+		if (ntPar.getStatsInterval()>0) startWeightStats();
+	}
+
+	/**
+	 * @return the total length of a weight arena holding one LUT for each n-tuple and each row (o,k) which is not
+	 * 		shared ({@code numOutputs*numPlayers} rows without weight sharing)
+	 * @throws RuntimeException if the arena would exceed the maximum Java array size
+	 */
+	private int arenaLength(int[] lutLengths) {
+		long len = 0;
+		for (int L : lutLengths) len += L;
+		len *= getNumRows();
+		if (len > Integer.MAX_VALUE - 8)
+			throw new RuntimeException("[NTuple4ValueFunc] weight arena with "+len+" weights is too large, " +
+					"use weightArena=false");
+		return (int) len;
+	}
+
+	/**
+	 * @return a weight arena of length {@code len} whose element type matches weight precision {@code prec}
+	 */
+	private static Object newArena(int prec, int len) {
+		return switch (prec) {
+			case NTuple4.PREC_FLOAT -> new float[len];
+			case NTuple4.PREC_INT16 -> new short[len];
+			default -> new double[len];
+		};
+	}
+
+	/**
+	 * Convert the weights of all n-tuples to weight precision {@code prec} (see {@link ParNT#getWeightPrecision()}).
+	 * Nothing happens if the weights have already this precision. In weight arena mode, a new arena of the
+	 * appropriate type and with the same layout replaces the old one.
+	 *
+	 * @param prec 0: double, 1: float, 2: int16 (inference only)
+	 */
+	public void convertWeightPrecision(int prec) {
+		if (prec==getWeightPrecision() || isSparse() || isCompact() || isMapped()) return;	// sparse LUTs stay float
+																	// compacted and mapped LUTs stay as they are
+		Object arena = null;
+		if (weightArena) {
+			int[] lutLengths = new int[numTuples];
+			for (int i = 0; i < numTuples; i++) lutLengths[i] = nTuples[0][0][i].getLutLength();
+			arena = newArena(prec, arenaLength(lutLengths));
+		}
+		for (int o=0; o<numOutputs; o++)
+			for (int k=0; k<numPlayers; k++)
+				if (ownsRow(o,k))
+					for (NTuple4 nt : nTuples[o][k])
+						nt.convertPrecision(prec, arena);
+	}
+
+	/**
+	 * @return the weight precision in which the n-tuple weights are currently stored
+	 */
+	public int getWeightPrecision() {
+		return nTuples[0][0][0].getPrecision();
+	}
+
+	/**
+	 * @return true, if the n-tuple weights are stored in sparse LUTs (see {@link SparseLUT})
+	 */
+	public boolean isSparse() {
+		return nTuples[0][0][0].getSparseLUT()!=null;
+	}
+
+	/**
+	 * @return true, if the n-tuple weights are stored in compacted, read-only LUTs (see {@link #compactLUTs()})
+	 */
+	public boolean isCompact() {
+		return nTuples[0][0][0].getCompactLUT()!=null;
+	}
+
+	/**
+	 * @return true, if the n-tuple weights are read from a memory-mapped LUT file (see {@link #mapLUTs(String)})
+	 */
+	public boolean isMapped() {
+		return nTuples[0][0][0].getMappedLUT()!=null;
+	}
+
+	/**
+	 * Start the calibration run for {@link #compactLUTs()}: From now on, every read access to a LUT entry is counted.
+	 * While profiling, the gather-sum kernel (see {@link ParNT#getScoreKernel()}) is not used, since it bypasses the
+	 * n-tuples.
+	 */
+	public void startProfiling() {
+		for (NTuple4 nt : getNTuples()) nt.startProfiling();
+	}
+
+	/**
+	 * Start collecting online update statistics for every n-tuple (see {@link WeightStats}): update counts, touched
+	 * entries, mean |dW| and TC factor histogram. The counters are maintained on the weight update path without
+	 * locking, so they can be read (e.g. with {@link #appendWeightStats(String, long)}) while training is running.
+	 * A running collection is restarted.
+	 *
+	 * @see params.ParNT#getStatsInterval()
+	 */
+	public void startWeightStats() {
+		for (NTuple4 nt : getNTuples()) nt.startWeightStats();
+	}
+
+	public void stopWeightStats() {
+		for (NTuple4 nt : getNTuples()) nt.stopWeightStats();
+	}
+
+	public boolean hasWeightStats() {
+		return nTuples[0][0][0].getWeightStats()!=null;
+	}
+
+	/**
+	 * @return the online update statistics of each n-tuple (in the order of {@link #getNTuples()}) or {@code null},
+	 * 		if not collecting (see {@link #startWeightStats()})
+	 */
+	public WeightStats[] getWeightStats() {
+		if (!hasWeightStats()) return null;
+		NTuple4[] nts = getNTuples();
+		WeightStats[] stats = new WeightStats[nts.length];
+		for (int i=0; i<nts.length; i++) stats[i] = nts[i].getWeightStats();
+		return stats;
+	}
+
+	/**
+	 * Append the current online update statistics to the CSV file {@code path}, one row per n-tuple (in the order of
+	 * {@link #getNTuples()}) with the columns
+	 * <pre>
+	 *     gameNum, ntuple, n, lutLength, updates, touched, touchedFrac, meanAbsDW, intervalAbsDW, tc0, ..., tc9 </pre>
+	 * where {@code intervalAbsDW} is the mean |dW| since the last call and {@code tc0, ..., tc9} is the TC factor
+	 * histogram (see {@link WeightStats}). For sparse LUTs, {@code lutLength} and {@code touched} are the number of
+	 * stored entries and {@code touchedFrac} is {@code NaN}. The header is written, if the file is new. Does nothing,
+	 * if not collecting.
+	 * <p>
+	 * Same as {@link #writeWeightStats(String, String)} with the rows of {@link #snapshotWeightStats(long)}.
+	 */
+	public void appendWeightStats(String path, long gameNum) throws IOException {
+		String rows = snapshotWeightStats(gameNum);
+		if (rows!=null) writeWeightStats(path, rows);
+	}
+
+	/**
+	 * Take a snapshot of the current online update statistics as CSV rows (see {@link #appendWeightStats(String, long)}).
+	 * This is cheap (one row per n-tuple), so it may be called on the training thread, while the rows are written
+	 * later with {@link #writeWeightStats(String, String)}.
+	 *
+	 * @return the rows or {@code null}, if not collecting
+	 */
+	public String snapshotWeightStats(long gameNum) {
+		if (!hasWeightStats()) return null;
+		String sep = ", ";
+		StringBuilder sb = new StringBuilder();
+		NTuple4[] nts = getNTuples();
+		for (int i=0; i<nts.length; i++) {
+			WeightStats ws = nts[i].getWeightStats();
+			SparseLUT sp = nts[i].getSparseLUT();
+			sb.append(gameNum).append(sep).append(i).append(sep).append(nts[i].getLength()).append(sep)
+					.append(nts[i].getLutLength()).append(sep).append(ws.getNumUpdates()).append(sep)
+					.append((sp!=null) ? sp.size() : ws.getNumTouched()).append(sep)
+					.append((float) ws.getTouchedFraction()).append(sep).append((float) ws.getMeanAbsDW()).append(sep)
+					.append((float) ws.takeIntervalMeanAbsDW());
+			for (long h : ws.getTcHistogram()) sb.append(sep).append(h);
+			sb.append(System.lineSeparator());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Append {@code rows} from {@link #snapshotWeightStats(long)} to the CSV file {@code path}. The header is written,
+	 * if the file is new.
+	 */
+	public static void writeWeightStats(String path, String rows) throws IOException {
+		File file = new File(path);
+		if (file.getParentFile()!=null) tools.Utils.checkAndCreateFolder(file.getParent());
+		boolean isNew = !file.exists() || file.length()==0;
+		try (PrintWriter pw = new PrintWriter(new BufferedWriter(new FileWriter(file, true)))) {
+			if (isNew) {
+				pw.print("gameNum, ntuple, n, lutLength, updates, touched, touchedFrac, meanAbsDW, intervalAbsDW");
+				for (int b=0; b<WeightStats.TC_BINS; b++) pw.print(", tc"+b);
+				pw.println();
+			}
+			pw.print(rows);
+		}
+	}
+
+	/**
+	 * Rewrite each LUT into a read-only {@link CompactLUT}: the entries visited since {@link #startProfiling()} go
+	 * into a small hash table of hot entries, the other non-zero entries into a sorted cold fallback. The agent is
+	 * inference-only afterwards (its weights cannot be trained any longer) and no longer uses a weight arena.
+	 *
+	 * @return {hot entries, cold entries, bytes} summed over all LUTs
+	 */
+	public long[] compactLUTs() {
+		long[] stats = new long[3];
+		for (NTuple4 nt : getNTuples()) {
+			nt.compact();
+			stats[0] += nt.getCompactLUT().getNumHot();
+			stats[1] += nt.getCompactLUT().getNumCold();
+			stats[2] += nt.getCompactLUT().getBytes();
+		}
+		weightArena = false;
+		kernel = null;
+		return stats;
+	}
+
+	/**
+	 * Write the LUTs of all n-tuples (in the order of {@link #getNTuples()}) to the flat binary LUT file {@code path},
+	 * see {@link MappedLUT} for the format. The weights are stored as {@code double}, if the current weight precision
+	 * is double, and as {@code float} otherwise. Sparse LUTs cannot be exported.
+	 *
+	 * @see #mapLUTs(String)
+	 */
+	public void exportLUTs(String path) throws IOException {
+		if (isMapped() && new File(path).getAbsolutePath().equals(nTuples[0][0][0].getMappedLUT().getPath()))
+			throw new RuntimeException("[NTuple4ValueFunc] Cannot export the LUTs to the file they are mapped from");
+		MappedLUT.write(path, getNTuples(), getWeightPrecision()!=NTuple4.PREC_DOUBLE);
+	}
+
+	/**
+	 * Replace the LUTs of all n-tuples by read-only views into the memory-mapped LUT file {@code path}, which was
+	 * written by {@link #exportLUTs(String)} for an agent with the same n-tuples. The weights no longer occupy heap
+	 * memory and are shared via the page cache by all processes mapping the same file. Saving the agent afterwards
+	 * stores only the file name, not the weights, so it loads without deserializing the LUTs (the LUT file has to
+	 * stay in place).
+	 * <p>
+	 * The agent is inference-only afterwards (its weights cannot be trained any longer) and no longer uses a weight
+	 * arena.
+	 */
+	public void mapLUTs(String path) throws IOException {
+		NTuple4[] nts = getNTuples();
+		MappedLUT[] luts = MappedLUT.map(path, nts);
+		for (int i = 0; i < nts.length; i++) nts[i].map(luts[i]);
+		weightArena = false;
+		kernel = null;
 	}
 
 	/**
@@ -185,30 +483,211 @@ public class NTuple4ValueFunc implements Serializable {
 	}
 
 	public boolean instantiateAfterLoading() {
-		this.eList = new LinkedList[this.numPlayers];
-		for (int ie=0; ie<eList.length; ie++) eList[ie] = new LinkedList<>();
+		this.eRing = new EligRing[this.numPlayers];
+		double[][] tcArena = null;
+		if (weightArena && getTc() && !nTuples[0][0][0].getTcLazy()) {
+			int[] lutLengths = new int[numTuples];
+			for (int i = 0; i < numTuples; i++) lutLengths[i] = nTuples[0][0][i].getLutLength();
+			int arenaLength = arenaLength(lutLengths);
+			tcArena = new double[][]{new double[arenaLength], new double[arenaLength], new double[arenaLength]};
+		}
 		for (int i = 0; i < numTuples; i++) {
 			for (int o=0; o<numOutputs; o++) {
 				for (int k=0; k<numPlayers; k++) {
-					this.nTuples[o][k][i].instantiateAfterLoading();
+					if (ownsRow(o,k)) this.nTuples[o][k][i].instantiateAfterLoading(tcArena);
 				}				
 			}
 		}
+		if (isMapped()) {
+			String path = nTuples[0][0][0].getMappedLUT().getPath();
+			try {
+				mapLUTs(path);
+			} catch (IOException e) {
+				throw new RuntimeException("[NTuple4ValueFunc] Cannot map the LUT file "+path+": "+e.getMessage());
+			}
+		}
+		// convert the weights, if the agent's ParNT requests another precision than the one stored
+		convertWeightPrecision(tdAgt.getParNT().getWeightPrecision());
+		if (tdAgt.getParNT().getStatsInterval()>0 && !isCompact() && !isMapped()) startWeightStats();
 		return true;
 	}
 	
 	/**
-	 * @return The list of n-Tuples
+	 * @return The list of n-Tuples (each shared n-tuple only once)
 	 */
 	public NTuple4[] getNTuples() {
-		NTuple4[] list = new NTuple4[numOutputs * numPlayers * numTuples];
+		NTuple4[] list = new NTuple4[getNumRows() * numTuples];
 		for (int j = 0, k = 0; j < nTuples[0][0].length; j++)
 			for (int i = 0; i < nTuples[0].length; i++)
-				for (NTuple4[][] nTuple : nTuples)
-					list[k++] = nTuple[i][j];
+				for (int o = 0; o < nTuples.length; o++)
+					if (ownsRow(o,i)) list[k++] = nTuples[o][i][j];
 		return list;
 	}
 
+	/**
+	 * @throws RuntimeException if the weight sharing requested in {@link #sharePlayers} or {@link #shareOutputs} is
+	 * 		not possible for this game
+	 */
+	private void checkSharing() {
+		if (sharePlayers)
+			for (int k=0; k<numPlayers; k++)
+				if (xnf.playerValueMap(k)==null)
+					throw new RuntimeException("[NTuple4ValueFunc] sharePlayers is not possible, the player roles of "
+							+ "this game are not symmetric (no playerValueMap)");
+		if (shareOutputs) {
+			int[][] allPerm = xnf.symmetryPermutations(0);
+			if (allPerm==null)
+				throw new RuntimeException("[NTuple4ValueFunc] shareOutputs is not possible, the symmetries of "
+						+ "this game are no cell permutations");
+			for (int o=0; o<numOutputs; o++)
+				if (outputCells(o).length!=allPerm.length)
+					throw new RuntimeException("[NTuple4ValueFunc] shareOutputs is not possible, symmetryActions("
+							+ actionOf(o) + ") has not one action for each of the " + allPerm.length + " symmetries");
+		}
+	}
+
+	/**
+	 * @return true, if row (o,k) of {@link #nTuples} has its own LUTs, false, if it shares the LUTs of the row
+	 * 		{@link #ownerRow(NTuple4[][][], int, int)} (see {@link #sharePlayers}, {@link #shareOutputs})
+	 */
+	private boolean ownsRow(int o, int k) {
+		return (!sharePlayers || k==0) && (!shareOutputs || getRepOutput(o)==o);
+	}
+
+	/**
+	 * @return the row of {@code nts} whose LUTs are used for output {@code o} and player {@code k}
+	 */
+	private NTuple4[] ownerRow(NTuple4[][][] nts, int o, int k) {
+		return nts[shareOutputs ? getRepOutput(o) : o][sharePlayers ? 0 : k];
+	}
+
+	/**
+	 * @return the number of rows (o,k) of {@link #nTuples} which have their own LUTs
+	 */
+	private int getNumRows() {
+		int n = 0;
+		for (int o=0; o<numOutputs; o++)
+			for (int k=0; k<numPlayers; k++)
+				if (ownsRow(o,k)) n++;
+		return n;
+	}
+
+	/**
+	 * @return the representative of output {@code o}: the smallest output which is equivalent to {@code o} under the
+	 * 		game symmetries
+	 */
+	private int getRepOutput(int o) {
+		int[] rep = repOut;
+		if (rep==null) {
+			rep = new int[numOutputs];
+			int[] to = new int[numOutputs];
+			for (int p=0; p<numOutputs; p++) {
+				int[] out = outputCells(p);
+				for (int s=0; s<out.length; s++)
+					if (out[s]<out[to[p]]) to[p] = s;
+				rep[p] = out[to[p]];
+			}
+			toRep = to;
+			repOut = rep;
+		}
+		return rep[o];
+	}
+
+	/**
+	 * @return the board vector {@code bvec} as seen by the player whose LUTs are used for {@code player}: with
+	 * 		{@link #sharePlayers} a copy with position values remapped to player 0's perspective, otherwise
+	 * 		{@code bvec} itself. The copy is a scratch buffer of this object, valid until the next call.
+	 */
+	private int[] playerView(int[] bvec, int player) {
+		return playerView(bvec, player, 0);
+	}
+
+	/**
+	 * Same as {@link #playerView(int[], int)}, but with scratch buffer {@code k}, so that several views (e.g. of a
+	 * batch of states) can be used at the same time
+	 */
+	private int[] playerView(int[] bvec, int player, int k) {
+		if (!sharePlayers || player==0) return bvec;
+		int[][] buf = viewBuf;
+		if (buf==null || buf.length<=k) {
+			buf = (buf==null) ? new int[k+1][] : Arrays.copyOf(buf, Math.max(k+1, 2*buf.length));
+			viewBuf = buf;
+		}
+		if (buf[k]==null || buf[k].length!=bvec.length) buf[k] = new int[bvec.length];
+		return remap(bvec, player, buf[k]);
+	}
+
+	private int[] remap(int[] bvec, int player, int[] view) {
+		int[][] maps = valueMap;
+		if (maps==null) {
+			maps = new int[numPlayers][];
+			for (int k=0; k<numPlayers; k++) maps[k] = xnf.playerValueMap(k);
+			valueMap = maps;
+		}
+		int[] map = maps[player];
+		for (int c=0; c<bvec.length; c++) view[c] = map[bvec[c]];
+		return view;
+	}
+
+	/**
+	 * Same as {@link #playerView(int[], int)} for each of the equivalent boards {@code equiv}
+	 */
+	private BoardVector[] playerView(BoardVector[] equiv, int player) {
+		return playerView(equiv, player, 0);
+	}
+
+	/**
+	 * Same as {@link #playerView(BoardVector[], int)}, but with scratch buffer {@code k} (see
+	 * {@link #playerView(int[], int, int)})
+	 */
+	private BoardVector[] playerView(BoardVector[] equiv, int player, int k) {
+		if (!sharePlayers || player==0) return equiv;
+		BoardVector[][] buf = viewEquiv;
+		if (buf==null || buf.length<=k) {
+			buf = (buf==null) ? new BoardVector[k+1][] : Arrays.copyOf(buf, Math.max(k+1, 2*buf.length));
+			viewEquiv = buf;
+		}
+		BoardVector[] view = buf[k];
+		if (view==null || view.length!=equiv.length) view = buf[k] = new BoardVector[equiv.length];
+		for (int j=0; j<equiv.length; j++) {
+			if (view[j]==null || view[j].bvec.length!=equiv[j].bvec.length)
+				view[j] = new BoardVector(new int[equiv[j].bvec.length]);
+			remap(equiv[j].bvec, player, view[j].bvec);
+		}
+		return view;
+	}
+
+	/**
+	 * @param o		an output cell
+	 * @param perm	the permutation tables for the equivalent positions (see
+	 * 				{@link #getSymPermutations(boolean, int)}), null, if only the board itself is used
+	 * @return the permutation tables for the LUT indices of output {@code o}: with {@link #shareOutputs}, symmetry j
+	 * 		evaluates output {@code out[j]=outputCells(o)[j]} in the LUTs of its representative on the board transformed
+	 * 		by {@code perm[j]} followed by the symmetry {@code toRep[out[j]]}. Otherwise {@code perm} itself.
+	 */
+	private int[][] outputPerms(int o, int[][] perm) {
+		if (!shareOutputs) return perm;
+		int[][][] ops = outPerms;
+		if (ops==null || outPermsFor!=perm) {
+			getRepOutput(0);		// builds toRep
+			int[][] allPerm = xnf.symmetryPermutations(0);
+			int S = (perm==null) ? 1 : perm.length;
+			ops = new int[numOutputs][S][];
+			for (int p=0; p<numOutputs; p++) {
+				int[] out = outputCells(p);
+				for (int j=0; j<S; j++) {
+					int[] t = allPerm[toRep[(perm==null) ? p : out[j]]];
+					int[] comp = new int[t.length];
+					for (int c=0; c<t.length; c++) comp[c] = (perm==null) ? t[c] : perm[j][t[c]];
+					ops[p][j] = comp;
+				}
+			}
+			outPerms = ops;
+			outPermsFor = perm;
+		}
+		return ops[o];
+	}
+
 	public void finishUpdateWeights() {
 		ALPHA = ALPHA * m_AlphaChangeRatio;
 	}
@@ -230,42 +709,178 @@ public class NTuple4ValueFunc implements Serializable {
 		int i, j;
 		double score = 0.0;
 		BoardVector[] equiv;
-		int[] equivAction;
 
-		// Get equivalent boards (including self)
-		equiv = getSymBoards2(curSOWB, getUSESYMMETRY(), getNSym());
-		equivAction = xnf.symmetryActions(act.toInt());
-
-		if (equivAction.length==0) throw new RuntimeException( "[getQFunc] Error: equivAction has length 0");
-		if (bUseActionMap) {
-			for (i=0; i<equivAction.length; i++) {
-				if (actionMap.get(new ACTIONS(equivAction[i]))==null) throw new RuntimeException(
-						"[getQFunc] equivAction["+i+"]="+equivAction[i]+" is not in actionMap !!!");
-				// this should normally not happen. If it happens, we are out for an OutOfBoundException in the
-				// following lines ...
+		// Get equivalent boards (including self). If the symmetries are cell permutations, only the board itself
+		// is needed, its symmetric LUT indices are calculated via perm:
+		int o = getOutput(act.toInt());
+		int[][] perm = outputPerms(o, getSymPermutations(getUSESYMMETRY(), getNSym()));
+		equiv = (perm==null) ? playerView(getSymBoards2(curSOWB, getUSESYMMETRY(), getNSym()), player) : null;
+		int numEquiv = (perm==null) ? equiv.length : perm.length;
+		int[] bvec = playerView(curSOWB.getBoardVector().bvec, player);
+		int[] out = outputCells(o);
+
+		ScoreKernel sk = getScoreKernel();
+		if (sk!=null) {
+			score = sk.score(bvec, player, out);
+			return (hasSigmoid() ? Math.tanh(score) : score);
+		}
+
+		for (i = 0; i < numTuples; i++) {
+			for (j = 0; j < numEquiv; j++) {
+				NTuple4 nt = nTuples[out[j]][player][i];
+				score += (perm==null) ? nt.getScore(equiv[j].bvec) : nt.getScore(bvec, perm[j]);
 			}
+		}
 
-			for (i = 0; i < numTuples; i++) {
-				for (j = 0; j < equiv.length; j++) {
-					score += nTuples[actionMap.get(new ACTIONS(equivAction[j])) ][player][i].getScore(equiv[j].bvec);
+		return (hasSigmoid() ? Math.tanh(score) : score);
+	}
+
+	/**
+	 * Get the action-value function Q for state {@code curSOWB} and all actions in {@code acts} in one call. Yields
+	 * the same values as {@link #getQFunc(StateObsWithBoardVector, int, ACTIONS)} for each action, but the
+	 * equivalent boards and the LUT index of each n-tuple and each symmetry are calculated only once and then looked
+	 * up in the LUTs of all actions' output cells.
+	 *
+	 * @param curSOWB	the state
+	 * @param player	the player who has to move on {@code curSOWB} (0, ..., N-1)
+	 * @param acts		the actions
+	 * @param qValues	array of length &ge; {@code acts.size()}, receives Q for each action
+	 */
+	public void getQFuncs(StateObsWithBoardVector curSOWB, int player, List<ACTIONS> acts, double[] qValues) {
+		getQVector(curSOWB, player, getOutputs(acts), qValues);
+	}
+
+	/**
+	 * Get the action-value function Q for state {@code curSOWB} and several outputs in one pass over the n-tuples
+	 * and symmetries: the LUT index of each n-tuple and each symmetry is calculated only once and then looked up in
+	 * the LUTs of all requested outputs. Yields the same values as
+	 * {@link #getQFunc(StateObsWithBoardVector, int, ACTIONS)}.
+	 *
+	 * @param curSOWB	the state
+	 * @param player	the player who has to move on {@code curSOWB} (0, ..., N-1)
+	 * @param outs		the output cells (see {@link #getOutput(int)}) of the actions to evaluate or {@code null} for
+	 * 					all {@code numOutputs} outputs
+	 * @param qValues	array of length &ge; {@code outs.length} (or {@code numOutputs}), receives Q for each output
+	 */
+	public void getQVector(StateObsWithBoardVector curSOWB, int player, int[] outs, double[] qValues) {
+		int nA = (outs==null) ? numOutputs : outs.length;
+		int[][] perm = getSymPermutations(getUSESYMMETRY(), getNSym());
+		BoardVector[] equiv = (perm==null && !shareOutputs)
+				? playerView(getSymBoards2(curSOWB, getUSESYMMETRY(), getNSym()), player) : null;
+		int numEquiv = (perm==null) ? ((equiv==null) ? 1 : equiv.length) : perm.length;
+		int[] bvec = playerView(curSOWB.getBoardVector().bvec, player);
+		int[][] out = new int[nA][];
+		for (int a = 0; a < nA; a++) {
+			out[a] = outputCells((outs==null) ? a : outs[a]);
+			qValues[a] = 0.0;
+		}
+
+		ScoreKernel sk = getScoreKernel();
+		if (sk!=null) {
+			sk.scores(bvec, player, out, qValues);
+		} else if (shareOutputs) {
+			// the LUT indices depend on the output (see outputPerms), so they are calculated for each action
+			for (int i = 0; i < numTuples; i++) {
+				NTuple4 shape = nTuples[0][player][i];
+				for (int a = 0; a < nA; a++) {
+					int[][] pa = outputPerms((outs==null) ? a : outs[a], perm);
+					for (int j = 0; j < numEquiv; j++)
+						qValues[a] += nTuples[out[a][j]][player][i].getWeightAt(shape.getLutKey(bvec, pa[j]));
 				}
 			}
-		} else {  // i.e. if !bUseActionMap:
-			for (i=0; i<equivAction.length; i++) {
-				if (equivAction[i]>=nTuples.length) throw new RuntimeException(
-						"[getQFunc] equivAction["+i+"]="+equivAction[i]+" is not smaller than nTuples.length="+nTuples.length+" !!!");
-				// this should normally not happen. If it happens, we are out for an OutOfBoundException in the
-				// following lines ...
-			}
-
-			for (i = 0; i < numTuples; i++) {
-				for (j = 0; j < equiv.length; j++) {
-					score += nTuples[equivAction[j]][player][i].getScore(equiv[j].bvec);
+		} else {
+			for (int i = 0; i < numTuples; i++) {
+				NTuple4 shape = nTuples[0][player][i];		// all outputs have the same n-tuple shapes
+				for (int j = 0; j < numEquiv; j++) {
+					long key = (perm==null) ? shape.getLutKey(equiv[j].bvec, null) : shape.getLutKey(bvec, perm[j]);
+					for (int a = 0; a < nA; a++)
+						qValues[a] += nTuples[out[a][j]][player][i].getWeightAt(key);
 				}
 			}
 		}
 
-		return (hasSigmoid() ? Math.tanh(score) : score);
+		if (hasSigmoid())
+			for (int a = 0; a < nA; a++) qValues[a] = Math.tanh(qValues[a]);
+	}
+
+	/**
+	 * @param act	an action (key)
+	 * @return the output cell (1st index of {@link #nTuples}) for action {@code act}
+	 * @throws RuntimeException if {@code act} has no output cell
+	 */
+	public int getOutput(int act) {
+		int[] map = outputOf;
+		if (map==null) map = outputOf = buildOutputOf();
+		int o = (act>=0 && act<map.length) ? map[act] : -1;
+		if (o<0) throw new RuntimeException("[NTuple4ValueFunc] action "+act+" has no output cell ("
+				+ (bUseActionMap ? "not in actionMap" : "not smaller than numOutputs="+numOutputs) + ")");
+		return o;
+	}
+
+	/**
+	 * @return the output cells (see {@link #getOutput(int)}) for all actions in {@code acts}
+	 */
+	public int[] getOutputs(List<ACTIONS> acts) {
+		int[] outs = new int[acts.size()];
+		for (int a = 0; a < outs.length; a++) outs[a] = getOutput(acts.get(a).toInt());
+		return outs;
+	}
+
+	/**
+	 * @return the primitive version of {@link #actionMap}, an array indexed by the action key (or the identity on
+	 * 		0,...,numOutputs-1, if {@code !bUseActionMap})
+	 */
+	private int[] buildOutputOf() {
+		if (!bUseActionMap) {
+			int[] map = new int[numOutputs];
+			for (int o = 0; o < numOutputs; o++) map[o] = o;
+			return map;
+		}
+		int max = -1;
+		for (ACTIONS a : actionMap.keySet()) {
+			if (a.toInt()<0) throw new RuntimeException("[NTuple4ValueFunc] negative action key "+a.toInt());
+			max = Math.max(max, a.toInt());
+		}
+		int[] map = new int[max+1];
+		Arrays.fill(map, -1);
+		for (Map.Entry<ACTIONS,Integer> entry : actionMap.entrySet()) map[entry.getKey().toInt()] = entry.getValue();
+		return map;
+	}
+
+	/**
+	 * @return the output cells (1st index of {@link #nTuples}) for the equivalent actions of {@code act}, i.e.
+	 * 		{@code out[j]} is the output cell for the j-th symmetric board
+	 */
+	private int[] outputCells(ACTIONS act) {
+		return outputCells(getOutput(act.toInt()));
+	}
+
+	/**
+	 * Same as {@link #outputCells(ACTIONS)}, but for the action with output cell {@code o}. The result is cached.
+	 */
+	private int[] outputCells(int o) {
+		int[][] cache = symOut;
+		if (cache==null) cache = symOut = new int[numOutputs][];
+		if (cache[o]==null) {
+			int[] equivAction = xnf.symmetryActions(actionOf(o));
+			if (equivAction.length==0) throw new RuntimeException( "[getQFunc] Error: equivAction has length 0");
+			int[] out = new int[equivAction.length];
+			for (int i=0; i<equivAction.length; i++) out[i] = getOutput(equivAction[i]);
+			cache[o] = out;
+		}
+		return cache[o];
+	}
+
+	/**
+	 * @return the action (key) which has output cell {@code o} (inverse of {@link #getOutput(int)})
+	 */
+	private int actionOf(int o) {
+		if (!bUseActionMap) return o;
+		int[] map = outputOf;
+		if (map==null) map = outputOf = buildOutputOf();
+		for (int a = 0; a < map.length; a++)
+			if (map[a]==o) return a;
+		throw new RuntimeException("[NTuple4ValueFunc] output cell "+o+" is not in actionMap");
 	}
 	
 	/**
@@ -286,8 +901,26 @@ public class NTuple4ValueFunc implements Serializable {
 		//if (curSOWB.getStateObservation() instanceof StateObserverCube) USE_SYM_IN_SCORE=false;
 		boolean usesym = USE_SYM_IN_SCORE && getUSESYMMETRY();
 
+		ScoreKernel sk = getScoreKernel();
+		if (sk!=null) {
+			score = sk.score(playerView(curSOWB.getBoardVector().bvec, player), player, null);
+			return (hasSigmoid() ? Math.tanh(score) : score);
+		}
+
+		int[][] perm = getSymPermutations(usesym, getNSym());
+		if (perm!=null) {
+			// allocation-free path: the symmetric boards are not constructed, only their LUT indices are calculated
+			int[] bvec = playerView(curSOWB.getBoardVector().bvec, player);
+			for (i = 0; i < numTuples; i++) {
+				NTuple4 nt = nTuples[0][player][i];
+				for (j = 0; j < perm.length; j++)
+					score += nt.getScore(bvec, perm[j]);
+			}
+			return (hasSigmoid() ? Math.tanh(score) : score);
+		}
+
 		// Get equivalent boards (including self)
-		equiv = getSymBoards2(curSOWB, usesym, getNSym());
+		equiv = playerView(getSymBoards2(curSOWB, usesym, getNSym()), player);
 
 		for (i = 0; i < numTuples; i++) {
 			for (j = 0; j < equiv.length; j++) {
@@ -301,6 +934,310 @@ public class NTuple4ValueFunc implements Serializable {
 		return (hasSigmoid() ? Math.tanh(score) : score);
 	}
 
+	/**
+	 * Get the values for a batch of states, e.g. all successor states in {@code getNextAction2}. Yields the same
+	 * values as {@link #getScoreI(StateObsWithBoardVector, int)} for each state, but the symmetry tables are fetched
+	 * only once for the whole batch and the loops run n-tuple-major (for each n-tuple all states), so that each LUT
+	 * is accessed in one go.
+	 *
+	 * @param sowbs		the states. {@code sowbs[b]==null} is allowed, then {@code scores[b]} is set to 0.
+	 * @param player	the player from whose perspective the states are evaluated
+	 * @param scores	array of length &ge; {@code sowbs.length}, receives V for each state
+	 */
+	public void getScoresI(StateObsWithBoardVector[] sowbs, int player, double[] scores) {
+		getScoresI(sowbs, sowbs.length, player, scores);
+	}
+
+	/**
+	 * Same as {@link #getScoresI(StateObsWithBoardVector[], int, double[])} for the first {@code nb} states of
+	 * {@code sowbs}, so that the caller can reuse arrays which are longer than the batch
+	 */
+	public void getScoresI(StateObsWithBoardVector[] sowbs, int nb, int player, double[] scores) {
+		int b, i, j;
+		Arrays.fill(scores, 0, nb, 0.0);
+		int[][] perm = getSymPermutations(getUSESYMMETRY(), getNSym());
+		ScoreKernel sk = getScoreKernel();
+		if (sk!=null) {
+			for (b = 0; b < nb; b++)
+				if (sowbs[b]!=null) scores[b] = sk.score(playerView(sowbs[b].getBoardVector().bvec, player), player, null);
+		} else if (perm!=null) {
+			int[][] bvecs = batchBvecs;
+			if (bvecs==null || bvecs.length<nb) bvecs = batchBvecs = new int[nb][];
+			for (b = 0; b < nb; b++)
+				bvecs[b] = (sowbs[b]==null) ? null : playerView(sowbs[b].getBoardVector().bvec, player, b);
+			for (i = 0; i < numTuples; i++) {
+				NTuple4 nt = nTuples[0][player][i];
+				for (b = 0; b < nb; b++) {
+					if (bvecs[b]==null) continue;
+					for (j = 0; j < perm.length; j++)
+						scores[b] += nt.getScore(bvecs[b], perm[j]);
+				}
+			}
+		} else {
+			BoardVector[][] equiv = batchEquiv;
+			if (equiv==null || equiv.length<nb) equiv = batchEquiv = new BoardVector[nb][];
+			for (b = 0; b < nb; b++)
+				equiv[b] = (sowbs[b]==null) ? null : playerView(getSymBoards2(sowbs[b], getUSESYMMETRY(), getNSym()), player, b);
+			for (i = 0; i < numTuples; i++) {
+				NTuple4 nt = nTuples[0][player][i];
+				for (b = 0; b < nb; b++) {
+					if (equiv[b]==null) continue;
+					for (j = 0; j < equiv[b].length; j++)
+						scores[b] += nt.getScore(equiv[b][j].bvec);
+				}
+			}
+		}
+		if (hasSigmoid())
+			for (b = 0; b < nb; b++)
+				if (sowbs[b]!=null) scores[b] = Math.tanh(scores[b]);
+	}
+
+	/**
+	 * Start an incremental evaluation of successor states of {@code baseSOWB}: calculate the LUT indices of all
+	 * n-tuples for all equivalent positions of {@code baseSOWB}. Successor states differing from {@code baseSOWB}
+	 * only in a few cells can then be evaluated with {@link #getScoreIncremental(int[], int[], int[], int, int[])},
+	 * which updates only the indices affected by the changed cells.
+	 *
+	 * @param baseSOWB the state whose successors shall be evaluated
+	 * @return the LUT indices, {@code baseIdx[i*S+s]} for n-tuple i and symmetry s (S = number of symmetries used),
+	 * 		or null, if incremental evaluation is not possible (game symmetries are no cell permutations,
+	 * 		sparse LUTs, whose indices may exceed the {@code int} range, or {@link #sharePlayers}, where the indices
+	 * 		depend on the player). The array is a scratch buffer of this object, valid until the next call.
+	 */
+	public int[] getBaseIndices(StateObsWithBoardVector baseSOWB) {
+		if (isSparse() || sharePlayers) return null;
+		IncrementalMap im = getIncrementalMap();
+		if (im==null) return null;
+		int S = im.perm.length;
+		int[] bvec = baseSOWB.getBoardVector().bvec;
+		int[] baseIdx = baseIdxBuf;
+		if (baseIdx==null || baseIdx.length!=numTuples*S) baseIdx = baseIdxBuf = new int[numTuples*S];
+		for (int i = 0; i < numTuples; i++)
+			for (int s = 0; s < S; s++)
+				baseIdx[i*S+s] = nTuples[0][0][i].getIndex(bvec, im.perm[s]);
+		return baseIdx;
+	}
+
+	/**
+	 * Same as {@link #getScoreI(StateObsWithBoardVector, int)} for the state with board vector {@code bvec}, but
+	 * the LUT indices are derived from those of a base state by applying only the changed cells (via the reverse
+	 * map cell &rarr; (n-tuple, symmetry, stride)).
+	 *
+	 * @param baseBvec	the board vector of the base state
+	 * @param baseIdx	the LUT indices of the base state from {@link #getBaseIndices(StateObsWithBoardVector)}
+	 * @param bvec		the board vector of the state to evaluate
+	 * @param player	the player who has to move on {@code bvec}
+	 * @param work		a work array of the same length as {@code baseIdx} (will be overwritten)
+	 * @return V
+	 */
+	public double getScoreIncremental(int[] baseBvec, int[] baseIdx, int[] bvec, int player, int[] work) {
+		IncrementalMap im = getIncrementalMap();
+		int S = im.perm.length;
+		System.arraycopy(baseIdx, 0, work, 0, work.length);
+		for (int c = 0; c < bvec.length; c++) {
+			int d = bvec[c] - baseBvec[c];
+			if (d != 0) {
+				int[] cs = im.cellSlots[c];
+				for (int k = 0; k < cs.length; k += 2)
+					work[cs[k]] += d * cs[k+1];
+			}
+		}
+		double score = 0.0;
+		for (int i = 0; i < numTuples; i++) {
+			NTuple4 nt = nTuples[0][player][i];
+			for (int s = 0; s < S; s++)
+				score += nt.getWeight(work[i*S+s]);
+		}
+		return (hasSigmoid() ? Math.tanh(score) : score);
+	}
+
+	/**
+	 * @return the reverse map for incremental evaluation matching the current symmetry settings (or null, if the
+	 * 		game symmetries are no cell permutations)
+	 */
+	private IncrementalMap getIncrementalMap() {
+		IncrementalMap im = incMap;
+		if (!getUSESYMMETRY()) {
+			// the identity map is built only once and then recognized by its flag
+			if (im==null || !im.identity) {
+				int[] id = new int[xnf.getNumCells()];
+				for (int j = 0; j < id.length; j++) id[j] = j;
+				im = new IncrementalMap(new int[][] {id}, true);
+				incMap = im;
+			}
+			return im;
+		}
+		int[][] perm = getSymPermutations(true, getNSym());
+		if (perm==null) return null;
+		if (im==null || im.perm!=perm) {
+			im = new IncrementalMap(perm, false);
+			incMap = im;
+		}
+		return im;
+	}
+
+	/**
+	 * The reverse map for incremental evaluation: {@code cellSlots[c]} holds pairs {slot, stride} for every
+	 * n-tuple i, symmetry s and position p with {@code perm[s][nTuple_i[p]]==c}. Here slot = i*S+s is the index
+	 * into the LUT index array and stride is the factor of cell c's value in the LUT index of n-tuple i.
+	 */
+	private class IncrementalMap {
+		final int[][] perm;
+		final int[][] cellSlots;
+		final boolean identity;		// true: perm is only the identity (USESYMMETRY off)
+
+		IncrementalMap(int[][] perm, boolean identity) {
+			this.perm = perm;
+			this.identity = identity;
+			int S = perm.length;
+			int numCells = perm[0].length;
+			int[] count = new int[numCells];
+			for (int i = 0; i < numTuples; i++)
+				for (int[] ps : perm)
+					for (int p = 0; p < nTuples[0][0][i].getLength(); p++)
+						count[ps[nTuples[0][0][i].getPosition(p)]]++;
+			cellSlots = new int[numCells][];
+			for (int c = 0; c < numCells; c++) cellSlots[c] = new int[2*count[c]];
+			Arrays.fill(count, 0);
+			for (int i = 0; i < numTuples; i++) {
+				NTuple4 nt = nTuples[0][0][i];
+				for (int s = 0; s < S; s++) {
+					int stride = 1;
+					for (int p = 0; p < nt.getLength(); p++) {
+						int c = perm[s][nt.getPosition(p)];
+						cellSlots[c][count[c]++] = i*S+s;
+						cellSlots[c][count[c]++] = stride;
+						stride *= nt.getPosVals(nt.getPosition(p));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the gather-sum kernel matching the current symmetry settings and weight arena, or null, if the
+	 * 		kernel is not requested (see {@link ParNT#getScoreKernel()}) or not possible (no Vector API, no weight
+	 * 		arena, sparse or int16 weights, game symmetries are no cell permutations)
+	 */
+	private ScoreKernel getScoreKernel() {
+		if (!tdAgt.getParNT().getScoreKernel() || !weightArena || LutIndexer.get()==null) return null;
+		if (shareOutputs) return null;			// the cells depend on the output (see outputPerms)
+		if (nTuples[0][0][0].getVisits()!=null) return null;		// profiling for compactLUTs
+		Object arena = nTuples[0][0][0].getLutArray();
+		if (!(arena instanceof double[]) && !(arena instanceof float[])) return null;
+		ScoreKernel sk = kernel;
+		int[][] perm;
+		if (getUSESYMMETRY()) {
+			perm = getSymPermutations(true, getNSym());
+			if (perm==null) return null;
+		} else if (sk!=null && sk.perm.length==1 && sk.perm[0]==null) {
+			perm = sk.perm;
+		} else {
+			perm = new int[][] {null};		// the board itself
+		}
+		if (sk==null || sk.perm!=perm || sk.arena!=arena) {
+			sk = new ScoreKernel(perm, arena);
+			kernel = sk;
+		}
+		return sk;
+	}
+
+	/**
+	 * Gather-sum kernel for the weight arena: For every n-tuple i, symmetry s (row r=i*S+s) and position p the cell
+	 * {@code perm[s][nTuple_i[p]]} and the stride of position p are precomputed in flat position-major tables
+	 * ({@code cells}, {@code strides}). The relative LUT indices of all rows are calculated in one pass by the
+	 * {@link LutIndexer} (with the JDK Vector API). Then the value is the sum over the rows of
+	 * {@code arena[offset[o][player][i] + idx[r]]}, without calls to {@link NTuple4} and without the per-weight
+	 * precision switch. The summation order (i,s) is the same as in
+	 * {@link #getScoreI(StateObsWithBoardVector, int)}, so the results are identical.
+	 * <p>
+	 * The kernel has a scratch array for the indices, so each worker view and snapshot has its own kernel.
+	 */
+	private class ScoreKernel {
+		final int[][] perm;		// the symmetry permutations (or {null}: only the board itself)
+		final Object arena;
+		final double[] arenaD;	// the arena, if double precision (else null)
+		final float[] arenaF;	// the arena, if float precision (else null)
+		final int S;			// number of symmetries
+		final int R;			// number of rows (n-tuple, symmetry)
+		final int L;			// maximum n-tuple length
+		final int[] cells;		// cells[p*R+r]: cell of position p in row r
+		final int[] strides;	// strides[p*R+r]: stride of position p in row r (0, if p >= length of the n-tuple)
+		final int[][][] offset;	// offset[o][player][i]: start of the LUT in the arena
+		final int[] idx;		// scratch: relative LUT index of each row
+		final LutIndexer indexer = LutIndexer.get();
+
+		ScoreKernel(int[][] perm, Object arena) {
+			this.perm = perm;
+			this.arena = arena;
+			this.arenaD = (arena instanceof double[]) ? (double[]) arena : null;
+			this.arenaF = (arena instanceof float[]) ? (float[]) arena : null;
+			S = perm.length;
+			R = numTuples*S;
+			int maxLen = 0;
+			for (int i = 0; i < numTuples; i++) maxLen = Math.max(maxLen, nTuples[0][0][i].getLength());
+			L = maxLen;
+			cells = new int[L*R];
+			strides = new int[L*R];
+			for (int i = 0; i < numTuples; i++) {
+				NTuple4 nt = nTuples[0][0][i];
+				int stride = 1;
+				for (int p = 0; p < nt.getLength(); p++) {
+					for (int s = 0, r = i*S; s < S; s++, r++) {
+						cells[p*R+r] = (perm[s]==null) ? nt.getPosition(p) : perm[s][nt.getPosition(p)];
+						strides[p*R+r] = stride;
+					}
+					stride *= nt.getPosVals(nt.getPosition(p));
+				}
+			}
+			offset = new int[numOutputs][numPlayers][numTuples];
+			for (int o = 0; o < numOutputs; o++)
+				for (int k = 0; k < numPlayers; k++)
+					for (int i = 0; i < numTuples; i++)
+						offset[o][k][i] = nTuples[o][k][i].getLutOffset();
+			idx = new int[R];
+		}
+
+		/**
+		 * @param bvec		the board vector
+		 * @param player	the player
+		 * @param out		null for the output 0 (V), otherwise the output cell for each symmetry s (Q)
+		 * @return the sum of the weights (before the sigmoid, if any)
+		 */
+		double score(int[] bvec, int player, int[] out) {
+			indexer.indices(bvec, cells, strides, L, R, idx);
+			int[] offV = offset[0][player];
+			double score = 0.0;
+			for (int i = 0, r = 0; i < numTuples; i++) {
+				for (int s = 0; s < S; s++, r++) {
+					int index = ((out==null) ? offV[i] : offset[out[s]][player][i]) + idx[r];
+					score += (arenaD!=null) ? arenaD[index] : arenaF[index];
+				}
+			}
+			return score;
+		}
+
+		/**
+		 * Same as {@link #score(int[], int, int[])} for several outputs at once: the relative LUT index of each
+		 * n-tuple and symmetry is calculated only once.
+		 *
+		 * @param outs		{@code outs[a]}: the output cell for each symmetry s of action a
+		 * @param scores	receives the sum of the weights for each action a (has to be zero on input)
+		 */
+		void scores(int[] bvec, int player, int[][] outs, double[] scores) {
+			indexer.indices(bvec, cells, strides, L, R, idx);
+			int nA = outs.length;
+			for (int i = 0, r = 0; i < numTuples; i++) {
+				for (int s = 0; s < S; s++, r++) {
+					for (int a = 0; a < nA; a++) {
+						int k = offset[outs[a][s]][player][i] + idx[r];
+						scores[a] += (arenaD!=null) ? arenaD[k] : arenaF[k];
+					}
+				}
+			}
+		}
+	}
+
 	/**
 	 * Get the equivalent positions to one board. The first one 
 	 * is the board itself. The other can be generated
@@ -317,20 +1254,8 @@ public class NTuple4ValueFunc implements Serializable {
 	private BoardVector[] getSymBoards2(StateObsWithBoardVector curSOWB, boolean useSymmetry, int nSym) {
 		BoardVector[] equiv;
 		
-		assert nSym >= 0 : "Ooops, nSym="+nSym+" is negative!";
-		assert nSym <= xnf.getNumSymmetries() 
-				: "Oops, nSym="+nSym+" is larger than xnf.getNumSymmetries()="+xnf.getNumSymmetries()+"!";
-		
-		
 		if (useSymmetry) {
-			if (nSym==0) nSym=xnf.getNumSymmetries();
-			if (tdAgt instanceof Sarsa4Agt && nSym < xnf.getNumSymmetries())
-				// in the SarsaAgt case we can only handle the case n=getNumSymmetries() (use all symmetries). 
-				// This is because symmetryActions currently assumes that all symmetries are taken.
-				// (symmetryActions is ONLY needed by SarsaAgt - and perhaps later by QLearnAgt)
-				throw new RuntimeException("[NTuple4ValueFunc] Sorry, cannot handle case SarsaAgt and 0 < nSym < s (symmetryActions not yet adapted).");
-
-			equiv = xnf.symmetryVectors(curSOWB,nSym);
+			equiv = xnf.symmetryVectors(curSOWB,checkNSym(nSym));
 		} else {
 			equiv = new BoardVector[1];
 			equiv[0] = curSOWB.getBoardVector();			
@@ -339,6 +1264,36 @@ public class NTuple4ValueFunc implements Serializable {
 		return equiv;
 	}
 
+	/**
+	 * Get the permutation tables for the equivalent positions (see {@link XNTupleFuncs#symmetryPermutations(int)}),
+	 * if the game provides them. They replace {@link #getSymBoards2(StateObsWithBoardVector, boolean, int)}
+	 * on the hot paths, since no symmetric {@link BoardVector}s have to be allocated.
+	 *
+	 * @param useSymmetry if false, return null (there is only the board itself)
+	 * @param nSym the number of symmetry vectors to use (if = 0, use all symmetries)
+	 * @return the permutation tables or null, if the game does not provide them
+	 */
+	private int[][] getSymPermutations(boolean useSymmetry, int nSym) {
+		return (useSymmetry) ? xnf.symmetryPermutations(checkNSym(nSym)) : null;
+	}
+
+	/**
+	 * @return the number of symmetries to use ({@link XNTupleFuncs#getNumSymmetries()}, if {@code nSym=0})
+	 */
+	private int checkNSym(int nSym) {
+		assert nSym >= 0 : "Ooops, nSym="+nSym+" is negative!";
+		assert nSym <= xnf.getNumSymmetries() 
+				: "Oops, nSym="+nSym+" is larger than xnf.getNumSymmetries()="+xnf.getNumSymmetries()+"!";
+
+		if (nSym==0) nSym=xnf.getNumSymmetries();
+		if (tdAgt instanceof Sarsa4Agt && nSym < xnf.getNumSymmetries())
+			// in the SarsaAgt case we can only handle the case n=getNumSymmetries() (use all symmetries). 
+			// This is because symmetryActions currently assumes that all symmetries are taken.
+			// (symmetryActions is ONLY needed by SarsaAgt - and perhaps later by QLearnAgt)
+			throw new RuntimeException("[NTuple4ValueFunc] Sorry, cannot handle case SarsaAgt and 0 < nSym < s (symmetryActions not yet adapted).");
+		return nSym;
+	}
+
 	private int[] getSymActions(int output, boolean useSymmetry) {
 		int[] equivActions;
 		if (useSymmetry) {
@@ -618,54 +1573,63 @@ public class NTuple4ValueFunc implements Serializable {
 		int i, j, out;
 		double alphaM, lamFactor;
 
-		// Get equivalent boards (including self) and corresponding actions
-		BoardVector[] equiv = getSymBoards2(curSOWB, getUSESYMMETRY(), getNSym());
+		// Get equivalent boards (including self) and corresponding actions. If the symmetries are cell
+		// permutations, only the board itself is needed, its symmetric LUT indices are calculated via perm:
+		int[][] perm = getSymPermutations(getUSESYMMETRY(), getNSym());
 		int[] equivAction = (QMODE ? getSymActions(output, getUSESYMMETRY()) : null); 
 		// equivAction only needed for QMODE==true
 
-		alphaM = ALPHA / (numTuples*equiv.length); 
+		if (bUseActionMap) output = getOutput(output);
+		if (QMODE) perm = outputPerms(output, perm);
+		BoardVector[] equiv = (perm==null) ? playerView(getSymBoards2(curSOWB, getUSESYMMETRY(), getNSym()), player) : null;
+		int numEquiv = (perm==null) ? equiv.length : perm.length;
+		int[] bvec = playerView(curSOWB.getBoardVector().bvec, player);
 
-		// construct new EligStates object, add it at head of LinkedList eList[ie] and remove 
-		// from the list the element 'beyond horizon' t_0 = t-horizon (if any).
-		// The LinkedList to use is either always the same one (ie=0, if ELIST_PP==false) or 
-		// the list kept for each specific player 'player' (if ELIST_PP==true):
+		alphaM = ALPHA / (numTuples*numEquiv);
+
+		// store the LUT indices of the new state in the ring buffer eRing[ie], overwriting the element 'beyond
+		// horizon' t_0 = t-horizon (if any). The ring buffer to use is either always the same one (ie=0, if
+		// ELIST_PP==false) or the one kept for each specific player 'player' (if ELIST_PP==true):
 		int ie = (ELIST_PP ? player : 0);
-		EligStates elem = new EligStates(equiv,equivAction,e);
-		eList[ie].addFirst(elem);
 		assert (horizon>0) : "[NTuple4ValueFunc.update] Error: horizon is 0 !";
-		if (eList[ie].size()>horizon) eList[ie].pollLast();
+		EligRing ring = eRing[ie];
+		if (ring==null || ring.capacity()!=horizon)
+			ring = eRing[ie] = new EligRing(horizon, ring);
+		int slot = ring.push(numTuples*numEquiv, numEquiv);
+		long[] idx = ring.idx[slot];
+		for (i = 0; i < numTuples; i++) {
+			NTuple4 shape = nTuples[0][0][i];		// all n-tuple objects for tuple i have the same LUT indices
+			for (j = 0; j < numEquiv; j++)
+				idx[i*numEquiv+j] = (perm==null) ? shape.getLutKey(equiv[j].bvec, null)
+												 : shape.getLutKey(bvec, perm[j]);
+		}
+		if (QMODE) {
+			int[] outs = ring.outs[slot];
+			for (j = 0; j < numEquiv; j++) {
+				// this assertion is only valid for TicTacToe, where each action should be
+				// on an empty field which is coded as '1' here:
+				//assert (equiv[j][equivAction[j]]==1) : "Oops, action TicTacToe not viable";
+				out = equivAction[j];
+				outs[j] = (bUseActionMap) ? getOutput(out) : out;
+			}
+		}
+		ring.sigDeriv[slot] = e;
 		
-		// iterate over all list elements in horizon  (at most h+1 elements from t down to t_0):
-		ListIterator<EligStates> iter = eList[ie].listIterator();		
-		lamFactor=1;  // holds 1, LAMBDA, LAMBDA^2,... in successive passes through while-loop
-		while(iter.hasNext()) {
-			elem=iter.next();
-			equiv=elem.equiv;
-			equivAction=elem.equivAction;
-//			printEquivs(equiv,equivAction);		// debug (TTT only)
-			//System.out.println(eList[ie].size()+" "+lamFactor+"   ["+ equiv[0]+"]");	// debug
+		// iterate over all elements in horizon  (at most h elements from t down to t_0), newest first:
+		lamFactor=1;  // holds 1, LAMBDA, LAMBDA^2,... in successive passes through for-loop
+		for (int age = 0; age < ring.size; age++) {
+			slot = ring.slot(age);
+			idx = ring.idx[slot];
+			int S = ring.numEquiv[slot];
+			int[] outs = ring.outs[slot];
 			assert (lamFactor >= tdAgt.getParTD().getHorizonCut()) 
 					: "Error: lamFactor < ParTD.getHorizonCut";
-			e = lamFactor*elem.sigDeriv;
+			e = lamFactor*ring.sigDeriv[slot];
 			for (i = 0; i < numTuples; i++) {
-				if (bUseActionMap) {
-					nTuples[ actionMap.get(new ACTIONS(output)) ][player][i].clearIndices();
-				} else {
-					nTuples[output][player][i].clearIndices();
-				}
-				for (j = 0; j < equiv.length; j++) {
-					// this assertion is only valid for TicTacToe, where each action should be 
-					// on an empty field which is coded as '1' here:
-					//assert (equiv[j][equivAction[j]]==1) : "Oops, action TicTacToe not viable";
-					
-					out = (QMODE ? equivAction[j] : output);
-					if (bUseActionMap) {
-						if (actionMap.get(new ACTIONS(out))==null) throw new RuntimeException(
-								"[update] action with index "+out+" is not in actionMap !!!");
-						out = actionMap.get(new ACTIONS(out));
-					}
-//					System.out.print("(i,j)=("+i+","+j+"):  ");		//debug
-					nTuples[out][player][i].updateNew(equiv[j].bvec, alphaM, delta, e);
+				nTuples[output][player][i].clearIndices();
+				for (j = 0; j < S; j++) {
+					out = (QMODE ? outs[j] : output);
+					nTuples[out][player][i].updateIndex(idx[i*S+j], alphaM, delta, e);
 				}
 			}
 			lamFactor *= getLambda(); 
@@ -685,7 +1649,7 @@ public class NTuple4ValueFunc implements Serializable {
 			for (int o=0; o < numOutputs; o++) {
 				for (i = 0; i < numTuples; i++) {
 					for (k = 0; k < numPlayers; k++)
-						nTuples[o][k][i].updateTC();
+						if (ownsRow(o,k)) nTuples[o][k][i].updateTC();
 				}
 			}
 
@@ -734,6 +1698,10 @@ public class NTuple4ValueFunc implements Serializable {
 		return this.nTuples[0][0][0].getTcImm();
 	}
 
+	public boolean getWeightArena() {
+		return weightArena;
+	}
+
 	public boolean getUSESYMMETRY() {
 		return tdAgt.getParNT().getUSESYMMETRY();
 	}
@@ -774,10 +1742,100 @@ public class NTuple4ValueFunc implements Serializable {
 		this.numLearnActions = 0L;
 	}
 
+	void addNumLearnActions(long num) {
+		this.numLearnActions += num;
+	}
+
+	/**
+	 * @return a view of this value function for a parallel training worker (see
+	 * {@link TDNTuple4Agt#trainAgentParallel(games.StateObservation[], int)}). The view shares all n-tuple weights
+	 * with {@code this}, but has its own eligibility lists, its own learn action counter, its own n-tuple
+	 * index lists and its own stripes of the update statistics (see {@link #mergeWorkerStats(NTuple4ValueFunc)}).
+	 *
+	 * @param worker the worker agent which owns the view (used to access the parameters)
+	 */
+	NTuple4ValueFunc workerView(NTuple4Agt worker) {
+		NTuple4ValueFunc view;
+		try {
+			view = (NTuple4ValueFunc) super.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new RuntimeException("[NTuple4ValueFunc] "+e.getMessage());
+		}
+		view.tdAgt = worker;
+		view.numLearnActions = 0L;
+		view.eRing = new EligRing[numPlayers];
+		view.viewBuf = null;		// scratch buffers are per thread
+		view.viewEquiv = null;
+		view.batchBvecs = null;
+		view.batchEquiv = null;
+		view.baseIdxBuf = null;
+		view.kernel = null;			// has a scratch array, rebuilt lazily
+		view.nTuples = new NTuple4[numOutputs][numPlayers][numTuples];
+		for (int o=0; o<numOutputs; o++)
+			for (int k=0; k<numPlayers; k++) {
+				if (!ownsRow(o,k)) {
+					view.nTuples[o][k] = ownerRow(view.nTuples, o, k);
+					continue;
+				}
+				for (int i=0; i<numTuples; i++)
+					view.nTuples[o][k][i] = nTuples[o][k][i].workerCopy();
+			}
+		return view;
+	}
+
+	/**
+	 * Add the update statistics of the finished worker view {@code view} (see {@link #workerView(NTuple4Agt)}) to
+	 * the statistics of this value function
+	 */
+	void mergeWorkerStats(NTuple4ValueFunc view) {
+		for (int o=0; o<numOutputs; o++)
+			for (int k=0; k<numPlayers; k++)
+				if (ownsRow(o,k))
+					for (int i=0; i<numTuples; i++)
+						nTuples[o][k][i].mergeWorkerStats(view.nTuples[o][k][i]);
+	}
+
+	/**
+	 * @return a snapshot of this value function for evaluation while training continues (see
+	 * {@link NTuple4Base#getSnapshot()}): like {@link #workerView(NTuple4Agt)}, but with a frozen copy of all
+	 * n-tuple weights. With a weight arena the copy costs one array copy.
+	 *
+	 * @param owner the agent which owns the snapshot (used to access the parameters)
+	 */
+	NTuple4ValueFunc snapshot(NTuple4Agt owner) {
+		NTuple4ValueFunc snap;
+		try {
+			snap = (NTuple4ValueFunc) super.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new RuntimeException("[NTuple4ValueFunc] "+e.getMessage());
+		}
+		snap.tdAgt = owner;
+		snap.numLearnActions = 0L;
+		snap.eRing = new EligRing[numPlayers];
+		snap.viewBuf = null;
+		snap.viewEquiv = null;
+		snap.batchBvecs = null;
+		snap.batchEquiv = null;
+		snap.baseIdxBuf = null;
+		snap.kernel = null;			// rebuilt lazily on the copied arena
+		Object arena = (weightArena) ? NTuple4.copyOf(nTuples[0][0][0].getLutArray()) : null;
+		snap.nTuples = new NTuple4[numOutputs][numPlayers][numTuples];
+		for (int o=0; o<numOutputs; o++)
+			for (int k=0; k<numPlayers; k++) {
+				if (!ownsRow(o,k)) {
+					snap.nTuples[o][k] = ownerRow(snap.nTuples, o, k);
+					continue;
+				}
+				for (int i=0; i<numTuples; i++)
+					snap.nTuples[o][k][i] = nTuples[o][k][i].snapshotCopy(arena);
+			}
+		return snap;
+	}
+
 
 	public void clearEligList() {
-		for (LinkedList<EligStates> eligStates : eList)
-			eligStates.clear();
+		for (EligRing ring : eRing)
+			if (ring!=null) ring.size = 0;
 	}
 	
 	public void clearEligList(NTuple4Agt.EligType m_elig) {
@@ -792,16 +1850,64 @@ public class NTuple4ValueFunc implements Serializable {
 	}
 
 	
-	// class EligStates is needed in update(int[],int,int,double,double,boolean)
-	private class EligStates implements Serializable {
-		BoardVector[] equiv;
-		int[] equivAction;
-		double sigDeriv;
-		
-		EligStates(BoardVector[] equiv, int[] equivAction, double sigDeriv) {
-			this.equiv=equiv.clone();
-			this.equivAction=(equivAction==null ? null : equivAction.clone());
-			this.sigDeriv=sigDeriv;
+	/**
+	 * Ring buffer for the LAMBDA-horizon mechanism in
+	 * {@link #update(StateObsWithBoardVector, int, int, double, double, boolean, boolean) update}: it holds for the
+	 * last (at most {@link #horizon}) updates the LUT indices of all n-tuples and symmetries, the output cells
+	 * (QMODE only) and the sigmoid derivative. The slots are reused, so that an update with LAMBDA &gt; 0 needs no
+	 * allocations and the LUT indices of each state are calculated only once.
+	 */
+	private static class EligRing {
+		long[][] idx;		// idx[slot][i*S+j]: LUT index (or sparse key) of n-tuple i, symmetry j
+		int[] numEquiv;		// numEquiv[slot]: number S of symmetries
+		int[][] outs;		// outs[slot][j]: output cell for symmetry j (QMODE only)
+		double[] sigDeriv;
+		int head = -1;		// slot of the newest element
+		int size = 0;
+
+		/**
+		 * @param capacity	the horizon
+		 * @param old		if not null, the newest elements of {@code old} are taken over (horizon changed)
+		 */
+		EligRing(int capacity, EligRing old) {
+			idx = new long[capacity][0];
+			numEquiv = new int[capacity];
+			outs = new int[capacity][0];
+			sigDeriv = new double[capacity];
+			if (old!=null) {
+				for (int age = Math.min(old.size, capacity)-1; age >= 0; age--) {
+					int o = old.slot(age);
+					int slot = push(0, 0);
+					idx[slot] = old.idx[o];
+					numEquiv[slot] = old.numEquiv[o];
+					outs[slot] = old.outs[o];
+					sigDeriv[slot] = old.sigDeriv[o];
+				}
+			}
+		}
+
+		int capacity() {
+			return sigDeriv.length;
+		}
+
+		/**
+		 * Make room for a new element (overwriting the oldest one, if the ring is full).
+		 * @return the slot of the new element, its arrays can hold {@code idxLength} indices and {@code S} outputs
+		 */
+		int push(int idxLength, int S) {
+			head = (head + 1) % capacity();
+			if (size < capacity()) size++;
+			if (idx[head].length < idxLength) idx[head] = new long[idxLength];
+			if (outs[head].length < S) outs[head] = new int[S];
+			numEquiv[head] = S;
+			return head;
+		}
+
+		/**
+		 * @return the slot of the element with age {@code age} (0: newest)
+		 */
+		int slot(int age) {
+			return (head - age + capacity()) % capacity();
 		}
 	}
 
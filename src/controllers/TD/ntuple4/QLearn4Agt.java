@@ -215,7 +215,7 @@ public class QLearn4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,Ser
 		// get the loaded values)
 		this.setTDParams(this.getParTD(), this.getMaxGameNum());
 		this.setNTParams(this.getParNT());
-		this.weightAnalysis(null);
+		if (!m_Net.isMapped()) this.weightAnalysis(null);	// would read (page in) all weights of a LUT file
 		
 		// initialize transient members (in case a further training should take place --> see ValidateAgent) 
 		this.sLast = new StateObservation[numPlayers];
@@ -265,6 +265,14 @@ public class QLearn4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,Ser
         VTable = new double[acts.size()];  
         
         assert acts.size()>0 : "Oops, no available action";
+        double[] qValues = null;
+        if (!randomSelect) {
+			// the Q values of all actions in one pass over the n-tuples and symmetries: the symmetric LUT
+			// indices are calculated only once and looked up in the LUTs of the actions' output cells
+    		StateObsWithBoardVector curSOWB = new StateObsWithBoardVector(so, m_Net.xnf);
+    		qValues = new double[acts.size()];
+    		m_Net.getQVector(curSOWB,so.getPlayer(),m_Net.getOutputs(acts),qValues);
+        }
         for(i = 0; i < acts.size(); ++i)
         {
     		if (randomSelect) {
@@ -274,8 +282,7 @@ public class QLearn4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,Ser
     			// TODO: currently we cannot mirror in Q-learning the afterstate logic 
     			// that we have optionally in TDNTuple4Agt
     			
-        		StateObsWithBoardVector curSOWB = new StateObsWithBoardVector(so, m_Net.xnf);
-            	qValue = m_Net.getQFunc(curSOWB,so.getPlayer(),acts.get(i));
+            	qValue = qValues[i];
             	
             	// It is a bit funny, that the decision is made based only on qValue, not 
             	// on the reward we might receive for action a=acts.get(i). So an action leading to 
@@ -385,7 +392,6 @@ public class QLearn4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,Ser
 	 */
 	private ACTIONS_VT adaptAgentQ(int nextPlayer, ScoreTuple R, NextState4 ns) {
 		ACTIONS_VT a_next;
-		ACTIONS a_t;
 		StateObservation s_next = ns.getNextSO();
 		ArrayList<ACTIONS> acts = s_next.getAvailableActions();
 		double qValue,mValue=-Double.MAX_VALUE,qLast,qLastNew,target;
@@ -395,16 +401,20 @@ public class QLearn4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,Ser
 			a_next = null;
 			mValue = 0.0;
 		} else {
-			for (ACTIONS act : acts) {
+			double[] qValues = null;
+			if (!randomSelect) {
+				StateObsWithBoardVector nextSOWB = new StateObsWithBoardVector(s_next, m_Net.xnf);    // WK: NEW: next state instead of afterstate
+				qValues = new double[acts.size()];
+				m_Net.getQVector(nextSOWB, nextPlayer, m_Net.getOutputs(acts), qValues);
+			}
+			for (int k = 0; k < acts.size(); k++) {
 				if (randomSelect) {
 					qValue = rand.nextDouble();
 				} else {
 					//
 					// TODO: currently we cannot mirror in Q-learning the afterstate logic
 					// that we have optionally in TDNTuple4Agt
-					a_t = act;
-					StateObsWithBoardVector nextSOWB = new StateObsWithBoardVector(s_next, m_Net.xnf);    // WK: NEW: next state instead of afterstate
-					qValue = m_Net.getQFunc(nextSOWB, nextPlayer, a_t);
+					qValue = qValues[k];
 
 				}
 
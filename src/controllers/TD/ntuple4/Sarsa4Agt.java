@@ -214,7 +214,7 @@ public class Sarsa4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,Seri
 		// get the loaded values)
 		this.setTDParams(this.getParTD(), this.getMaxGameNum());
 		this.setNTParams(this.getParNT());
-		this.weightAnalysis(null);
+		if (!m_Net.isMapped()) this.weightAnalysis(null);	// would read (page in) all weights of a LUT file
 		
 		// initialize transient members (in case a further training should take place --> see ValidateAgent) 
 		this.sLast = new StateObservation[numPlayers];
@@ -264,6 +264,14 @@ public class Sarsa4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,Seri
         VTable = new double[acts.size()];  
         
         assert acts.size()>0 : "Oops, no available action";
+        double[] qValues = null;
+        if (!randomSelect) {
+			// the Q values of all actions in one pass over the n-tuples and symmetries: the symmetric LUT
+			// indices are calculated only once and looked up in the LUTs of the actions' output cells
+    		StateObsWithBoardVector curSOWB = new StateObsWithBoardVector(so, m_Net.xnf);
+    		qValues = new double[acts.size()];
+    		m_Net.getQVector(curSOWB,so.getPlayer(),m_Net.getOutputs(acts),qValues);
+        }
         for(i = 0; i < acts.size(); ++i)
         {
     		if (randomSelect) {
@@ -273,8 +281,7 @@ public class Sarsa4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,Seri
     			// TODO: currently we cannot mirror in Q-learning the afterstate logic 
     			// that we have optionally in TDNTuple4Agt
     			
-        		StateObsWithBoardVector curSOWB = new StateObsWithBoardVector(so, m_Net.xnf);
-            	qValue = m_Net.getQFunc(curSOWB,so.getPlayer(),acts.get(i));
+            	qValue = qValues[i];
             	
             	// It is a bit funny, that the decision is made based only on qValue, not 
             	// on the reward we might receive for action a=acts.get(i). So an action leading to 
@@ -588,6 +595,66 @@ public class Sarsa4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,Seri
 		
 	} // trainAgent
 
+	@Override
+	protected boolean supportsActorLearner() {
+		return true;
+	}
+
+	/**
+	 * Play one self-play episode as actor of {@link ActorLearner}. Records the same updates as
+	 * {@link #trainAgent(StateObservation, PlayAgent)} with {@link #adaptAgentSarsa(int, ScoreTuple, NextState4)}
+	 * and {@link #finalAdaptAgents(int, ScoreTuple, NextState4)}, but keeps the per-episode state in local variables.
+	 */
+	@Override
+	protected void actEpisode(StateObservation so, ActorLearner.Episode ep) {
+		ACTIONS_VT a_next;
+		int   nextPlayer=so.getPlayer();
+		NextState4 ns;
+		ScoreTuple R;
+		boolean learnFromRM = m_oPar.getLearnFromRM();
+		StateObservation[] sLast = new StateObservation[numPlayers];
+		ACTIONS[] aLast = new ACTIONS[numPlayers];
+		boolean[] randLast = new boolean[numPlayers];
+		ScoreTuple rLast = new ScoreTuple(so);
+
+		int epiLength = m_oPar.getEpisodeLength();
+		if (epiLength==-1) epiLength = Integer.MAX_VALUE;
+
+		StateObservation s_t = so.copy();
+		a_next = getNextAction2(s_t.partialState(), true, false, true);
+		sLast[nextPlayer] = s_t;
+		aLast[nextPlayer] = a_next;
+
+		do {
+			ep.addMove();
+			ns = new NextState4(this,s_t,a_next);
+			nextPlayer = ns.getNextSO().getPlayer();
+			R = ns.getNextRewardTupleCheckFinished(epiLength);
+			StateObservation s_next = ns.getNextSO();
+			a_next = s_next.isGameOver() ? null : getNextAction2(s_next.partialState(), true, false, true);
+
+			if (sLast[nextPlayer]!=null) {
+				if (randLast[nextPlayer] && !learnFromRM && !s_next.isGameOver()) {
+					ep.addClear();
+				} else {
+					ep.addUpdateQ(nextPlayer, sLast[nextPlayer], aLast[nextPlayer],
+							s_next.isGameOver() ? null : s_next, a_next,
+							R.scTup[nextPlayer] - rLast.scTup[nextPlayer]);
+				}
+			}
+			sLast[nextPlayer] = s_t = s_next;
+			aLast[nextPlayer] = a_next;
+			rLast.scTup[nextPlayer] = R.scTup[nextPlayer];
+			randLast[nextPlayer] = (a_next!=null && a_next.isRandomAction());
+		} while(!s_t.isGameOver());
+
+		if (FINALADAPTAGENTS) {
+			for (int n=0; n<numPlayers; n++)
+				if (n!=nextPlayer && sLast[n]!=null)
+					ep.addUpdateQ(n, sLast[n], aLast[n], null, null, R.scTup[n] - rLast.scTup[n]);
+		}
+	}
+
 
     @Override
 	public String stringDescr() {
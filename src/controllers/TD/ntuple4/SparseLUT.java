@@ -0,0 +1,233 @@
+package controllers.TD.ntuple4;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+
+import params.ParNT;
+
+/**
+ * Sparse LUT for {@link NTuple4}: an open-addressing hash table (linear probing) which maps {@code long} LUT
+ * indices to {@code float} weights. Only entries which received a non-zero update are stored, all other weights
+ * are 0. This allows n-tuples whose full LUT ({@code posVals[P[0]]*...*posVals[P[L-1]]} entries) would be much
+ * too large, as long as only a small fraction of the LUT is visited during training.
+ * <p>
+ * If a capacity cap {@code maxEntries > 0} is given, the table never holds more than {@code maxEntries} entries.
+ * When a new entry is needed in a full table, a rarely updated entry is evicted: Each entry has a small update
+ * counter, a clock hand sweeps over the table and halves the counters it passes, the first entry with counter 0
+ * is evicted (an approximation of LFU with aging).
+ *
+ * @see ParNT#getSparseLut()
+ * @see ParNT#getSparseCap()
+ */
+public class SparseLUT implements Serializable {
+	private static final long EMPTY = -1L;			// LUT indices are >= 0
+	private static final double MAX_LOAD = 0.6;
+	private static final int INIT_CAPACITY = 1024;
+
+	private long[] keys;
+	private float[] vals;
+	private byte[] freq;		// update counter per entry (saturating), used for eviction
+	private int mask;			// keys.length-1 (keys.length is a power of 2)
+	private int size = 0;
+	private final int maxEntries;	// 0: unlimited
+	private int hand = 0;		// clock hand for eviction
+	private long numEvicted = 0L;
+
+	/**
+	 * change the version ID for serialization only if a newer version is no longer
+	 * compatible with an older one (older .agt.zip will become unreadable or you have
+	 * to provide a special version transformation)
+	 */
+	@Serial
+	private static final long  serialVersionUID = 12L;
+
+	/**
+	 * @param maxEntries maximum number of entries (0: unlimited)
+	 */
+	public SparseLUT(int maxEntries) {
+		this.maxEntries = maxEntries;
+		int cap = INIT_CAPACITY;
+		if (maxEntries > 0)
+			cap = Math.min(cap, tableLength(maxEntries));
+		allocate(cap);
+	}
+
+	/**
+	 * @return the smallest power of 2 which holds {@code n} entries below the maximum load factor
+	 */
+	private static int tableLength(int n) {
+		long len = Long.highestOneBit((long) Math.ceil(n / MAX_LOAD));
+		if (len < n / MAX_LOAD) len <<= 1;
+		if (len > (1 << 30))
+			throw new RuntimeException("[SparseLUT] too many entries: "+n);
+		return (int) Math.max(len, 2);
+	}
+
+	private void allocate(int len) {
+		keys = new long[len];
+		Arrays.fill(keys, EMPTY);
+		vals = new float[len];
+		freq = new byte[len];
+		mask = len - 1;
+	}
+
+	private int home(long key) {
+		long x = key * 0x9E3779B97F4A7C15L;
+		return (int) (x ^ (x >>> 32)) & mask;
+	}
+
+	/**
+	 * @return the table slot of {@code key} or, if {@code key} is not in the table, the (negative) value
+	 * 		{@code -slot-1} of the empty slot where it would be inserted
+	 */
+	private int find(long key) {
+		int i = home(key);
+		while (keys[i] != EMPTY) {
+			if (keys[i] == key) return i;
+			i = (i + 1) & mask;
+		}
+		return -i - 1;
+	}
+
+	/**
+	 * @return the weight stored for LUT index {@code key} (0, if there is no entry)
+	 */
+	public float get(long key) {
+		int i = find(key);
+		return (i >= 0) ? vals[i] : 0.0f;
+	}
+
+	/**
+	 * Add {@code dw} to the weight for LUT index {@code key}. A new entry is created only if {@code dw != 0}.
+	 */
+	public void add(long key, float dw) {
+		int i = find(key);
+		if (i < 0) {
+			if (dw == 0.0f) return;
+			if (maxEntries > 0 && size >= maxEntries) {
+				evict();
+				i = find(key);
+			} else if (size + 1 > MAX_LOAD * keys.length) {
+				rehash(keys.length * 2);
+				i = find(key);
+			}
+			i = -i - 1;
+			keys[i] = key;
+			size++;
+		}
+		vals[i] += dw;
+		if (freq[i] < Byte.MAX_VALUE) freq[i]++;
+	}
+
+	private void rehash(int len) {
+		long[] oldKeys = keys;
+		float[] oldVals = vals;
+		byte[] oldFreq = freq;
+		allocate(len);
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldKeys[j] != EMPTY) {
+				int i = -find(oldKeys[j]) - 1;
+				keys[i] = oldKeys[j];
+				vals[i] = oldVals[j];
+				freq[i] = oldFreq[j];
+			}
+		}
+		hand = 0;
+	}
+
+	/**
+	 * Remove one rarely updated entry (clock sweep over the update counters, see class comment).
+	 */
+	private void evict() {
+		while (true) {
+			hand = (hand + 1) & mask;
+			if (keys[hand] == EMPTY) continue;
+			if (freq[hand] > 0) {
+				freq[hand] >>= 1;
+				continue;
+			}
+			removeAt(hand);
+			numEvicted++;
+			return;
+		}
+	}
+
+	/**
+	 * Remove the entry in slot {@code i} and shift back the following entries of its probe sequence, so that
+	 * linear probing finds them without tombstones.
+	 */
+	private void removeAt(int i) {
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if (keys[j] == EMPTY) break;
+			int k = home(keys[j]);
+			// the entry in j may move to i, if its home slot k is not cyclically in (i, j]
+			boolean stays = (i <= j) ? (i < k && k <= j) : (i < k || k <= j);
+			if (!stays) {
+				keys[i] = keys[j];
+				vals[i] = vals[j];
+				freq[i] = freq[j];
+				i = j;
+			}
+		}
+		keys[i] = EMPTY;
+		vals[i] = 0.0f;
+		freq[i] = 0;
+		size--;
+	}
+
+	/**
+	 * @return number of stored entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	/**
+	 * @return number of entries evicted so far because of the capacity cap
+	 */
+	public long getNumEvicted() {
+		return numEvicted;
+	}
+
+	/**
+	 * @return a deep copy of this LUT (same entries, same eviction state)
+	 */
+	SparseLUT copy() {
+		SparseLUT c = new SparseLUT(maxEntries);
+		c.keys = keys.clone();
+		c.vals = vals.clone();
+		c.freq = freq.clone();
+		c.mask = mask;
+		c.size = size;
+		c.hand = hand;
+		c.numEvicted = numEvicted;
+		return c;
+	}
+
+	/**
+	 * @return the LUT indices of all stored entries (in table order, i.e. in the same order as {@link #getValues()})
+	 */
+	public long[] getKeys() {
+		long[] k = new long[size];
+		for (int j = 0, pos = 0; j < keys.length; j++)
+			if (keys[j] != EMPTY) k[pos++] = keys[j];
+		return k;
+	}
+
+	/**
+	 * @return the weights of all stored entries (in table order)
+	 */
+	public double[] getValues() {
+		double[] w = new double[size];
+		for (int j = 0, pos = 0; j < keys.length; j++)
+			if (keys[j] != EMPTY) w[pos++] = vals[j];
+		return w;
+	}
+}
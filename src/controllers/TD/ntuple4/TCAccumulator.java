@@ -0,0 +1,96 @@
+package controllers.TD.ntuple4;
+
+import params.ParNT;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lazily allocated temporal coherence (TC) accumulators for one {@link NTuple4}: the accumulators N, A and the
+ * factor tcFactor=g(|N|/A) of each LUT entry are stored interleaved ({@code N, A, tcFactor}) in blocks of
+ * {@link #BLOCK} entries. A block is allocated (and initialized with N=A=INIT, tcFactor=1) only when one of its
+ * entries is updated for the first time, entries of unallocated blocks have tcFactor=1.
+ * <p>
+ * Since usually only a small fraction of a large LUT is visited during training, this needs much less memory than
+ * three full-size arrays. Creating (or re-creating after loading) the accumulators costs only the block table,
+ * not the initialization of every entry.
+ * <p>
+ * Worker views share the accumulators (Hogwild training, see {@link TDNTuple4Agt#trainAgentParallel}). A new block
+ * is filled before it is installed with compare-and-set, so that no thread sees an unfilled block and no block
+ * (with the updates written to it) is replaced by the block of another thread.
+ *
+ * @see ParNT#getTcLazy()
+ */
+public class TCAccumulator {
+	static final int BLOCK_BITS = 10;
+	static final int BLOCK = 1 << BLOCK_BITS;		// LUT entries per block
+	private static final int MASK = BLOCK - 1;
+
+	private final AtomicReferenceArray<double[]> blocks;
+	private final int length;
+	private final double init;
+
+	/**
+	 * @param length	the LUT length
+	 * @param init		the initial value for N and A
+	 */
+	TCAccumulator(int length, double init) {
+		this.length = length;
+		this.init = init;
+		this.blocks = new AtomicReferenceArray<>((length + MASK) >>> BLOCK_BITS);
+	}
+
+	/**
+	 * @return the block holding LUT entry {@code index} (allocated, if necessary). The accumulators of the entry
+	 * 		are at {@link #pos(int) pos(index)}, +1 and +2.
+	 */
+	double[] block(int index) {
+		int b = index >>> BLOCK_BITS;
+		double[] blk = blocks.get(b);
+		if (blk == null) {
+			blk = new double[3 * BLOCK];
+			for (int p = 0; p < blk.length; p += 3) {
+				blk[p] = init;
+				blk[p+1] = init;
+				blk[p+2] = 1.0;
+			}
+			if (!blocks.compareAndSet(b, null, blk))
+				blk = blocks.get(b);		// another thread was faster: use its block
+		}
+		return blk;
+	}
+
+	/**
+	 * @return the position of the accumulator N of LUT entry {@code index} within its block
+	 */
+	static int pos(int index) {
+		return 3 * (index & MASK);
+	}
+
+	double getFactor(int index) {
+		double[] blk = blocks.get(index >>> BLOCK_BITS);
+		return (blk == null) ? 1.0 : blk[pos(index) + 2];
+	}
+
+	/**
+	 * @param c 0: N, 1: A, 2: tcFactor
+	 * @return the values of accumulator {@code c} for all LUT entries as full-size array (for debug and analysis)
+	 */
+	double[] column(int c) {
+		double[] col = new double[length];
+		for (int i = 0; i < length; i++) {
+			double[] blk = blocks.get(i >>> BLOCK_BITS);
+			col[i] = (blk == null) ? ((c == 2) ? 1.0 : init) : blk[pos(i) + c];
+		}
+		return col;
+	}
+
+	/**
+	 * @return the number of allocated blocks
+	 */
+	public int getNumBlocks() {
+		int n = 0;
+		for (int b = 0; b < blocks.length(); b++)
+			if (blocks.get(b) != null) n++;
+		return n;
+	}
+}
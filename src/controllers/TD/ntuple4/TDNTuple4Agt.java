@@ -1,15 +1,22 @@
 package controllers.TD.ntuple4;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serial;
 import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import agentIO.LoadSaveGBG;
 import controllers.MCTSWrapper.MCTSWrapperAgent;
 import controllers.ReplayBuffer.Buffer.BaseBuffer;
+import controllers.ReplayBuffer.Buffer.ColumnarBuffer;
+import controllers.ReplayBuffer.Buffer.MappedBuffer;
 import controllers.ReplayBuffer.ConfigReplayBuffer;
 import controllers.ReplayBuffer.Transition.ITransition;
 import controllers.TD.ntuple2.NTuple2;
@@ -25,9 +32,12 @@ import controllers.ExpectimaxNWrapper;
 import controllers.MaxNAgent;
 import controllers.MaxN2Wrapper;
 import controllers.PlayAgent;
+import controllers.RandomAgent;
+import games.BoardVector;
 import games.GameBoard;
 import games.StateObservation;
 import games.StateObsWithBoardVector;
+import games.XNTupleBase;
 import games.XNTupleFuncs;
 import games.Sim.StateObserverSim;
 
@@ -52,7 +62,7 @@ import games.Sim.StateObserverSim;
  *
  * @author Wolfgang Konen, TH Koeln, 2020
  */
-public class TDNTuple4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,Serializable {
+public class TDNTuple4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,Serializable,Cloneable {
 
 	private NTuple4Agt.EligType m_elig;
 
@@ -91,6 +101,52 @@ public class TDNTuple4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,S
 	private int acount=0;	// just for debug: counter to stop debugger after every X adaptation steps
 
 	private transient BaseBuffer replayBuffer = null;
+	private transient ColumnarBuffer colBuffer = null;	// used instead of replayBuffer, if rbPar.getBufferType()>=1
+	private String rbDir = null;		// directory of the MappedBuffer (rbPar.getBufferType()==2), saved with the agent
+
+	private transient MoveScratch moveScratch = null;	// scratch arrays of getNextAction2, built lazily
+
+	/**
+	 * Scratch arrays of {@link #getNextAction2(StateObservation, boolean, boolean, boolean)}: one entry per available
+	 * action, and the work array of the incremental evaluation. They grow to the largest number of actions seen and
+	 * are reset by {@link #reset(int)} on each call.
+	 * Workers, actors and snapshots get their own (see {@link #newWorker()}).
+	 */
+	private static final class MoveScratch {
+		StateObservation[] nextSO = new StateObservation[0];
+		StateObsWithBoardVector[] nextSOWB = new StateObsWithBoardVector[0];	// null: skipped or game over (V=0)
+		double[] scores = new double[0];
+		double[] nextR = new double[0];		// nextR[i]: reward after the nondeterministic part of fused afterstate i
+		boolean[] skipped = new boolean[0];
+		int[][] bvecs = new int[0][];		// bvecs[i]: board vector of fused afterstate i
+		int[] work = new int[0];			// work array of the incremental evaluation
+		final double[] rewards = new double[2];
+
+		void reset(int nA) {
+			if (scores.length < nA) {
+				nextSO = new StateObservation[nA];
+				nextSOWB = new StateObsWithBoardVector[nA];
+				scores = new double[nA];
+				nextR = new double[nA];
+				skipped = new boolean[nA];
+				bvecs = Arrays.copyOf(bvecs, nA);
+				return;
+			}
+			Arrays.fill(nextSO, 0, nA, null);
+			Arrays.fill(nextSOWB, 0, nA, null);
+			Arrays.fill(skipped, 0, nA, false);
+		}
+
+		int[] work(int length) {
+			if (work.length!=length) work = new int[length];
+			return work;
+		}
+
+		int[] bvec(int i, int numCells) {
+			if (bvecs[i]==null || bvecs[i].length!=numCells) bvecs[i] = new int[numCells];
+			return bvecs[i];
+		}
+	}
 
 	/**
 	 * Default constructor for {@link TDNTuple4Agt}, needed for loading a serialized version
@@ -122,16 +178,55 @@ public class TDNTuple4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,S
 		this.sLast = new StateObservation[numPlayers];
 		this.randLast = new boolean[numPlayers];
 		initNet(ntPar,tdPar,oPar, nTuples, xnf, maxGameNum);
-		if (rbPar.getUseRB()){
-			replayBuffer = new BaseBuffer(rbPar);
-			ConfigReplayBuffer.USE_REPLAYBUFFER = true;
-		} else {
-			replayBuffer = null;
-			ConfigReplayBuffer.USE_REPLAYBUFFER = false;
+		initReplayBuffer(false);
+	}
 
+	/**
+	 * Build the replay buffer from {@link #getParReplay()} (none, if the replay buffer is off).
+	 * <p>
+	 * A {@link MappedBuffer} lives in the directory {@code rbDir}. With {@code resume==false} (new agent) it starts
+	 * empty in a new directory, with {@code resume==true} (loaded agent) it continues with the transitions stored in
+	 * {@code rbDir}. If {@code rbDir} is not known (agent saved without it) or in use by another buffer (e.g. the same
+	 * agent loaded twice), the buffer starts empty in a new directory.
+	 *
+	 * @param resume	whether to continue with the transitions of a mapped buffer
+	 */
+	private void initReplayBuffer(boolean resume) {
+		if (colBuffer instanceof MappedBuffer) ((MappedBuffer) colBuffer).close();	// release rbDir
+		replayBuffer = null;
+		colBuffer = null;
+		if (m_rbPar==null || !m_rbPar.getUseRB()) return;
+		XNTupleFuncs xnf = m_Net.xnf;
+		if (m_rbPar.getBufferType()>=1 &&
+				(!m_ntPar.getUSESYMMETRY() || !XNTupleBase.symmetriesNeedState(xnf))) {
+			if (m_rbPar.getBufferType()==2) {
+				if (resume && rbDir!=null) {
+					try {
+						colBuffer = new MappedBuffer(m_rbPar, xnf, true, rbDir, true);
+					} catch (RuntimeException e) {
+						System.out.println(e.getMessage()+", starting with an empty replay buffer");
+					}
+				}
+				if (colBuffer==null) {
+					rbDir = MappedBuffer.newDir(m_rbPar.getBufferDir(), getName());
+					colBuffer = new MappedBuffer(m_rbPar, xnf, true, rbDir, false);
+				}
+			} else {
+				colBuffer = new ColumnarBuffer(m_rbPar, xnf, true);
+			}
+		} else {
+			replayBuffer = new BaseBuffer(m_rbPar);
 		}
 	}
 
+	/**
+	 * @return true, if this agent trains from a replay buffer. This is a property of each agent (not of the JVM),
+	 * 		since agents with and without replay buffer may train at the same time (parallel runs of a sweep).
+	 */
+	private boolean usesReplayBuffer() {
+		return replayBuffer!=null || colBuffer!=null;
+	}
+
 	/**
 	 *
 	 * @param tdPar			temporal difference parameters
@@ -180,16 +275,27 @@ public class TDNTuple4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,S
 		// get the loaded values)
 		this.setTDParams(this.getParTD(), this.getMaxGameNum());
 		this.setNTParams(this.getParNT());
-		this.weightAnalysis(null);
+		if (!m_Net.isMapped()) this.weightAnalysis(null);	// would read (page in) all weights of a LUT file
 
 		// initialize transient members (in case a further training should take place --> see ValidateAgentTest) 
 		this.sLast = new StateObservation[numPlayers];
 		this.randLast = new boolean[numPlayers];
 		this.m_Net.instantiateAfterLoading();   // instantiate transient eList and nTuples
+		initReplayBuffer(true);
 
 		return true;
 	}
 
+	/**
+	 * Mark the directory of a {@link MappedBuffer} as referred to by a saved agent, so that it is kept when the
+	 * buffer is closed (see {@link MappedBuffer#close()})
+	 */
+	@Serial
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		if (colBuffer instanceof MappedBuffer) ((MappedBuffer) colBuffer).markSaved();
+		out.defaultWriteObject();
+	}
+
 	/**
 	 * Get the best next action and return it.
 	 * <p>
@@ -238,13 +344,41 @@ public class TDNTuple4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,S
 
 		VTable = new double[acts.size()];
 
+		// incremental evaluation: calculate the LUT indices of so once, each successor state only updates them for
+		// its changed cells (baseIdx==null: incremental evaluation not active or not possible for this game)
+		MoveScratch ms = moveScratch;
+		if (ms==null) ms = moveScratch = new MoveScratch();
+		int[] baseBvec = null, baseIdx = null, work = null;
+		if (m_ntPar.getIncrementalEval() && !randomSelect) {
+			StateObsWithBoardVector baseSOWB = new StateObsWithBoardVector(so.project(),m_Net.xnf);
+			baseIdx = m_Net.getBaseIndices(baseSOWB);
+			baseBvec = baseSOWB.getBoardVector().bvec;
+			work = (baseIdx==null) ? null : ms.work(baseIdx.length);
+		}
+
 		if (DBG_BJ) {
 			System.out.println("so "+ so.stringDescr());
 			System.out.println("so reward:" + so.getRewardTuple(rgs));
 		}
 
 		assert acts.size()>0 : "Oops, no available action";
-		for(i = 0; i < acts.size(); ++i)
+
+		// fused afterstates: if the game supports it (see XNTupleFuncs#afterstate), the afterstate board vector and
+		// the reward after the nondeterministic part are computed directly from so, without copying and advancing
+		// so. Not with TERNARY, which needs to know whether the state after the nondeterministic part is game over.
+		boolean fused = this.getAFTERSTATE() && !randomSelect && !TERNARY;
+
+		// 1st pass: generate all successor states (s' for AFTERSTATE, s'' otherwise). Their values are then
+		// calculated in one batch (see NTuple4ValueFunc#getScoresI), unless incremental evaluation is active.
+		int nA = acts.size();
+		ms.reset(nA);
+		double[] rewards = ms.rewards;
+		StateObservation[] nextSO = ms.nextSO;
+		StateObsWithBoardVector[] nextSOWB = ms.nextSOWB;
+		double[] scores = ms.scores;
+		double[] nextR = ms.nextR;
+		boolean[] skipped = ms.skipped;
+		for(i = 0; i < nA; ++i)
 		{
 			Types.ACTIONS thisAct = acts.get(i);
 
@@ -256,28 +390,70 @@ public class TDNTuple4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,S
 			//
 			// For all other games, usually no return to the previous state is possible. For those games
 			// isEqualToInverseOfLastAction returns always false.
-			if (thisAct.isEqualToInverseOfLastAction(so))
+			if (thisAct.isEqualToInverseOfLastAction(so)) {
+				skipped[i] = true;
 				continue;	// with next for-pass
+			}
+
+			if (fused) {
+				int[] bvec = ms.bvec(i, m_Net.xnf.getNumCells());
+				if (m_Net.xnf.afterstate(so, thisAct, rgs, bvec, rewards)) {
+					nextR[i] = rewards[1];
+					if (baseIdx!=null) {
+						scores[i] = m_Net.getScoreIncremental(baseBvec, baseIdx, bvec, so.getPlayer(), work);
+					} else {
+						nextSOWB[i] = new StateObsWithBoardVector(null, new BoardVector(bvec));
+					}
+					continue;	// with next for-pass
+				}
+				fused = false;		// no fused afterstate path for this game
+			}
 
 			NewSO = so.copy();
+			nextSO[i] = NewSO;
 
 			if (randomSelect) {
-				value = rand.nextDouble();
+				scores[i] = rand.nextDouble();
 			} else {
 				if (this.getAFTERSTATE()) {
 					// if parameter "AFTERSTATE" is checked in ParNT, i.e. we use afterstate logic:
 					//
 					NewSO.advanceDeterministic(thisAct); 	// generate the afterstate
-					value = this.getScore(NewSO.project(),so); // this is V(s') from so-perspective
-							// .project() projects the state into its canonical form (e.g. sorted heaps in case Nim,
-							// for all other state observers, .project() currently returns just 'this')
-					while (!NewSO.isNextActionDeterministic() && !NewSO.isRoundOver()) {	// /WK/ NEW/03/2021
-						NewSO.advanceNondeterministic(null);
-					}
 				} else {
 					// the non-afterstate logic for the case of single moves:
 					NewSO.advance(acts.get(i), null);
-					value = this.getScore(NewSO.project(),so); // this is V(s'') from the perspective of so
+				}
+				// .project() projects the state into its canonical form (e.g. sorted heaps in case Nim,
+				// for all other state observers, .project() currently returns just 'this')
+				StateObservation projSO = NewSO.project();
+				if (baseIdx!=null) {
+					scores[i] = this.getScore(projSO,so,baseBvec,baseIdx,work);
+				} else if (!projSO.isGameOver()) {	// game-over states have V=0, see getScore(so,refer)
+					nextSOWB[i] = new StateObsWithBoardVector(projSO,m_Net.xnf);
+				}
+			}
+		}
+		if (!randomSelect && baseIdx==null)
+			m_Net.getScoresI(nextSOWB, nA, so.getPlayer(), scores);	// this is V(s') or V(s'') from so-perspective
+
+		// 2nd pass: rewards, normalization and best action
+		for(i = 0; i < nA; ++i)
+		{
+			Types.ACTIONS thisAct = acts.get(i);
+			NewSO = nextSO[i];
+			if (skipped[i])
+				continue;	// skipped action, see 1st pass
+
+			value = scores[i];
+			if (NewSO==null) {
+				// fused afterstate, see 1st pass
+				rtilde  = (nextR[i]-otilde) + so.getStepRewardTuple().scTup[so.getPlayer()];
+				value = rtilde + getGamma()*value;
+			} else if (!randomSelect) {
+				if (this.getAFTERSTATE()) {
+					while (!NewSO.isNextActionDeterministic() && !NewSO.isRoundOver()) {	// /WK/ NEW/03/2021
+						NewSO.advanceNondeterministic(null);
+					}
 				}
 				// both ways of calculating the agent score are the same for deterministic games (s'=s''),
 				// but they usually differ for nondeterministic games.
@@ -446,6 +622,19 @@ public class TDNTuple4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,S
 		return score;
 	}
 
+	/**
+	 * Same as {@link #getScore(StateObservation, StateObservation)}, but with incremental calculation of the LUT
+	 * indices relative to a base state (see {@link NTuple4ValueFunc#getScoreIncremental(int[], int[], int[], int, int[])}).
+	 * If {@code baseIdx==null}, the LUT indices are calculated from scratch.
+	 */
+	private double getScore(StateObservation so, StateObservation refer, int[] baseBvec, int[] baseIdx, int[] work) {
+		if (baseIdx==null) return getScore(so, refer);
+		if (so.isGameOver())
+			return 0.0;
+		int[] bvec = m_Net.xnf.getBoardVector(so).bvec;
+		return m_Net.getScoreIncremental(baseBvec, baseIdx, bvec, refer.getPlayer(), work);
+	}
+
 	/**
 	 * Return the agent's estimate of {@code sob}'s final game value (final reward) <b>for all players</b>. 
 	 * Is called by the n-ply wrappers ({@link MaxN2Wrapper}, {@link ExpectimaxNWrapper}).
@@ -539,6 +728,42 @@ public class TDNTuple4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,S
 		return sc;
 	}
 
+	/**
+	 * Fused version of {@link #estimateGameValueTuple(StateObservation, ScoreTuple)} for all afterstates of
+	 * {@code so}: the afterstates are computed directly from the board of {@code so} (see
+	 * {@link XNTupleFuncs#afterstate}) and scored in one batch. Is called by {@link ExpectimaxNWrapper} at its
+	 * maximum depth.
+	 *
+	 * @param so	the state, its next action is deterministic
+	 * @param acts	the available actions of {@code so}
+	 * @return		for each action in {@code acts} the estimate of its afterstate or null, if the game has no fused
+	 * 				afterstate path or more than one player
+	 */
+	public ScoreTuple[] estimateAfterstateTuples(StateObservation so, List<Types.ACTIONS> acts) {
+		if (so.getNumPlayers()!=1) return null;
+		boolean rgs = m_oPar.getRewardIsGameScore();
+		int nA = acts.size();
+		double[] rewards = new double[2];
+		double[] afterR = new double[nA];
+		StateObsWithBoardVector[] sowbs = new StateObsWithBoardVector[nA];
+		for (int i = 0; i < nA; i++) {
+			int[] bvec = new int[m_Net.xnf.getNumCells()];
+			if (!m_Net.xnf.afterstate(so, acts.get(i), rgs, bvec, rewards)) return null;
+			afterR[i] = rewards[0];
+			sowbs[i] = new StateObsWithBoardVector(null, new BoardVector(bvec));
+		}
+		double[] scores = new double[nA];
+		m_Net.getScoresI(sowbs, so.getPlayer(), scores);
+		double stepR = so.getStepRewardTuple().scTup[0];
+		ScoreTuple[] sc = new ScoreTuple[nA];
+		for (int i = 0; i < nA; i++) {
+			// as in estimateGameValueTuple: the reward-to-come plus the reward obtained so far
+			sc[i] = new ScoreTuple(so);
+			sc[i].scTup[0] = scores[i] + afterR[i] + stepR;
+		}
+		return sc;
+	}
+
 	private void assertStateForSim(StateObservation s_next, StateObservation s_last) {
 		if (s_next instanceof StateObserverSim) {
 			// just some assertion code for adaptAgentV in the case of game Sim to check that 
@@ -796,7 +1021,7 @@ public class TDNTuple4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,S
 			R = ns.getNextRewardTupleCheckFinished(epiLength);	// this may set m_finished
 
 			// Check for replaybuffer
-			if(ConfigReplayBuffer.USE_REPLAYBUFFER) {
+			if(usesReplayBuffer()) {
 				adaptAgentV2(curPlayer,R,ns);
 			}else{
 				adaptAgentV(curPlayer, R, ns);
@@ -817,7 +1042,7 @@ public class TDNTuple4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,S
 
 		if (FINALADAPTAGENTS) {
 			// check for replay buffer
-			if(ConfigReplayBuffer.USE_REPLAYBUFFER) {
+			if(usesReplayBuffer()) {
 				finalAdaptAgents2(curPlayer,R,ns);
 				learnFromReplayBuffer();
 			}else finalAdaptAgents(curPlayer, R, ns);
@@ -841,6 +1066,189 @@ public class TDNTuple4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,S
 		return false;
 	} // trainAgent
 
+	/**
+	 * Train the agent for {@code soArr.length} self-play episodes, one from each start state in {@code soArr}, with
+	 * {@code numThreads} worker threads. The workers update the shared n-tuple weights without locking
+	 * (Hogwild-style), each worker has its own eligibility lists, counters and random number generator.
+	 * <p>
+	 * Side effects: Same as {@code soArr.length} calls of {@link #trainAgent(StateObservation)}, i.e. gameNum is
+	 * incremented and ALPHA and epsilon are adjusted once per finished episode. Falls back to sequential training,
+	 * if {@code numThreads<=1}, if a replay buffer is active or if the weights are in sparse LUTs (whose inserts
+	 * are not thread-safe).
+	 *
+	 * @param soArr			the start states of the episodes
+	 * @param numThreads	number of worker threads
+	 */
+	public void trainAgentParallel(StateObservation[] soArr, int numThreads) {
+		numThreads = Math.min(numThreads, soArr.length);
+		if (numThreads<=1 || usesReplayBuffer() || m_Net.isSparse()) {
+			for (StateObservation so : soArr) trainAgent(so);
+			return;
+		}
+
+		// one evaluation in this thread creates all lazily built tables (symmetry permutations, incremental map)
+		// before the workers start:
+		getNextAction2(soArr[0].partialState(), false, true, true);
+
+		AtomicInteger next = new AtomicInteger(0);
+		AtomicReference<RuntimeException> failure = new AtomicReference<>();
+		TDNTuple4Agt[] workers = new TDNTuple4Agt[numThreads];
+		Thread[] threads = new Thread[numThreads];
+		for (int t=0; t<numThreads; t++) {
+			TDNTuple4Agt worker = workers[t] = newWorker();
+			threads[t] = new Thread(() -> {
+				try {
+					int k;
+					while ((k = next.getAndIncrement()) < soArr.length && failure.get()==null) {
+						synchronized (this) {
+							worker.m_epsilon = m_epsilon;
+							worker.m_Net.ALPHA = m_Net.ALPHA;
+						}
+						worker.trainAgent(soArr[k], worker);
+						synchronized (this) {
+							this.finishUpdateWeights();
+							incrementGameNum();
+						}
+					}
+				} catch (RuntimeException e) {
+					failure.compareAndSet(null, e);
+				}
+			}, "TDNTuple4Agt-worker-"+t);
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("[TDNTuple4Agt] interrupted while waiting for worker threads");
+			}
+		}
+		for (TDNTuple4Agt worker : workers) {
+			m_numTrnMoves += worker.m_numTrnMoves;
+			m_Net.addNumLearnActions(worker.m_Net.getNumLearnActions());
+			m_Net.mergeWorkerStats(worker.m_Net);
+		}
+		if (failure.get()!=null) throw failure.get();
+	}
+
+	/**
+	 * @return a worker for {@link #trainAgentParallel(StateObservation[], int)}: a shallow copy of this agent which
+	 * shares parameters and n-tuple weights with {@code this}, but has its own per-episode state
+	 */
+	private TDNTuple4Agt newWorker() {
+		TDNTuple4Agt worker;
+		try {
+			worker = (TDNTuple4Agt) super.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new RuntimeException("[TDNTuple4Agt] "+e.getMessage());
+		}
+		worker.m_Net = m_Net.workerView(worker);
+		worker.isWorker = true;
+		worker.sLast = new StateObservation[numPlayers];
+		worker.randLast = new boolean[numPlayers];
+		worker.rand = new Random(rand.nextLong());
+		worker.randomAgent = new RandomAgent("Random");
+		worker.replayBuffer = null;
+		worker.colBuffer = null;
+		worker.moveScratch = null;
+		worker.m_numTrnMoves = 0L;
+		return worker;
+	}
+
+	@Override
+	public PlayAgent getSnapshot() {
+		TDNTuple4Agt snap = (TDNTuple4Agt) super.getSnapshot();
+		snap.moveScratch = null;
+		return snap;
+	}
+
+	@Override
+	protected NTuple4Base newActor(NTuple4ValueFunc frozen) {
+		TDNTuple4Agt actor = (TDNTuple4Agt) super.newActor(frozen);
+		actor.moveScratch = null;
+		return actor;
+	}
+
+	/**
+	 * @return true, if no replay buffer is active (see {@link #actEpisode(StateObservation, ActorLearner.Episode)})
+	 */
+	@Override
+	protected boolean supportsActorLearner() {
+		return !usesReplayBuffer();
+	}
+
+	/**
+	 * Play one self-play episode as actor of {@link ActorLearner}. Records the same updates as
+	 * {@link #trainAgent(StateObservation, PlayAgent)} with {@link #adaptAgentV(int, ScoreTuple, NextState4)} and
+	 * {@link #finalAdaptAgents(int, ScoreTuple, NextState4)}, but keeps the per-episode state in local variables.
+	 */
+	@Override
+	protected void actEpisode(StateObservation so, ActorLearner.Episode ep) {
+		Types.ACTIONS_VT a_t;
+		int curPlayer;
+		NextState4 ns;
+		ScoreTuple R;
+		boolean learnFromRM = m_oPar.getLearnFromRM();
+		StateObservation[] sLast = new StateObservation[numPlayers];
+		boolean[] randLast = new boolean[numPlayers];
+		ScoreTuple rLast = new ScoreTuple(so);
+
+		int epiLength = m_oPar.getEpisodeLength();
+		if (epiLength==-1) epiLength = Integer.MAX_VALUE;
+
+		StateObservation s_t = so.copy();
+		int kk= (so.getPlayer()-1+numPlayers)%numPlayers;
+		sLast[kk] = so.precedingAfterstate();
+
+		m_counter=0;
+		m_finished=false;
+		do {
+			ep.addMove();
+			a_t = getNextAction2(s_t.partialState(), true, false, true);
+			ns = new NextState4(this,s_t,a_t);
+			curPlayer = ns.getSO().getPlayer();
+			randLast[curPlayer] = a_t.isRandomAction();
+			R = ns.getNextRewardTupleCheckFinished(epiLength);	// this may set m_finished
+			StateObservation s_next = ns.getNextSO();
+
+			if (sLast[curPlayer]!=null) {
+				if (randLast[curPlayer] && !learnFromRM) {
+					ep.addClear();
+				} else {
+					double r_next = (R.scTup[curPlayer] - rLast.scTup[curPlayer])
+								  + s_next.getStepRewardTuple().scTup[curPlayer];
+					if (s_next.isGameOver()) {
+						ep.addUpdate(curPlayer, sLast[curPlayer].project(), null, r_next);
+					} else {
+						ep.addUpdate(curPlayer, sLast[curPlayer].project(), ns.getAfterState().project(),
+								TERNARY ? 0.0 : r_next);
+					}
+				}
+			}
+			sLast[curPlayer] = ns.getAfterState();
+			rLast.scTup[curPlayer] = R.scTup[curPlayer];
+
+			s_t = s_next;
+			if (s_t.isRoundOver() && !getParTD().hasStopOnRoundOver()) {
+				s_t.initRound();
+			}
+		} while(!m_finished);
+
+		if (FINALADAPTAGENTS) {
+			StateObservation s_next = ns.getNextSO();
+			for (int n=0; n<numPlayers; n++) {
+				if (n!=curPlayer) {
+					if (sLast[n]!=null)
+						ep.addUpdate(n, sLast[n].project(), null,
+								(R.scTup[n] - rLast.scTup[n]) + s_next.getStepRewardTuple().scTup[n]);
+				} else if (FINALADAPT_PART2 && !this.epiLengthStop) {
+					ep.addUpdate(curPlayer, ns.getAfterState().project(), null, 0.0);
+				}
+			}
+		}
+	}
+
 
 	/**
 	 * This function is called when {@code ns.getNextSO()} is terminal. It does two things:
@@ -862,13 +1270,13 @@ public class TDNTuple4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,S
 			if (n!=curPlayer) {
 				if (sLast[n]!=null ) {
 					// Add the final adaptation to the replay buffer from the perspective of all other players
-					replayBuffer.addTransition(n,ns,sLast[n],rLast,R,1);
+					addTransition(n,ns,sLast[n],R,1);
 					//learnFromReplayBuffer();
 				}
 			} else {
 				if (FINALADAPT_PART2 && !this.epiLengthStop) {
 					// Add the final adaptation to the replay buffer from the perspective of curplayer
-					replayBuffer.addTransition(curPlayer,ns,ns.getAfterState(),rLast,R,2);
+					addTransition(curPlayer,ns,ns.getAfterState(),R,2);
 				}
 			}
 		}
@@ -883,7 +1291,7 @@ public class TDNTuple4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,S
 			if (randLast[curPlayer] && !learnFromRM) {
 				m_Net.clearEligList(m_elig);	// the list is only cleared if m_elig==RESET
 			} else {
-				replayBuffer.addTransition(curPlayer,ns,sLast[curPlayer],rLast,R,0);
+				addTransition(curPlayer,ns,sLast[curPlayer],R,0);
 
 			}
 		}
@@ -891,13 +1299,41 @@ public class TDNTuple4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,S
 
 
 
+	/**
+	 * Add a transition to the replay buffer. In case of the {@link ColumnarBuffer}, store only what
+	 * {@link #learnFromColumnarBuffer()} needs: the board of {@code sLast}, the reward {@code r_next} and - if the
+	 * target bootstraps - the board of the afterstate. A transition of kind 0 into a game-over state has
+	 * {@code v_next=0} and is stored as {@link ColumnarBuffer#FINAL}.
+	 *
+	 * @param kind	0, 1 or 2, see {@link ITransition#isFinalTransition()}
+	 */
+	private void addTransition(int player, NextState4 ns, StateObservation sLast, ScoreTuple R, int kind) {
+		if (colBuffer==null) {
+			replayBuffer.addTransition(player,ns,sLast,rLast,R,kind);
+			return;
+		}
+		StateObservation s_next = ns.getNextSO();
+		double r_next  = (R.scTup[player] - rLast.scTup[player])
+				+ s_next.getStepRewardTuple().scTup[player];
+		if (kind==0 && s_next.isGameOver()) kind = ColumnarBuffer.FINAL;
+		BoardVector next = (kind==ColumnarBuffer.BOOTSTRAP) ? m_Net.xnf.getBoardVector(ns.getAfterState()) : null;
+		colBuffer.add(player, m_Net.xnf.getBoardVector(sLast), next, r_next, kind);
+	}
+
 	private void learnFromReplayBuffer(){
+		if (colBuffer!=null) {
+			learnFromColumnarBuffer();
+			return;
+		}
 		// Awaiting the replay buffer to be full prior learning attempt
 		//if(replayBuffer.getMaxBufferIndex() != replayBuffer.getCapacity()) return;
 		// Awaiting the replay buffer to contain at least #batchSize transitions
 		if(replayBuffer.getMaxBufferIndex() < replayBuffer.getBatchSize()) return;
 		ITransition[] transitions = replayBuffer.getBatch();
-		for(ITransition t : transitions){
+		boolean prioritized = replayBuffer.isPrioritized();
+		double[] tdErrors = new double[transitions.length];
+		for(int k=0; k<transitions.length; k++){
+			ITransition t = transitions[k];
 			int player = t.getPlayer();
 			StateObsWithBoardVector sowb = new StateObsWithBoardVector(t.getSLast(), m_Net.xnf);
 			double vLast = m_Net.getScoreI(sowb,player);
@@ -934,9 +1370,45 @@ public class TDNTuple4Agt extends NTuple4Base implements PlayAgent, NTuple4Agt,S
 				System.out.println(s);
 
 			}
-			// Update the weights
-			m_Net.updateWeightsTD(sowb,player,vLast,target,r_next,t.getNextState4().getNextSO());
+			// Update the weights (prioritized: weighted with the importance sampling weight)
+			tdErrors[k] = target - vLast;
+			if (prioritized) {
+				m_Net.w_updateWeightsTD(sowb,player,replayBuffer.getWeight(k),vLast,target,r_next,
+						t.getNextState4().getNextSO());
+			} else {
+				m_Net.updateWeightsTD(sowb,player,vLast,target,r_next,t.getNextState4().getNextSO());
+			}
+		}
+		replayBuffer.updatePriorities(tdErrors);
+	}
+
+	/**
+	 * Same as {@link #learnFromReplayBuffer()} for the {@link ColumnarBuffer}. The boards come without their state,
+	 * so {@code thisSO} in {@link NTuple4ValueFunc#updateWeightsTD} (only used for debug output) is null.
+	 */
+	private void learnFromColumnarBuffer() {
+		if (colBuffer.size() < colBuffer.getBatchSize()) return;
+		int[] batch = colBuffer.sampleBatch();
+		double[] tdErrors = new double[batch.length];
+		for (int k=0; k<batch.length; k++) {
+			int slot = batch[k];
+			int player = colBuffer.getPlayer(slot);
+			double r_next = colBuffer.getReward(slot);
+			double target = switch (colBuffer.getKind(slot)) {
+				case ColumnarBuffer.BOOTSTRAP -> {
+					double v_next = m_Net.getScoreI(colBuffer.getNextBoard(slot),player);
+					yield TERNARY ? getGamma()*v_next : r_next + getGamma()*v_next;
+				}
+				case ColumnarBuffer.FINAL -> r_next;
+				case ColumnarBuffer.FINAL_ZERO -> 0.0;
+				default -> throw new RuntimeException("[TDNTuple4Agt] unknown transition kind " + colBuffer.getKind(slot));
+			};
+			StateObsWithBoardVector sowb = colBuffer.getBoard(slot);
+			double vLast = m_Net.getScoreI(sowb,player);
+			tdErrors[k] = target - vLast;
+			m_Net.w_updateWeightsTD(sowb,player,colBuffer.getWeight(k),vLast,target,r_next,null);
 		}
+		colBuffer.updatePriorities(tdErrors);
 	}
 
 	/**
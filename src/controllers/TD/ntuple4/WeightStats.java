@@ -0,0 +1,155 @@
+package controllers.TD.ntuple4;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import params.ParNT;
+
+/**
+ * Online training statistics of one {@link NTuple4} (see {@link NTuple4ValueFunc#startWeightStats()}): the number of
+ * weight updates, the number of LUT entries updated at least once, the mean absolute weight change |dW| and a
+ * histogram of the TC factors at update time.
+ * <p>
+ * The counters are maintained incrementally on the weight update path, without locks. In parallel training each
+ * worker updates its own stripe (see {@link #newStripe()}), and the getters sum over all stripes. Only the bitset of
+ * touched entries is shared by all stripes, so concurrent workers may occasionally count an entry twice. Values read
+ * while training is running are thus approximate, but reading them never stalls the trainer.
+ *
+ * @see ParNT#getStatsInterval()
+ */
+public class WeightStats {
+	/**
+	 * number of histogram bins for the TC factor in [0,1] (the last bin holds also factors &ge; 1, e.g. all updates
+	 * without TC)
+	 */
+	public static final int TC_BINS = 10;
+
+	private final int length;			// LUT length (0: touched entries are not tracked)
+	private final long[] touched;		// one bit per LUT entry, shared by all stripes
+	private final CopyOnWriteArrayList<WeightStats> stripes;	// all stripes of the root, shared by all stripes
+	private long numUpdates = 0;
+	private long numTouched = 0;
+	private double sumAbsDW = 0.0;
+	private final long[] tcHist = new long[TC_BINS];
+	private long markUpdates = 0;		// numUpdates and sumAbsDW at the last call of takeIntervalMeanAbsDW
+	private double markSumAbsDW = 0.0;
+
+	/**
+	 * @param length	the LUT length (0 for a sparse LUT, whose touched entries are not tracked)
+	 */
+	WeightStats(int length) {
+		this.length = length;
+		this.touched = (length > 0) ? new long[(length + 63) >>> 6] : null;
+		this.stripes = new CopyOnWriteArrayList<>();
+		stripes.add(this);
+	}
+
+	private WeightStats(WeightStats root) {
+		this.length = root.length;
+		this.touched = root.touched;
+		this.stripes = root.stripes;
+	}
+
+	/**
+	 * @return a new stripe for a parallel training worker, which shares the touched entries with this statistics
+	 * 		and is included in its getters until {@link #mergeStripe(WeightStats)}
+	 */
+	WeightStats newStripe() {
+		WeightStats s = new WeightStats(this);
+		stripes.add(s);
+		return s;
+	}
+
+	/**
+	 * Add the counters of stripe {@code s} (created by {@link #newStripe()}) to this statistics and remove the
+	 * stripe. Call this only when the worker owning {@code s} has finished.
+	 */
+	void mergeStripe(WeightStats s) {
+		if (s == this || !stripes.remove(s)) return;
+		numUpdates += s.numUpdates;
+		numTouched += s.numTouched;
+		sumAbsDW += s.sumAbsDW;
+		for (int b = 0; b < TC_BINS; b++) tcHist[b] += s.tcHist[b];
+	}
+
+	/**
+	 * Record the weight change {@code dW} of LUT entry {@code index} with TC factor {@code tcFactor}
+	 */
+	void record(int index, double dW, double tcFactor) {
+		numUpdates++;
+		sumAbsDW += Math.abs(dW);
+		int b = (int) (tcFactor * TC_BINS);
+		tcHist[(b >= TC_BINS) ? TC_BINS - 1 : Math.max(b, 0)]++;
+		if (touched != null) {
+			long bit = 1L << index;		// the shift uses only the lower 6 bits of index
+			int w = index >>> 6;
+			if ((touched[w] & bit) == 0) {
+				touched[w] |= bit;
+				numTouched++;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of weight updates
+	 */
+	public long getNumUpdates() {
+		long n = 0;
+		for (WeightStats s : stripes) n += s.numUpdates;
+		return n;
+	}
+
+	/**
+	 * @return the number of LUT entries updated at least once (0, if not tracked)
+	 */
+	public long getNumTouched() {
+		long n = 0;
+		for (WeightStats s : stripes) n += s.numTouched;
+		return n;
+	}
+
+	/**
+	 * @return the fraction of LUT entries updated at least once ({@code NaN}, if not tracked)
+	 */
+	public double getTouchedFraction() {
+		return (length > 0) ? (double) getNumTouched() / length : Double.NaN;
+	}
+
+	/**
+	 * @return the mean |dW| over all weight updates (0, if there was no update)
+	 */
+	public double getMeanAbsDW() {
+		long n = 0;
+		double sum = 0.0;
+		for (WeightStats s : stripes) {
+			n += s.numUpdates;
+			sum += s.sumAbsDW;
+		}
+		return (n == 0) ? 0.0 : sum / n;
+	}
+
+	/**
+	 * @return the mean |dW| over the weight updates since the last call of this method (0, if there was no update)
+	 */
+	public double takeIntervalMeanAbsDW() {
+		long n = 0;
+		double sum = 0.0;
+		for (WeightStats s : stripes) {
+			n += s.numUpdates;
+			sum += s.sumAbsDW;
+		}
+		double mean = (n == markUpdates) ? 0.0 : (sum - markSumAbsDW) / (n - markUpdates);
+		markUpdates = n;
+		markSumAbsDW = sum;
+		return mean;
+	}
+
+	/**
+	 * @return the number of weight updates per TC factor bin, bin b holds factors in [b, b+1)/{@link #TC_BINS}
+	 */
+	public long[] getTcHistogram() {
+		long[] hist = new long[TC_BINS];
+		for (WeightStats s : stripes)
+			for (int b = 0; b < TC_BINS; b++) hist[b] += s.tcHist[b];
+		return hist;
+	}
+}
@@ -1381,6 +1381,22 @@ abstract public class Arena implements Runnable {
 	 */
 	abstract public GameBoard makeGameBoard();
 
+	/**
+	 * Make a new game board for an independent training run in another thread (see
+	 * {@link XArenaFuncs#multiTrain(int, String, XArenaButtons, GameBoard, String, int)}). Unlike
+	 * {@link #makeGameBoard()}, the game board of this arena stays as it is.
+	 *
+	 * @return the game board
+	 */
+	public GameBoard makeRunGameBoard() {
+		GameBoard keep = gb;
+		try {
+			return makeGameBoard();
+		} finally {
+			gb = keep;
+		}
+	}
+
 	/**
 	 * Factory pattern method: make a new Evaluator
 	 *
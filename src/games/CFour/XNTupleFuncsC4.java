@@ -1,6 +1,7 @@
 package games.CFour;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.HashSet;
 
 import games.BoardVector;
@@ -128,6 +129,22 @@ public class XNTupleFuncsC4 extends XNTupleBase implements XNTupleFuncs, Seriali
 
 		return equiv;
 	}
+
+	@Override
+	public int[][] symmetryPermutations(int n) {
+		return permutationsFromSymmetryVectors(n);
+	}
+
+	/**
+	 * The player roles are symmetric: player 1 ("O"=2) sees the board as player 0 ("X"=1), if "X" and "O" are
+	 * swapped, see {@link #getBoardVector(StateObservation)}
+	 */
+	@Override
+	public int[] playerValueMap(int player) {
+		int[] map = {0,1,2,3};
+		if (player==1) { map[1]=2; map[2]=1; }
+		return Arrays.copyOf(map, getNumPositionValues());
+	}
 	
 	/**
 	 * Given a certain board array of symmetric (equivalent) states for state <b>{@code so}</b> 
@@ -95,6 +95,11 @@ public class XNTupleFuncsHex extends XNTupleBase implements XNTupleFuncs, Serial
         return symmetries;
     }
 
+    @Override
+    public int[][] symmetryPermutations(int n) {
+        return permutationsFromSymmetryVectors(n);
+    }
+
 	/**
 	 * Given a certain board array of symmetric (equivalent) states for state <b>{@code so}</b> 
 	 * and a certain action to be taken in <b>{@code so}</b>, 
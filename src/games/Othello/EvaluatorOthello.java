@@ -97,8 +97,8 @@ public class EvaluatorOthello extends Evaluator {
         // EvaluatorOthello objects (will not change during runtime)
         if (diffStartList==null) {
         	StateObserverOthello so = (StateObserverOthello) m_gb.getDefaultStartState(null);
-        	diffStartList = new  ArrayList<>();
-        	diffStartList = addAllNPlyStates(diffStartList,so,0);
+        	// publish only the complete list (evaluators of parallel training runs share it):
+        	diffStartList = addAllNPlyStates(new ArrayList<>(),so,0);
         }
 
 		m_PlayAgent = playAgent;
@@ -4,6 +4,7 @@ import java.io.Serial;
 import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 
 import controllers.TD.ntuple4.NTuple4ValueFunc;
@@ -170,6 +171,22 @@ public class XNTupleFuncsOthello extends XNTupleBase implements XNTupleFuncs, Se
 		return symmetryVectors;
 	}
 
+	@Override
+	public int[][] symmetryPermutations(int n) {
+		return permutationsFromSymmetryVectors(n);
+	}
+
+	/**
+	 * The player roles are symmetric: player 1 (WHITE=1) sees the board as player 0 (BLACK=0), if BLACK and WHITE
+	 * are swapped, see {@link #getNumPositionValues()}
+	 */
+	@Override
+	public int[] playerValueMap(int player) {
+		int[] map = {0,1,2,3};
+		if (player==1) { map[0]=1; map[1]=0; }
+		return Arrays.copyOf(map, getNumPositionValues());
+	}
+
 	/**
 	 * Helper function for  {@link #symmetryVectors(BoardVector, int)} :
 	 * Rotates the given boardVector 90 degrees clockwise
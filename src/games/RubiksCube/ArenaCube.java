@@ -73,6 +73,15 @@ public class ArenaCube extends Arena   {
 		return gb;
 	}
 
+	/**
+	 * Same as {@link #makeGameBoard()}, but without re-generating the static transformation tables (which may be in
+	 * use by other training runs) and without replacing the game board of this arena
+	 */
+	@Override
+	public GameBoard makeRunGameBoard() {
+		return new GameBoardCube(this);
+	}
+
 	/**
 	 * Factory pattern method: make a new Evaluator
 	 * @param pa        the agent to evaluate
@@ -1,19 +1,26 @@
 package games.RubiksCube;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serial;
 import java.io.Serializable;
 import java.util.*;
 
 import agentIO.LoadSaveGBG;
 import controllers.PlayAgent;
+import controllers.ReplayBuffer.Buffer.ColumnarBuffer;
+import controllers.ReplayBuffer.Buffer.MappedBuffer;
+import controllers.TD.ntuple4.ActorLearner;
 import controllers.TD.ntuple4.NTuple4Base;
 import controllers.TD.ntuple4.NTuple4ValueFunc;
 import controllers.TD.ntuple4.NextState4;
 import games.StateObsWithBoardVector;
 import games.StateObservation;
+import games.XNTupleBase;
 import games.XNTupleFuncs;
 import params.ParNT;
 import params.ParOther;
+import params.ParRB;
 import params.ParTD;
 import tools.ScoreTuple;
 import tools.Types;
@@ -28,7 +35,8 @@ import tools.Types.ACTIONS_VT;
  *      <li> If {@link CubeConfig#REPLAYBUFFER} is false, simplify DAVI further by updating the net in each step only with
  *      the actual (state, target) pair </li>
  *      <li> If {@link CubeConfig#REPLAYBUFFER} is true, maintain a replay buffer of {@link TrainingItem}s and train the net
- *      in batches sampled from this replay buffer. </li>
+ *      in batches sampled from this replay buffer. If the symmetries are off or do not need the state, the replay
+ *      buffer is a {@link ColumnarBuffer} which stores only the board vectors and targets. </li>
  *  </ul>
  *  It <b>maximizes</b> the value V(s) where each step (twist) adds a negative step reward to V(s).
  *  Only the solved cube s* has V(s*)=0.
@@ -41,6 +49,8 @@ public class DAVI3Agent extends NTuple4Base implements PlayAgent {
 	protected Random rand;
 
 	protected transient LinkedList<TrainingItem> replayBuffer;
+	private transient ColumnarBuffer colBuffer;	// used instead of replayBuffer, see trainAgent_replayBuffer
+	private String rbDir = null;		// directory of the MappedBuffer (buffer type "Mapped"), saved with the agent
 
 //	private NTupleAgt.EligType m_elig;
 //	private int numPlayers;
@@ -139,6 +149,16 @@ public class DAVI3Agent extends NTuple4Base implements PlayAgent {
 		return true;
 	}
 
+	/**
+	 * Mark the directory of a {@link MappedBuffer} as referred to by a saved agent, so that it is kept when the
+	 * buffer is closed (see {@link MappedBuffer#close()})
+	 */
+	@Serial
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		if (colBuffer instanceof MappedBuffer) ((MappedBuffer) colBuffer).markSaved();
+		out.defaultWriteObject();
+	}
+
 	/**
 	 * Get the best next action and return it
 	 *
@@ -293,13 +313,65 @@ public class DAVI3Agent extends NTuple4Base implements PlayAgent {
 		return false;		
 	}
 
+	/**
+	 * @return true, if no replay buffer is used (see {@link #actEpisode(StateObservation, ActorLearner.Episode)})
+	 */
+	@Override
+	protected boolean supportsActorLearner() {
+		return !CubeConfig.REPLAYBUFFER;
+	}
+
+	/**
+	 * Play one episode as actor of {@link ActorLearner}. Records the same updates as
+	 * {@link #trainAgent_baseline(StateObservation)}, where the targets {@code a_t.getVBest()} stem from the actor's
+	 * weight snapshot.
+	 */
+	@Override
+	protected void actEpisode(StateObservation so, ActorLearner.Episode ep) {
+		Types.ACTIONS_VT  a_t;
+		StateObservation s_t = so.copy();
+		int epiLength = m_oPar.getEpisodeLength();
+		ep.setFinishUpdate(false);		// as trainAgent_baseline, which does not call finishUpdateWeights
+		if (so.equals(def)) {
+			System.err.println("actEpisode: cube should NOT be the default (solved) cube!");
+			return;
+		}
+		boolean finished;
+		do {
+			ep.addMove();
+			a_t = getNextAction2(s_t.partialState(), false, false, true);
+			ep.addUpdate(s_t.getPlayer(), s_t, null, a_t.getVBest());
+
+			s_t.advance(a_t, null);
+			s_t.storeBestActionInfo(a_t);
+			finished = s_t.isGameOver() || s_t.getMoveCounter()>=epiLength;
+		} while(!finished);
+	}
+
+	@Override
+	protected NTuple4Base newActor(NTuple4ValueFunc frozen) {
+		DAVI3Agent actor = (DAVI3Agent) super.newActor(frozen);
+		actor.rand = new Random(rand.nextLong());
+		return actor;
+	}
+
 	/**
 	 * replay buffer training: maintain a replay buffer of recent training experience with capacity
 	 * {@link CubeConfig#replayBufferCapacity}. First play a whole episode and add it (conditionally) to
 	 * the replay buffer. Then perform a training where a batch of samples is drawn randomly from the replay buffer.
 	 * Batch size is {@link CubeConfig#batchSize}.
+	 * <p>
+	 * If the symmetries are off or do not need the state, the replay buffer is a {@link ColumnarBuffer}, and the
+	 * training items carry only the board vector, not a copy of the state. With buffer type "Mapped" in
+	 * {@link #getParReplay()}, it is a {@link MappedBuffer} in an own directory below
+	 * {@link params.ParRB#getBufferDir()}, which is not limited by the heap and is continued when a loaded agent is
+	 * trained further. With selector "Prioritized" in {@link #getParReplay()}, the batches of the columnar buffer are
+	 * drawn by prioritized experience replay.
 	 */
 	public boolean trainAgent_replayBuffer(StateObservation so) {
+		if ((colBuffer==null || colBuffer.getCapacity()!=CubeConfig.replayBufferCapacity)
+				&& (!m_ntPar.getUSESYMMETRY() || !XNTupleBase.symmetriesNeedState(m_Net.xnf)))
+			colBuffer = newColBuffer();
 		Types.ACTIONS_VT  a_t;
 		StateObservation s_t = so.copy();
 		int epiLength = m_oPar.getEpisodeLength();
@@ -323,7 +395,8 @@ public class DAVI3Agent extends NTuple4Base implements PlayAgent {
 
 			// add a new TrainingElem to episodeList
 			TrainingItem trainItem = new TrainingItem(
-					new StateObsWithBoardVector(s_t.copy(), m_Net.xnf),
+					(colBuffer==null) ? new StateObsWithBoardVector(s_t.copy(), m_Net.xnf)
+									  : new StateObsWithBoardVector(null, m_Net.xnf.getBoardVector(s_t)),
 					a_t.getVBest(),
 					this.getGameNum()
 			);
@@ -338,6 +411,10 @@ public class DAVI3Agent extends NTuple4Base implements PlayAgent {
 
 				// successful episode --> put all episodeList elements into replayBuffer
 				for (TrainingItem trainingItem : episodeList) {
+					if (colBuffer!=null) {
+						addToColBuffer(s_t.getPlayer(), trainingItem);
+						continue;
+					}
 					replayBuffer.addFirst(trainingItem);
 					if (replayBuffer.size() > CubeConfig.replayBufferCapacity) replayBuffer.pollLast();
 				}
@@ -351,6 +428,10 @@ public class DAVI3Agent extends NTuple4Base implements PlayAgent {
 				double amount = m_oPar.getIncAmount(); //-0.03;
 				for (TrainingItem trainingItem : episodeList) {
 //					trainingItem.reduceTarget(amount);
+					if (colBuffer!=null) {
+						addToColBuffer(s_t.getPlayer(), trainingItem.increaseTarget(amount));
+						continue;
+					}
 					replayBuffer.addFirst(trainingItem.increaseTarget(amount));
 					if (replayBuffer.size() > CubeConfig.replayBufferCapacity) replayBuffer.pollLast();
 				}
@@ -361,7 +442,9 @@ public class DAVI3Agent extends NTuple4Base implements PlayAgent {
 		//System.out.println("Final state: "+s_t.stringDescr()+", "+a_t.getVBest());
 
 		// train network from replayBuffer ...
-		if (replayBuffer.size() < CubeConfig.batchSize) {
+		if (colBuffer!=null) {
+			trainFromColBuffer(s_t.getStepRewardTuple().scTup[0]);
+		} else if (replayBuffer.size() < CubeConfig.batchSize) {
 			// ... with all samples in replayBuffer
 			for (TrainingItem trainingItem : replayBuffer) {
 				item = trainingItem;
@@ -387,6 +470,66 @@ public class DAVI3Agent extends NTuple4Base implements PlayAgent {
 		return false;
 	}
 
+	// the target is stored as reward of a FINAL transition (Rubik's Cube is a 1-player game, the player never changes)
+	private void addToColBuffer(int player, TrainingItem item) {
+		colBuffer.add(player, item.sowb.getBoardVector(), null, item.target, ColumnarBuffer.FINAL);
+	}
+
+	/**
+	 * @return a new {@link ColumnarBuffer} or, for buffer type "Mapped", a {@link MappedBuffer} in {@code rbDir}. A new
+	 * 		agent ({@code rbDir==null}) starts with an empty buffer in a new directory, a loaded agent continues with
+	 * 		the transitions stored in {@code rbDir} (or starts empty in a new directory, if {@code rbDir} is in use by
+	 * 		another buffer).
+	 */
+	private ColumnarBuffer newColBuffer() {
+		boolean prioritized = (getParReplay()!=null && getParReplay().getSelectorV()==1);
+		double alpha = (getParReplay()!=null) ? getParReplay().getPerAlpha() : ParRB.DEFAULT_PER_ALPHA;
+		double beta = (getParReplay()!=null) ? getParReplay().getPerBeta() : ParRB.DEFAULT_PER_BETA;
+		if (getParReplay()==null || getParReplay().getBufferType()!=2)
+			return new ColumnarBuffer(CubeConfig.replayBufferCapacity, CubeConfig.batchSize, m_Net.xnf, false,
+									  prioritized, alpha, beta);
+		if (colBuffer instanceof MappedBuffer) ((MappedBuffer) colBuffer).close();	// release rbDir
+		if (rbDir!=null) {
+			try {
+				return new MappedBuffer(CubeConfig.replayBufferCapacity, CubeConfig.batchSize, m_Net.xnf, false,
+										prioritized, alpha, beta, rbDir, true);
+			} catch (RuntimeException e) {
+				System.out.println(e.getMessage()+", starting with an empty replay buffer");
+			}
+		}
+		rbDir = MappedBuffer.newDir(getParReplay().getBufferDir(), getName());
+		return new MappedBuffer(CubeConfig.replayBufferCapacity, CubeConfig.batchSize, m_Net.xnf, false,
+								prioritized, alpha, beta, rbDir, false);
+	}
+
+	// same as the LinkedList part of trainAgent_replayBuffer, but for colBuffer. As long as the buffer holds less
+	// than a batch, all transitions are trained once, otherwise a batch is sampled from colBuffer (uniform or
+	// prioritized) and the TD errors are fed back. The reward is only for debug output.
+	private void trainFromColBuffer(double reward) {
+		int n = colBuffer.size();
+		if (n < CubeConfig.batchSize) {
+			for (int slot=0; slot<n; slot++) {
+				int player = colBuffer.getPlayer(slot);
+				StateObsWithBoardVector sowb = colBuffer.getBoard(slot);
+				double vLast = m_Net.getScoreI(sowb, player);
+				m_Net.updateWeightsTD(sowb, player, vLast, colBuffer.getReward(slot), reward, null);
+			}
+			return;
+		}
+		int[] batch = colBuffer.sampleBatch();
+		double[] tdErrors = new double[batch.length];
+		for (int k=0; k<batch.length; k++) {
+			int slot = batch[k];
+			int player = colBuffer.getPlayer(slot);
+			StateObsWithBoardVector sowb = colBuffer.getBoard(slot);
+			double vLast = m_Net.getScoreI(sowb, player);
+			double target = colBuffer.getReward(slot);
+			tdErrors[k] = target - vLast;
+			m_Net.w_updateWeightsTD(sowb, player, colBuffer.getWeight(k), vLast, target, reward, null);
+		}
+		colBuffer.updatePriorities(tdErrors);
+	}
+
 //	@Override
 //	public double getScore(StateObservation so) {
 //        assert (so instanceof StateObserverCube) : "Not a StateObserverCube object";
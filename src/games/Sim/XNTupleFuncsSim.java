@@ -174,6 +174,18 @@ public class XNTupleFuncsSim extends XNTupleBase implements XNTupleFuncs, Serial
 		return nPlayers;
 	}
 
+	/**
+	 * The player roles are symmetric under a cyclic shift of the link colors: a link of player q has value q+1
+	 * (0: no link), so player p sees the board as player 0, if each color q is replaced by q-p (mod N).
+	 */
+	@Override
+	public int[] playerValueMap(int player) {
+		int[] map = new int[nPlayers+1];
+		for (int q = 0; q < nPlayers; q++)
+			map[q+1] = (q - player + nPlayers) % nPlayers + 1;
+		return map;
+	}
+
 	/**
 	 * Sim has an astonishing large number of K! symmetries (K={@link ConfigSim#NUM_NODES}).
 	 * 
@@ -77,8 +77,8 @@ public class EvaluatorTTT extends Evaluator {
 		// when evalAgent is called for the first time, construct diffStartList once for all 
         // EvaluatorHex objects (will not change during runtime)
         if (diffStartList==null) {
-        	diffStartList = new  ArrayList<>();
-        	diffStartList = addAll1PlyStates(diffStartList);        	
+        	// publish only the complete list (evaluators of parallel training runs share it):
+        	diffStartList = addAll1PlyStates(new ArrayList<>());
         }
 		
 		m_PlayAgent = playAgent;
@@ -139,6 +139,20 @@ public class XNTupleFuncsTTT extends XNTupleBase implements XNTupleFuncs, Serial
 		}
 		return equiv;
 	}
+
+	@Override
+	public int[][] symmetryPermutations(int n) {
+		return permutationsFromSymmetryVectors(n);
+	}
+
+	/**
+	 * The player roles are symmetric: player 1 ("O"=0) sees the board as player 0 ("X"=2), if "X" and "O" are
+	 * swapped, see {@link #getBoardVector(StateObservation)}
+	 */
+	@Override
+	public int[] playerValueMap(int player) {
+		return (player==0) ? new int[] {0,1,2} : new int[] {2,1,0};
+	}
 	
 	/**
 	 * Given a certain board array of symmetric (equivalent) states for state <b>{@code so}</b> 
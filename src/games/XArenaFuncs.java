@@ -33,6 +33,7 @@ import gui.DeviationWeightsChart;
 import gui.LineChartSuccess;
 import params.*;
 import starters.MTrain;
+import starters.RunPool;
 import tools.*;
 import tools.Types.ACTIONS;
 
@@ -41,7 +42,13 @@ import java.text.DecimalFormat;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 
 /**
  * Class {@link XArenaFuncs} contains several methods to train, evaluate and
@@ -240,6 +247,7 @@ public class XArenaFuncs {
 					int[][] nTuples = ntupfac.makeNTupleSet(m_xab.ntPar[n], xnf);
 					pa = new DAVI3Agent(sAgent, m_xab.tdPar[n], m_xab.ntPar[n],
 							m_xab.oPar[n], nTuples, xnf, maxGameNum);
+					pa.setParReplay(m_xab.rbPar[n]);	// for buffer type "Mapped"
 				}
 				case "DAVI4" -> { // RubiksCube only, see gui_agent_list in XArenaButtonsGui
 					XNTupleFuncs xnf = m_xab.m_arena.makeXNTupleFuncs();
@@ -363,6 +371,14 @@ public class XArenaFuncs {
 						pa = fetchTrainableAgent(n, sAgent, m_xab);
 
 					}
+					PlayAgent inner_pa = pa.isWrapper() ? pa.getWrappedPlayAgent() : pa;
+					if (inner_pa instanceof NTuple4Base) {
+						// the n-tuple update statistics go to the game's csv dir, as the other CSV files
+						String strDir = Types.GUI_DEFAULT_DIR_AGENT+"/"+m_Arena.getGameName();
+						String subDir = m_Arena.getGameBoard().getSubDir();
+						if (subDir != null) strDir += "/"+subDir;
+						((NTuple4Base) inner_pa).setStatsDir(strDir+"/csv");
+					}
 				}
 			}  // switch
 
@@ -421,6 +437,21 @@ public class XArenaFuncs {
 				pa.setWrapperParamsOfromWr(pa.getParWrapper());
 				//pa.setWrapperParamsO(m_xab.oPar[n]);		// obsolete
 
+				// The weight precision may be changed for a TRAINED n-tuple agent as well: this converts the
+				// weights of a loaded agent (e.g. to float or to int16 for an inference-only agent). Converting
+				// to int16 is lossy and cannot be undone, the agent is no longer trainable afterwards:
+				int prec = m_xab.ntPar[n].getWeightPrecision();
+				if (prec == NTuple4.PREC_INT16 && inner_pa.isTrainable()
+						&& (inner_pa instanceof NTuple4Base || inner_pa instanceof NTupleBase))
+					m_Arena.showMessage("The weights of " + inner_pa.getName() + " are converted to int16. This is "
+							+ "lossy and the agent is inference-only afterwards (it cannot be trained any further).",
+							"Warning", JOptionPane.WARNING_MESSAGE);
+				if (inner_pa instanceof NTuple4Base) {
+					((NTuple4Base) inner_pa).setWeightPrecision(prec);
+				} else if (inner_pa instanceof NTupleBase) {
+					((NTupleBase) inner_pa).setWeightPrecision(prec);
+				}
+
 				pa.setParReplay(m_xab.rbPar[n]);
 			}
 			default -> throw new RuntimeException("Not supported case for AgentState");
@@ -495,6 +526,7 @@ public class XArenaFuncs {
 					int[][] nTuples = ntupfac.makeNTupleSet(m_xab.ntPar[n], xnf);
 					pa = new DAVI3Agent(sAgent, m_xab.tdPar[n], m_xab.ntPar[n],
 							m_xab.oPar[n], nTuples, xnf, maxGameNum);
+					pa.setParReplay(m_xab.rbPar[n]);	// for buffer type "Mapped"
 				}
 				case "DAVI4" -> { // RubiksCube only, see gui_agent_list in XArenaButtonsGui
 
@@ -696,6 +728,9 @@ public class XArenaFuncs {
 		String pa_string = pa.getClass().getName();
 		if (!pa.isTrainable()) {
 			System.out.println(pa_string + " is not trainable");
+			if (xab.ntPar[n].getWeightPrecision() == NTuple4.PREC_INT16)
+				m_Arena.showMessage("int16 weights are inference-only: select weight precision double or float "
+						+ "for training", "Warning", JOptionPane.WARNING_MESSAGE);
 			return pa;
 		}
 
@@ -728,6 +763,8 @@ public class XArenaFuncs {
 		// initialization line chart plot:
 		if (lChart != null) lChart.initializeChartPlot(xab, m_evaluatorQ, doTrainEvaluation);
 
+		AsyncEvaluator asyncEval = (xab.oPar[n].getAsyncEval()) ? new AsyncEvaluator() : null;
+
 		// Debug only: direct debug output to file debug.txt
 		// TDNTupleAgt.pstream = System.out;
 		// TDNTupleAgt.pstream = new PrintStream(new
@@ -736,9 +773,8 @@ public class XArenaFuncs {
 		long startTime = System.currentTimeMillis();
 		gb.initialize();
 		while (pa.getGameNum() < pa.getMaxGameNum()) {
-			StateObservation so = soSelectStartState(gb, xab.oPar[n].getChooseStart01(), pa);
-
-			pa.trainAgent(so);
+			// (with train statistics: one episode per call, since collectTrainStats needs each start state)
+			StateObservation so = trainEpisodes(pa, gb, xab.oPar[n].getChooseStart01(), doTrainStatistics ? 1 : numEval);
 
 			if (doTrainStatistics)
 				collectTrainStats(tsList, pa, so);
@@ -764,18 +800,17 @@ public class XArenaFuncs {
 				// construct 'qa' anew (possibly wrapped agent for eval)
 				//qa = wrapAgent(pa, xab.oPar[n], xab.wrPar[n], xab.maxnPar[n], gb.getStateObs());
 
-				eresQ = m_evaluatorQ.eval(qa);		// throws RuntimeException, if TDReferee.agt.zip is not found
-				if (doTrainEvaluation) {
-					eresT = m_evaluatorT.eval(qa);	// throws RuntimeException, if TDReferee.agt.zip is not found
+				PlayAgent snap = (asyncEval != null) ? qa.getSnapshot() : null;
+				if (snap != null) {
+					// evaluate the frozen snapshot in the background, while training continues:
+					final int evalGameNum = gameNum;
+					asyncEval.submit(() -> evalAndPlot(snap, evalGameNum, doTrainEvaluation));
+				} else {
+					EvalResult[] eres = evalAndPlot(qa, gameNum, doTrainEvaluation);
+					eresQ = eres[0];
+					eresT = eres[1];
 				}
 
-				// update line chart plot:
-				if (lChart != null) 
-					lChart.updateChartPlot(gameNum, eresQ, eresT, doTrainEvaluation, false);
-
-				// update weight / TC factor distribution plot:
-				if (wChart != null)	wChart.updateChartPlot(gameNum, pa, per);
-
 				elapsedMs = (System.currentTimeMillis() - startTime);
 				pa.incrementDurationEvaluationMs(elapsedMs);
 
@@ -812,6 +847,14 @@ public class XArenaFuncs {
 //			}
 		} // while
 
+		if (asyncEval != null) {
+			EvalResult[] eres = asyncEval.shutdown();		// wait for the last background evaluation
+			if (eres != null) {
+				eresQ = eres[0];
+				eresT = eres[1];
+			}
+		}
+
 		// Debug only
 		// TDNTupleAgt.pstream.close();
 
@@ -863,6 +906,130 @@ public class XArenaFuncs {
 		return pa;
 	} // train
 
+	/**
+	 * Evaluate {@code qa} with m_evaluatorQ and (if {@code doTrainEvaluation}) with m_evaluatorT.
+	 *
+	 * @return {eresQ, eresT}
+	 * @throws RuntimeException, if TDReferee.agt.zip is not found
+	 */
+	private EvalResult[] evalAgent(PlayAgent qa, boolean doTrainEvaluation) {
+		EvalResult eresQ = m_evaluatorQ.eval(qa);
+		EvalResult eresT = (doTrainEvaluation) ? m_evaluatorT.eval(qa) : new EvalResult();
+		return new EvalResult[] {eresQ, eresT};
+	}
+
+	/**
+	 * Evaluate {@code qa} (see {@link #evalAgent(PlayAgent, boolean)}) and update line chart and weight
+	 * distribution plot at {@code gameNum}.
+	 *
+	 * @return {eresQ, eresT}
+	 */
+	private EvalResult[] evalAndPlot(PlayAgent qa, int gameNum, boolean doTrainEvaluation) {
+		EvalResult[] eres = evalAgent(qa, doTrainEvaluation);
+
+		// update line chart plot:
+		if (lChart != null)
+			lChart.updateChartPlot(gameNum, eres[0], eres[1], doTrainEvaluation, false);
+
+		// update weight / TC factor distribution plot:
+		if (wChart != null)	wChart.updateChartPlot(gameNum, qa, per);
+
+		return eres;
+	}
+
+	/**
+	 * Runs the evaluations during training in a background thread on a snapshot of the agent (see
+	 * {@link PlayAgent#getSnapshot()} and {@link ParOther#getAsyncEval()}), so that training continues meanwhile.
+	 * At most one evaluation is pending, since the evaluators are not thread-safe: {@link #submit(Callable)} waits
+	 * for the previous one to finish. An exception thrown by an evaluation is re-thrown in the training thread.
+	 */
+	private static class AsyncEvaluator {
+		private final ExecutorService exec = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "XArenaFuncs-eval");
+			t.setDaemon(true);
+			return t;
+		});
+		private Future<EvalResult[]> pending = null;
+		private EvalResult[] last = null;
+
+		void submit(Callable<EvalResult[]> task) {
+			await();
+			pending = exec.submit(task);
+		}
+
+		/**
+		 * Wait for the pending evaluation (if any).
+		 *
+		 * @return the result of the last finished evaluation or null, if there was none
+		 */
+		EvalResult[] await() {
+			if (pending != null) {
+				try {
+					last = pending.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException("[XArenaFuncs] interrupted while waiting for evaluation");
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof RuntimeException re) throw re;
+					throw new RuntimeException("[XArenaFuncs] evaluation failed: "+e.getCause());
+				} finally {
+					pending = null;
+				}
+			}
+			return last;
+		}
+
+		/**
+		 * Wait for the pending evaluation (if any) and stop the background thread.
+		 *
+		 * @return the result of the last finished evaluation or null, if there was none
+		 */
+		EvalResult[] shutdown() {
+			try {
+				return await();
+			} finally {
+				exec.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Train {@code pa} for one episode. If {@code pa} is a {@link TDNTuple4Agt} with
+	 * {@link ParOther#getNumTrainThreads()} &gt; 1, train instead with that many threads all episodes up to the next
+	 * multiple of {@code numEval} (or up to maxGameNum), so that the evaluation points are the same as in
+	 * sequential training. If {@code pa} is a {@link NTuple4Base} with {@link ParOther#getActorRefresh()} &gt; 0,
+	 * train these episodes in actor-learner mode with {@link ParOther#getNumTrainThreads()} actors and print the
+	 * actor-learner metrics.
+	 *
+	 * @param pa			the agent to train
+	 * @param gb			game board, needed for start state selection
+	 * @param chooseStart01	whether to choose start states at random (see {@link ParOther#getChooseStart01()})
+	 * @param numEval		the evaluation interval
+	 * @return the start state of the (last) episode
+	 */
+	public StateObservation trainEpisodes(PlayAgent pa, GameBoard gb, boolean chooseStart01, int numEval) {
+		int numThreads = pa.getParOther().getNumTrainThreads();
+		int actorRefresh = pa.getParOther().getActorRefresh();
+		boolean actorLearner = (actorRefresh>0 && pa instanceof NTuple4Base);
+		if (!actorLearner && (numThreads<=1 || !(pa instanceof TDNTuple4Agt))) {
+			StateObservation so = soSelectStartState(gb, chooseStart01, pa);
+			pa.trainAgent(so);
+			return so;
+		}
+		int gameNum = pa.getGameNum();
+		int num = Math.min(numEval - gameNum%numEval, pa.getMaxGameNum() - gameNum);
+		StateObservation[] soArr = new StateObservation[num];
+		for (int k=0; k<num; k++)
+			soArr[k] = soSelectStartState(gb, chooseStart01, pa);
+		if (actorLearner) {
+			ActorLearner.Metrics metrics = ((NTuple4Base) pa).trainActorLearner(soArr, numThreads, actorRefresh);
+			if (metrics!=null) System.out.println(metrics);
+		} else {
+			((TDNTuple4Agt) pa).trainAgentParallel(soArr, numThreads);
+		}
+		return soArr[num-1];
+	}
+
 	private StateObservation soSelectStartState(GameBoard gb, boolean chooseStart01, PlayAgent pa) {
 		StateObservation so;
 		if (chooseStart01) {
@@ -925,6 +1092,25 @@ public class XArenaFuncs {
 	 * @see MTrain
 	 */
 	public PlayAgent multiTrain(int n, String sAgent, XArenaButtons xab, GameBoard gb, String csvName)
+	{
+		return multiTrain(n, sAgent, xab, gb, csvName, 1);
+	}
+
+	/**
+	 * Same as {@link #multiTrain(int, String, XArenaButtons, GameBoard, String)}, but perform up to
+	 * {@code numRunThreads} training runs concurrently. Each run has its own agent, game board, evaluators and
+	 * random seed. The runs are independent, so the results are written to {@code csvName} in run order, exactly as
+	 * in sequential multi-training.
+	 * <p>
+	 * Concurrent runs are only possible without GUI (in batch runs, see {@link starters.GBGBatch}). With GUI, the
+	 * runs are performed sequentially.
+	 *
+	 * @param numRunThreads	the maximum number of concurrent training runs
+	 *
+	 * @see starters.RunPool
+	 */
+	public PlayAgent multiTrain(int n, String sAgent, XArenaButtons xab, GameBoard gb, String csvName,
+								int numRunThreads)
 	{
 		DecimalFormat frm3 = new DecimalFormat("+0.000;-0.000");
 		DecimalFormat frm = new DecimalFormat("#0.000");
@@ -932,87 +1118,180 @@ public class XArenaFuncs {
 		DecimalFormat frm1 = new DecimalFormat("#0.00");
 		String userTitle1 = "", userTitle2 = "";
 		double userValue1 = 0., userValue2 = 0.0;
-		long elapsedMs;
 		boolean doTrainEvaluation = false;
-		EvalResult 	eresQ = new EvalResult(),
-					eresT = new EvalResult();
 
 		int trainNum = xab.getTrainNumber();
 		int maxGameNum = xab.getGameNumber();
 		PlayAgent pa = null, qa;
+		if (m_Arena.hasGUI()) numRunThreads = 1;
+		boolean parallel = (numRunThreads > 1);
 
-		System.out.println("*** Starting multiTrain with trainNum = " + trainNum + " ***");
+		System.out.println("*** Starting multiTrain with trainNum = " + trainNum
+				+ ((parallel) ? " (" + numRunThreads + " runs in parallel)" : "") + " ***");
 
 		Measure oQ = new Measure(); // quick eval measure
 		Measure oT = new Measure(); // train eval measure
-		MTrain mTrain;
-		double evalQ, evalT=0.0;
 		ArrayList<MTrain> mtList = new ArrayList<>();
+		MultiTrainRun[] lastRun = new MultiTrainRun[1];
 
-		for (int i = 0; i < trainNum; i++) {
-			int gameNum;
-			long actionNum, trnMoveNum;
-			double totalTrainSec, elapsedTime, movesSecond;
+		// things to do at the end of a training run (called in run order):
+		Consumer<MultiTrainRun> collect = run -> {
+			oQ.add(run.eresQ.getResult());
+			if (run.m_evaluatorT != null) oT.add(run.eresT.getResult());
+			mtList.addAll(run.mtList);
+			lastRun[0] = run;
 
-			xab.setTrainNumberText(trainNum, (i + 1) + "/" + trainNum);
+			// print the full list mtList after finishing each run i
+			// (overwrites the file written from previous run i-1)
+			MTrain.printMultiTrainList(csvName, mtList, run.pa, m_Arena, userTitle1, userTitle2);
+		};
 
-			// --- DON'T use this anymore! Use instead GBGBatch.multiTrainAlphaSweep or 
-			// --- GBGBatch.multiTrainLambdaSweep.
-			//
-			// //add here - if wanted - user-specific code which varies for each i some of the
-			// //parameters and writes them to userValue*:
-			// //*** DON'T FORGET to comment it out again if you want to have normal behavior back
-			// //*** (same settings for all runs i)
-			// double lambda = i*0.1;
-			// userTitle1="lambda"; userValue1=lambda;
-			// userTitle2="null"; userValue2=0.0;
-			// xab.tdPar[0].setLambda(i*0.1);
+		try (RunPool<MultiTrainRun> pool = new RunPool<>(numRunThreads, collect)) {
+			for (int i = 0; i < trainNum; i++) {
+				xab.setTrainNumberText(trainNum, (i + 1) + "/" + trainNum);
 
-			try {
-				pa = constructAgent(n, sAgent, xab);
-				if (pa == null)
-					throw new RuntimeException("Could not construct AgentX = " + sAgent);
-				qa = wrapAgentTrain(pa, xab.oPar[n], xab.wrPar[n], xab.maxnPar[n], gb.getDefaultStartState(null));
-
-				if (qa == null)
-					throw new RuntimeException("Could not wrap agent = " + sAgent);
-				pa = qa;
-				pa.setWrapperParamsO(xab.oPar[n]);
-			} catch (RuntimeException e) {
-				m_Arena.showMessage(e.getMessage(), "Warning", JOptionPane.WARNING_MESSAGE);
-				return pa;
-			}
+				// --- DON'T use this anymore! Use instead GBGBatch.multiTrainAlphaSweep or
+				// --- GBGBatch.multiTrainLambdaSweep.
+				//
+				// //add here - if wanted - user-specific code which varies for each i some of the
+				// //parameters and writes them to userValue*:
+				// //*** DON'T FORGET to comment it out again if you want to have normal behavior back
+				// //*** (same settings for all runs i)
+				// double lambda = i*0.1;
+				// userTitle1="lambda"; userValue1=lambda;
+				// userTitle2="null"; userValue2=0.0;
+				// xab.tdPar[0].setLambda(i*0.1);
+
+				GameBoard runGb = (parallel) ? m_Arena.makeRunGameBoard() : gb;
+				try {
+					pa = constructAgent(n, sAgent, xab);
+					if (pa == null)
+						throw new RuntimeException("Could not construct AgentX = " + sAgent);
+					qa = wrapAgentTrain(pa, xab.oPar[n], xab.wrPar[n], xab.maxnPar[n], runGb.getDefaultStartState(null));
+
+					if (qa == null)
+						throw new RuntimeException("Could not wrap agent = " + sAgent);
+					pa = qa;
+					pa.setWrapperParamsO(xab.oPar[n]);
+				} catch (RuntimeException e) {
+					m_Arena.showMessage(e.getMessage(), "Warning", JOptionPane.WARNING_MESSAGE);
+					return pa;
+				}
+				if (parallel) seedRunAgent(pa);
 
-			// bug fix: numEval needs to be set *after* constructAgent (which contains xab.oPar[n].pushFromOTParams)
-			int numEval = xab.oPar[n].getNumEval();
-			if (numEval == 0)
-				numEval = 500; // just for safety, to avoid ArithmeticException in
-								// 'gameNum%numEval' below
-			
-			int qem = xab.oPar[n].getQuickEvalMode();
-			m_evaluatorQ = xab.m_arena.makeEvaluator(pa, gb, qem, 1);
-			int tem = xab.oPar[n].getTrainEvalMode();
-			//
-			// doTrainEvaluation flags whether Train Evaluator is executed:
-			// Evaluator m_evaluatorT is only constructed and evaluated, if in
-			// tab 'Other pars'
-			// the choice box 'Train Eval Mode' is not -1 ("none").
-			doTrainEvaluation = (tem != -1);
-			if (doTrainEvaluation)
-				m_evaluatorT = xab.m_arena.makeEvaluator(pa, gb, tem, 1);
-
-			// if (i==0) {
-			System.out.println(pa.stringDescr());
-			System.out.println(pa.stringDescr2());
-			// }
-			pa.setMaxGameNum(maxGameNum);
-			pa.setGameNum(0);
+				// bug fix: numEval needs to be set *after* constructAgent (which contains xab.oPar[n].pushFromOTParams)
+				int numEval = xab.oPar[n].getNumEval();
+				if (numEval == 0)
+					numEval = 500; // just for safety, to avoid ArithmeticException in
+									// 'gameNum%numEval' below
+
+				int qem = xab.oPar[n].getQuickEvalMode();
+				m_evaluatorQ = xab.m_arena.makeEvaluator(pa, runGb, qem, 1);
+				int tem = xab.oPar[n].getTrainEvalMode();
+				//
+				// doTrainEvaluation flags whether Train Evaluator is executed:
+				// Evaluator m_evaluatorT is only constructed and evaluated, if in
+				// tab 'Other pars'
+				// the choice box 'Train Eval Mode' is not -1 ("none").
+				doTrainEvaluation = (tem != -1);
+				if (doTrainEvaluation)
+					m_evaluatorT = xab.m_arena.makeEvaluator(pa, runGb, tem, 1);
+
+				// if (i==0) {
+				System.out.println(pa.stringDescr());
+				System.out.println(pa.stringDescr2());
+				// }
+				pa.setMaxGameNum(maxGameNum);
+				pa.setGameNum(0);
+
+				pool.submit(new MultiTrainRun(i, pa, runGb, numEval, m_evaluatorQ,
+						(doTrainEvaluation) ? m_evaluatorT : null, xab.oPar[n].getChooseStart01(),
+						xab.oPar[n].getAsyncEval(), (parallel) ? null : xab, userValue1, userValue2));
+
+				if (xab.m_arena.taskState != Arena.Task.MULTTRN) {
+					break; // out of for
+				}
+			} // for (i)
+		}
+
+		EvalResult eresQ = (lastRun[0] != null) ? lastRun[0].eresQ : new EvalResult();
+		EvalResult eresT = (lastRun[0] != null) ? lastRun[0].eresT : new EvalResult();
+		if (lastRun[0] != null) pa = lastRun[0].pa;
+
+		if (eresQ.getMode() != (-1))
+		// m_mode=-1 signals: 'no evaluation done' --> oT did not receive
+		// evaluation results
+		{
+			System.out.println("Avg. " + eresQ.getMsg() + frm3.format(oQ.getMean()) + " +- "
+					+ frm.format(oQ.getStd()));
+		}
+		if (doTrainEvaluation && eresT.getMode() != (-1))
+		// m_mode=-1 signals: 'no evaluation done' --> oT did not receive
+		// evaluation results
+		{
+			System.out.println("Avg. " + eresT.getMsg() + frm3.format(oT.getMean()) + " +- "
+					+ frm.format(oT.getStd()));
+		}
+		if (eresQ.getMode() == (-1)) {
+			this.lastMsg = "Warning: No evaluation done (Quick Eval Mode = -1)";
+		} else {
+			this.lastMsg = (eresQ.getMsg() + frm2.format(oQ.getMean()) + " +- "
+					+ frm1.format(oQ.getStd()) + "");
+		}
+
+		xab.setTrainNumber(trainNum);
+		return pa;
+
+	} // multiTrain
+
+	/**
+	 * One training run of {@link #multiTrain(int, String, XArenaButtons, GameBoard, String, int) multiTrain}. It is
+	 * constructed in the calling thread, while {@link #call()} may run in a worker thread of a {@link RunPool}: it
+	 * uses only its own agent, game board and evaluators and collects its {@link MTrain} records in its own list.
+	 */
+	private class MultiTrainRun implements Callable<MultiTrainRun> {
+		private final int i;
+		private final PlayAgent pa;
+		private final GameBoard gb;
+		private final int numEval;
+		private final Evaluator m_evaluatorQ;
+		private final Evaluator m_evaluatorT;		// null: no train evaluation
+		private final boolean chooseStart01;
+		private final boolean asyncEval;
+		private final XArenaButtons xab;			// null: run in a worker thread, do not report the game number
+		private final double userValue1, userValue2;
+		private final ArrayList<MTrain> mtList = new ArrayList<>();
+		private EvalResult eresQ, eresT = new EvalResult();		// results of the final evaluation
+
+		MultiTrainRun(int i, PlayAgent pa, GameBoard gb, int numEval, Evaluator m_evaluatorQ, Evaluator m_evaluatorT,
+					  boolean chooseStart01, boolean asyncEval, XArenaButtons xab, double userValue1, double userValue2) {
+			this.i = i;
+			this.pa = pa;
+			this.gb = gb;
+			this.numEval = numEval;
+			this.m_evaluatorQ = m_evaluatorQ;
+			this.m_evaluatorT = m_evaluatorT;
+			this.chooseStart01 = chooseStart01;
+			this.asyncEval = asyncEval;
+			this.xab = xab;
+			this.userValue1 = userValue1;
+			this.userValue2 = userValue2;
+		}
+
+		@Override
+		public MultiTrainRun call() {
+			DecimalFormat frm1 = new DecimalFormat("#0.00");
+			boolean doTrainEvaluation = (m_evaluatorT != null);
+			int gameNum;
+			long actionNum, trnMoveNum, elapsedMs;
+			double totalTrainSec, elapsedTime, movesSecond, evalQ, evalT = 0.0;
+			PlayAgent qa;
+
+			AsyncEvaluator asyncEvaluator = (asyncEval) ? new AsyncEvaluator() : null;
 			long startTime = System.currentTimeMillis();
 			gb.initialize();
 			while (pa.getGameNum() < pa.getMaxGameNum()) {
-				StateObservation so = soSelectStartState(gb, xab.oPar[n].getChooseStart01(), pa);
-
-				pa.trainAgent(so);
+				trainEpisodes(pa, gb, chooseStart01, numEval);
 
 				gameNum = pa.getGameNum();
 				if (gameNum % numEval == 0) { // || gameNum==1) {
@@ -1024,20 +1303,13 @@ public class XArenaFuncs {
 
 					startTime = System.currentTimeMillis();
 
-					xab.setGameNumber(gameNum);
+					if (xab != null) xab.setGameNumber(gameNum);
 
 					qa = pa;
 					// --- OLD, no longer needed, since pa is already wrapped, if wrapping is activated: ---
 					// construct 'qa' anew (possibly wrapped agent for eval)
 					//qa = wrapAgent(pa, xab.oPar[n],  xab.wrPar[n], xab.maxnPar[n], gb.getStateObs());
 
-					eresQ = m_evaluatorQ.eval(qa);			// throws RuntimeException, if TDReferee.agt.zip is not found
-					evalQ = eresQ.getResult();
-					if (doTrainEvaluation) {
-						eresT = m_evaluatorT.eval(qa);		// throws RuntimeException, if TDReferee.agt.zip is not found
-						evalT = eresT.getResult();
-					}
-
 					// gather information for later printout to
 					// agents/gameName/csv/multiTrain.csv.
 					actionNum = pa.getNumLrnActions();
@@ -1045,13 +1317,32 @@ public class XArenaFuncs {
 					totalTrainSec = (double) pa.getDurationTrainingMs() / 1000.0;
 									// time [sec] spent in trainAgent since start of this training run
 									// (only self-play, excluding evaluations)
-					movesSecond   = actionNum / totalTrainSec;    
+					movesSecond   = actionNum / totalTrainSec;
 									// average number of moves per second since start of this training run
 									// (counting only training time, excluding evaluation time)
-					mTrain = new MTrain(i, gameNum, evalQ, evalT, actionNum, trnMoveNum, totalTrainSec,
-							movesSecond, userValue1, userValue2);
-					mtList.add(mTrain);
-					
+
+					PlayAgent snap = (asyncEvaluator != null) ? qa.getSnapshot() : null;
+					if (snap != null) {
+						// evaluate the frozen snapshot in the background, while training continues. The MTrain
+						// record gets the training figures of the snapshot time:
+						final int evalGameNum = gameNum;
+						final long evalActionNum = actionNum, evalTrnMoveNum = trnMoveNum;
+						final double evalTrainSec = totalTrainSec, evalMovesSecond = movesSecond;
+						asyncEvaluator.submit(() -> {
+							EvalResult eQ = m_evaluatorQ.eval(snap);
+							EvalResult eT = (doTrainEvaluation) ? m_evaluatorT.eval(snap) : new EvalResult();
+							mtList.add(new MTrain(i, evalGameNum, eQ.getResult(), (doTrainEvaluation) ? eT.getResult() : 0.0,
+									evalActionNum, evalTrnMoveNum, evalTrainSec, evalMovesSecond, userValue1, userValue2));
+							return new EvalResult[] {eQ, eT};
+						});
+					} else {
+						evalQ = m_evaluatorQ.eval(qa).getResult();		// throws RuntimeException, if TDReferee.agt.zip is not found
+						if (doTrainEvaluation)
+							evalT = m_evaluatorT.eval(qa).getResult();	// throws RuntimeException, if TDReferee.agt.zip is not found
+						mtList.add(new MTrain(i, gameNum, evalQ, evalT, actionNum, trnMoveNum, totalTrainSec,
+								movesSecond, userValue1, userValue2));
+					}
+
 					System.out.println(pa.printTrainStatus() + ", " + elapsedTime + " sec, " + frm1.format(movesSecond) +" moves/s");
 
 					elapsedMs = (System.currentTimeMillis() - startTime); 	// ms spent for evaluation
@@ -1059,7 +1350,7 @@ public class XArenaFuncs {
 
 					// enable premature exit if MULTITRAIN button is pressed
 					// again:
-					if (xab.m_arena.taskState != Arena.Task.MULTTRN) {
+					if (m_Arena.taskState != Arena.Task.MULTTRN) {
 						m_Arena.showMessage("MultiTraining stopped prematurely", "Warning",
 								JOptionPane.WARNING_MESSAGE);
 						break; // out of while
@@ -1069,6 +1360,9 @@ public class XArenaFuncs {
 				}
 			} // end while
 
+			if (asyncEvaluator != null)
+				asyncEvaluator.shutdown();		// wait for the last background evaluation (it completes mtList)
+
 			//
 			// things to do at the end of a training run:
 			//
@@ -1080,50 +1374,26 @@ public class XArenaFuncs {
 
 			// final evaluation:
 			eresQ = m_evaluatorQ.eval(qa);
-			oQ.add(eresQ.getResult());
-			if (doTrainEvaluation) {
+			if (doTrainEvaluation)
 				eresT = m_evaluatorT.eval(qa);
-				oT.add(eresT.getResult());
-			}
 
 			elapsedMs = (System.currentTimeMillis() - startTime);	// ms spent for final evaluation
 			pa.incrementDurationEvaluationMs(elapsedMs);
 			pa.setAgentState(PlayAgent.AgentState.TRAINED);
 
-			// print the full list mtList after finishing each run i
-			// (overwrites the file written from previous run i-1)
-			MTrain.printMultiTrainList(csvName, mtList, pa, m_Arena, userTitle1, userTitle2);
-
-			if (xab.m_arena.taskState != Arena.Task.MULTTRN) {
-				break; // out of for
-			}
-		} // for (i)
-
-		if (eresQ.getMode() != (-1))
-		// m_mode=-1 signals: 'no evaluation done' --> oT did not receive
-		// evaluation results
-		{
-			System.out.println("Avg. " + eresQ.getMsg() + frm3.format(oQ.getMean()) + " +- "
-					+ frm.format(oQ.getStd()));
+			return this;
 		}
-		if (doTrainEvaluation && eresT.getMode() != (-1))
-		// m_mode=-1 signals: 'no evaluation done' --> oT did not receive
-		// evaluation results
-		{
-			System.out.println("Avg. " + eresT.getMsg() + frm3.format(oT.getMean()) + " +- "
-					+ frm.format(oT.getStd()));
-		}
-		if (eresQ.getMode() == (-1)) {
-			this.lastMsg = "Warning: No evaluation done (Quick Eval Mode = -1)";
-		} else {
-			this.lastMsg = (eresQ.getMsg() + frm2.format(oQ.getMean()) + " +- "
-					+ frm1.format(oQ.getStd()) + "");
-		}
-
-		xab.setTrainNumber(trainNum);
-		return pa;
+	}
 
-	} // multiTrain
+	/**
+	 * Give agent {@code pa} of a concurrent training run its own random seed, drawn from {@link #rand}. Otherwise,
+	 * agents constructed within the same millisecond would share their seed {@code System.currentTimeMillis()}.
+	 */
+	public void seedRunAgent(PlayAgent pa) {
+		PlayAgent qa = pa.getWrappedPlayAgent();
+		if (qa instanceof NTuple4Base nb) nb.rand = new Random(rand.nextLong());
+		else if (qa instanceof NTupleBase nb) nb.rand = new Random(rand.nextLong());
+	}
 
 	// --- the generalization of old method compete() to arbitrary N players ---
 	/**
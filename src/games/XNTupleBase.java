@@ -16,7 +16,8 @@ import tools.Types;
  *      <li> {@link #getPositionValuesVector()},
  *      <li> {@link #instantiateAfterLoading()},
  *      <li> {@link #makeBoardVectorEachCellDifferent()},
- *      <li> {@link #symmetryVectors(StateObsWithBoardVector, int)} and
+ *      <li> {@link #symmetryVectors(StateObsWithBoardVector, int)},
+ *      <li> {@link #symmetryPermutations(int)} and
  *      <li> {@link #useActionMap()}
  *  </ul>
  *  from the interface {@link XNTupleFuncs}. All other methods are left as abstract methods.
@@ -31,6 +32,8 @@ abstract public class XNTupleBase implements Serializable, XNTupleFuncs {
     @Serial
     private static final long serialVersionUID = 42L;
 
+	private transient int[][][] permCache = null;	// permCache[n] caches permutationsFromSymmetryVectors(n)
+
     public XNTupleBase() {	}
 
 	/**
@@ -100,6 +103,69 @@ abstract public class XNTupleBase implements Serializable, XNTupleFuncs {
 	@Override
 	abstract public BoardVector[] symmetryVectors(BoardVector boardVector, int n);
 
+	/**
+	 * @return true, if the symmetries of {@code xnf} are computed from the {@link StateObservation} in
+	 * 		{@link #symmetryVectors(StateObsWithBoardVector, int)} and not from the board vector alone (e.g. RubiksCube,
+	 * 		Sim). Then a {@link StateObsWithBoardVector} without state can be used only if symmetries are off.
+	 */
+	public static boolean symmetriesNeedState(XNTupleFuncs xnf) {
+		try {
+			return xnf.getClass().getMethod("symmetryVectors", StateObsWithBoardVector.class, int.class)
+					.getDeclaringClass()!=XNTupleBase.class;
+		} catch (NoSuchMethodException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * The default implementation returns null, i.e. the symmetries are not known to be pure cell permutations.
+	 * Games whose {@link #symmetryVectors(BoardVector, int)} only permutes cells (rotations and reflections of the
+	 * board, as in TicTacToe, ConnectFour, Othello, Hex, Yavalath and 2048) should override this method and return
+	 * {@link #permutationsFromSymmetryVectors(int)}. Games which map cell values or pick symmetries at random keep
+	 * the default.
+	 */
+	@Override
+	public int[][] symmetryPermutations(int n) {
+		return null;
+	}
+
+	/**
+	 * Derive the permutation tables of {@link #symmetryPermutations(int)} by applying
+	 * {@link #symmetryVectors(BoardVector, int)} once to {@link #makeBoardVectorEachCellDifferent()}. The tables are
+	 * cached, so this is cheap after the first call.
+	 *
+	 * @param n number of symmetries (n=0 meaning 'all')
+	 * @return {@code perm} with {@code perm[s][j]} = the cell of the original board vector which is moved to cell
+	 * 		{@code j} by the {@code s}th symmetry
+	 */
+	protected int[][] permutationsFromSymmetryVectors(int n) {
+		if (permCache==null) permCache = new int[getNumSymmetries()+1][][];
+		if (permCache[n]==null) {
+			BoardVector[] sv = symmetryVectors(makeBoardVectorEachCellDifferent(), n);
+			int[][] perm = new int[sv.length][];
+			for (int s=0; s<sv.length; s++) perm[s] = sv[s].bvec.clone();
+			permCache[n] = perm;
+		}
+		return permCache[n];
+	}
+
+	/**
+	 * The default implementation returns null, i.e. the player roles are not known to be symmetric.
+	 */
+	@Override
+	public int[] playerValueMap(int player) {
+		return null;
+	}
+
+	/**
+	 * The default implementation returns false, i.e. there is no fused afterstate path.
+	 */
+	@Override
+	public boolean afterstate(StateObservation so, Types.ACTIONS act, boolean rewardIsGameScore, int[] bvec,
+							  double[] rewards) {
+		return false;
+	}
+
 	@Override
 	abstract public int[] symmetryActions(int actionKey);
 
@@ -8,6 +8,7 @@ import java.util.HashSet;
 import tools.Types.ACTIONS;
 
 import agentIO.LoadSaveGBG;
+import params.ParNT;
 import controllers.TD.ntuple2.TDNTuple3Agt;
 import controllers.TD.ntuple4.Sarsa4Agt;
 import controllers.TD.ntuple4.TDNTuple4Agt;
@@ -111,6 +112,49 @@ public interface XNTupleFuncs {
 	 * object in order to construct the symmetric board vectors.)
 	 */
 	BoardVector[] symmetryVectors(StateObsWithBoardVector curSOWB, int n);
+
+	/**
+	 * Optional capability for games whose symmetries are pure cell permutations: Then the value function can
+	 * compute the LUT indices of all symmetric board vectors directly from the original board vector, without
+	 * constructing the symmetric {@link BoardVector}s.
+	 *
+	 * @param n number of symmetries, with the same meaning as in {@link #symmetryVectors(BoardVector, int)}
+	 * @return {@code perm} with {@code perm.length = symmetryVectors(bv,n).length} and
+	 * 		{@code symmetryVectors(bv,n)[s].bvec[j] == bv.bvec[perm[s][j]]} for every board vector {@code bv}.
+	 * 		Null, if the symmetries of this game are not (only) cell permutations or if they are picked randomly.
+	 */
+	int[][] symmetryPermutations(int n);
+
+	/**
+	 * Optional capability for games whose player roles are symmetric under a color swap: Then all players can share
+	 * one set of n-tuple LUTs, if the board is seen from player 0's perspective (see {@link ParNT#getSharePlayers()}).
+	 *
+	 * @param player the player (0,...,N-1)
+	 * @return {@code map} with {@code map[v]} = the position value which a cell with value {@code v} has, if the
+	 * 		board is seen from player 0 instead of {@code player} (the identity for {@code player=0}).
+	 * 		Null, if the player roles of this game are not symmetric.
+	 */
+	int[] playerValueMap(int player);
+
+	/**
+	 * Optional capability for nondeterministic games with afterstate logic (see {@link ParNT#getAFTERSTATE()}):
+	 * Compute the afterstate which {@code so} reaches with the deterministic action {@code act} directly from
+	 * {@code so}'s board, without copying or changing {@code so} and without running the nondeterministic part.
+	 * <p>
+	 * Games implementing this compute their symmetric board vectors from the board vector alone (the afterstate
+	 * has no {@link StateObservation}), and their afterstates are never game over or round over.
+	 *
+	 * @param so	a state where the next action is deterministic
+	 * @param act	the deterministic action
+	 * @param rewardIsGameScore	see {@link StateObservation#getReward(int, boolean)}
+	 * @param bvec	receives the board vector of the afterstate (the same as {@link #getBoardVector(StateObservation)}
+	 * 				would return for it)
+	 * @param rewards	receives the cumulative reward {@link StateObservation#getReward(int, boolean)} for player
+	 * 				{@code so.getPlayer()} of the afterstate ({@code rewards[0]}) and of the state following it after
+	 * 				the nondeterministic part ({@code rewards[1]}, which must not depend on the random outcome)
+	 * @return false, if this game (or {@code so}) has no fused afterstate path. Then nothing is written.
+	 */
+	boolean afterstate(StateObservation so, ACTIONS act, boolean rewardIsGameScore, int[] bvec, double[] rewards);
 	
 	/**
 	 * Given a certain board array of symmetric (equivalent) states for state <b>{@code so}</b> 
@@ -64,8 +64,8 @@ public class EvaluatorYavalath extends Evaluator {
         m_PlayAgent = playAgent;
 
         if(diffStartList==null){
-            diffStartList = new ArrayList<>();
-            diffStartList = addAll1PlyStates(diffStartList);
+            // publish only the complete list (evaluators of parallel training runs share it):
+            diffStartList = addAll1PlyStates(new ArrayList<>());
         }
 
         switch(m_mode){
@@ -128,6 +128,11 @@ public class XNTupleFuncsYavalath extends XNTupleBase implements XNTupleFuncs, S
 
     }
 
+    @Override
+    public int[][] symmetryPermutations(int n) {
+        return permutationsFromSymmetryVectors(n);
+    }
+
     @Override
     public int[] symmetryActions(int actionKey) {
         return actionArray[actionKey];
@@ -16,7 +16,9 @@ import tools.Types;
  * these methods, static transposition tables {@code tabLeft} and {@code tabRight} are filled
  * which contain for each possible row value the resulting row. <br>
  * Likewise, static transposition tables {@code scoreLeft} and {@code scoreRight} are filled
- * which contain for each possible row value the resulting score. <p>
+ * which contain for each possible row value the resulting score. <br>
+ * The tables live in the lazy holder classes {@code Right} and {@code Left}: the JVM fills them once on first use,
+ * and a thread never sees a partially filled table. <p>
  *
  * This speeds up the calculation in {@link StateObservation#advance(Types.ACTIONS, java.util.Random)} by a
  * factor of 10 as compared to {@link StateObservation#advance(Types.ACTIONS, java.util.Random)}.
@@ -26,10 +28,40 @@ import tools.Types;
 class RowBitShift {
     int rowB;	// the four lowest hex digits (16 bit) of this 32-bit int are used
     int score=0;
-    static int[] tabRight = null;
-    static int[] tabLeft = null;
-    static int[] scoreRight = null;
-    static int[] scoreLeft = null;
+
+    /**
+     * Lazy holder of the transposition tables for the "right" action
+     */
+    private static final class Right {
+        static final int[] tabRight = new int[1 << 16];
+        static final int[] scoreRight = new int[1 << 16];
+        static {
+            RowBitShift rbs = new RowBitShift(0);
+            for (int i=0; i<tabRight.length; i++) {
+                rbs.rowB=i;
+                rbs.score=0;
+                tabRight[i]=rbs.rActionSlow().getRow();
+                scoreRight[i]=rbs.score;
+            }
+        }
+    }
+
+    /**
+     * Lazy holder of the transposition tables for the "left" action
+     */
+    private static final class Left {
+        static final int[] tabLeft = new int[1 << 16];
+        static final int[] scoreLeft = new int[1 << 16];
+        static {
+            RowBitShift rbs = new RowBitShift(0);
+            for (int i=0; i<tabLeft.length; i++) {
+                rbs.rowB=i;
+                rbs.score=0;
+                tabLeft[i]=rbs.lActionSlow().getRow();
+                scoreLeft[i]=rbs.score;
+            }
+        }
+    }
 
     public RowBitShift(int row) {
         this.rowB = row;
@@ -156,23 +188,10 @@ class RowBitShift {
      * @return the resulting row object
      */
     public RowBitShift rAction( ) {
-        if (tabRight==null) calcTabRight();
-        this.score = scoreRight[rowB];
-        this.rowB = tabRight[rowB];
+        this.score = Right.scoreRight[rowB];
+        this.rowB = Right.tabRight[rowB];
         return this;
     }
-    private void calcTabRight() {
-        int sz = (1 << 16);
-        tabRight = new int[sz];
-        scoreRight = new int[sz];
-        RowBitShift rbs = new RowBitShift(0);
-        for (int i=0; i<sz; i++) {
-            rbs.rowB=i;
-            rbs.score=0;
-            tabRight[i]=rbs.rActionSlow().getRow();
-            scoreRight[i]=rbs.score;
-        }
-    }
     private RowBitShift rActionSlow( ) {
         // remove the 'holes' (0-tiles) from left to right:
         for (int k=2; k>=0; k--)
@@ -192,23 +211,10 @@ class RowBitShift {
      * @return the resulting row object
      */
     public RowBitShift lAction( ) {
-        if (tabLeft==null) calcTabLeft();
-        this.score = scoreLeft[rowB];
-        this.rowB = tabLeft[rowB];
+        this.score = Left.scoreLeft[rowB];
+        this.rowB = Left.tabLeft[rowB];
         return this;
     }
-    private void calcTabLeft() {
-        int sz = (1 << 16);
-        tabLeft = new int[sz];
-        scoreLeft = new int[sz];
-        RowBitShift rbs = new RowBitShift(0);
-        for (int i=0; i<sz; i++) {
-            rbs.rowB=i;
-            rbs.score=0;
-            tabLeft[i]=rbs.lActionSlow().getRow();
-            scoreLeft[i]=rbs.score;
-        }
-    }
     private RowBitShift lActionSlow( ) {
         // remove the 'holes' (0-tiles) from right to left:
         for (int k=1; k<4; k++)
@@ -225,5 +231,23 @@ class RowBitShift {
     public int getRow() {
         return rowB;
     }
+
+    /**
+     * Same as {@link #rAction()} and {@link #lAction()}, but on a plain row value, without a RowBitShift object.
+     *
+     * @param row   the four lowest hex digits of the row (see {@link #getRow()})
+     * @param right true for a "right" action, false for a "left" action
+     * @return the resulting row
+     */
+    static int actionRow(int row, boolean right) {
+        return right ? Right.tabRight[row] : Left.tabLeft[row];
+    }
+
+    /**
+     * @return the score delta of {@link #actionRow(int, boolean) actionRow(row,right)}
+     */
+    static int actionScore(int row, boolean right) {
+        return right ? Right.scoreRight[row] : Left.scoreLeft[row];
+    }
 }
 
@@ -722,6 +722,45 @@ public class StateObserver2048 extends ObsNondetBase implements StateObsNondeter
         isNextActionDeterministic = false;
     }
 
+    /**
+     * The afterstate which {@link #advanceDeterministic(ACTIONS)} would produce, computed directly from
+     * {@code boardB} without copying or changing this state (see {@link XNTupleFuncs2048#afterstate}).
+     *
+     * @param action    the (deterministic) action, {@literal 0 > left, 1 > up, 2 > right, 3 > down}
+     * @param rewardIsGameScore see {@link #getReward(int, boolean)}
+     * @param bvec      receives the board vector of the afterstate (see {@link #getBoardVector()})
+     * @param rewards   receives the reward of the afterstate ([0]) and of the state after the random tile ([1])
+     */
+    public void afterstate(int action, boolean rewardIsGameScore, int[] bvec, double[] rewards) {
+        long b = boardB;
+        int sc = score;
+        boolean right = (action==2 || action==3);
+        for (int k=0; k<4; k++) {
+            if (action==0 || action==2) {
+                int row = rowOf(b, k);
+                b = withRow(b, RowBitShift.actionRow(row, right), k);
+                sc += RowBitShift.actionScore(row, right);
+            } else {
+                int col = colOf(b, k);
+                b = withCol(b, RowBitShift.actionRow(col, right), k);
+                sc += RowBitShift.actionScore(col, right);
+            }
+        }
+        int numEmpty = 0;
+        for (int n=15; n>=0; n--) {
+            bvec[n] = (int)(b & 0x000000000000000fL);
+            if (bvec[n]==0) numEmpty++;
+            b = b >> 4;
+        }
+        if (rewardIsGameScore) {
+            rewards[0] = rewards[1] = sc / MAXSCORE;
+        } else {
+            // as in updateEmptyTiles, which is called after the move and again after the random tile
+            rewards[0] = cumulEmptyTiles + numEmpty - 1;
+            rewards[1] = rewards[0] + numEmpty - 2;
+        }
+    }
+
     /**
      * Advance the current afterstate to a new state (do the nondeterministic part of advance)
      *
@@ -1096,24 +1135,26 @@ public class StateObserver2048 extends ObsNondetBase implements StateObsNondeter
         return this;
     }
 
+    private static final long[] ROW_MASK = {0xffffffffffff0000L,
+            0xffffffff0000ffffL,
+            0xffff0000ffffffffL,
+            0x0000ffffffffffffL};
+    private static final long[] COL_MASK = {0xfff0fff0fff0fff0L,
+            0xff0fff0fff0fff0fL,
+            0xf0fff0fff0fff0ffL,
+            0x0fff0fff0fff0fffL};
+
     /**
      * Returns the {@code k}th row of the board state
      * @param k one out of {3,2,1,0} where 0 is the lowest row
      * @return
      */
     private RowBitShift getRow(int k) {
-        long r = (boardB >> (16*k)) & 0x000000000000ffffL;
-        RowBitShift row = new RowBitShift((int) r);
-        return row;
+        return new RowBitShift(rowOf(boardB, k));
     }
 
     private StateObserver2048 putRow(RowBitShift row, int k) {
-        long[] andB = {0xffffffffffff0000L,
-                0xffffffff0000ffffL,
-                0xffff0000ffffffffL,
-                0x0000ffffffffffffL};
-        long r = ((long)row.getRow() << (16*k)) ;
-        boardB = (boardB & andB[k]) + r;
+        boardB = withRow(boardB, row.getRow(), k);
         return this;
     }
 
@@ -1124,32 +1165,55 @@ public class StateObserver2048 extends ObsNondetBase implements StateObsNondeter
      * @return
      */
     private RowBitShift getCol(int k) {
-        long btemp = (boardB >> (4*k));  // shift the column to get in row 0 to digit 0
+        return new RowBitShift(colOf(boardB, k));
+    }
+
+    private StateObserver2048 putCol(RowBitShift row, int k) {
+        boardB = withCol(boardB, row.getRow(), k);
+        return this;
+    }
+
+    /**
+     * @return the {@code k}th row of {@code board} (see {@link #getRow(int)})
+     */
+    private static int rowOf(long board, int k) {
+        return (int) ((board >> (16*k)) & 0x000000000000ffffL);
+    }
+
+    /**
+     * @return {@code board} with its {@code k}th row replaced by {@code row}
+     */
+    private static long withRow(long board, int row, int k) {
+        return (board & ROW_MASK[k]) + ((long)row << (16*k));
+    }
+
+    /**
+     * @return the {@code k}th column of {@code board} (see {@link #getCol(int)})
+     */
+    private static int colOf(long board, int k) {
+        long btemp = (board >> (4*k));  // shift the column to get in row 0 to digit 0
         long r = 0L;
         for (int j=3; j>=0; j--) {
             r = r << 4;
             r = r + ((btemp >> 16*j) & 0x000000000000000fL);
         }
-        RowBitShift row = new RowBitShift((int) r);
-        return row;
+        return (int) r;
     }
 
-    private StateObserver2048 putCol(RowBitShift row, int k) {
-        long[] andB = {0xfff0fff0fff0fff0L,
-                0xff0fff0fff0fff0fL,
-                0xf0fff0fff0fff0ffL,
-                0x0fff0fff0fff0fffL};
+    /**
+     * @return {@code board} with its {@code k}th column replaced by {@code row}
+     */
+    private static long withCol(long board, int row, int k) {
         long col = 0L;
         for (int j=3; j>=0; j--) {
             // shift one word (4 hex-digits) up and add the jth digit from row as lowest digit:
-            col = (col << 16) + row.d(j);
+            col = (col << 16) + ((row >> (4*j)) & 0x0f);
         }
-        // shift the digits from row to the locations (the '0's in the relevant andB[k]):
+        // shift the digits from row to the locations (the '0's in the relevant COL_MASK[k]):
         col = col << 4*k;
 
-        // add the boardB digits on all other places:
-        boardB = (boardB & andB[k]) + col;
-        return this;
+        // add the board digits on all other places:
+        return (board & COL_MASK[k]) + col;
     }
 
     /**
@@ -7,6 +7,7 @@ import games.BoardVector;
 import games.StateObservation;
 import games.XNTupleBase;
 import games.XNTupleFuncs;
+import tools.Types.ACTIONS;
 
 public class XNTupleFuncs2048 extends XNTupleBase implements XNTupleFuncs, Serializable {
 
@@ -112,6 +113,19 @@ public class XNTupleFuncs2048 extends XNTupleBase implements XNTupleFuncs, Seria
 		}
 	}
 	
+	/**
+	 * The afterstate is computed by {@link StateObserver2048#afterstate(int, boolean, int[], double[])} directly
+	 * from the board of {@code so}. Afterstates of 2048 are never game over, since {@code act} is one of the
+	 * available actions of {@code so}.
+	 */
+	@Override
+	public boolean afterstate(StateObservation so, ACTIONS act, boolean rewardIsGameScore, int[] bvec,
+							  double[] rewards) {
+		if (!(so instanceof StateObserver2048 so2048) || !so2048.isNextActionDeterministic()) return false;
+		so2048.afterstate(act.toInt(), rewardIsGameScore, bvec, rewards);
+		return true;
+	}
+
 	/**
 	 * Given a board vector from {@link #getBoardVector(StateObservation)} and given that the 
 	 * game has s symmetries, return an array which holds s symmetric board vectors: <ul>
@@ -140,6 +154,11 @@ public class XNTupleFuncs2048 extends XNTupleBase implements XNTupleFuncs, Seria
 		return symmetries;
 	}
 
+	@Override
+	public int[][] symmetryPermutations(int n) {
+		return permutationsFromSymmetryVectors(n);
+	}
+
 	/**
 	 * Given a certain board array of symmetric (equivalent) states for state <b>{@code so}</b> 
 	 * and a certain action to be taken in <b>{@code so}</b>, 
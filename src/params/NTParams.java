@@ -38,6 +38,23 @@ public class NTParams extends Frame implements Serializable {
 	private static final String TIPUSESYMMETRY = "If checked, use symmetries when training n-tuple agent";
 	private static final String TIPAFTERSTATE = "If checked, use afterstate logic [Jaskowski16] when training n-tuple agent";
 	private static final String TIPNSYMMETRY = "number of symmetries to use (0: all symmetries)";
+	private static final String TIPWEIGHTARENA = "If checked, store all n-tuple LUTs in one contiguous weight arena";
+	private static final String TIPINCREVAL = "If checked, evaluate successor states by incremental update of LUT indices (faster)";
+	private static final String TIPSPARSELUT = "<html>If checked, store n-tuple weights in hash tables holding only the visited entries (float).<br>"
+			+ "Allows much longer n-tuples. Not with TC or weight arena</html>";
+	private static final String TIPSPARSECAP = "max. number of entries per sparse LUT, rarely updated entries are evicted (0: unlimited)";
+	private static final String TIPSCOREKERNEL = "<html>If checked, calculate n-tuple values by a Vector API gather-sum kernel over the weight arena (faster).<br>"
+			+ "Only with --add-modules jdk.incubator.vector, weight arena and precision double or float</html>";
+	private static final String TIPTCLAZY = "<html>If checked, allocate the TC accumulators lazily in blocks on first update (less memory, faster loading).<br>"
+			+ "Only with TC immediate</html>";
+	private static final String TIPSHAREPLAYERS = "<html>If checked, all players share one set of LUTs (board seen from player 0 via a color swap).<br>"
+			+ "Only for games with symmetric player roles</html>";
+	private static final String TIPSHAREOUTPUTS = "<html>If checked, symmetric outputs (actions) share one set of LUTs (Sarsa, Q-learning).<br>"
+			+ "Only for games whose symmetries are cell permutations</html>";
+	private static final String TIPSTATSINTERVAL = "<html>Episodes between two rows of n-tuple update statistics in agents/csv/ntupleStats.csv<br>"
+			+ "(update counts, touched entries, mean |dW|, TC factor histogram). 0: off</html>";
+	private static final String TIPWEIGHTPREC = "<html>Storage precision of n-tuple weights: double, float or int16 (inference only).<br>"
+			+ "A trained agent is converted when fetched for training/saving or when loaded</html>";
 
 	private final static String[] tcFactorString = { "Immediate", "Accumulating" };
 	private final static String[] tcTransferString = { "id", "TC EXP" };
@@ -45,6 +62,7 @@ public class NTParams extends Frame implements Serializable {
 	private final static String[] ntTupleTypeString={"RandomWalk","RandomPoint"};
 	private final static String[] fixedTupleModeString={"1","2"};
 	private final static String[] plotWghtString = { "none", "wght distr", "tcFactor distr" };
+	private final static String[] weightPrecString = { "double", "float", "int16" };
 
 	/**
 	 * change the version ID for serialization only if a newer version is no longer 
@@ -70,6 +88,16 @@ public class NTParams extends Frame implements Serializable {
 	JLabel UseSymmetryL;
 	JLabel NSymL;
 	JLabel AfterStateL;
+	JLabel WeightArenaL;
+	JLabel WeightPrecL;
+	JLabel IncrEvalL;
+	JLabel SparseLutL;
+	JLabel SparseCapL;
+	JLabel ScoreKernelL;
+	JLabel TcLazyL;
+	JLabel SharePlayersL;
+	JLabel ShareOutputsL;
+	JLabel StatsIntervalL;
 
 	public JTextField tcInitT;
 	public JTextField tcIntervalT;
@@ -77,11 +105,20 @@ public class NTParams extends Frame implements Serializable {
 	public JTextField NTupleNumT;
 	public JTextField NTupleSizeT;
 	public JTextField NSymT;
+	public JTextField SparseCapT;
+	public JTextField StatsIntervalT;
 
 	public JCheckBox TempCoC;
 	public JCheckBox RandomnessC;
 	public JCheckBox UseSymmetryC;
 	public JCheckBox AfterStateC;
+	public JCheckBox WeightArenaC;
+	public JCheckBox IncrEvalC;
+	public JCheckBox ScoreKernelC;
+	public JCheckBox TcLazyC;
+	public JCheckBox SharePlayersC;
+	public JCheckBox ShareOutputsC;
+	public JCheckBox SparseLutC;
 
 	public JComboBox<String> tcFactorType;
 	public JComboBox<String> tcTransferType;
@@ -89,6 +126,7 @@ public class NTParams extends Frame implements Serializable {
 	public JComboBox<String> NTupleTypeCo;
 	public JComboBox<String> NTupleFixCo;
 	public JComboBox<String> PlotWghtCo;
+	public JComboBox<String> WeightPrecCo;
 
 	JPanel ntPanel;
 
@@ -126,6 +164,26 @@ public class NTParams extends Frame implements Serializable {
 		AfterStateL.setToolTipText(TIPAFTERSTATE);
 		NSymL = new JLabel("nSym");
 		NSymL.setToolTipText(TIPNSYMMETRY);
+		WeightArenaL = new JLabel("Weight arena");
+		WeightArenaL.setToolTipText(TIPWEIGHTARENA);
+		WeightPrecL = new JLabel("Weight precision");
+		WeightPrecL.setToolTipText(TIPWEIGHTPREC);
+		IncrEvalL = new JLabel("Incremental eval");
+		IncrEvalL.setToolTipText(TIPINCREVAL);
+		SparseLutL = new JLabel("Sparse LUT");
+		SparseLutL.setToolTipText(TIPSPARSELUT);
+		SparseCapL = new JLabel("Sparse cap");
+		SparseCapL.setToolTipText(TIPSPARSECAP);
+		ScoreKernelL = new JLabel("Score kernel");
+		ScoreKernelL.setToolTipText(TIPSCOREKERNEL);
+		TcLazyL = new JLabel("TC lazy");
+		TcLazyL.setToolTipText(TIPTCLAZY);
+		SharePlayersL = new JLabel("Share players");
+		SharePlayersL.setToolTipText(TIPSHAREPLAYERS);
+		ShareOutputsL = new JLabel("Share outputs");
+		ShareOutputsL.setToolTipText(TIPSHAREOUTPUTS);
+		StatsIntervalL = new JLabel("Stats interval");
+		StatsIntervalL.setToolTipText(TIPSTATSINTERVAL);
 		
 		// These are the initial defaults 
 		// (Other game- and agent-specific defaults are in setParamDefaults, which is called
@@ -156,6 +214,16 @@ public class NTParams extends Frame implements Serializable {
 		NSymT = new JTextField(0+"");
 		NSymT.setEnabled(false);
 		AfterStateC = new JCheckBox();
+		WeightArenaC = new JCheckBox();
+		IncrEvalC = new JCheckBox();
+		SparseLutC = new JCheckBox();
+		SparseLutC.addActionListener( e -> enableSparsePart() );
+		SparseCapT = new JTextField("0");
+		ScoreKernelC = new JCheckBox();
+		TcLazyC = new JCheckBox();
+		SharePlayersC = new JCheckBox();
+		ShareOutputsC = new JCheckBox();
+		StatsIntervalT = new JTextField("0");
 		
 		tcFactorType = new JComboBox<>(tcFactorString);
 		tcTransferType = new JComboBox<>(tcTransferString);
@@ -172,6 +240,8 @@ public class NTParams extends Frame implements Serializable {
 		NTupleFixCo.setEnabled(true); 
 		PlotWghtCo = new JComboBox<>(plotWghtString);
 		PlotWghtCo.setEnabled(true); 
+		WeightPrecCo = new JComboBox<>(weightPrecString);
+		WeightPrecCo.setEnabled(true);
 		
 		ntPanel = new JPanel();		// put the inner buttons into panel ntPanel. This panel
 									// can be handed over to a tab of a JTabbedPane object
@@ -225,8 +295,36 @@ public class NTParams extends Frame implements Serializable {
 		ntPanel.add(NTupleSizeT);
 		ntPanel.add(NSymL);
 		ntPanel.add(NSymT);
-//		ntPanel.add(new Canvas());
-//		ntPanel.add(new Canvas());
+
+		// eighth row
+		ntPanel.add(WeightArenaL);
+		ntPanel.add(WeightArenaC);
+		ntPanel.add(WeightPrecL);
+		ntPanel.add(WeightPrecCo);
+
+		// ninth row
+		ntPanel.add(IncrEvalL);
+		ntPanel.add(IncrEvalC);
+		ntPanel.add(SparseLutL);
+		ntPanel.add(SparseLutC);
+
+		// tenth row
+		ntPanel.add(SparseCapL);
+		ntPanel.add(SparseCapT);
+		ntPanel.add(ScoreKernelL);
+		ntPanel.add(ScoreKernelC);
+
+		// eleventh row
+		ntPanel.add(TcLazyL);
+		ntPanel.add(TcLazyC);
+		ntPanel.add(SharePlayersL);
+		ntPanel.add(SharePlayersC);
+
+		// twelfth row
+		ntPanel.add(ShareOutputsL);
+		ntPanel.add(ShareOutputsC);
+		ntPanel.add(StatsIntervalL);
+		ntPanel.add(StatsIntervalT);
 		
 		add(ntPanel,BorderLayout.CENTER);
 	
@@ -263,7 +361,21 @@ public class NTParams extends Frame implements Serializable {
 		NSymT.setEnabled(enable);
 		AfterStateC.setEnabled(enable);
 		AfterStateL.setEnabled(true);
+		WeightArenaC.setEnabled(enable);
+		WeightPrecCo.setEnabled(true);		// the weight precision may be changed for a trained agent as well
+		IncrEvalC.setEnabled(enable);
+		SparseLutC.setEnabled(enable);
+		SparseCapT.setEnabled(enable && getSparseLut());
+		ScoreKernelC.setEnabled(enable);
+		TcLazyC.setEnabled(enable && getTc() && getTcImm());
+		SharePlayersC.setEnabled(enable);
+		ShareOutputsC.setEnabled(enable);
+		StatsIntervalT.setEnabled(enable);
+
+	}
 
+	private void enableSparsePart() {
+		SparseCapT.setEnabled(SparseLutC.isEnabled() && getSparseLut());
 	}
 	
 	private void enableTcPart() {
@@ -280,6 +392,8 @@ public class NTParams extends Frame implements Serializable {
 			tcIntervalT.setEnabled(false);
 			tcBetaL.setEnabled(false);
 			tcBetaT.setEnabled(false);
+			TcLazyL.setEnabled(false);
+			TcLazyC.setEnabled(false);
 		}else{
 			tcInitL.setEnabled(true);
 			tcInitT.setEnabled(true);
@@ -300,9 +414,14 @@ public class NTParams extends Frame implements Serializable {
 		if(getTcImm()==false){
 			tcIntervalL.setEnabled(true);
 			tcIntervalT.setEnabled(true);
+			TcLazyL.setEnabled(false);
+			TcLazyC.setEnabled(false);
+			TcLazyC.setSelected(false);		// lazy TC accumulators require TC immediate
 		} else {
 			tcIntervalL.setEnabled(false);
 			tcIntervalT.setEnabled(false);
+			TcLazyL.setEnabled(true);
+			TcLazyC.setEnabled(true);
 		}					
 	}
 	
@@ -425,6 +544,39 @@ public class NTParams extends Frame implements Serializable {
 	public boolean getAFTERSTATE() {
 		return AfterStateC.isSelected();
 	}
+	public boolean getWeightArena() {
+		return WeightArenaC.isSelected();
+	}
+	/**
+	 * @return 	0: double, 1: float, 2: int16
+	 */
+	public int getWeightPrecision() {
+		return WeightPrecCo.getSelectedIndex();
+	}
+	public boolean getIncrementalEval() {
+		return IncrEvalC.isSelected();
+	}
+	public boolean getSparseLut() {
+		return SparseLutC.isSelected();
+	}
+	public int getSparseCap() {
+		return Integer.parseInt(SparseCapT.getText());
+	}
+	public boolean getScoreKernel() {
+		return ScoreKernelC.isSelected();
+	}
+	public boolean getTcLazy() {
+		return TcLazyC.isSelected();
+	}
+	public boolean getSharePlayers() {
+		return SharePlayersC.isSelected();
+	}
+	public boolean getShareOutputs() {
+		return ShareOutputsC.isSelected();
+	}
+	public int getStatsInterval() {
+		return Integer.parseInt(StatsIntervalT.getText());
+	}
 	
 	public int getNtupleNumber() {
 		return Integer.parseInt(NTupleNumT.getText());
@@ -499,6 +651,47 @@ public class NTParams extends Frame implements Serializable {
 	public void setAFTERSTATE(boolean useAfterstate) {
 		AfterStateC.setSelected(useAfterstate);
 	}
+
+	public void setWeightArena(boolean weightArena) {
+		WeightArenaC.setSelected(weightArena);
+	}
+
+	public void setWeightPrecision(int weightPrecision) {
+		WeightPrecCo.setSelectedIndex(weightPrecision);
+	}
+
+	public void setIncrementalEval(boolean incrementalEval) {
+		IncrEvalC.setSelected(incrementalEval);
+	}
+
+	public void setSparseLut(boolean sparseLut) {
+		SparseLutC.setSelected(sparseLut);
+		enableSparsePart();
+	}
+
+	public void setSparseCap(int sparseCap) {
+		SparseCapT.setText(""+sparseCap);
+	}
+
+	public void setScoreKernel(boolean scoreKernel) {
+		ScoreKernelC.setSelected(scoreKernel);
+	}
+
+	public void setTcLazy(boolean tcLazy) {
+		TcLazyC.setSelected(tcLazy && getTcImm());
+	}
+
+	public void setSharePlayers(boolean sharePlayers) {
+		SharePlayersC.setSelected(sharePlayers);
+	}
+
+	public void setShareOutputs(boolean shareOutputs) {
+		ShareOutputsC.setSelected(shareOutputs);
+	}
+
+	public void setStatsInterval(int statsInterval) {
+		StatsIntervalT.setText(""+statsInterval);
+	}
 	
 	public void setNtupleNumber(int numTuple) {
 		NTupleNumT.setText(""+numTuple);
@@ -542,6 +735,16 @@ public class NTParams extends Frame implements Serializable {
 		setFixedNtupleMode(nt.getFixedNtupleMode());
 		setUSESYMMETRY(nt.getUSESYMMETRY());
 		setAFTERSTATE(nt.getAFTERSTATE());
+		setWeightArena(nt.getWeightArena());
+		setWeightPrecision(nt.getWeightPrecision());
+		setIncrementalEval(nt.getIncrementalEval());
+		setSparseLut(nt.getSparseLut());
+		setSparseCap(nt.getSparseCap());
+		setScoreKernel(nt.getScoreKernel());
+		setTcLazy(nt.getTcLazy());
+		setSharePlayers(nt.getSharePlayers());
+		setShareOutputs(nt.getShareOutputs());
+		setStatsInterval(nt.getStatsInterval());
 
 		enableAfterState(nt.getAFTERSTATE());
 		enableTcTransferPart();
@@ -569,6 +772,16 @@ public class NTParams extends Frame implements Serializable {
 		setUSESYMMETRY(nt.getUSESYMMETRY());
 		setNSym(nt.getNSym());
 		setAFTERSTATE(nt.getAFTERSTATE());
+		setWeightArena(nt.getWeightArena());
+		setWeightPrecision(nt.getWeightPrecision());
+		setIncrementalEval(nt.getIncrementalEval());
+		setSparseLut(nt.getSparseLut());
+		setSparseCap(nt.getSparseCap());
+		setScoreKernel(nt.getScoreKernel());
+		setTcLazy(nt.getTcLazy());
+		setSharePlayers(nt.getSharePlayers());
+		setShareOutputs(nt.getShareOutputs());
+		setStatsInterval(nt.getStatsInterval());
 		
 		enableAfterState(nt.getAFTERSTATE());
 		enableTcTransferPart();
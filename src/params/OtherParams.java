@@ -2,6 +2,7 @@ package params;
 
 import java.awt.BorderLayout;
 import java.awt.Button;
+import java.awt.Canvas;
 import java.awt.Checkbox;
 import java.awt.Frame;
 import java.awt.GridLayout;
@@ -44,6 +45,7 @@ import games.RubiksCube.GameBoardCube;
  * start state ({@code false}, or to start 50% from default, 50% from a random
  * 1-ply state ({@code true}
  * <li><b>Learn from RM</b>: [false] whether to learn from random moves or not
+ * <li><b>Train threads</b>: [1] number of worker threads for self-play training (only TD-Ntuple-4)
  * </ul>
  * 
  * @see games.XArenaButtons
@@ -75,6 +77,9 @@ public class OtherParams extends Frame {
 	JLabel pMax_L;
 	JLabel rBuf_L;
 	JLabel aState_L;
+	JLabel trThreads_L;
+	JLabel asyncEval_L;
+	JLabel actRefresh_L;
 	public JTextField numEval_T;
 	public JTextField epiLeng_T;
 	public JTextField stopTest_T;
@@ -85,10 +90,13 @@ public class OtherParams extends Frame {
 	public JTextField wMCTSdepth_T;
 	public JTextField pMin_T;
 	public JTextField pMax_T;
+	public JTextField trThreads_T;
+	public JTextField actRefresh_T;
 	public Checkbox chooseS01;
 	public Checkbox learnRM;
 	public Checkbox rewardIsGameScore;
 	public Checkbox replayBuf;
+	public Checkbox asyncEval;
 	public JLabel agentState;
 
 	Button ok;
@@ -116,6 +124,8 @@ public class OtherParams extends Frame {
 		wMCTSdepth_T = new JTextField("-1"); 		//
 		pMin_T = new JTextField("1");		//
 		pMax_T = new JTextField("6");		//
+		trThreads_T = new JTextField("1");	//
+		actRefresh_T = new JTextField("0");	//
 		numEval_L = new JLabel("numEval");
 		epiLeng_L = new JLabel("Episode Length");
 		stopTest_L = new JLabel("stopTest");
@@ -131,6 +141,10 @@ public class OtherParams extends Frame {
 		pMax_L = new JLabel("pMax");
 		rBuf_L = new JLabel("Replay buffer");
 		aState_L = new JLabel("Agent state");
+		trThreads_L = new JLabel("Train threads");
+		asyncEval_L = new JLabel("Async eval");
+		actRefresh_L = new JLabel("Actor refresh");
+		asyncEval = new Checkbox("", false);
 		chooseS01 = new Checkbox("", false);
 		learnRM = new Checkbox("", false);
 		replayBuf = new Checkbox("", false);
@@ -166,6 +180,12 @@ public class OtherParams extends Frame {
 				"RubiksCube: max. number of initial twists (during traing and eval)");
 		rBuf_L.setToolTipText(
 				"RubiksCube: use replay buffer during training");
+		trThreads_L.setToolTipText(
+				"<html>Number of worker threads for self-play training on shared weights <br>(only TD-Ntuple-4, 1: sequential)</html>");
+		asyncEval_L.setToolTipText(
+				"<html>Run the evaluations during training on a weight snapshot in a background thread, <br>while training continues (only n-tuple agents)</html>");
+		actRefresh_L.setToolTipText(
+				"<html>&gt;0: actor-learner training: 'Train threads' actors play with a weight snapshot refreshed <br>every this many episodes, one learner updates the weights (only TD-Ntuple-4, Sarsa-4, DAVI3). 0: off</html>");
 
 		// this.setQuickEvalMode(0);
 		// this.setTrainEvalMode(0);
@@ -259,6 +279,12 @@ public class OtherParams extends Frame {
 		}
 		oPanel.add(aState_L);
 		oPanel.add(agentState);
+		oPanel.add(trThreads_L);
+		oPanel.add(trThreads_T);
+		oPanel.add(asyncEval_L);
+		oPanel.add(asyncEval);
+		oPanel.add(actRefresh_L);
+		oPanel.add(actRefresh_T);
 
 		add(oPanel, BorderLayout.CENTER);
 		add(ok, BorderLayout.SOUTH);
@@ -391,6 +417,18 @@ public class OtherParams extends Frame {
 		return rewardIsGameScore.getState();
 	}
 
+	public int getNumTrainThreads() {
+		return Integer.parseInt(trThreads_T.getText());
+	}
+
+	public boolean getAsyncEval() {
+		return asyncEval.getState();
+	}
+
+	public int getActorRefresh() {
+		return Integer.parseInt(actRefresh_T.getText());
+	}
+
 	public AgentState getAgentState() {
 		AgentState as =
 				switch(agentState.getText()) {
@@ -495,6 +533,18 @@ public class OtherParams extends Frame {
 		rewardIsGameScore.setState(bRGS);
 	}
 
+	public void setNumTrainThreads(int value) {
+		trThreads_T.setText(value + "");
+	}
+
+	public void setAsyncEval(boolean bAsync) {
+		asyncEval.setState(bAsync);
+	}
+
+	public void setActorRefresh(int value) {
+		actRefresh_T.setText(value + "");
+	}
+
 	public void setAgentState(AgentState as) {
 		switch (as) {
 			case RAW -> agentState.setText("RAW");
@@ -531,6 +581,9 @@ public class OtherParams extends Frame {
 		this.replayBuf.setState(op.getReplayBuffer());
 		this.rewardIsGameScore.setState(op.getRewardIsGameScore());
 		this.setAgentState(op.getAgentState());
+		this.setNumTrainThreads(op.getNumTrainThreads());
+		this.asyncEval.setState(op.getAsyncEval());
+		this.setActorRefresh(op.getActorRefresh());
 
 		// only for RubiksCube:
 		// if pMax is changed via fillParamTabsAfterLoading, set also the corresponding element in GameBoardCubeGUI
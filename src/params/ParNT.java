@@ -44,6 +44,16 @@ public class ParNT implements Serializable {
     private boolean useSymmetry = true;
     private int nSym= 0;							// 0: use all symmetries, if useSymmetry==true
     private boolean afterState = false;
+    private boolean weightArena = false;			// true: all LUTs of a value function in one contiguous array
+    private int weightPrecision = 0;				// 0: double, 1: float, 2: int16 (inference only)
+    private boolean incrementalEval = false;		// true: evaluate successor states by incremental LUT index updates
+    private boolean sparseLut = false;				// true: n-tuple weights in hash tables (only visited entries)
+    private int sparseCap = 0;						// max. entries per sparse LUT (0: unlimited)
+    private boolean scoreKernel = false;			// true: score via gather-sum kernel over the weight arena
+    private boolean tcLazy = false;					// true: TC accumulators allocated lazily in blocks
+    private boolean sharePlayers = false;			// true: all players share one LUT set (color swap)
+    private boolean shareOutputs = false;			// true: symmetric outputs share one LUT set
+    private int statsInterval = 0;					// episodes between two rows of n-tuple update statistics (0: off)
     
     /**
      * This member is only constructed when the constructor {@link #ParNT(boolean) ParNT(boolean withUI)} 
@@ -89,6 +99,16 @@ public class ParNT implements Serializable {
 		this.useSymmetry = nt.getUSESYMMETRY();
 		this.nSym = nt.getNSym();
 		this.afterState = nt.getAFTERSTATE();
+		this.weightArena = nt.getWeightArena();
+		this.weightPrecision = nt.getWeightPrecision();
+		this.incrementalEval = nt.getIncrementalEval();
+		this.sparseLut = nt.getSparseLut();
+		this.sparseCap = nt.getSparseCap();
+		this.scoreKernel = nt.getScoreKernel();
+		this.tcLazy = nt.getTcLazy() && this.tcImm;	// lazy TC accumulators require TC immediate
+		this.sharePlayers = nt.getSharePlayers();
+		this.shareOutputs = nt.getShareOutputs();
+		this.statsInterval = nt.getStatsInterval();
 
 		if (ntparams!=null)
 			ntparams.setFrom(this);
@@ -110,6 +130,16 @@ public class ParNT implements Serializable {
 		this.useSymmetry = nt.getUSESYMMETRY();
 		this.nSym = nt.getNSym();
 		this.afterState = nt.getAFTERSTATE();
+		this.weightArena = nt.getWeightArena();
+		this.weightPrecision = nt.getWeightPrecision();
+		this.incrementalEval = nt.getIncrementalEval();
+		this.sparseLut = nt.getSparseLut();
+		this.sparseCap = nt.getSparseCap();
+		this.scoreKernel = nt.getScoreKernel();
+		this.tcLazy = nt.getTcLazy() && this.tcImm;	// lazy TC accumulators require TC immediate
+		this.sharePlayers = nt.getSharePlayers();
+		this.shareOutputs = nt.getShareOutputs();
+		this.statsInterval = nt.getStatsInterval();
 
 		if (ntparams!=null)
 			ntparams.setFrom(this);
@@ -198,6 +228,100 @@ public class ParNT implements Serializable {
 		return afterState;
 	}
 
+	/**
+	 * @return true, if all n-tuple LUTs of a value function shall live in one contiguous weight arena (better cache
+	 * 		locality, fewer heap objects). False: each n-tuple owns its LUT.
+	 */
+	public boolean getWeightArena() {
+		return weightArena;
+	}
+
+	/**
+	 * @return the storage precision of the n-tuple weights: 0: double, 1: float (half the memory, suitable for
+	 * 		training), 2: int16 with a per-tuple scale (a quarter of the memory, inference only). Agents stored
+	 * 		before this parameter existed have 0.
+	 */
+	public int getWeightPrecision() {
+		return weightPrecision;
+	}
+
+	/**
+	 * @return true, if the successor states in {@code getNextAction2} shall be evaluated incrementally: the LUT
+	 * 		indices of the current state are calculated once and for each successor only the indices affected by
+	 * 		changed cells are updated. Yields the same values, but is faster. Only effective for games whose
+	 * 		symmetries are cell permutations (or if USESYMMETRY is off).
+	 */
+	public boolean getIncrementalEval() {
+		return incrementalEval;
+	}
+
+	/**
+	 * @return true, if the n-tuple weights are stored in sparse hash tables which hold only the visited LUT entries
+	 * 		(see {@link controllers.TD.ntuple4.SparseLUT}). This allows n-tuples whose full LUT would be much too
+	 * 		large. Weights are stored as float, TC and weight arenas are not available in this mode.
+	 */
+	public boolean getSparseLut() {
+		return sparseLut;
+	}
+
+	/**
+	 * @return the maximum number of entries per sparse LUT (0: unlimited). If a sparse LUT is full, rarely
+	 * 		updated entries are evicted.
+	 */
+	public int getSparseCap() {
+		return sparseCap;
+	}
+
+	/**
+	 * @return true, if n-tuple values shall be calculated by a gather-sum kernel over the weight arena, which
+	 * 		precomputes the cells and strides of all n-tuples and symmetries in flat tables and calculates the LUT
+	 * 		indices with the JDK Vector API (see {@link controllers.TD.ntuple4.LutIndexer}). Yields the same values.
+	 * 		Only effective if the JVM runs with {@code --add-modules jdk.incubator.vector}, with weight arena,
+	 * 		double or float precision and for games whose symmetries are cell permutations (or if USESYMMETRY is
+	 * 		off). Otherwise the values are calculated as without kernel.
+	 */
+	public boolean getScoreKernel() {
+		return scoreKernel;
+	}
+
+	/**
+	 * @return true, if the TC accumulators N, A and tcFactor shall be allocated lazily in blocks (on the first
+	 * 		update of an entry in the block) instead of full-size arrays for every LUT. Saves memory and makes loading
+	 * 		an agent cheap, if only a part of the LUTs is visited. Only with TC immediate.
+	 */
+	public boolean getTcLazy() {
+		return tcLazy;
+	}
+
+	/**
+	 * @return true, if all players shall share one set of LUTs: the board is seen from player 0's perspective by
+	 * 		remapping its position values (see {@link games.XNTupleFuncs#playerValueMap(int)}). Cuts the number of
+	 * 		weights by the number of players. Only for games whose player roles are symmetric under a color swap.
+	 */
+	public boolean getSharePlayers() {
+		return sharePlayers;
+	}
+
+	/**
+	 * @return true, if the outputs (actions) of a Q-learning agent which are equivalent under the game symmetries
+	 * 		shall share one set of LUTs: the output is evaluated as the representative output of its symmetry class
+	 * 		on the correspondingly transformed board. Only for games whose symmetries are cell permutations.
+	 */
+	public boolean getShareOutputs() {
+		return shareOutputs;
+	}
+
+	/**
+	 * @return the number of training episodes between two rows of the n-tuple update statistics (update counts,
+	 * 		touched entries, mean |dW|, TC factor histogram), which are appended to
+	 * 		{@code agents/csv/}{@link tools.Types#WEIGHTSTATS_FILENAME}. 0: no statistics.
+	 *
+	 * @see controllers.TD.ntuple4.NTuple4ValueFunc#appendWeightStats(String, long)
+	 */
+	public int getStatsInterval() {
+		return statsInterval;
+	}
+
 	public int getPlotWeightMethod() {
 		if (ntparams!=null)
 			return ntparams.getPlotWeightMethod();
@@ -218,6 +342,7 @@ public class ParNT implements Serializable {
 
 	public void setTcImm(boolean tcImm) {
 		this.tcImm = tcImm;
+		if (!tcImm) setTcLazy(false);
 		if (ntparams!=null)
 			ntparams.setTcImm(tcImm);
 	}
@@ -285,6 +410,71 @@ public class ParNT implements Serializable {
 		this.afterState = afterState;
 	}
 
+	public void setWeightArena(boolean weightArena) {
+		this.weightArena = weightArena;
+		if (ntparams!=null)
+			ntparams.setWeightArena(weightArena);
+	}
+
+	public void setWeightPrecision(int weightPrecision) {
+		this.weightPrecision = weightPrecision;
+		if (ntparams!=null)
+			ntparams.setWeightPrecision(weightPrecision);
+	}
+
+	public void setIncrementalEval(boolean incrementalEval) {
+		this.incrementalEval = incrementalEval;
+		if (ntparams!=null)
+			ntparams.setIncrementalEval(incrementalEval);
+	}
+
+	public void setSparseLut(boolean sparseLut) {
+		this.sparseLut = sparseLut;
+		if (ntparams!=null)
+			ntparams.setSparseLut(sparseLut);
+	}
+
+	public void setSparseCap(int sparseCap) {
+		this.sparseCap = sparseCap;
+		if (ntparams!=null)
+			ntparams.setSparseCap(sparseCap);
+	}
+
+	public void setScoreKernel(boolean scoreKernel) {
+		this.scoreKernel = scoreKernel;
+		if (ntparams!=null)
+			ntparams.setScoreKernel(scoreKernel);
+	}
+
+	/**
+	 * @param tcLazy	lazy TC accumulators, only allowed with TC immediate (see {@link #getTcImm()})
+	 */
+	public void setTcLazy(boolean tcLazy) {
+		if (tcLazy && !tcImm)
+			throw new RuntimeException("[ParNT] TC lazy requires TC immediate (tcImm==true)");
+		this.tcLazy = tcLazy;
+		if (ntparams!=null)
+			ntparams.setTcLazy(tcLazy);
+	}
+
+	public void setSharePlayers(boolean sharePlayers) {
+		this.sharePlayers = sharePlayers;
+		if (ntparams!=null)
+			ntparams.setSharePlayers(sharePlayers);
+	}
+
+	public void setShareOutputs(boolean shareOutputs) {
+		this.shareOutputs = shareOutputs;
+		if (ntparams!=null)
+			ntparams.setShareOutputs(shareOutputs);
+	}
+
+	public void setStatsInterval(int statsInterval) {
+		this.statsInterval = statsInterval;
+		if (ntparams!=null)
+			ntparams.setStatsInterval(statsInterval);
+	}
+
 	/**
 	 * Set sensible parameters for a specific agent and specific game. By "sensible
 	 * parameters" we mean parameter producing good results.
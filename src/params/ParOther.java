@@ -8,7 +8,9 @@ import javax.swing.JPanel;
 import controllers.PlayAgent.AgentState;
 import controllers.TD.ntuple2.SarsaAgt;
 import controllers.TD.ntuple2.TDNTuple3Agt;
+import controllers.TD.ntuple4.TDNTuple4Agt;
 import games.Arena;
+import games.StateObservation;
 
 /**
  *  Other parameters for all agents 
@@ -32,6 +34,8 @@ public class ParOther implements Serializable {
 	public static int DEFAULT_WRAPPER_MCTS_DEPTH = 100;
 	public static int DEFAULT_PMIN_RUBIKS = 1;
     public static int DEFAULT_PMAX_RUBIKS = 6;
+    public static int DEFAULT_NUM_TRAIN_THREADS = 1;
+    public static int DEFAULT_ACTOR_REFRESH = 0;
 
     private int quickEvalMode = DEFAULT_QUICK_EVAL_MODE;
     private int trainEvalMode = DEFAULT_TRAIN_EVAL_MODE;
@@ -48,6 +52,9 @@ public class ParOther implements Serializable {
     private boolean rewardIsGameScore = true;
     private AgentState aState = AgentState.RAW;
     private String agtFile = null;
+    private int numTrainThreads = DEFAULT_NUM_TRAIN_THREADS;	// >1: parallel self-play training (only TDNTuple4Agt)
+    private boolean asyncEval = false;	// evaluate a weight snapshot in a background thread during training
+    private int actorRefresh = DEFAULT_ACTOR_REFRESH;	// >0: actor-learner training, snapshot refresh interval
 
     // These elements should become obsolete on the long run, they are now replaced by parameters in ParWrapper.
 	// But we keep them for some transient time to correctly load older agents which had ParWrapper wrPar==null
@@ -109,6 +116,9 @@ public class ParOther implements Serializable {
 		this.incAmount = op.getIncAmount();
 		this.rewardIsGameScore = op.getRewardIsGameScore();
 		this.aState = op.getAgentState();
+		this.numTrainThreads = op.getNumTrainThreads();
+		this.asyncEval = op.getAsyncEval();
+		this.actorRefresh = op.getActorRefresh();
 
 		if (otparams!=null)
 			otparams.setFrom(this);
@@ -133,6 +143,9 @@ public class ParOther implements Serializable {
 		this.incAmount = op.getIncAmount();
 		this.rewardIsGameScore = op.getRewardIsGameScore();
 		this.aState = op.getAgentState();
+		this.numTrainThreads = op.getNumTrainThreads();
+		this.asyncEval = op.getAsyncEval();
+		this.actorRefresh = op.getActorRefresh();
 		
 		if (otparams!=null)
 			otparams.setFrom(this);
@@ -228,6 +241,34 @@ public class ParOther implements Serializable {
 		return agtFile;
 	}
 
+	/**
+	 * @return number of worker threads for self-play training. Values &gt; 1 let {@link TDNTuple4Agt} train
+	 * 		with several threads on shared weights (see {@link TDNTuple4Agt#trainAgentParallel(StateObservation[], int)}).
+	 * 		0 (agents stored before this parameter existed) or 1: sequential training.
+	 */
+	public int getNumTrainThreads() {
+		return numTrainThreads;
+	}
+
+	/**
+	 * @return whether the evaluations during training (every numEval episodes) run in a background thread on a
+	 * 		frozen snapshot of the agent while training continues (see {@link controllers.PlayAgent#getSnapshot()}). Agents
+	 * 		without snapshot support are evaluated synchronously as before.
+	 */
+	public boolean getAsyncEval() {
+		return asyncEval;
+	}
+
+	/**
+	 * @return values &gt; 0 let n-tuple agents ({@link TDNTuple4Agt}, Sarsa4Agt, DAVI3Agent) train in actor-learner
+	 * 		mode: {@link #getNumTrainThreads()} actor threads play with a weight snapshot, which is refreshed every
+	 * 		{@code actorRefresh} episodes, and one learner thread updates the weights (see
+	 * 		{@link controllers.TD.ntuple4.ActorLearner}). 0: no actor-learner training.
+	 */
+	public int getActorRefresh() {
+		return actorRefresh;
+	}
+
 	public void setAgentFile(String aFile) {
 		this.agtFile = aFile;
 	}
@@ -354,6 +395,24 @@ public class ParOther implements Serializable {
 			otparams.setAgentState(as);
 	}
 
+	public void setNumTrainThreads(int num) {
+		this.numTrainThreads=num;
+		if (otparams!=null)
+			otparams.setNumTrainThreads(num);
+	}
+
+	public void setAsyncEval(boolean bAsync) {
+		this.asyncEval=bAsync;
+		if (otparams!=null)
+			otparams.setAsyncEval(bAsync);
+	}
+
+	public void setActorRefresh(int num) {
+		this.actorRefresh=num;
+		if (otparams!=null)
+			otparams.setActorRefresh(num);
+	}
+
 
 	/**
 	 * Set sensible parameters for a specific agent and specific game. By "sensible
@@ -4,6 +4,7 @@ import controllers.TD.TDAgent;
 import controllers.TD.ntuple4.TDNTuple4Agt;
 import controllers.TD.ntuple4.NTuple4Base;
 import games.Arena;
+import tools.Types;
 
 import javax.swing.*;
 import java.io.Serial;
@@ -23,12 +24,20 @@ public class ParRB implements Serializable {
     public static int DEFAULT_CAPACITY = 200;
     public static int DEFAULT_BATCHSIZE = 1;
     public static int DEFAULT_COMBOBOXES = 0; // used for entry based on index;
+    public static int DEFAULT_BUFFERTYPE = 0;
+    public static double DEFAULT_PER_ALPHA = 0.6;
+    public static double DEFAULT_PER_BETA = 0.4;
+    public static String DEFAULT_BUFFERDIR = Types.GUI_DEFAULT_DIR_AGENT + "/replayBuffer";
 
     private int capacity = DEFAULT_CAPACITY;
     private boolean useRB = DEFAULT_USERB;
     private int batchSize = DEFAULT_BATCHSIZE;
     private int selector = DEFAULT_COMBOBOXES;
     private int pusher = DEFAULT_COMBOBOXES;
+    private int bufferType = DEFAULT_BUFFERTYPE;
+    private double perAlpha = DEFAULT_PER_ALPHA;
+    private double perBeta = DEFAULT_PER_BETA;
+    private String bufferDir = DEFAULT_BUFFERDIR;
 
     private transient RBParams RBparams = null;
 
@@ -61,6 +70,10 @@ public class ParRB implements Serializable {
         this.batchSize = ep.getBatchSize();
         this.selector = ep.getSelectorV();
         this.pusher = ep.getPusherV();
+        this.bufferType = ep.getBufferType();
+        this.perAlpha = ep.getPerAlpha();
+        this.perBeta = ep.getPerBeta();
+        this.bufferDir = ep.getBufferDir();
         if (RBparams!=null)
             RBparams.setFrom(this);
     }
@@ -71,6 +84,10 @@ public class ParRB implements Serializable {
         this.batchSize = ep.getBatchSize();
         this.selector = ep.getSelector();
         this.pusher = ep.getPusher();
+        this.bufferType = ep.getBufferType();
+        this.perAlpha = ep.getPerAlpha();
+        this.perBeta = ep.getPerBeta();
+        this.bufferDir = ep.getBufferDir();
         if (RBparams!=null)
             RBparams.setFrom(this);
     }
@@ -123,6 +140,71 @@ public class ParRB implements Serializable {
         }
     }
 
+    /**
+     * @return the storage of the replay buffer: 0 = "Objects" (one transition object with state copies per
+     * transition, {@link controllers.ReplayBuffer.Buffer.BaseBuffer}), 1 = "Columnar" (board vectors in primitive
+     * arrays, {@link controllers.ReplayBuffer.Buffer.ColumnarBuffer}), 2 = "Mapped" (as "Columnar", but in
+     * memory-mapped files in {@link #getBufferDir()}, {@link controllers.ReplayBuffer.Buffer.MappedBuffer}). Agents
+     * fall back to "Objects", if the game's symmetries need the state.
+     */
+    public int getBufferType() {
+        return bufferType;
+    }
+
+    public void setBufferType(int i) {
+        this.bufferType = i;
+        if (RBparams!=null)
+            RBparams.setBufferType(i);
+    }
+
+    /**
+     * @return the priority exponent alpha of the selector "Prioritized": a transition is sampled with probability
+     * proportional to {@code (|TD error| + eps)^alpha}, alpha=0 is uniform sampling
+     */
+    public double getPerAlpha() {
+        return perAlpha;
+    }
+
+    public void setPerAlpha(double d) {
+        this.perAlpha = d;
+        if (RBparams!=null)
+            RBparams.setPerAlpha(d);
+    }
+
+    /**
+     * @return the importance sampling exponent beta of the selector "Prioritized": each update is weighted with
+     * {@code (N*P(i))^(-beta)}, beta=0 is no correction of the sampling bias, beta=1 is full correction
+     */
+    public double getPerBeta() {
+        return perBeta;
+    }
+
+    public void setPerBeta(double d) {
+        this.perBeta = d;
+        if (RBparams!=null)
+            RBparams.setPerBeta(d);
+    }
+
+    /**
+     * @return the parent directory of the segment files for buffer type "Mapped". Each agent gets its own
+     * subdirectory, which is saved with the agent. A loaded agent continues with the transitions stored there.
+     * <p>
+     * Disk cost: each subdirectory takes the full capacity, about {@code capacity * (10 + 2*cells)} bytes with one
+     * byte per cell (e.g. 1.4 GB for a capacity of 10<sup>7</sup> on Othello with next boards). The subdirectory of an
+     * agent which was never saved is deleted, when its buffer is closed or - once it is no longer in use - when a new
+     * agent of the same name creates its subdirectory. The subdirectories of saved agents stay until they are deleted
+     * by hand.
+     */
+    public String getBufferDir() {
+        return (bufferDir==null) ? DEFAULT_BUFFERDIR : bufferDir;	// null: loaded from an older agent
+    }
+
+    public void setBufferDir(String s) {
+        this.bufferDir = s;
+        if (RBparams!=null)
+            RBparams.setBufferDir(s);
+    }
+
     public void setCapacity(int num) {
         this.capacity=num;
         if (RBparams!=null)
@@ -155,6 +237,9 @@ public class ParRB implements Serializable {
                 this.setBatchSize(1);
                 this.setPusher(0);
                 this.setSelector(0);
+                this.setBufferType(0);
+                this.setPerAlpha(DEFAULT_PER_ALPHA);
+                this.setPerBeta(DEFAULT_PER_BETA);
                 break;
         }
     }
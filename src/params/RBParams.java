@@ -16,15 +16,25 @@ public class RBParams extends Frame{
     JLabel batchSize_L;
     JLabel pusher_L;
     JLabel selector_L;
+    JLabel bufferType_L;
+    JLabel perAlpha_L;
+    JLabel perBeta_L;
+    JLabel bufferDir_L;
 
     public Checkbox useRP_T;
     public JTextField capacity_T;
     public JTextField batchSize_T;
+    public JTextField perAlpha_T;
+    public JTextField perBeta_T;
+    public JTextField bufferDir_T;
     private final String[] pushers = new String[]{"All"};
     public JComboBox<String> pusher_cb;
 
     public JComboBox<String> selector_cb;
-    private final String[] selectors = new String[]{"Random"};
+    private final String[] selectors = new String[]{"Random","Prioritized"};
+
+    public JComboBox<String> bufferType_cb;
+    private final String[] bufferTypes = new String[]{"Objects","Columnar","Mapped"};
 
     Button ok;
     JPanel ePanel;
@@ -44,9 +54,20 @@ public class RBParams extends Frame{
         selector_L = new JLabel("Selector");
         selector_cb = new JComboBox<>(selectors);
 
+        perAlpha_L = new JLabel("PER alpha");
+        perAlpha_T = new JTextField(ParRB.DEFAULT_PER_ALPHA+"");
+        perBeta_L = new JLabel("PER beta");
+        perBeta_T = new JTextField(ParRB.DEFAULT_PER_BETA+"");
+
+        bufferDir_L = new JLabel("Buffer dir");
+        bufferDir_T = new JTextField(ParRB.DEFAULT_BUFFERDIR);
+
         pusher_L = new JLabel("Pusher");
         pusher_cb = new JComboBox<>(pushers);
 
+        bufferType_L = new JLabel("Storage");
+        bufferType_cb = new JComboBox<>(bufferTypes);
+
         ok = new Button("OK");
         rb_par = this;
         ePanel = new JPanel(); 	// put the inner buttons into panel oPanel. This
@@ -59,16 +80,26 @@ public class RBParams extends Frame{
         batchSize_L.setToolTipText("The amount of transitions sampled from the buffer for each episode (Amount of avg. game length)");
         selector_L.setToolTipText("The policy used for selecting a transition from the replay buffer");
         pusher_L.setToolTipText("The policy used for adding transitions to the replay buffer");
+        perAlpha_L.setToolTipText("<html>Prioritized selector: sample with probability ~ (|TD error|+eps)^alpha "
+                +"(0: uniform)</html>");
+        perBeta_L.setToolTipText("<html>Prioritized selector: weight updates with (N*P)^(-beta) "
+                +"(0: no correction, 1: full correction)</html>");
+        bufferType_L.setToolTipText("<html>How transitions are stored: Objects (with state copies) or Columnar "
+                +"(board vectors in primitive arrays, less memory for large buffers)<br>"
+                +"or Mapped (as Columnar, but in memory-mapped files in 'Buffer dir', continued by loaded agents)</html>");
+        bufferDir_L.setToolTipText("Parent directory of the segment files for storage 'Mapped' (one subdirectory per agent)");
         ok.addActionListener( e -> rb_par.setVisible(false) );
         useRP_T.addItemListener( e -> this.enableRBPart() );
+        bufferType_cb.addActionListener( e -> this.enableRBPart() );
+        selector_cb.addActionListener( e -> this.enableRBPart() );
 
         setLayout(new BorderLayout(10, 0)); // rows,columns,hgap,vgap
         ePanel.setLayout(new GridLayout(0, 4, 10, 10));
 
         ePanel.add(useRp_L);
         ePanel.add(useRP_T);
-        ePanel.add(new Canvas());
-        ePanel.add(new Canvas());
+        ePanel.add(bufferType_L);
+        ePanel.add(bufferType_cb);
 
         ePanel.add(capacity_L);
         ePanel.add(capacity_T);
@@ -80,6 +111,16 @@ public class RBParams extends Frame{
         ePanel.add(pusher_L);
         ePanel.add(pusher_cb);
 
+        ePanel.add(perAlpha_L);
+        ePanel.add(perAlpha_T);
+        ePanel.add(perBeta_L);
+        ePanel.add(perBeta_T);
+
+        ePanel.add(bufferDir_L);
+        ePanel.add(bufferDir_T);
+        ePanel.add(new Canvas());
+        ePanel.add(new Canvas());
+
 
         add(ePanel, BorderLayout.CENTER);
         add(ok, BorderLayout.SOUTH);
@@ -118,6 +159,18 @@ public class RBParams extends Frame{
     public int getSelector(){return selector_cb.getSelectedIndex();}
     public void setSelector(int i){ selector_cb.setSelectedIndex(i);}
 
+    public double getPerAlpha(){return Double.parseDouble(perAlpha_T.getText());}
+    public void setPerAlpha(double d){perAlpha_T.setText(d+"");}
+
+    public double getPerBeta(){return Double.parseDouble(perBeta_T.getText());}
+    public void setPerBeta(double d){perBeta_T.setText(d+"");}
+
+    public String getBufferDir(){return bufferDir_T.getText();}
+    public void setBufferDir(String s){bufferDir_T.setText(s);}
+
+    public int getBufferType(){return bufferType_cb.getSelectedIndex();}
+    public void setBufferType(int i){ bufferType_cb.setSelectedIndex(i);}
+
     /**
      * Needed to restore the param tab with the parameters from a re-loaded
      * agent
@@ -131,6 +184,10 @@ public class RBParams extends Frame{
         this.setBatchSize(ep.getBatchSizeV());
         this.setSelector(ep.getSelectorV());
         this.setPusher(ep.getPusherV());
+        this.setBufferType(ep.getBufferType());
+        this.setPerAlpha(ep.getPerAlpha());
+        this.setPerBeta(ep.getPerBeta());
+        this.setBufferDir(ep.getBufferDir());
     }
 
     private void enableRBPart() {
@@ -143,6 +200,16 @@ public class RBParams extends Frame{
         selector_cb.setEnabled(enable);
         pusher_L.setEnabled(enable);
         pusher_cb.setEnabled(enable);
+        bufferType_L.setEnabled(enable);
+        bufferType_cb.setEnabled(enable);
+        boolean enablePER = enable && this.getSelector()==1;
+        perAlpha_L.setEnabled(enablePER);
+        perAlpha_T.setEnabled(enablePER);
+        perBeta_L.setEnabled(enablePER);
+        perBeta_T.setEnabled(enablePER);
+        boolean enableDir = enable && this.getBufferType()==2;
+        bufferDir_L.setEnabled(enableDir);
+        bufferDir_T.setEnabled(enableDir);
     }
 
 
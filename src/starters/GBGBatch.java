@@ -31,16 +31,20 @@ import tools.Types;
 public class GBGBatch extends SetupGBG {
 
 	/**
-	 * The default csv filenames for the different batch facilities (batch00, batch01, ..., batch09, batch10)
+	 * The default csv filenames for the different batch facilities (batch00, batch01, ..., batch11, batch12)
 	 */
 	public static String[] csvNameDef = {"multiTrain.csv","multiTrain.csv","multiTrainAlphaSweep.csv","multiTrainLambdaSweep.csv"
 			,"multiTrainIncAmountSweep.csv","multiTrain","multiCompeteOthelloSweep.csv"
-			,"multiCompeteOthello.csv","symmIterCube.csv","multiTrainCube.csv","multiEvalCube.csv"};
+			,"multiCompeteOthello.csv","symmIterCube.csv","multiTrainCube.csv","multiEvalCube.csv"
+			,"compactAgent.csv","mappedAgent.csv"};
 	private static GBGBatch t_Batch = null;
 	protected static Arena arenaTrain;
 	protected static String filePath = null;
 	protected static String savePath = null;
 	protected static String propsNameDef = "src/starters/props_batch.txt";	// fallback, if prosName is not found
+	protected static int numTrainThreads = -1;	// from optional property numTrainThreads (-1: take value from agent)
+	protected static int actorRefresh = -1;		// from optional property actorRefresh (-1: take value from agent)
+	protected static int numRunThreads = 1;		// from optional property numRunThreads (concurrent training runs)
 
 	protected MTrainSweep mTrainSweep = new MTrainSweep();
 
@@ -57,7 +61,7 @@ public class GBGBatch extends SetupGBG {
 	 * @param args <br>
 	 * 			[0] {@code gameName}: name of the game, suitable as subdirectory name in the 
 	 *         		{@code agents} directory <br>
-	 *          [1] {@code n}: 0,1,2,3,...,7,8,9,10  to call either
+	 *          [1] {@code n}: 0,1,2,3,...,7,8,9,10,11,12  to call either
 	 *          	{@link #batch00(int, int, String, XArenaButtons, GameBoard, String) batch00} (multiTrain) or <br>
 	 *              {@link #batch01(int, int, Properties, String, String, XArenaButtons, GameBoard, String)  batch01} (multiTrain_M) or <br>
 	 * 	            {@link #batch02(int, int, String, XArenaButtons, GameBoard, String) batch02} (multiTrainAlphaSweep) or <br>
@@ -69,7 +73,9 @@ public class GBGBatch extends SetupGBG {
 	 *              {@link #batch08(String, String, int, Properties) batch08} ({@link MCubeIterSweep}) or <br>
 	 *              {@link #batch09(int, int, Properties, String, String, XArenaButtons, GameBoard) batch09} (multiTrainSweepCube) or <br>
 	 *              {@link #batch10(int, Properties, String[], String, String, String) batch10}
-	 *             		   (multiTrainSweepCube).<br>
+	 *             		   (multiTrainSweepCube) or <br>
+	 *              {@link #batch11(int, Properties, String, GameBoard) batch11} (compact n-tuple LUTs) or <br>
+	 *              {@link #batch12(String) batch12} (memory-mapped n-tuple LUTs).<br>
 	 *              The values 5,6,7 are only for game Othello, values 8,9,10 are only for game RubiksCube.
 	 *              <br>
 	 *          [2] {@code agentFile}: e.g. "tdntuple3.agt.zip". This agent is loaded from
@@ -84,7 +90,7 @@ public class GBGBatch extends SetupGBG {
 	 *              and reported for each pTwist ({@code nruns==1}). See below for batch07. Irrelevant for batch06. <br>
 	 *          [4] (optional) {@code maxGameNum}: maximum number of training episodes (default -1: take the parameter stored
 	 *              in the loaded agent file.) In case of batch06 or batch07, this argument contains {@code iterMCTS}.
-	 *              Irrelevant in case of batch08,10. <br>
+	 *              Irrelevant in case of batch08,10. In case of batch11, the number of calibration episodes. <br>
 	 *          [5] (optional) {@code csvFile}: filename for CSV results (defaults: "multiTrain.csv" or
 	 *          	"multiTrainAlphaSweep.csv" or ..., see {@link #csvNameDef}).
 	 *          	In case of batch05, this argument codes {@code trainOutDir} (where to store trained agents). <br>
@@ -111,6 +117,10 @@ public class GBGBatch extends SetupGBG {
 	 * where the optional {@code subdir} for games with different flavors is formed from the scalable parameters
 	 * {@code scaPar0,1,2}.
 	 * <p>
+	 * The training runs of batch00 - batch05 are independent of each other. If property {@code numRunThreads} is
+	 * given, up to {@code numRunThreads} of them are performed concurrently, see
+	 * {@link XArenaFuncs#multiTrain(int, String, XArenaButtons, GameBoard, String, int) multiTrain}.
+	 * <p>
 	 * If {@code args[9]} is not given, the default for {@code propsName} is "props_batch.txt".
 	 * {@code propsName} is first searched in the game-specific agents directory {@code agents/<gameName>[/subDir]/}.
 	 * If that file is not found, try "src/starters/props_batch.txt". In properties files, scalar or
@@ -180,6 +190,9 @@ public class GBGBatch extends SetupGBG {
 		arenaTrain = setupSelectedGame(selectedGame, scaPar,"",false,true);
 
 		Properties prop = readProperties(propsName,propsNameDef);
+		numTrainThreads = t_Batch.getIntegerOrDefaultFromProps(prop,"numTrainThreads",-1);
+		actorRefresh = t_Batch.getIntegerOrDefaultFromProps(prop,"actorRefresh",-1);
+		numRunThreads = t_Batch.getIntegerOrDefaultFromProps(prop,"numRunThreads",1);
 
 		String agtFile = args[2];
 		setupPaths(agtFile,csvName);		// builds filePath
@@ -211,6 +224,8 @@ public class GBGBatch extends SetupGBG {
 			case "8" -> t_Batch.batch08(agtFile, csvName, nruns, prop);
 			case "9" -> t_Batch.batch09(nruns, maxGameNum, prop, agtFile, filePath, xab, gb);
 			case "10"-> t_Batch.batch10(nruns, prop, scaPar, agtFile, filePath, csvName);
+			case "11"-> t_Batch.batch11(maxGameNum, prop, filePath, gb);
+			case "12"-> t_Batch.batch12(filePath);
 			default -> {
 				System.err.println("[GBGBatch.main] args[1]=" + args[1] + " not allowed.");
 				System.exit(1);
@@ -268,6 +283,22 @@ public class GBGBatch extends SetupGBG {
 	public GBGBatch() {
 		t_Batch = this;
 	}
+
+	/**
+	 * If property {@code numTrainThreads} is given, overwrite the number of training threads in {@code xab} and in
+	 * the loaded agent (see {@link params.ParOther#getNumTrainThreads()}). Likewise for property
+	 * {@code actorRefresh} (see {@link params.ParOther#getActorRefresh()}).
+	 */
+	protected void setNumTrainThreads(XArenaButtons xab) {
+		if (numTrainThreads!=-1) {
+			xab.oPar[0].setNumTrainThreads(numTrainThreads);
+			arenaTrain.m_xfun.m_PlayAgents[0].getParOther().setNumTrainThreads(numTrainThreads);
+		}
+		if (actorRefresh!=-1) {
+			xab.oPar[0].setActorRefresh(actorRefresh);
+			arenaTrain.m_xfun.m_PlayAgents[0].getParOther().setActorRefresh(actorRefresh);
+		}
+	}
 	
 	/**
 	 * Perform multi-training. Write results to file {@code csvName}.
@@ -288,6 +319,7 @@ public class GBGBatch extends SetupGBG {
 			System.err.println("\n[GBGBatch.batch01] Aborted (no agent found).");
 			return;
 		}
+		setNumTrainThreads(xab);
 		
 		// overwrite trainNum or maxGameNum in xab, if they are specified here
 		if (trainNum!=-1) xab.setTrainNumber(trainNum);
@@ -295,7 +327,8 @@ public class GBGBatch extends SetupGBG {
 		
 		// run multiTrain
 		xab.m_arena.taskState=Arena.Task.MULTTRN;
-		arenaTrain.m_xfun.m_PlayAgents[0] = arenaTrain.m_xfun.multiTrain(0, xab.getSelectedAgent(0), xab, gb, csvName);
+		arenaTrain.m_xfun.m_PlayAgents[0] = arenaTrain.m_xfun.multiTrain(0, xab.getSelectedAgent(0), xab, gb, csvName,
+				numRunThreads);
 		System.out.println("[GBGBatch.main] multiTrain finished: Results written to "+csvName);
 		res = arenaTrain.saveAgent(0, savePath);
 		if (res) {
@@ -309,10 +342,10 @@ public class GBGBatch extends SetupGBG {
 	 * Perform multi-training. Write results to file {@code csvName}.
 	 * <p>
 	 * {@code batch01} differs from {@code batch00} in calling
-	 * {@link MTrainSweep#multiTrain_M(int, String, Arena, XArenaButtons, GameBoard, String, String) MTrainSweep.multiTrain_M}
+	 * {@link MTrainSweep#multiTrain_M(int, String, Arena, XArenaButtons, GameBoard, String, String, int) MTrainSweep.multiTrain_M}
 	 * instead of {@link XArenaFuncs#multiTrain(int, String, XArenaButtons, GameBoard, String) XArenaFuncs.multiTrain}
 	 * and in reading parameters {@code numEval, trainOutDir} from {@code prop}. The difference is that
-	 * {@link MTrainSweep#multiTrain_M(int, String, Arena, XArenaButtons, GameBoard, String, String) MTrainSweep.multiTrain_M}
+	 * {@link MTrainSweep#multiTrain_M(int, String, Arena, XArenaButtons, GameBoard, String, String, int) MTrainSweep.multiTrain_M}
 	 * saves all trained agents to a yet unused filenam in {@code trainOutDir}.
 	 *
 	 * @param trainNum		how many agents to train
@@ -338,6 +371,7 @@ public class GBGBatch extends SetupGBG {
 			System.err.println("\n[GBGBatch.batch01] Aborted (no agent found).");
 			return;
 		}
+		setNumTrainThreads(xab);
 		// overwrite trainNum, maxGameNum or numEval in xab, if they are specified here
 		if (trainNum!=-1) xab.setTrainNumber(trainNum);
 		if (maxGameNum!=-1) xab.setGameNumber(maxGameNum);
@@ -352,7 +386,7 @@ public class GBGBatch extends SetupGBG {
 
 		MTrainSweep mts = new MTrainSweep();
 		try {
-			mts.multiTrain_M(0,agtFile,arenaTrain,xab,gb,csvName,trainOutDir);
+			mts.multiTrain_M(0,agtFile,arenaTrain,xab,gb,csvName,trainOutDir,numRunThreads);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -384,6 +418,7 @@ public class GBGBatch extends SetupGBG {
 			System.err.println("\n[GBGBatch.batch02] Aborted (no agent found).");
 			return;
 		}
+		setNumTrainThreads(xab);
 		
 		// overwrite trainNum or maxGameNum in xab, if they are specified here
 		if (trainNum!=-1) xab.setTrainNumber(trainNum);
@@ -391,7 +426,8 @@ public class GBGBatch extends SetupGBG {
 		
 		// run multiTrainAlphaSweep
 		xab.m_arena.taskState=Arena.Task.MULTTRN;
-		arenaTrain.m_xfun.m_PlayAgents[0] = mTrainSweep.multiTrainAlphaSweep(0, alphaArr, alphaFinalArr, arenaTrain, xab, gb, csvName);
+		arenaTrain.m_xfun.m_PlayAgents[0] = mTrainSweep.multiTrainAlphaSweep(0, alphaArr, alphaFinalArr, arenaTrain, xab, gb, csvName,
+				numRunThreads);
 		System.out.println("[GBGBatch.main] multiTrainAlphaSweep finished: Results written to "+csvName);
 		res = arenaTrain.saveAgent(0, savePath);
 		if (res) {
@@ -422,6 +458,7 @@ public class GBGBatch extends SetupGBG {
 			System.err.println("\n[GBGBatch.batch03] Aborted (no agent found).");
 			return;
 		}
+		setNumTrainThreads(xab);
 		
 		// overwrite trainNum or maxGameNum in xab, if they are specified here
 		if (trainNum!=-1) xab.setTrainNumber(trainNum);
@@ -429,7 +466,8 @@ public class GBGBatch extends SetupGBG {
 		
 		// run multiTrainLambdaSweep
 		xab.m_arena.taskState=Arena.Task.MULTTRN;
-		arenaTrain.m_xfun.m_PlayAgents[0] = mTrainSweep.multiTrainLambdaSweep(0, lambdaArr, arenaTrain, xab, gb, csvName);
+		arenaTrain.m_xfun.m_PlayAgents[0] = mTrainSweep.multiTrainLambdaSweep(0, lambdaArr, arenaTrain, xab, gb, csvName,
+				numRunThreads);
 		System.out.println("[GBGBatch.main] multiTrainLambdaSweep finished: Results written to "+csvName);
 		res = arenaTrain.saveAgent(0, savePath);
 		if (res) {
@@ -463,13 +501,15 @@ public class GBGBatch extends SetupGBG {
 			System.err.println("\n[GBGBatch.batch04] Aborted (no agent found).");
 			return;
 		}
+		setNumTrainThreads(xab);
 
 		// overwrite trainNum or maxGameNum in xab, if they are specified here
 		if (trainNum!=-1) xab.setTrainNumber(trainNum);
 		if (maxGameNum!=-1) xab.setGameNumber(maxGameNum);
 
 		xab.m_arena.taskState=Arena.Task.MULTTRN;
-		arenaTrain.m_xfun.m_PlayAgents[0] = mTrainSweep.multiTrainIncAmountSweep(0, incAmountArr, arenaTrain, xab, gb, csvName);
+		arenaTrain.m_xfun.m_PlayAgents[0] = mTrainSweep.multiTrainIncAmountSweep(0, incAmountArr, arenaTrain, xab, gb, csvName,
+				numRunThreads);
 		System.out.println("[GBGBatch.main] multiTrainIncAmountSweep finished: Results written to "+csvName);
 		res = arenaTrain.saveAgent(0, savePath);
 		if (res) {
@@ -498,7 +538,7 @@ public class GBGBatch extends SetupGBG {
 	 * @param gb			game board object, needed for start state selection
 	 * @param trainOutDir	where to store trained agents
 	 *
-	 * @see MCompeteSweep#multiTrainSweepOthello(PlayAgent, String, int, int, Arena, GameBoard, String, int[])
+	 * @see MCompeteSweep#multiTrainSweepOthello(PlayAgent, String, int, int, Arena, GameBoard, String, int[], int)
 	 * 		MCompeteSweep.multiTrainSweepOthello
 	 */
 	public void batch05(int nruns, int maxGameNum, Properties prop, String agtFile, String filePath,
@@ -516,6 +556,7 @@ public class GBGBatch extends SetupGBG {
 			System.err.println("\n[GBGBatch.batch05] Aborted (no agent found).");
 			return;
 		}
+		setNumTrainThreads(xab);
 		PlayAgent pa = arenaTrain.m_xfun.m_PlayAgents[0];
 		PlayAgent qa = arenaTrain.m_xfun.wrapAgentTrain(pa, pa.getParOther(), pa.getParWrapper(), null, gb.getDefaultStartState(null));
 		qa.setWrapperParamsO(xab.oPar[0]);
@@ -523,7 +564,7 @@ public class GBGBatch extends SetupGBG {
 		long startTime = System.currentTimeMillis();
 
 		MCompeteSweep mcmw = new MCompeteSweep();
-		mcmw.multiTrainSweepOthello(qa,agtFile,maxGameNum,nruns,arenaTrain,gb,trainOutDir,batchSizeArr);
+		mcmw.multiTrainSweepOthello(qa,agtFile,maxGameNum,nruns,arenaTrain,gb,trainOutDir,batchSizeArr,numRunThreads);
 
 		double elapsedTime = (System.currentTimeMillis() - startTime)/1000.0;
 		System.out.println("[GBGBatch.batch05] multiTrainSweep finished in "+elapsedTime+" sec. ");
@@ -703,6 +744,85 @@ public class GBGBatch extends SetupGBG {
 		System.out.println("[GBGBatch.batch10] evalRubiksCube finished in "+elapsedTime+" sec. ");
 	} // batch10
 
+	/**
+	 * Compact the n-tuple LUTs of a trained agent for inference (see
+	 * {@link controllers.TD.ntuple4.NTuple4Base#compactLUTs(StateObservation, int, double) compactLUTs}) and store the
+	 * compacted agent to {@code <csvName>.agt.zip}.
+	 *
+	 * @param numEpisodes	number of calibration episodes (-1: 100)
+	 * @param prop			properties, for randomMoves_11 (probability of a random move in calibration, default 0.1)
+	 * @param filePath		full file path to agent
+	 * @param gb			game board object, for the start state
+	 */
+	public void batch11(int numEpisodes, Properties prop, String filePath, GameBoard gb) {
+		boolean res = arenaTrain.loadAgent(0, filePath);
+		if (!res) {
+			System.err.println("\n[GBGBatch.batch11] Aborted (no agent found).");
+			return;
+		}
+		PlayAgent pa = arenaTrain.m_xfun.m_PlayAgents[0];
+		if (!(pa instanceof controllers.TD.ntuple4.NTuple4Base nta)) {
+			System.err.println("[GBGBatch.batch11] Aborted: "+pa.getName()+" has no n-tuple LUTs to compact.");
+			return;
+		}
+		if (numEpisodes==-1) numEpisodes = 100;
+		String s = prop.getProperty("randomMoves_11");
+		double randomMoves = (s==null) ? 0.1 : Double.parseDouble(s);
+
+		long startTime = System.currentTimeMillis();
+		long[] stats = nta.compactLUTs(gb.getDefaultStartState(null), numEpisodes, randomMoves);
+		double elapsedTime = (System.currentTimeMillis() - startTime)/1000.0;
+		System.out.println("[GBGBatch.batch11] compactLUTs finished in "+elapsedTime+" sec: "+stats[0]+" hot and "
+				+stats[1]+" cold entries, "+stats[2]/1024+" kB");
+
+		res = arenaTrain.saveAgent(0, savePath);
+		if (res) {
+			System.out.println("[GBGBatch.batch11] compacted agent saved to "+savePath);
+		} else {
+			System.err.println("[GBGBatch.batch11] could not save agent!");
+		}
+	} // batch11
+
+	/**
+	 * Export the n-tuple LUTs of a trained agent to the LUT file {@code <csvName>.lut}, map them read-only (see
+	 * {@link controllers.TD.ntuple4.NTuple4ValueFunc#mapLUTs(String) mapLUTs}) and store the mapped agent to
+	 * {@code <csvName>.agt.zip}. This agent file contains no weights, it loads immediately and reads the weights
+	 * from the LUT file, which has to stay in place.
+	 *
+	 * @param filePath		full file path to agent
+	 */
+	public void batch12(String filePath) {
+		boolean res = arenaTrain.loadAgent(0, filePath);
+		if (!res) {
+			System.err.println("\n[GBGBatch.batch12] Aborted (no agent found).");
+			return;
+		}
+		PlayAgent pa = arenaTrain.m_xfun.m_PlayAgents[0];
+		if (!(pa instanceof controllers.TD.ntuple4.NTuple4Base nta)) {
+			System.err.println("[GBGBatch.batch12] Aborted: "+pa.getName()+" has no n-tuple LUTs to map.");
+			return;
+		}
+		String lutPath = savePath.endsWith(".agt.zip") ? savePath.substring(0, savePath.length()-7)+"lut" : savePath+".lut";
+
+		long startTime = System.currentTimeMillis();
+		try {
+			nta.getNTupleValueFunc().exportLUTs(lutPath);
+			nta.getNTupleValueFunc().mapLUTs(lutPath);
+		} catch (IOException e) {
+			System.err.println("[GBGBatch.batch12] Aborted: could not write or map "+lutPath+": "+e.getMessage());
+			return;
+		}
+		double elapsedTime = (System.currentTimeMillis() - startTime)/1000.0;
+		System.out.println("[GBGBatch.batch12] LUTs exported to "+lutPath+" and mapped in "+elapsedTime+" sec");
+
+		res = arenaTrain.saveAgent(0, savePath);
+		if (res) {
+			System.out.println("[GBGBatch.batch12] mapped agent saved to "+savePath);
+		} else {
+			System.err.println("[GBGBatch.batch12] could not save agent!");
+		}
+	} // batch12
+
 	// several helper methods to read properties:
 
 	protected int getPMaxFromProps(Properties prop, String[] scaPar){
@@ -739,6 +859,12 @@ public class GBGBatch extends SetupGBG {
 		return Integer.parseInt(s);
 	}
 
+	protected int getIntegerOrDefaultFromProps(Properties prop,String str,int def) {
+		String s = prop.getProperty(str);
+		if (s==null) return def;
+		return Integer.parseInt(s.trim());
+	}
+
 	protected double getDoubleFromProps(Properties prop,String str) {
 		String s = prop.getProperty(str);
 		if (s==null) throw new RuntimeException("Property "+str+" not found in prop");
@@ -142,18 +142,16 @@ public class MCompeteSweep {
      * @param gb		    the game board, needed for start state selection
      * @param trainOutDir   where to save trained agents and accompanying CSV
      * @param batchSizeArr	either null or the RB batch size values to sweep over
+     * @param numRunThreads the maximum number of training runs performed concurrently (see {@link RunPool})
      * @return the last trained agent
      */
     public PlayAgent multiTrainSweepOthello(
             PlayAgent pa, String agtFile, int maxGameNum, int nruns,
-            Arena arenaTrain, GameBoard gb, String trainOutDir, int[] batchSizeArr)
+            Arena arenaTrain, GameBoard gb, String trainOutDir, int[] batchSizeArr, int numRunThreads)
     {
         String userTitle1 = "time";
-        DecimalFormat frm1 = new DecimalFormat("0");
         DecimalFormat frm2 = new DecimalFormat("00");
-        double userValue1=0.0, userValue2=0.0;
-        long startTime;
-        double elapsedTime=0,deltaTime;
+        double userValue1=0.0, userValue2;
 
         SingleTrainer sTrainer = new SingleTrainer();
 
@@ -161,55 +159,63 @@ public class MCompeteSweep {
         String subDir = arenaTrain.getGameBoard().getSubDir();
         if (subDir != null) strDir += "/" + subDir;
         tools.Utils.checkAndCreateFolder(strDir+"/" + trainOutDir);
-        String agtBase = agtFile.split("\\.")[0];       // agtBase = agtFile w/o .agt.zip
-        agtBase = removeSubstr(agtBase, "-stub");   // remove "-stub", if it appears
+        String agtDir = strDir + "/" + trainOutDir;
+        String agtBase = removeSubstr(agtFile.split("\\.")[0], "-stub");  // agtFile w/o .agt.zip and w/o "-stub"
 
         int[] sweepArr = (batchSizeArr==null) ? new int[]{0} : batchSizeArr;
         String userTitle2 = (batchSizeArr==null) ? "user2" : "RB_batch";
-        String trainCsvName,fCsvName="";
-
-        for (int s : sweepArr) {
-            if (s==0) {
-                arenaTrain.m_xab.rbPar[0].setUseRB(false);
-            } else {
-                arenaTrain.m_xab.rbPar[0].setUseRB(true);
-                arenaTrain.m_xab.rbPar[0].setBatchSize(s);
-            }
-            userValue2 = s;
-
-            for (int i=0; i<nruns; i++) {
-
-                startTime = System.currentTimeMillis();
-
-                // train pa, adjust doTrainEvaluation, and add elements to mtList (evaluation results during train)
-                pa = sTrainer.doSingleTraining(0, i, pa, arenaTrain, arenaTrain.m_xab, gb, maxGameNum, userValue1, userValue2);
-                arenaTrain.m_xab.setOParFrom(0,pa.getParOther());  // /WK/ Bug fix 2022-04-12
-
-                // save pa to a yet unused filename. This for multiple concurrent jobs which should not write to a
-                // filename already written by another job. For single-threaded jobs (and no similar files present in
-                // dir trainOutDir), k=0 will be used.
-                int k=-1;
-                String agtPath,agt_w_o_suffix;
-                File file;
-                do {
-                    k++;    // start with k=0
-                    agt_w_o_suffix = agtBase + "_" + frm2.format(i+k);
-                    trainCsvName = "../" + trainOutDir + "/" + agt_w_o_suffix + ".csv";
-                    // we use "../" because we do not want to store in subdir "csv/" as printMultiTrainList usually does
-                    agtPath = strDir + "/" + trainOutDir + "/" + agt_w_o_suffix + ".agt.zip";
-                    file = new File(agtPath);
-                } while (file.exists());
-                arenaTrain.saveAgent(pa,agtPath);
-
-                // print the full list mtList after finishing training run i
-                fCsvName=MTrain.printMultiTrainList(trainCsvName, sTrainer.getMtList(), pa, arenaTrain, userTitle1, userTitle2);
-
-                deltaTime = (double) (System.currentTimeMillis() - startTime) / 1000.0;
-                elapsedTime += deltaTime;
-            }
+        String[] fCsvName = {""};
+        PlayAgent[] lastAgent = {pa};
+        long startTime = System.currentTimeMillis();
+
+        // the results of each run are collected in run order, even if the runs are performed concurrently
+        try (RunPool<SingleTrainer.Run> pool = new RunPool<>(numRunThreads, run -> {
+            int i = run.getIndex();
+            PlayAgent qa = sTrainer.collect(run);
+            arenaTrain.m_xab.setOParFrom(0,qa.getParOther());  // /WK/ Bug fix 2022-04-12
+
+            // save qa to a yet unused filename. This for multiple concurrent jobs which should not write to a
+            // filename already written by another job. For single-threaded jobs (and no similar files present in
+            // dir trainOutDir), k=0 will be used.
+            int k=-1;
+            String agtPath,agt_w_o_suffix,trainCsvName;
+            File file;
+            do {
+                k++;    // start with k=0
+                agt_w_o_suffix = agtBase + "_" + frm2.format(i+k);
+                trainCsvName = "../" + trainOutDir + "/" + agt_w_o_suffix + ".csv";
+                // we use "../" because we do not want to store in subdir "csv/" as printMultiTrainList usually does
+                agtPath = agtDir + "/" + agt_w_o_suffix + ".agt.zip";
+                file = new File(agtPath);
+            } while (file.exists());
+            arenaTrain.saveAgent(qa,agtPath);
+
+            // print the full list mtList after finishing training run i
+            fCsvName[0]=MTrain.printMultiTrainList(trainCsvName, sTrainer.getMtList(), qa, arenaTrain, userTitle1, userTitle2);
+            lastAgent[0] = qa;
+        })) {
+            for (int s : sweepArr) {
+                if (s==0) {
+                    arenaTrain.m_xab.rbPar[0].setUseRB(false);
+                } else {
+                    arenaTrain.m_xab.rbPar[0].setUseRB(true);
+                    arenaTrain.m_xab.rbPar[0].setBatchSize(s);
+                }
+                userValue2 = s;
+
+                for (int i=0; i<nruns; i++) {
+                    // construct pa, train pa, adjust doTrainEvaluation, and add elements to mtList (evaluation
+                    // results during train)
+                    SingleTrainer.Run run = sTrainer.prepareRun(0, i, arenaTrain, arenaTrain.m_xab, gb, maxGameNum,
+                            userValue1, userValue2, pool.isParallel());
+                    if (run != null) pool.submit(run);
+                }
 
+            }
         }
-        if (fCsvName!=null) System.out.println("[multiTrainSweepOthello] Results saved to "+fCsvName+".");
+        pa = lastAgent[0];
+        double elapsedTime = (double) (System.currentTimeMillis() - startTime) / 1000.0;
+        if (fCsvName[0]!=null) System.out.println("[multiTrainSweepOthello] Results saved to "+fCsvName[0]+".");
         System.out.println("[multiTrainSweepOthello] "+elapsedTime+" sec.");
         return pa;
     } // multiTrainSweepOthello
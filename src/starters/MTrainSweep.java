@@ -42,11 +42,12 @@ public class MTrainSweep {
      * @param csvName	results are written to this filename
      * @param trainDir  trained agent files are written to {@code  agents/<gameDir>/<trainDir>}. Will be created if
      *                  not existing
+     * @param numRunThreads the maximum number of training runs performed concurrently (see {@link RunPool})
      * @return the (last) trained agent
      * @throws IOException if something goes wrong with {@code csvName}, see below
      */
     public PlayAgent multiTrain_M(int n, String agtFile, Arena t_Game, XArenaButtons xab,
-                                  GameBoard gb, String csvName, String trainDir) throws IOException {
+                                  GameBoard gb, String csvName, String trainDir, int numRunThreads) throws IOException {
         DecimalFormat frm3 = new DecimalFormat("+0.000;-0.000");
         DecimalFormat frm = new DecimalFormat("#0.000");
         String userTitle1 = "", userTitle2 = "";
@@ -67,18 +68,17 @@ public class MTrainSweep {
         String subDir = t_Game.getGameBoard().getSubDir();
         if (subDir != null) strDir += "/" + subDir;
         tools.Utils.checkAndCreateFolder(strDir+"/"+trainDir);
-        String agtBase = agtFile.split("\\.")[0];   // filename w/o suffix
-        agtBase = removeSubstr(agtBase, "-stub");   // remove "-stub", if it appears
+        String agtDir = strDir + "/" + trainDir;
+        String agtBase = removeSubstr(agtFile.split("\\.")[0], "-stub");   // filename w/o suffix and w/o "-stub"
+        PlayAgent[] lastAgent = {null};
 
-        for (int i=0; i<trainNum; i++) {
+        // the results of each run (i) are collected in run order, even if the runs are performed concurrently
+        try (RunPool<SingleTrainer.Run> pool = new RunPool<>(numRunThreads, run -> {
+            int i = run.getIndex();
+            PlayAgent qa = sTrainer.collect(run);
+            xab.setOParFrom(0,qa.getParOther());  // /WK/ Bug fix 2022-04-12
 
-            xab.setTrainNumberText(trainNum, (i + 1) +"/"+trainNum );
-
-            // re-construct pa, train pa, adjust doTrainEvaluation, and add elements to mtList (evaluation results)
-            pa = sTrainer.doSingleTraining(n,i,pa,t_Game,xab,gb,maxGameNum,userValue1, userValue2);
-            xab.setOParFrom(0,pa.getParOther());  // /WK/ Bug fix 2022-04-12
-
-            // save pa to a yet unused filename. This for multiple concurrent jobs which should not write to a
+            // save qa to a yet unused filename. This for multiple concurrent jobs which should not write to a
             // filename already written by another job. For single-threaded jobs (and no similar files present in
             // dir trainDir), k=0 will be used.
             int k=-1;
@@ -87,20 +87,32 @@ public class MTrainSweep {
             DecimalFormat frm2 = new DecimalFormat("00");
             do {
                 k++;
-                agtPath = strDir + "/" + trainDir + "/" + agtBase + "_" + frm2.format(i+k) + ".agt.zip";
+                agtPath = agtDir + "/" + agtBase + "_" + frm2.format(i+k) + ".agt.zip";
                 file = new File(agtPath);
             } while (file.exists());
-            t_Game.saveAgent(pa,agtPath);
+            t_Game.saveAgent(qa,agtPath);
 
             // print sTrainer's full list mtList after finishing each (i)
             // (overwrites the file written from previous (i))
-            pa.setAgentFile(agtFile);
-            MTrain.printMultiTrainList(csvName, sTrainer.getMtList(), pa, t_Game, userTitle1, userTitle2);
+            qa.setAgentFile(agtFile);
+            MTrain.printMultiTrainList(csvName, sTrainer.getMtList(), qa, t_Game, userTitle1, userTitle2);
+            lastAgent[0] = qa;
+        })) {
+            for (int i=0; i<trainNum; i++) {
 
-//            if (xab.m_arena.taskState!=Arena.Task.MULTTRN) {
-//                break; //out of for
-//            }
-        } // for (i)
+                xab.setTrainNumberText(trainNum, (i + 1) +"/"+trainNum );
+
+                // re-construct pa, train pa, adjust doTrainEvaluation, and add elements to mtList (evaluation results)
+                SingleTrainer.Run run = sTrainer.prepareRun(n,i,t_Game,xab,gb,maxGameNum,userValue1,userValue2,
+                        pool.isParallel());
+                if (run != null) pool.submit(run);
+
+//                if (xab.m_arena.taskState!=Arena.Task.MULTTRN) {
+//                    break; //out of for
+//                }
+            } // for (i)
+        }
+        pa = lastAgent[0];
 
         if (m_evaluatorQ.getMode()!=(-1))
         // m_mode=-1 signals: 'no evaluation done' --> oC did not receive evaluation results
@@ -140,6 +152,7 @@ public class MTrainSweep {
      * 					of agent <b>n</b>
      * @param gb		the game board, needed for evaluators and start state selection
      * @param csvName	results are written to this filename
+     * @param numRunThreads the maximum number of training runs performed concurrently (see {@link RunPool})
      * @return the (last) trained agent
      * @throws IOException if something goes wrong with {@code csvName}, see below
      * <p>
@@ -149,7 +162,8 @@ public class MTrainSweep {
      * The contents may be visualized with one of the R-scripts found in {@code resources\R_plotTools}.
      */
     public PlayAgent multiTrainAlphaSweep(int n, double[] alphaArr, double[] alphaFinalArr, Arena t_Game,
-                                          XArenaButtons xab, GameBoard gb, String csvName) throws IOException {
+                                          XArenaButtons xab, GameBoard gb, String csvName, int numRunThreads)
+            throws IOException {
         DecimalFormat frm3 = new DecimalFormat("+0.000;-0.000");
         DecimalFormat frm = new DecimalFormat("#0.000");
         String userTitle1 = "alpha", userTitle2 = "alphaFinal";
@@ -163,32 +177,42 @@ public class MTrainSweep {
 
         System.out.println("*** Starting multi-training with trainNum = "+trainNum+" ***");
 
-        for (int i=0; i<trainNum; i++) {
-            for (int k=0; k<alphaArr.length; k++) {
-
-                xab.setTrainNumberText(trainNum, (i+1)+"/"+trainNum );
-
-                // sweep-specific code which varies alpha & alphaFinal for each k
-                // and writes them to userValue1 & userValue2, resp.
-                double alpha = alphaArr[k];
-                double alphaFinal = alphaFinalArr[k];
-                userValue1=alpha;
-                userValue2=alphaFinal;
-                xab.tdPar[0].setAlpha(alpha);
-                xab.tdPar[0].setAlphaFinal(alphaFinal);
-
-                // construct pa, train pa, adjust doTrainEvaluation, and add elements to mtList (evaluation results)
-                pa = sTrainer.doSingleTraining(n,i,pa,t_Game,xab,gb,maxGameNum,userValue1, userValue2);
-
-                // print sTrainer's full list mtList after finishing each pair (i,k)
-                // (overwrites the file written from previous (i,k))
-                MTrain.printMultiTrainList(csvName,sTrainer.getMtList(), pa, t_Game, userTitle1, userTitle2);
-
-                if (xab.m_arena.taskState!=Arena.Task.MULTTRN) {
-                    break; //out of for
-                }
-            } // for (k)
-        } // for (i)
+        PlayAgent[] lastAgent = {null};
+
+        // the results of each pair (i,k) are collected in run order, even if the runs are performed concurrently
+        try (RunPool<SingleTrainer.Run> pool = new RunPool<>(numRunThreads, run -> {
+            lastAgent[0] = sTrainer.collect(run);
+
+            // print sTrainer's full list mtList after finishing each pair (i,k)
+            // (overwrites the file written from previous (i,k))
+            MTrain.printMultiTrainList(csvName, sTrainer.getMtList(), lastAgent[0], t_Game, userTitle1, userTitle2);
+        })) {
+            for (int i=0; i<trainNum; i++) {
+                for (int k=0; k<alphaArr.length; k++) {
+
+                    xab.setTrainNumberText(trainNum, (i+1)+"/"+trainNum );
+
+                    // sweep-specific code which varies alpha & alphaFinal for each k
+                    // and writes them to userValue1 & userValue2, resp.
+                    double alpha = alphaArr[k];
+                    double alphaFinal = alphaFinalArr[k];
+                    userValue1=alpha;
+                    userValue2=alphaFinal;
+                    xab.tdPar[0].setAlpha(alpha);
+                    xab.tdPar[0].setAlphaFinal(alphaFinal);
+
+                    // construct pa, train pa, adjust doTrainEvaluation, and add elements to mtList (evaluation results)
+                    SingleTrainer.Run run = sTrainer.prepareRun(n,i,t_Game,xab,gb,maxGameNum,userValue1,userValue2,
+                            pool.isParallel());
+                    if (run != null) pool.submit(run);
+
+                    if (xab.m_arena.taskState!=Arena.Task.MULTTRN) {
+                        break; //out of for
+                    }
+                } // for (k)
+            } // for (i)
+        }
+        pa = lastAgent[0];
 
         if (m_evaluatorQ.getMode()!=(-1))
         // m_mode=-1 signals: 'no evaluation done' --> oC did not receive evaluation results
@@ -220,6 +244,7 @@ public class MTrainSweep {
      * 					of agent <b>n</b>
      * @param gb		the game board, needed for evaluators and start state selection
      * @param csvName	results are written to this filename
+     * @param numRunThreads the maximum number of training runs performed concurrently (see {@link RunPool})
      * @return the (last) trained agent
      * @throws IOException if something goes wrong with {@code csvName}, see below
      * <p>
@@ -229,7 +254,7 @@ public class MTrainSweep {
      * The contents may be visualized with one of the R-scripts found in {@code resources\R_plotTools}.
      */
     public PlayAgent multiTrainLambdaSweep(int n, double[] lambdaArr, Arena t_Game, XArenaButtons xab,
-                                           GameBoard gb, String csvName) throws IOException {
+                                           GameBoard gb, String csvName, int numRunThreads) throws IOException {
         DecimalFormat frm3 = new DecimalFormat("+0.000;-0.000");
         DecimalFormat frm = new DecimalFormat("#0.000");
         String userTitle1 = "lambda", userTitle2 = "null";
@@ -243,29 +268,39 @@ public class MTrainSweep {
 
         System.out.println("*** Starting multi-training with trainNum = "+trainNum+" ***");
 
-        for (int i=0; i<trainNum; i++) {
-            for (double lambda : lambdaArr) {
-
-                xab.setTrainNumberText(trainNum, (i + 1) + "/" + trainNum);
-
-                // sweep-specific code which varies lambda for each k
-                // and writes them to userValue1 & userValue2, resp.
-                userValue1 = lambda;
-                userValue2 = 0;
-                xab.tdPar[0].setLambda(lambda);
-
-                // train pa, adjust doTrainEvaluation, and add elements to mtList (evaluation results)
-                pa = sTrainer.doSingleTraining(n,i,pa,t_Game,xab,gb,maxGameNum,userValue1, userValue2);
-
-                // print sTrainer's full list mtList after finishing each pair (i,k)
-                // (overwrites the file written from previous (i,k))
-                MTrain.printMultiTrainList(csvName, sTrainer.getMtList(), pa, t_Game, userTitle1, userTitle2);
-
-                if (xab.m_arena.taskState != Arena.Task.MULTTRN) {
-                    break; //out of for
-                }
-            } // for (k)
-        } // for (i)
+        PlayAgent[] lastAgent = {null};
+
+        // the results of each pair (i,k) are collected in run order, even if the runs are performed concurrently
+        try (RunPool<SingleTrainer.Run> pool = new RunPool<>(numRunThreads, run -> {
+            lastAgent[0] = sTrainer.collect(run);
+
+            // print sTrainer's full list mtList after finishing each pair (i,k)
+            // (overwrites the file written from previous (i,k))
+            MTrain.printMultiTrainList(csvName, sTrainer.getMtList(), lastAgent[0], t_Game, userTitle1, userTitle2);
+        })) {
+            for (int i=0; i<trainNum; i++) {
+                for (double lambda : lambdaArr) {
+
+                    xab.setTrainNumberText(trainNum, (i + 1) + "/" + trainNum);
+
+                    // sweep-specific code which varies lambda for each k
+                    // and writes them to userValue1 & userValue2, resp.
+                    userValue1 = lambda;
+                    userValue2 = 0;
+                    xab.tdPar[0].setLambda(lambda);
+
+                    // construct pa, train pa, adjust doTrainEvaluation, and add elements to mtList (evaluation results)
+                    SingleTrainer.Run run = sTrainer.prepareRun(n,i,t_Game,xab,gb,maxGameNum,userValue1,userValue2,
+                            pool.isParallel());
+                    if (run != null) pool.submit(run);
+
+                    if (xab.m_arena.taskState != Arena.Task.MULTTRN) {
+                        break; //out of for
+                    }
+                } // for (k)
+            } // for (i)
+        }
+        pa = lastAgent[0];
 
         if (m_evaluatorQ.getMode()!=(-1))
         // m_mode=-1 signals: 'no evaluation done' --> oC did not receive evaluation results
@@ -297,6 +332,7 @@ public class MTrainSweep {
      * 					of agent <b>n</b>
      * @param gb		the game board, needed for evaluators and start state selection
      * @param csvName	results are written to this filename
+     * @param numRunThreads the maximum number of training runs performed concurrently (see {@link RunPool})
      * @return the (last) trained agent
      * <p>
      * Side effect: writes results of multi-training to <b>{@code agents/<gameDir>/csv/<csvName>}</b>.
@@ -305,7 +341,7 @@ public class MTrainSweep {
      * The contents may be visualized with one of the R-scripts found in {@code resources\R_plotTools}.
      */
     public PlayAgent multiTrainIncAmountSweep(int n, double[] incAmountArr, Arena t_Game, XArenaButtons xab,
-                                              GameBoard gb, String csvName) { //throws IOException {
+                                              GameBoard gb, String csvName, int numRunThreads) { //throws IOException {
         DecimalFormat frm3 = new DecimalFormat("+0.000;-0.000");
         DecimalFormat frm = new DecimalFormat("#0.000");
         String userTitle1 = "incAmount", userTitle2 = "null";
@@ -319,29 +355,39 @@ public class MTrainSweep {
 
         System.out.println("*** Starting multiTrainIncAmount with trainNum = "+trainNum+" ***");
 
-        for (int i=0; i<trainNum; i++) {
-            for (double incAmount : incAmountArr) {
-
-                xab.setTrainNumberText(trainNum, (i + 1) + "/" + trainNum);
-
-                // sweep-specific code which varies incAmount for each k
-                // and writes them to userValue1 & userValue2, resp.
-                userValue1 = incAmount;
-                userValue2 = 0;
-                xab.oPar[0].setIncAmount(incAmount);
-
-                // train pa, adjust doTrainEvaluation, and add elements to mtList (evaluation results)
-                pa = sTrainer.doSingleTraining(n,i,pa,t_Game,xab,gb,maxGameNum,userValue1, userValue2);
-
-                // print sTrainer's full list mtList after finishing each pair (i,k)
-                // (overwrites the file written from previous (i,k))
-                MTrain.printMultiTrainList(csvName, sTrainer.getMtList(), pa, t_Game, userTitle1, userTitle2);
-
-                if (xab.m_arena.taskState != Arena.Task.MULTTRN) {
-                    break; //out of for
-                }
-            } // for (k)
-        } // for (i)
+        PlayAgent[] lastAgent = {null};
+
+        // the results of each pair (i,k) are collected in run order, even if the runs are performed concurrently
+        try (RunPool<SingleTrainer.Run> pool = new RunPool<>(numRunThreads, run -> {
+            lastAgent[0] = sTrainer.collect(run);
+
+            // print sTrainer's full list mtList after finishing each pair (i,k)
+            // (overwrites the file written from previous (i,k))
+            MTrain.printMultiTrainList(csvName, sTrainer.getMtList(), lastAgent[0], t_Game, userTitle1, userTitle2);
+        })) {
+            for (int i=0; i<trainNum; i++) {
+                for (double incAmount : incAmountArr) {
+
+                    xab.setTrainNumberText(trainNum, (i + 1) + "/" + trainNum);
+
+                    // sweep-specific code which varies incAmount for each k
+                    // and writes them to userValue1 & userValue2, resp.
+                    userValue1 = incAmount;
+                    userValue2 = 0;
+                    xab.oPar[0].setIncAmount(incAmount);
+
+                    // construct pa, train pa, adjust doTrainEvaluation, and add elements to mtList (evaluation results)
+                    SingleTrainer.Run run = sTrainer.prepareRun(n,i,t_Game,xab,gb,maxGameNum,userValue1,userValue2,
+                            pool.isParallel());
+                    if (run != null) pool.submit(run);
+
+                    if (xab.m_arena.taskState != Arena.Task.MULTTRN) {
+                        break; //out of for
+                    }
+                } // for (k)
+            } // for (i)
+        }
+        pa = lastAgent[0];
 
         if (m_evaluatorQ.getMode()!=(-1))
         // m_mode=-1 signals: 'no evaluation done' --> oC did not receive evaluation results
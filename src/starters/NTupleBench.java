@@ -0,0 +1,279 @@
+package starters;
+
+import controllers.TD.ntuple4.LutIndexer;
+import controllers.TD.ntuple4.NTuple4;
+import controllers.TD.ntuple4.NTuple4ValueFunc;
+import controllers.TD.ntuple4.TDNTuple4Agt;
+import games.CFour.StateObserverC4;
+import games.CFour.XNTupleFuncsC4;
+import games.Othello.StateObserverOthello;
+import games.Othello.XNTupleFuncsOthello;
+import games.RubiksCube.CubeConfig;
+import games.RubiksCube.CubeState;
+import games.RubiksCube.CubeStateFactory;
+import games.RubiksCube.StateObserverCube;
+import games.RubiksCube.XNTupleFuncsCube;
+import games.StateObsWithBoardVector;
+import games.StateObservation;
+import games.TicTacToe.StateObserverTTT;
+import games.TicTacToe.XNTupleFuncsTTT;
+import games.XNTupleFuncs;
+import games.ZweiTausendAchtundVierzig.StateObserver2048;
+import games.ZweiTausendAchtundVierzig.XNTupleFuncs2048;
+import params.*;
+import tools.Types.ACTIONS;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Micro benchmark for the hot paths of the n-tuple value function: {@link NTuple4#getScore(int[])},
+ * {@link NTuple4#updateNew(int[], double, double, double)}, {@link NTuple4ValueFunc#getScoreI(StateObsWithBoardVector, int)},
+ * {@link NTuple4ValueFunc#updateWeightsTD(StateObsWithBoardVector, int, double, double, double, StateObservation)}
+ * and the symmetry generation {@link XNTupleFuncs#symmetryVectors(StateObsWithBoardVector, int)}.
+ * <p>
+ * For each game a pool of states is generated by random play from a fixed seed and each benchmark runs over
+ * the whole pool with the n-tuples of {@code xnf.fixedNTuples(mode)}. Each benchmark has warm-up iterations
+ * (JIT compilation) and measurement iterations of fixed duration, the result is the mean time per state
+ * (and its standard deviation over the measurement iterations). So runs on the same machine are comparable
+ * and regressions or speed-ups of these methods can be measured reproducibly.
+ * <p>
+ * If more than one game is given, each game runs in its own JVM (as JMH forks do), so that the JIT profile
+ * of one game does not influence the results of the next one ({@code -nofork}: all games in this JVM).
+ * <p>
+ * Runs headless, e.g.
+ * <pre>
+ *   java -cp ... starters.NTupleBench [-g TTT,C4,Othello,2048,Cube2x2] [-m mode] [-w warmIter] [-i measIter]
+ *                                     [-t msPerIter] [-n poolSize] [-csv file.csv] [-nofork]
+ *                                     [-arena] [-prec p] [-kernel]</pre>
+ * Default: all games, mode = first of {@code xnf.fixedNTupleModesAvailable()}, 3 warm-up and 5 measurement
+ * iterations of 500 ms each, 256 states. {@code -arena}, {@code -prec} and {@code -kernel} set the
+ * corresponding {@link ParNT} parameters (weight arena, weight precision, score kernel). The score kernel needs the
+ * JVM option {@code --add-modules jdk.incubator.vector}.
+ */
+public class NTupleBench {
+
+	private static final String[] ALL_GAMES = {"TTT", "C4", "Othello", "2048", "Cube2x2"};
+	private static final String SEP = "; ";
+
+	private int warmIter = 3;
+	private int measIter = 5;
+	private long msPerIter = 500;
+	private int poolSize = 256;
+	private int mode = -1;			// -1: first of xnf.fixedNTupleModesAvailable()
+	private boolean arena = false;
+	private int prec = 0;
+	private boolean kernel = false;
+
+	/**
+	 * prevents that the JIT eliminates the benchmarked calls as dead code
+	 */
+	private double sink = 0.0;
+
+	/**
+	 * one benchmarked operation, applied to state {@code k} of the pool
+	 */
+	private interface Op {
+		void run(int k);
+	}
+
+	/**
+	 * the result of one benchmark
+	 */
+	private record Result(String game, String bench, double nsPerOp, double nsStd) { }
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		NTupleBench nb = new NTupleBench();
+		String[] games = ALL_GAMES;
+		String csvName = null;
+		boolean fork = true;
+		ArrayList<String> forkArgs = new ArrayList<>();		// the arguments passed on to the forked JVMs
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "-g" -> games = args[++i].split(",");
+				case "-nofork" -> fork = false;
+				case "-csv" -> csvName = args[++i];
+				default -> forkArgs.add(args[i]);
+			}
+		}
+		for (int i = 0; i < forkArgs.size(); i++) {
+			switch (forkArgs.get(i)) {
+				case "-m" -> nb.mode = Integer.parseInt(forkArgs.get(++i));
+				case "-w" -> nb.warmIter = Integer.parseInt(forkArgs.get(++i));
+				case "-i" -> nb.measIter = Integer.parseInt(forkArgs.get(++i));
+				case "-t" -> nb.msPerIter = Long.parseLong(forkArgs.get(++i));
+				case "-n" -> nb.poolSize = Integer.parseInt(forkArgs.get(++i));
+				case "-arena" -> nb.arena = true;
+				case "-prec" -> nb.prec = Integer.parseInt(forkArgs.get(++i));
+				case "-kernel" -> nb.kernel = true;
+				default -> throw new RuntimeException("[NTupleBench] unknown argument "+forkArgs.get(i));
+			}
+		}
+
+		ArrayList<String> csvLines = new ArrayList<>();
+		if (fork && games.length > 1) {
+			for (String game : games)
+				csvLines.addAll(forkGame(game, forkArgs));
+		} else {
+			for (String game : games)
+				for (Result r : nb.benchGame(game))
+					csvLines.add(r.game + SEP + r.bench + SEP + r.nsPerOp + SEP + r.nsStd);
+		}
+
+		if (csvName != null) {
+			PrintWriter csv = new PrintWriter(csvName);
+			csv.println("game" + SEP + "benchmark" + SEP + "nsPerOp" + SEP + "nsStd");
+			for (String line : csvLines)
+				csv.println(line);
+			csv.close();
+			System.out.println("[NTupleBench] results written to " + csvName);
+		}
+		if (nb.sink == 42.0) System.out.println();		// just use sink
+	}
+
+	/**
+	 * Run the benchmarks for {@code game} in a new JVM with the same class path.
+	 * @return the CSV lines (without header) of the forked run
+	 */
+	private static List<String> forkGame(String game, ArrayList<String> forkArgs) throws IOException, InterruptedException {
+		File tmpCsv = File.createTempFile("ntbench", ".csv");
+		ArrayList<String> cmd = new ArrayList<>();
+		cmd.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+			cmd.addAll(List.of("--add-modules", "jdk.incubator.vector"));	// for the score kernel (LutIndexer)
+		cmd.add("-cp");
+		cmd.add(System.getProperty("java.class.path"));
+		cmd.add(NTupleBench.class.getName());
+		cmd.addAll(forkArgs);
+		cmd.addAll(List.of("-g", game, "-csv", tmpCsv.getPath()));
+		Process proc = new ProcessBuilder(cmd).inheritIO().start();
+		if (proc.waitFor() != 0)
+			throw new RuntimeException("[NTupleBench] forked run for game "+game+" failed");
+		List<String> lines = Files.readAllLines(tmpCsv.toPath());
+		tmpCsv.delete();
+		return lines.subList(1, lines.size());
+	}
+
+	private ArrayList<Result> benchGame(String game) {
+		ArrayList<Result> results = new ArrayList<>();
+		XNTupleFuncs xnf;
+		StateObservation start;
+		switch (game) {
+			case "TTT" -> { xnf = new XNTupleFuncsTTT(); start = new StateObserverTTT(); }
+			case "C4" -> { xnf = new XNTupleFuncsC4(); start = new StateObserverC4(); }
+			case "Othello" -> { xnf = new XNTupleFuncsOthello(); start = new StateObserverOthello(); }
+			case "2048" -> { xnf = new XNTupleFuncs2048(); start = new StateObserver2048(); }
+			case "Cube2x2" -> {
+				CubeConfig.cubeSize = CubeConfig.CubeSize.POCKET;
+				CubeStateFactory.generateInverseTs();		// as in ArenaCube
+				CubeState.generateForwardTs();
+				xnf = new XNTupleFuncsCube();
+				start = new StateObserverCube();
+			}
+			default -> throw new RuntimeException("[NTupleBench] unknown game "+game);
+		}
+		int m = (mode == -1) ? xnf.fixedNTupleModesAvailable()[0] : mode;
+
+		ParTD tdPar = new ParTD();
+		ParNT ntPar = new ParNT();
+		ntPar.setUSESYMMETRY(true);
+		ntPar.setWeightArena(arena);
+		ntPar.setWeightPrecision(prec);
+		ntPar.setScoreKernel(kernel);
+		TDNTuple4Agt agt = new TDNTuple4Agt("TDNT4", tdPar, ntPar, new ParOther(), new ParRB(), new ParWrapper(),
+				xnf.fixedNTuples(m), xnf, 1000);
+		NTuple4ValueFunc vf = agt.getNTupleValueFunc();
+		NTuple4[] nts = vf.getNTuples();
+
+		StateObservation[] pool = randomStates(start, new Random(42));
+		StateObsWithBoardVector[] sowbs = new StateObsWithBoardVector[poolSize];
+		int[][] bvecs = new int[poolSize][];
+		for (int k = 0; k < poolSize; k++) {
+			sowbs[k] = new StateObsWithBoardVector(pool[k], xnf);
+			bvecs[k] = sowbs[k].getBoardVector().bvec;
+		}
+
+		System.out.println("[NTupleBench] " + game + ": fixedNTuples(" + m + "), " + nts.length + " n-tuples, "
+				+ poolSize + " states" + ((kernel) ? ", score kernel: " + ((LutIndexer.get()!=null) ? LutIndexer.get().getName()
+				: "not available (no --add-modules jdk.incubator.vector)") : ""));
+		results.add(run(game, "NTuple4.getScore", k -> {
+			for (NTuple4 nt : nts) sink += nt.getScore(bvecs[k]);
+		}));
+		results.add(run(game, "NTuple4.updateNew", k -> {
+			// alternating sign of delta keeps the weights bounded
+			double delta = ((k & 1) == 0) ? 0.01 : -0.01;
+			for (NTuple4 nt : nts) {
+				nt.clearIndices();		// as in NTuple4ValueFunc.update: each update starts with an empty index list
+				nt.updateNew(bvecs[k], 0.001, delta, 1.0);
+			}
+		}));
+		results.add(run(game, "getScoreI", k -> sink += vf.getScoreI(sowbs[k], pool[k].getPlayer())));
+		results.add(run(game, "updateWeightsTD", k -> {
+			double target = ((k & 1) == 0) ? 0.01 : -0.01;
+			vf.updateWeightsTD(sowbs[k], pool[k].getPlayer(), 0.0, target, 0.0, pool[k]);
+		}));
+		results.add(run(game, "symmetryVectors", k -> sink += xnf.symmetryVectors(sowbs[k], 0).length));
+		return results;
+	}
+
+	/**
+	 * @return {@code poolSize} states, each reached by a random number (0, ..., 19) of random moves from
+	 * 		{@code start} (the last non-terminal state, if the game is over earlier)
+	 */
+	private StateObservation[] randomStates(StateObservation start, Random rand) {
+		StateObservation[] pool = new StateObservation[poolSize];
+		for (int k = 0; k < poolSize; k++) {
+			StateObservation so = start.copy();
+			int depth = rand.nextInt(20);
+			for (int d = 0; d < depth; d++) {
+				ArrayList<ACTIONS> acts = so.getAvailableActions();
+				StateObservation next = so.copy();
+				next.advance(acts.get(rand.nextInt(acts.size())), null);
+				if (next.isGameOver()) break;
+				so = next;
+			}
+			pool[k] = so;
+		}
+		return pool;
+	}
+
+	private Result run(String game, String bench, Op op) {
+		for (int it = 0; it < warmIter; it++)
+			timeIter(op);
+		double[] ns = new double[measIter];
+		double sum = 0.0, sum2 = 0.0;
+		for (int it = 0; it < measIter; it++) {
+			ns[it] = timeIter(op);
+			sum += ns[it];
+			sum2 += ns[it] * ns[it];
+		}
+		double mean = sum / measIter;
+		double std = (measIter > 1) ? Math.sqrt(Math.max(0.0, (sum2 - measIter * mean * mean) / (measIter - 1))) : 0.0;
+		DecimalFormat frm = new DecimalFormat("#0.0");
+		System.out.printf("  %-18s %12s ns/op  (+- %s)%n", bench, frm.format(mean), frm.format(std));
+		return new Result(game, bench, mean, std);
+	}
+
+	/**
+	 * Run {@code op} over the whole pool repeatedly for (at least) {@code msPerIter} milliseconds.
+	 * @return the mean time per state in nanoseconds
+	 */
+	private double timeIter(Op op) {
+		long ops = 0;
+		long start = System.nanoTime();
+		long end = start + msPerIter * 1000000L;
+		long now;
+		do {
+			for (int k = 0; k < poolSize; k++) op.run(k);
+			ops += poolSize;
+			now = System.nanoTime();
+		} while (now < end);
+		return (double) (now - start) / ops;
+	}
+}
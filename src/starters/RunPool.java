@@ -0,0 +1,119 @@
+package starters;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Runs the independent training runs of a multi-training experiment on a pool of worker threads, at most
+ * {@code numThreads} runs at a time. The results are handed to a consumer <b>in run order</b> and in the thread
+ * which submits the runs, so that the consumer (e.g. collecting {@link MTrain} records and writing the CSV file)
+ * needs no synchronization.
+ * <p>
+ * The caller prepares each run (construct agent, evaluators, ...) in its own thread, since this reads the shared
+ * parameter objects, and passes only the training itself to {@link #submit(Callable)}. {@link #submit(Callable)}
+ * blocks while {@code numThreads} runs are in flight, so that at most {@code numThreads} agents are alive.
+ * <p>
+ * With {@code numThreads <= 1}, each run is executed directly in {@link #submit(Callable)}, i.e. exactly as in
+ * sequential multi-training.
+ *
+ * @param <R> the result of a run
+ *
+ * @see games.XArenaFuncs#multiTrain(int, String, games.XArenaButtons, games.GameBoard, String, int)
+ */
+public class RunPool<R> implements AutoCloseable {
+	private final int numThreads;
+	private final Consumer<R> consumer;
+	private final ExecutorService exec;
+	private final Semaphore slots;
+	private final ArrayDeque<Future<R>> pending = new ArrayDeque<>();	// in run order
+
+	/**
+	 * @param numThreads	the maximum number of concurrent runs
+	 * @param consumer		called with the result of each run, in run order
+	 */
+	public RunPool(int numThreads, Consumer<R> consumer) {
+		this.numThreads = Math.max(numThreads, 1);
+		this.consumer = consumer;
+		this.slots = new Semaphore(this.numThreads);
+		this.exec = (this.numThreads > 1) ? Executors.newFixedThreadPool(this.numThreads, r -> {
+			Thread t = new Thread(r, "RunPool-run");
+			t.setDaemon(true);
+			return t;
+		}) : null;
+	}
+
+	/**
+	 * @return true, if runs are executed in worker threads (i.e. concurrently)
+	 */
+	public boolean isParallel() {
+		return exec != null;
+	}
+
+	/**
+	 * Submit the next run. Waits until less than {@code numThreads} runs are in flight. Hands the results of all
+	 * runs finished meanwhile (and whose predecessors are finished as well) to the consumer.
+	 *
+	 * @throws RuntimeException if a finished run has thrown an exception
+	 */
+	public void submit(Callable<R> run) {
+		if (exec == null) {
+			consumer.accept(call(run));
+			return;
+		}
+		slots.acquireUninterruptibly();
+		pending.add(exec.submit(() -> {
+			try {
+				return run.call();
+			} finally {
+				slots.release();
+			}
+		}));
+		drain(false);
+	}
+
+	/**
+	 * Wait for all submitted runs, hand their results to the consumer and stop the worker threads.
+	 *
+	 * @throws RuntimeException if a run has thrown an exception
+	 */
+	@Override
+	public void close() {
+		if (exec == null) return;
+		try {
+			drain(true);
+		} finally {
+			exec.shutdownNow();
+		}
+	}
+
+	private void drain(boolean all) {
+		while (!pending.isEmpty() && (all || pending.peek().isDone())) {
+			Future<R> f = pending.poll();
+			try {
+				consumer.accept(f.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("[RunPool] interrupted while waiting for training runs");
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException re) throw re;
+				throw new RuntimeException("[RunPool] training run failed: "+e.getCause());
+			}
+		}
+	}
+
+	private R call(Callable<R> run) {
+		try {
+			return run.call();
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException("[RunPool] training run failed: "+e);
+		}
+	}
+}
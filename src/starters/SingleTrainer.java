@@ -6,6 +6,7 @@ import games.RubiksCube.StateObserverCube;
 import tools.Measure;
 
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
 
 public class SingleTrainer {
 
@@ -23,15 +24,26 @@ public class SingleTrainer {
 
     public PlayAgent doSingleTraining(int n, int i, PlayAgent pa, Arena arenaTrain, XArenaButtons xab,
                                       GameBoard gb, int maxGameNum, double userValue1, double userValue2) { //throws IOException  {
+        Run run = prepareRun(n, i, arenaTrain, xab, gb, maxGameNum, userValue1, userValue2, false);
+        if (run == null) return pa;
+        return collect(run.call());
+    }
+
+    /**
+     * Prepare training run {@code i} of {@link #doSingleTraining(int, int, PlayAgent, Arena, XArenaButtons, GameBoard,
+     * int, double, double) doSingleTraining}: construct the agent anew with the settings of {@code xab} and make its
+     * evaluators. This has to be called in the thread which owns {@code xab}, while the returned {@link Run} may be
+     * trained in another thread (see {@link RunPool}).
+     *
+     * @param parallel  if true, the run gets its own game board and its own random seed, and it does not report
+     *                  its progress to {@code xab}, so that it can be trained concurrently with other runs
+     * @return the prepared run, or null if the agent could not be constructed
+     */
+    public Run prepareRun(int n, int i, Arena arenaTrain, XArenaButtons xab, GameBoard gb, int maxGameNum,
+                          double userValue1, double userValue2, boolean parallel) {
         int numEval = xab.oPar[n].getNumEval();
-        int gameNum;
-        long actionNum, trnMoveNum;
-        double totalTrainSec, elapsedTime;
-        long elapsedMs;
-        int stopEval = 0;
-        MTrain mTrain;
-        EvalResult eresQ, eresT;
-        double evalQ, evalT = 0.0;
+        PlayAgent pa;
+        if (parallel) gb = arenaTrain.makeRunGameBoard();
 
         // Construct agent anew with the settings of xab. Necessary to build a new set of random n-tuples in each run
         // (if random n-tuple creation is specified)
@@ -42,9 +54,9 @@ public class SingleTrainer {
             if (pa == null) throw new RuntimeException("Could not construct AgentX = " + sAgent);
         } catch (RuntimeException e) {
             e.printStackTrace(System.err);
-            return pa;
+            return null;
         }
-
+        if (parallel) arenaTrain.m_xfun.seedRunAgent(pa);
 
         int qem = xab.oPar[n].getQuickEvalMode();
         m_evaluatorQ = xab.m_arena.makeEvaluator(pa, gb, qem, 1);
@@ -62,71 +74,131 @@ public class SingleTrainer {
 
         if (maxGameNum != -1) pa.setMaxGameNum(maxGameNum);   // if -1, take maxGameNum from loaded agent
         pa.setGameNum(0);
-        long startTime = System.currentTimeMillis();
-        gb.initialize();
-        while (pa.getGameNum() < pa.getMaxGameNum()) {
-            StateObservation so = (pa.getParOther().getChooseStart01())
-                    ? gb.chooseStartState(pa) : gb.getDefaultStartState(null);
-
-            pa.trainAgent(so);
-
-            gameNum = pa.getGameNum();
-            int liveSignal = (so instanceof StateObserverCube) ? 10000 :
-                    (!pa.isWrapper()) ? 500 : 50;
-            if (gameNum % liveSignal == 0) {
-                int exploMode = pa.getParWrapper().getWrapperMCTS_ExplorationMode();	// just as sanity check
-                System.out.println("gameNum: "+gameNum+"   EX"+exploMode);
-            }
-            if (gameNum % numEval == 0) { //|| gameNum==1) {
-                elapsedMs = (System.currentTimeMillis() - startTime);
-                pa.incrementDurationTrainingMs(elapsedMs);
-                elapsedTime = (double) elapsedMs / 1000.0;
-                // elapsedTime: time [sec] for the last numEval training games
-                System.out.println(pa.printTrainStatus() + ", " + elapsedTime + " sec");
-                startTime = System.currentTimeMillis();
-
-                xab.setGameNumber(gameNum);
-
-                eresQ = m_evaluatorQ.eval(pa);
-                evalQ = eresQ.getResult();
-                if (doTrainEvaluation) {
-                    eresT = m_evaluatorT.eval(pa);
-                    evalT = eresT.getResult();
-                }
 
-                // gather information for later printout to agents/gameName/csv/multiTrain.csv.
-                actionNum = pa.getNumLrnActions();
-                trnMoveNum = pa.getNumTrnMoves();
-                totalTrainSec = (double) pa.getDurationTrainingMs() / 1000.0;
-                // totalTrainSec = time [sec] needed since start of training
-                // (only self-play, excluding evaluations)
-                mTrain = new MTrain(i, gameNum, evalQ, evalT,
-                        actionNum, trnMoveNum, totalTrainSec, actionNum / totalTrainSec,
-                        userValue1, userValue2);
-                mtList.add(mTrain);
-
-                elapsedMs = (System.currentTimeMillis() - startTime);
-                pa.incrementDurationEvaluationMs(elapsedMs);
-
-                startTime = System.currentTimeMillis();
-            }    // if (gameNum%numEval==0 )
-        } // while
-
-
-        eresQ = m_evaluatorQ.eval(pa);
-        evalQ = eresQ.getResult();
-        oQ.add(evalQ);
-        if (doTrainEvaluation) {
-            eresT = m_evaluatorT.eval(pa);
-            evalT = eresT.getResult();
-            oT.add(evalT);
+        return new Run(i, pa, arenaTrain, (parallel) ? null : xab, gb, numEval,
+                m_evaluatorQ, (doTrainEvaluation) ? m_evaluatorT : null, userValue1, userValue2);
+    }
+
+    /**
+     * Add the results of the finished training run {@code run} to mtList, oQ and oT.
+     *
+     * @return the trained agent of {@code run}
+     */
+    public PlayAgent collect(Run run) {
+        mtList.addAll(run.mtList);
+        oQ.add(run.evalQ);
+        if (run.m_evaluatorT != null) oT.add(run.evalT);
+        return run.pa;
+    }
+
+    /**
+     * A training run prepared by {@link #prepareRun(int, int, Arena, XArenaButtons, GameBoard, int, double, double,
+     * boolean) prepareRun}. {@link #call()} trains and evaluates the agent, using only its own agent, game board and
+     * evaluators, and collects the evaluation results in its own list {@code mtList}.
+     */
+    public static class Run implements Callable<Run> {
+        private final int i;
+        private final PlayAgent pa;
+        private final Arena arenaTrain;
+        private final XArenaButtons xab;        // null: do not report the game number
+        private final GameBoard gb;
+        private final int numEval;
+        private final Evaluator m_evaluatorQ;
+        private final Evaluator m_evaluatorT;   // null: no train evaluation
+        private final double userValue1, userValue2;
+        private final ArrayList<MTrain> mtList = new ArrayList<>();
+        private double evalQ, evalT = 0.0;      // results of the final evaluation
+
+        private Run(int i, PlayAgent pa, Arena arenaTrain, XArenaButtons xab, GameBoard gb, int numEval,
+                    Evaluator m_evaluatorQ, Evaluator m_evaluatorT, double userValue1, double userValue2) {
+            this.i = i;
+            this.pa = pa;
+            this.arenaTrain = arenaTrain;
+            this.xab = xab;
+            this.gb = gb;
+            this.numEval = numEval;
+            this.m_evaluatorQ = m_evaluatorQ;
+            this.m_evaluatorT = m_evaluatorT;
+            this.userValue1 = userValue1;
+            this.userValue2 = userValue2;
         }
 
-        elapsedMs = (System.currentTimeMillis() - startTime);
-        pa.incrementDurationEvaluationMs(elapsedMs);
-        pa.setAgentState(PlayAgent.AgentState.TRAINED);
+        public int getIndex() { return i; }
 
-        return pa;
+        public PlayAgent getAgent() { return pa; }
+
+        public ArrayList<MTrain> getMtList() { return mtList; }
+
+        @Override
+        public Run call() {
+            int gameNum;
+            long actionNum, trnMoveNum;
+            double totalTrainSec, elapsedTime;
+            long elapsedMs;
+            MTrain mTrain;
+            EvalResult eresQ, eresT;
+
+            long startTime = System.currentTimeMillis();
+            gb.initialize();
+            while (pa.getGameNum() < pa.getMaxGameNum()) {
+                StateObservation so = arenaTrain.m_xfun.trainEpisodes(pa, gb, pa.getParOther().getChooseStart01(), numEval);
+
+                gameNum = pa.getGameNum();
+                int liveSignal = (so instanceof StateObserverCube) ? 10000 :
+                        (!pa.isWrapper()) ? 500 : 50;
+                if (gameNum % liveSignal == 0) {
+                    int exploMode = pa.getParWrapper().getWrapperMCTS_ExplorationMode();	// just as sanity check
+                    System.out.println("gameNum: "+gameNum+"   EX"+exploMode);
+                }
+                if (gameNum % numEval == 0) { //|| gameNum==1) {
+                    elapsedMs = (System.currentTimeMillis() - startTime);
+                    pa.incrementDurationTrainingMs(elapsedMs);
+                    elapsedTime = (double) elapsedMs / 1000.0;
+                    // elapsedTime: time [sec] for the last numEval training games
+                    System.out.println(pa.printTrainStatus() + ", " + elapsedTime + " sec");
+                    startTime = System.currentTimeMillis();
+
+                    if (xab != null) xab.setGameNumber(gameNum);
+
+                    eresQ = m_evaluatorQ.eval(pa);
+                    evalQ = eresQ.getResult();
+                    if (m_evaluatorT != null) {
+                        eresT = m_evaluatorT.eval(pa);
+                        evalT = eresT.getResult();
+                    }
+
+                    // gather information for later printout to agents/gameName/csv/multiTrain.csv.
+                    actionNum = pa.getNumLrnActions();
+                    trnMoveNum = pa.getNumTrnMoves();
+                    totalTrainSec = (double) pa.getDurationTrainingMs() / 1000.0;
+                    // totalTrainSec = time [sec] needed since start of training
+                    // (only self-play, excluding evaluations)
+                    mTrain = new MTrain(i, gameNum, evalQ, evalT,
+                            actionNum, trnMoveNum, totalTrainSec, actionNum / totalTrainSec,
+                            userValue1, userValue2);
+                    mtList.add(mTrain);
+
+                    elapsedMs = (System.currentTimeMillis() - startTime);
+                    pa.incrementDurationEvaluationMs(elapsedMs);
+
+                    startTime = System.currentTimeMillis();
+                }    // if (gameNum%numEval==0 )
+            } // while
+
+
+            eresQ = m_evaluatorQ.eval(pa);
+            evalQ = eresQ.getResult();
+            if (m_evaluatorT != null) {
+                eresT = m_evaluatorT.eval(pa);
+                evalT = eresT.getResult();
+            }
+
+            elapsedMs = (System.currentTimeMillis() - startTime);
+            pa.incrementDurationEvaluationMs(elapsedMs);
+            pa.setAgentState(PlayAgent.AgentState.TRAINED);
+
+            return this;
+        }
     }
 
     public ArrayList<MTrain> getMtList() {
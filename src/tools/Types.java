@@ -408,5 +408,9 @@ public class Types {
 	// to agents/gameName/csv/<PLAYSTATS_FILENAME>
 	public static boolean PLAYSTATS_WRITING= false;
 	public static String PLAYSTATS_FILENAME= "playStats.csv";
+
+	// if ParNT#getStatsInterval()>0, n-tuple agents append their update statistics
+	// to agents/gameName[/subDir]/csv/<WEIGHTSTATS_FILENAME>
+	public static String WEIGHTSTATS_FILENAME= "ntupleStats.csv";
 }
 
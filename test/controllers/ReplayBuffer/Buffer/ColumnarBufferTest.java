@@ -0,0 +1,95 @@
+package controllers.ReplayBuffer.Buffer;
+
+import games.BoardVector;
+import games.TicTacToe.XNTupleFuncsTTT;
+import games.XNTupleFuncs;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ColumnarBuffer}: ring organisation, round trip of the stored boards, priorities and
+ * {@link ColumnarBuffer#restore(int, int)}
+ */
+public class ColumnarBufferTest {
+
+    private final XNTupleFuncs xnf = new XNTupleFuncsTTT();
+
+    /**
+     * @return a TicTacToe board vector (cell values 0..2) which is different for each {@code t}
+     */
+    private static BoardVector board(int t) {
+        int[] bvec = new int[9];
+        for (int j = 0, r = t; j < 9; j++, r /= 3) bvec[j] = r % 3;
+        return new BoardVector(bvec);
+    }
+
+    private static void add(ColumnarBuffer buf, int t) {
+        buf.add(t % 2, board(t), board(t + 1), t, ColumnarBuffer.BOOTSTRAP);
+    }
+
+    private static void assertRow(ColumnarBuffer buf, int slot, int t) {
+        assertEquals(t % 2, buf.getPlayer(slot));
+        assertEquals(ColumnarBuffer.BOOTSTRAP, buf.getKind(slot));
+        assertEquals(t, buf.getReward(slot), 0.0);
+        assertTrue(Arrays.equals(board(t).bvec, buf.getBoard(slot).getBoardVector().bvec));
+        assertTrue(Arrays.equals(board(t + 1).bvec, buf.getNextBoard(slot).getBoardVector().bvec));
+    }
+
+    @Test
+    public void ringOverwritesOldest() {
+        ColumnarBuffer buf = new ColumnarBuffer(4, 2, xnf, true);
+        for (int t = 0; t < 6; t++) add(buf, t);
+        assertEquals(4, buf.size());
+        assertEquals(2, buf.getIndexPointer());
+        // slots 0 and 1 hold transitions 4 and 5, slots 2 and 3 still transitions 2 and 3
+        assertRow(buf, 0, 4);
+        assertRow(buf, 1, 5);
+        assertRow(buf, 2, 2);
+        assertRow(buf, 3, 3);
+
+        buf.resetBuffer();
+        assertEquals(0, buf.size());
+        assertEquals(0, buf.getIndexPointer());
+    }
+
+    @Test
+    public void restore() {
+        ColumnarBuffer buf = new ColumnarBuffer(5, 3, xnf, true, true, 0.6, 0.4);
+        for (int t = 0; t < 5; t++) add(buf, t);
+        buf.updatePriorities(new double[]{10.0, 0.0, 3.0});
+
+        buf.restore(3, 3);
+        assertEquals(3, buf.size());
+        assertEquals(3, buf.getIndexPointer());
+        // the rows are kept, the restored transitions get all the same priority, so only slots 0..2 are sampled:
+        for (int slot = 0; slot < 3; slot++) assertRow(buf, slot, slot);
+        int[] count = new int[5];
+        for (int n = 0; n < 1000; n++)
+            for (int i : buf.sampleBatch()) count[i]++;
+        assertEquals(0, count[3]);
+        assertEquals(0, count[4]);
+        for (int k = 0; k < 3; k++) assertEquals(1.0, buf.getWeight(k), 1e-12);
+
+        add(buf, 7);                            // the next transition goes to the restored index pointer
+        assertEquals(4, buf.size());
+        assertEquals(4, buf.getIndexPointer());
+        assertRow(buf, 3, 7);
+    }
+
+    @Test
+    public void restoreRejectsInvalidPointers() {
+        ColumnarBuffer buf = new ColumnarBuffer(4, 2, xnf, true);
+        int[][] invalid = {{-1, 0}, {4, 0}, {0, -1}, {0, 5}};
+        for (int[] p : invalid) {
+            try {
+                buf.restore(p[0], p[1]);
+                fail("pointers " + Arrays.toString(p) + " were accepted");
+            } catch (RuntimeException e) {
+                assertEquals(0, buf.size());
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package controllers.ReplayBuffer.Buffer;
+
+import games.BoardVector;
+import games.TicTacToe.XNTupleFuncsTTT;
+import games.XNTupleFuncs;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link MappedBuffer}: resume and reset of the stored transitions, lock of the directory, deletion of
+ * directories which no saved agent refers to and {@link MappedBuffer#newDir(String, String)}
+ */
+public class MappedBufferTest {
+
+    private final XNTupleFuncs xnf = new XNTupleFuncsTTT();
+
+    private static BoardVector board(int t) {
+        int[] bvec = new int[9];
+        for (int j = 0, r = t; j < 9; j++, r /= 3) bvec[j] = r % 3;
+        return new BoardVector(bvec);
+    }
+
+    private MappedBuffer open(String dir, int capacity, boolean resume) {
+        return new MappedBuffer(capacity, 2, xnf, true, false, 0.0, 0.0, dir, resume);
+    }
+
+    private static String tempDir() throws IOException {
+        File d = Files.createTempDirectory("mappedBuffer").toFile();
+        d.deleteOnExit();
+        return d.getPath();
+    }
+
+    @Test
+    public void resumeContinuesStoredTransitions() throws IOException {
+        String dir = tempDir();
+        MappedBuffer buf = open(dir, 4, false);
+        for (int t = 0; t < 6; t++) buf.add(t % 2, board(t), board(t + 1), t, ColumnarBuffer.BOOTSTRAP);
+        buf.markSaved();                        // as by saving the agent
+        buf.close();
+
+        buf = open(dir, 4, true);
+        assertEquals(4, buf.size());
+        assertEquals(2, buf.getIndexPointer());
+        assertEquals(4.0, buf.getReward(0), 0.0);
+        assertTrue(Arrays.equals(board(3).bvec, buf.getBoard(3).getBoardVector().bvec));
+        assertTrue(Arrays.equals(board(6).bvec, buf.getNextBoard(1).getBoardVector().bvec));
+        buf.close();
+    }
+
+    @Test
+    public void noResumeOrOtherLayoutStartsEmpty() throws IOException {
+        String dir = tempDir();
+        MappedBuffer buf = open(dir, 4, false);
+        for (int t = 0; t < 3; t++) buf.add(0, board(t), board(t + 1), t, ColumnarBuffer.FINAL);
+        buf.close();
+
+        buf = open(dir, 4, false);              // a new agent on the same directory
+        assertEquals(0, buf.size());
+        buf.add(0, board(1), board(2), 1, ColumnarBuffer.FINAL);
+        buf.close();
+
+        buf = open(dir, 5, true);               // different capacity
+        assertEquals(0, buf.size());
+        buf.close();
+    }
+
+    @Test
+    public void directoryInUseIsRefused() throws IOException {
+        String dir = tempDir();
+        MappedBuffer buf = open(dir, 4, false);
+        try {
+            open(dir, 4, true);
+            fail("a second buffer on " + dir + " was accepted");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("in use"));
+        }
+        buf.close();
+        open(dir, 4, true).close();             // released by close()
+    }
+
+    @Test
+    public void closeDeletesUnsavedDirectory() throws IOException {
+        String base = tempDir();
+        String unsaved = MappedBuffer.newDir(base, "agent");
+        String saved = MappedBuffer.newDir(base, "agent");
+        MappedBuffer buf1 = open(unsaved, 4, false);
+        MappedBuffer buf2 = open(saved, 4, false);
+        buf2.markSaved();
+        buf1.close();
+        buf1.close();                           // a second close does nothing
+        buf2.close();
+        assertFalse(new File(unsaved).exists());
+        assertTrue(new File(saved, "header.bin").exists());
+    }
+
+    @Test
+    public void newDirPrunesUnusedDirectories() throws IOException {
+        String base = tempDir();
+        String inUse = MappedBuffer.newDir(base, "agent");
+        String saved = MappedBuffer.newDir(base, "agent");
+        String left = MappedBuffer.newDir(base, "agent");
+        String other = MappedBuffer.newDir(base, "agent-2");
+        MappedBuffer buf = open(inUse, 4, false);
+        MappedBuffer bufSaved = open(saved, 4, false);
+        bufSaved.markSaved();
+        bufSaved.close();
+        new File(left).mkdirs();                // left over by a run which ended without close()
+        Files.write(new File(left, "lock").toPath(), new byte[0]);
+        Files.write(new File(left, "header.bin").toPath(), new byte[64]);
+        new File(other).mkdirs();
+        Files.write(new File(other, "lock").toPath(), new byte[0]);
+
+        MappedBuffer.newDir(base, "agent");
+        assertTrue(new File(inUse).exists());
+        assertTrue(new File(saved).exists());
+        assertFalse(new File(left).exists());
+        assertTrue(new File(other).exists());   // another agent name
+        buf.close();
+    }
+
+    @Test
+    public void newDirIsUnique() throws IOException {
+        String base = tempDir();
+        String d1 = MappedBuffer.newDir(base, "TD-Ntuple-4");
+        String d2 = MappedBuffer.newDir(base, "TD-Ntuple-4");
+        assertFalse(d1.equals(d2));
+        assertFalse(new File(d1).exists());
+        assertEquals(base, new File(d1).getParent());
+    }
+}
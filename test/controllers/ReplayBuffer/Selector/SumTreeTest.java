@@ -0,0 +1,130 @@
+package controllers.ReplayBuffer.Selector;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link SumTree}: prefix sum search at the segment boundaries, totals after updates, sampling frequencies
+ * and importance sampling weights.
+ */
+public class SumTreeTest {
+
+    /**
+     * capacity 5 (8 leaves, 3 unused), slot 2 with priority 0:
+     * slot 0 covers [0,1), slot 1 [1,3), slot 3 [3,6), slot 4 [6,10)
+     */
+    private SumTree makeTree() {
+        SumTree tree = new SumTree(5);
+        double[] prio = {1, 2, 0, 3, 4};
+        for (int i = 0; i < prio.length; i++) tree.set(i, prio[i]);
+        return tree;
+    }
+
+    @Test
+    public void findAtSegmentBoundaries() {
+        SumTree tree = makeTree();
+        assertEquals(10.0, tree.total(), 0.0);
+        assertEquals(0, tree.find(0.0));
+        assertEquals(0, tree.find(Math.nextDown(1.0)));
+        assertEquals(1, tree.find(1.0));
+        assertEquals(1, tree.find(Math.nextDown(3.0)));
+        assertEquals(3, tree.find(3.0));          // not slot 2, which has priority 0
+        assertEquals(3, tree.find(Math.nextDown(6.0)));
+        assertEquals(4, tree.find(6.0));
+        assertEquals(4, tree.find(Math.nextDown(10.0)));
+    }
+
+    @Test
+    public void findSkipsZeroPriorityLeaves() {
+        SumTree tree = makeTree();
+        // u slightly too large (rounding) must not end in an unused leaf:
+        assertEquals(4, tree.find(tree.total()));
+        assertEquals(4, tree.find(tree.total() + 1e-9));
+
+        tree.set(4, 0.0);                       // now the last slot with priority > 0 is 3
+        assertEquals(6.0, tree.total(), 0.0);
+        assertEquals(3, tree.find(tree.total()));
+        for (int k = 0; k <= 600; k++) {
+            int i = tree.find(k * tree.total() / 600);
+            assertTrue("found slot " + i + " with priority 0", tree.get(i) > 0);
+        }
+    }
+
+    @Test
+    public void setKeepsTotalsConsistent() {
+        Random rand = new Random(11);
+        int capacity = 37;
+        SumTree tree = new SumTree(capacity);
+        double[] prio = new double[capacity];
+        for (int n = 0; n < 5000; n++) {
+            int i = rand.nextInt(capacity);
+            prio[i] = (rand.nextInt(10) == 0) ? 0.0 : rand.nextDouble() * 100;
+            tree.set(i, prio[i]);
+            if (n % 100 == 0) {
+                double sum = 0;
+                for (int j = 0; j < capacity; j++) {
+                    assertEquals(prio[j], tree.get(j), 0.0);
+                    sum += prio[j];
+                }
+                assertEquals(sum, tree.total(), 1e-9 * sum);
+            }
+        }
+        tree.clear();
+        assertEquals(0.0, tree.total(), 0.0);
+    }
+
+    @Test
+    public void setRejectsInvalidPriorities() {
+        SumTree tree = new SumTree(4);
+        for (double p : new double[]{-1.0, Double.NaN}) {
+            try {
+                tree.set(0, p);
+                fail("priority " + p + " was accepted");
+            } catch (RuntimeException e) {
+                assertEquals(0.0, tree.total(), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void samplingFrequencyProportionalToPriority() {
+        SumTree tree = makeTree();
+        Random rand = new Random(5);
+        int[] slots = new int[10];
+        double[] weights = new double[10];
+        int[] count = new int[5];
+        int numBatches = 20000;
+        for (int b = 0; b < numBatches; b++) {
+            tree.sample(rand, 4, 0.5, slots, weights);
+            for (int i : slots) count[i]++;
+        }
+        double n = numBatches * slots.length;
+        assertEquals(0, count[2]);
+        for (int i = 0; i < 5; i++)
+            assertEquals("slot " + i, tree.get(i) / tree.total(), count[i] / n, 0.01);
+    }
+
+    @Test
+    public void importanceWeightsNormalizedToMaxOne() {
+        SumTree tree = makeTree();
+        Random rand = new Random(9);
+        double beta = 0.6;
+        int[] slots = new int[8];
+        double[] weights = new double[8];
+        for (int b = 0; b < 1000; b++) {
+            tree.sample(rand, 4, beta, slots, weights);
+            double maxW = 0;
+            for (int k = 0; k < slots.length; k++) {
+                assertTrue(weights[k] > 0 && weights[k] <= 1.0);
+                maxW = Math.max(maxW, weights[k]);
+                // w_k / w_l = (P(k) / P(l))^(-beta)
+                double expected = Math.pow(tree.get(slots[k]) / tree.get(slots[0]), -beta);
+                assertEquals(expected, weights[k] / weights[0], 1e-12);
+            }
+            assertEquals(1.0, maxW, 1e-12);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package controllers.TD.ntuple2;
+
+import games.StateObsWithBoardVector;
+import games.StateObservation;
+import games.TicTacToe.StateObserverTTT;
+import games.TicTacToe.XNTupleFuncsTTT;
+import games.XNTupleFuncs;
+import org.junit.Test;
+import params.ParNT;
+import params.ParOther;
+import params.ParTD;
+import tools.Types.ACTIONS;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Regression tests for the LUT indexing and the eligibility traces of {@link NTuple2ValueFunc}: a scripted sequence
+ * of TD and Q updates on TicTacToe must give bit-identical scores and weights
+ * <ul>
+ *     <li> as the implementation which constructed the symmetric boards and kept a {@code LinkedList} of eligible
+ *          states (the golden hashes below were recorded with that implementation) and
+ *     <li> with and without the permutation tables of {@link XNTupleFuncs#symmetryPermutations(int)}.
+ * </ul>
+ */
+public class NTuple2ValueFuncTest {
+
+    static final int EPISODES = 200;
+
+    /**
+     * golden hashes of all scores and weights for {TD, Q} x lambda {0.0, 0.8} x TC {false, true} x useSymmetry
+     * {true, false}
+     */
+    static final long[] GOLDEN = {
+            9189461600660348318L, -1153730741788945858L, -6512305986812819659L, -4369401421096547019L,
+            3345558535995418539L, 4077082096486192419L, 4906554200614178932L, -6984042536453752095L,
+            8509264866639348257L, -6521070000103464953L, -1922344687834113329L, -6841253965151332284L,
+            -6875769490235201381L, 641355441249673543L, 4591109227949222449L, -3394173063726347942L
+    };
+
+    /**
+     * TicTacToe without permutation tables: the value function has to construct the symmetric boards
+     */
+    static class XNTupleFuncsTTTNoPerm extends XNTupleFuncsTTT {
+        @Override
+        public int[][] symmetryPermutations(int n) {
+            return null;
+        }
+    }
+
+    private static long h;
+
+    private static void mix(double d) {
+        h = 31 * h + Double.doubleToLongBits(d);
+    }
+
+    /**
+     * Play {@code EPISODES} random TicTacToe episodes, update {@code f} after each move with a random reward and
+     * return a hash of all computed scores and of the final weights
+     */
+    static long run(NTuple2ValueFunc f, boolean q) {
+        Random r = new Random(7);
+        h = 0;
+        for (int ep = 0; ep < EPISODES; ep++) {
+            if (ep % 3 == 0) f.clearEligList();
+            StateObservation so = new StateObserverTTT();
+            while (!so.isGameOver()) {
+                ArrayList<ACTIONS> acts = so.getAvailableActions();
+                ACTIONS a = acts.get(r.nextInt(acts.size()));
+                StateObsWithBoardVector s = new StateObsWithBoardVector(so, f.getXnf());
+                int p = so.getPlayer();
+                if (q) {
+                    double qv = f.getQFunc(s, p, a);
+                    mix(qv);
+                    f.updateWeightsQ(s, p, a, qv, 0, r.nextDouble() * 2 - 1, so);
+                    for (ACTIONS b : acts) mix(f.getQFunc(s, p, b));
+                } else {
+                    double v = f.getScoreI(s, p);
+                    mix(v);
+                    f.updateWeightsTD(s, p, v, r.nextDouble() * 2 - 1, 0, so);
+                    if (ep % 2 == 0) f.updateWeightsNewTerminal(s, (p + 1) % 2, so, false);
+                }
+                so.advance(a, null);
+            }
+        }
+        for (NTuple2 nt : f.getNTuples())
+            for (double w : nt.getWeights()) mix(w);
+        return h;
+    }
+
+    static NTuple2ValueFunc makeValueFunc(XNTupleFuncs xnf, boolean q, double lambda, boolean tc, boolean sym) {
+        ParTD td = new ParTD();
+        td.setAlpha(0.1);
+        td.setLambda(lambda);
+        td.setHorizonCut(0.1);
+        td.setNormalize(true);
+        ParNT nt = new ParNT();
+        nt.setUSESYMMETRY(sym);
+        nt.setTc(tc);
+        if (q)
+            return new SarsaAgt("Sarsa", td, nt, new ParOther(), xnf.fixedNTuples(1), xnf,
+                    new StateObserverTTT().getAllAvailableActions(), 500).getNTupleValueFunc();
+        return new TDNTuple3Agt("TD", td, nt, new ParOther(), xnf.fixedNTuples(1), xnf, 500).getNTupleValueFunc();
+    }
+
+    @Test
+    public void scoresAndWeightsMatchGolden() {
+        int k = 0;
+        for (boolean q : new boolean[]{false, true})
+            for (double lambda : new double[]{0.0, 0.8})
+                for (boolean tc : new boolean[]{false, true})
+                    for (boolean sym : new boolean[]{true, false}) {
+                        NTuple2ValueFunc f = makeValueFunc(new XNTupleFuncsTTT(), q, lambda, tc, sym);
+                        assertEquals((q ? "Q" : "TD") + " lambda=" + lambda + " tc=" + tc + " sym=" + sym,
+                                GOLDEN[k++], run(f, q));
+                    }
+    }
+
+    @Test
+    public void permutationPathMatchesSymmetryVectors() {
+        for (boolean q : new boolean[]{false, true})
+            for (double lambda : new double[]{0.0, 0.8}) {
+                long h1 = run(makeValueFunc(new XNTupleFuncsTTT(), q, lambda, false, true), q);
+                long h2 = run(makeValueFunc(new XNTupleFuncsTTTNoPerm(), q, lambda, false, true), q);
+                assertEquals((q ? "Q" : "TD") + " lambda=" + lambda, h1, h2);
+            }
+    }
+
+    @Test
+    public void symActionsRejectsInvalidAction() {
+        NTuple2ValueFunc f = makeValueFunc(new XNTupleFuncsTTT(), true, 0.0, false, true);
+        StateObsWithBoardVector s = new StateObsWithBoardVector(new StateObserverTTT(), f.getXnf());
+        try {
+            f.getQFunc(s, 0, new ACTIONS(9));
+            fail("action 9 was accepted");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("[NTuple2ValueFunc]"));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package controllers.TD.ntuple4;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link CompactLUT}: for random weights and visit masks each entry must be the {@code float} value of the
+ * dense weight (0 for weight 0), also for no hot entry, one hot entry and numbers of hot entries at a power of 2
+ * boundary of the hash table.
+ */
+public class CompactLUTTest {
+
+    /**
+     * @return a random LUT of length {@code len}, about a third of its weights are 0
+     */
+    private static double[] weights(Random rand, int len) {
+        double[] w = new double[len];
+        for (int i = 0; i < len; i++)
+            w[i] = (rand.nextInt(3) == 0) ? 0.0 : rand.nextGaussian();
+        return w;
+    }
+
+    /**
+     * @return visit counts where exactly {@code nHot} of the non-zero weights of {@code w} are visited (and some of
+     * the zero weights)
+     */
+    private static int[] visits(Random rand, double[] w, int nHot) {
+        int[] v = new int[w.length];
+        int n = 0;
+        for (int i = 0; i < w.length; i++) {
+            if (w[i] == 0.0) {
+                if (rand.nextInt(4) == 0) v[i] = 1 + rand.nextInt(10);
+            } else if (n < nHot && rand.nextBoolean()) {
+                v[i] = 1 + rand.nextInt(10);
+                n++;
+            }
+        }
+        for (int i = 0; i < w.length && n < nHot; i++)
+            if (w[i] != 0.0 && v[i] == 0) {
+                v[i] = 1;
+                n++;
+            }
+        assertEquals("too few non-zero weights", nHot, n);
+        return v;
+    }
+
+    private static void check(double[] w, int[] visits, String msg) {
+        CompactLUT lut = new CompactLUT(w, visits);
+        int nHot = 0, nCold = 0;
+        for (int i = 0; i < w.length; i++) {
+            if (w[i] == 0.0) continue;
+            if (visits[i] > 0) nHot++; else nCold++;
+        }
+        assertEquals(msg, w.length, lut.getLength());
+        assertEquals(msg, nHot, lut.getNumHot());
+        assertEquals(msg, nCold, lut.getNumCold());
+        long hotSlots = (lut.getBytes() - 8L * nCold) / 8;
+        assertTrue(msg + ", " + hotSlots + " slots for " + nHot + " hot entries", hotSlots >= 2L * nHot);
+        for (int i = 0; i < w.length; i++)
+            assertEquals(msg + ", index " + i, (float) w[i], lut.get(i), 0.0f);
+    }
+
+    @Test
+    public void randomWeightsAndVisits() {
+        Random rand = new Random(11);
+        for (int round = 0; round < 50; round++) {
+            int len = 1 + rand.nextInt(5000);
+            double[] w = weights(rand, len);
+            int[] v = new int[len];
+            for (int i = 0; i < len; i++)
+                if (rand.nextInt(3) == 0) v[i] = 1 + rand.nextInt(100);
+            check(w, v, "round " + round);
+        }
+    }
+
+    @Test
+    public void noAndOneHotEntry() {
+        Random rand = new Random(12);
+        for (int nHot : new int[]{0, 1}) {
+            double[] w = weights(rand, 729);
+            check(w, visits(rand, w, nHot), "nHot=" + nHot);
+        }
+        check(new double[81], new int[81], "all weights 0");
+    }
+
+    @Test
+    public void hotEntriesAtPowerOf2Boundary() {
+        Random rand = new Random(13);
+        for (int p = 1; p <= 10; p++)
+            for (int d = -1; d <= 1; d++) {
+                int nHot = (1 << p) + d;
+                double[] w = weights(rand, 4 * nHot + 100);
+                check(w, visits(rand, w, nHot), "nHot=" + nHot);
+            }
+    }
+}
@@ -0,0 +1,118 @@
+package controllers.TD.ntuple4;
+
+import games.StateObsWithBoardVector;
+import games.StateObservation;
+import games.TicTacToe.StateObserverTTT;
+import games.TicTacToe.XNTupleFuncsTTT;
+import games.XNTupleFuncs;
+import org.junit.Test;
+import params.*;
+import tools.Types.ACTIONS;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Regression tests for the eligibility traces and the LUT indexing of {@link NTuple4ValueFunc}: a scripted sequence
+ * of TD and Q updates on TicTacToe must give bit-identical weights
+ * <ul>
+ *     <li> as the implementation with a {@code LinkedList} of eligible states (the golden hashes below were recorded
+ *          with that implementation) and
+ *     <li> with and without the permutation tables of {@link XNTupleFuncs#symmetryPermutations(int)}.
+ * </ul>
+ */
+public class EligTraceTest {
+
+    static final int EPISODES = 200;
+
+    /**
+     * golden weight hashes for {TD, Q} x lambda {0.0, 0.8} x sparse {false, true} x useSymmetry {true, false}
+     */
+    static final long[] GOLDEN = {
+            -7106590838030064282L, -8407635160797418300L, -5730363833608830976L, -8721357577801170944L,
+            -2985044890371103754L, 5772505813595867982L, -4442670888986345472L, 1067834554972110848L,
+            -1675085990016517096L, -7790470822094944148L, 6126124369266606080L, -3753619726165606400L,
+            273082151039397992L, 4096693805330108421L, -6238085741558104064L, 1660410861015007232L
+    };
+
+    /**
+     * TicTacToe without permutation tables: the value function has to construct the symmetric boards
+     */
+    static class XNTupleFuncsTTTNoPerm extends XNTupleFuncsTTT {
+        @Override
+        public int[][] symmetryPermutations(int n) {
+            return null;
+        }
+    }
+
+    static long hash(NTuple4ValueFunc f) {
+        long h = 0;
+        for (NTuple4 nt : f.getNTuples())
+            for (double w : nt.getWeights()) h = 31 * h + Double.doubleToLongBits(w);
+        return h;
+    }
+
+    /**
+     * Play {@code EPISODES} random TicTacToe episodes and update {@code f} after each move with a random reward
+     */
+    static void run(NTuple4ValueFunc f, boolean q) {
+        Random r = new Random(7);
+        for (int ep = 0; ep < EPISODES; ep++) {
+            f.clearEligList();
+            StateObservation so = new StateObserverTTT();
+            while (!so.isGameOver()) {
+                ArrayList<ACTIONS> acts = so.getAvailableActions();
+                ACTIONS a = acts.get(r.nextInt(acts.size()));
+                StateObsWithBoardVector s = new StateObsWithBoardVector(so, f.getXnf());
+                int p = so.getPlayer();
+                if (q) f.updateWeightsQ(s, p, a, f.getQFunc(s, p, a), r.nextDouble() * 2 - 1, 0, so);
+                else f.updateWeightsTD(s, p, f.getScoreI(s, p), r.nextDouble() * 2 - 1, 0, so);
+                so.advance(a, null);
+            }
+        }
+    }
+
+    static NTuple4ValueFunc makeValueFunc(XNTupleFuncs xnf, boolean q, double lambda, boolean sparse, boolean sym) {
+        ParTD td = new ParTD();
+        td.setAlpha(0.1);
+        td.setLambda(lambda);
+        td.setHorizonCut(0.1);
+        td.setNormalize(true);
+        ParNT nt = new ParNT();
+        nt.setUSESYMMETRY(sym);
+        nt.setSparseLut(sparse);
+        if (q)
+            return new Sarsa4Agt("Sarsa", td, nt, new ParOther(), xnf.fixedNTuples(1), xnf,
+                    new StateObserverTTT().getAllAvailableActions(), 500).getNTupleValueFunc();
+        return new TDNTuple4Agt("TD", td, nt, new ParOther(), new ParRB(), new ParWrapper(), xnf.fixedNTuples(1), xnf,
+                500).getNTupleValueFunc();
+    }
+
+    @Test
+    public void weightsMatchGolden() {
+        int k = 0;
+        for (boolean q : new boolean[]{false, true})
+            for (double lambda : new double[]{0.0, 0.8})
+                for (boolean sparse : new boolean[]{false, true})
+                    for (boolean sym : new boolean[]{true, false}) {
+                        NTuple4ValueFunc f = makeValueFunc(new XNTupleFuncsTTT(), q, lambda, sparse, sym);
+                        run(f, q);
+                        assertEquals((q ? "Q" : "TD") + " lambda=" + lambda + " sparse=" + sparse + " sym=" + sym,
+                                GOLDEN[k++], hash(f));
+                    }
+    }
+
+    @Test
+    public void permutationPathMatchesSymmetryVectors() {
+        for (boolean q : new boolean[]{false, true})
+            for (double lambda : new double[]{0.0, 0.8}) {
+                NTuple4ValueFunc f1 = makeValueFunc(new XNTupleFuncsTTT(), q, lambda, false, true);
+                NTuple4ValueFunc f2 = makeValueFunc(new XNTupleFuncsTTTNoPerm(), q, lambda, false, true);
+                run(f1, q);
+                run(f2, q);
+                assertEquals((q ? "Q" : "TD") + " lambda=" + lambda, hash(f1), hash(f2));
+            }
+    }
+}
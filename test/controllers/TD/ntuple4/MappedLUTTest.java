@@ -0,0 +1,122 @@
+package controllers.TD.ntuple4;
+
+import org.junit.Test;
+import params.ParNT;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link MappedLUT}: round trip of {@link MappedLUT#write(String, NTuple4[], boolean)} and
+ * {@link MappedLUT#map(String, NTuple4[])} for float and double LUTs of odd lengths (the LUTs start at multiples of
+ * 8 bytes), and rejection of LUT files which do not fit to the n-tuples or are truncated.
+ */
+public class MappedLUTTest {
+
+    private static final int[] POS_VALS = {3, 3, 3, 5, 5, 2, 2, 2, 2};
+
+    /**
+     * @return n-tuples with LUT lengths 3, 27, 25 and 16 and random weights
+     */
+    private static NTuple4[] nTuples(long seed) {
+        int[][] cells = {{0}, {0, 1, 2}, {3, 4}, {5, 6, 7, 8}};
+        Random rand = new Random(seed);
+        NTuple4[] nts = new NTuple4[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            nts[i] = new NTuple4(cells[i], POS_VALS, new ParNT());
+            for (int k = 0; k < nts[i].getLutLength(); k++)
+                nts[i].updateIndex(k, 1.0, rand.nextGaussian(), 1.0);
+        }
+        return nts;
+    }
+
+    private static String tempFile() throws IOException {
+        File f = Files.createTempFile("mappedLUT", ".lut").toFile();
+        f.deleteOnExit();
+        return f.getPath();
+    }
+
+    private static long align8(long pos) {
+        return (pos + 7) & ~7L;
+    }
+
+    @Test
+    public void writeAndMapRoundTrip() throws IOException {
+        for (boolean asFloat : new boolean[]{true, false}) {
+            NTuple4[] nts = nTuples(1);
+            String path = tempFile();
+            MappedLUT.write(path, nts, asFloat);
+
+            int bpw = asFloat ? 4 : 8;
+            long size = align8(16 + 8L * nts.length);
+            for (NTuple4 nt : nts) size += align8((long) nt.getLutLength() * bpw);
+            assertEquals("asFloat=" + asFloat, size, new File(path).length());
+
+            MappedLUT[] luts = MappedLUT.map(path, nts);
+            assertEquals(nts.length, luts.length);
+            for (int i = 0; i < nts.length; i++) {
+                assertEquals(nts[i].getLutLength(), luts[i].getLength());
+                assertEquals(asFloat, luts[i].isFloat());
+                assertEquals(new File(path).getAbsolutePath(), luts[i].getPath());
+                for (int k = 0; k < nts[i].getLutLength(); k++) {
+                    double w = nts[i].getWeight(k);
+                    assertEquals("LUT " + i + ", index " + k, asFloat ? (float) w : w, luts[i].get(k), 0.0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void wrongLutCountIsRejected() throws IOException {
+        NTuple4[] nts = nTuples(2);
+        String path = tempFile();
+        MappedLUT.write(path, nts, true);
+        NTuple4[] fewer = {nts[0], nts[1], nts[2]};
+        try {
+            MappedLUT.map(path, fewer);
+            fail("a LUT file with " + nts.length + " LUTs was mapped to " + fewer.length + " n-tuples");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("LUTs"));
+        }
+    }
+
+    @Test
+    public void wrongLutLengthIsRejected() throws IOException {
+        NTuple4[] nts = nTuples(3);
+        String path = tempFile();
+        MappedLUT.write(path, nts, false);
+        NTuple4[] swapped = {nts[0], nts[2], nts[1], nts[3]};
+        try {
+            MappedLUT.map(path, swapped);
+            fail("a LUT of length " + nts[1].getLutLength() + " was mapped to an n-tuple of length "
+                    + nts[2].getLutLength());
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("length"));
+        }
+    }
+
+    @Test
+    public void truncatedFileIsDetected() throws IOException {
+        NTuple4[] nts = nTuples(4);
+        String path = tempFile();
+        MappedLUT.write(path, nts, true);
+        long size = new File(path).length();
+        // last LUT incomplete, LUT lengths incomplete, header incomplete:
+        for (long truncated : new long[]{size - 8, 20, 10}) {
+            try (RandomAccessFile raf = new RandomAccessFile(path, "rw")) {
+                raf.setLength(truncated);
+            }
+            try {
+                MappedLUT.map(path, nts);
+                fail("a LUT file truncated to " + truncated + " bytes was mapped");
+            } catch (RuntimeException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("truncated"));
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package controllers.TD.ntuple4;
+
+import games.StateObsWithBoardVector;
+import games.StateObservation;
+import games.TicTacToe.StateObserverTTT;
+import games.TicTacToe.XNTupleFuncsTTT;
+import games.XNTupleFuncs;
+import org.junit.Test;
+import params.*;
+import tools.Types.ACTIONS;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the gather-sum score kernel of {@link NTuple4ValueFunc} (see {@link ParNT#getScoreKernel()}) and its
+ * {@link LutIndexer}
+ */
+public class ScoreKernelTest {
+
+    /**
+     * scalar reference for {@link LutIndexer#indices(int[], int[], int[], int, int, int[])}
+     */
+    private static void indices(int[] bvec, int[] cells, int[] strides, int L, int R, int[] idx) {
+        for (int r = 0; r < R; r++) {
+            idx[r] = 0;
+            for (int p = 0; p < L; p++) idx[r] += strides[p * R + r] * bvec[cells[p * R + r]];
+        }
+    }
+
+    /**
+     * The Vector API {@link LutIndexer} must give the same indices as the scalar reference, also for row counts which
+     * are no multiple of the vector length. (Checked only if the JVM runs with
+     * {@code --add-modules jdk.incubator.vector}.)
+     */
+    @Test
+    public void indexerMatchesScalar() {
+        Random rand = new Random(3);
+        LutIndexer indexer = LutIndexer.get();
+        if (indexer == null) return;
+        for (int n = 0; n < 200; n++) {
+            int L = 1 + rand.nextInt(8);
+            int R = 1 + rand.nextInt(70);
+            int[] bvec = new int[64];
+            for (int c = 0; c < bvec.length; c++) bvec[c] = rand.nextInt(4);
+            int[] cells = new int[L * R];
+            int[] strides = new int[L * R];
+            for (int b = 0; b < L * R; b++) {
+                cells[b] = rand.nextInt(bvec.length);
+                strides[b] = rand.nextInt(1 << 12);
+            }
+            int[] idx1 = new int[R];
+            int[] idx2 = new int[R];
+            indices(bvec, cells, strides, L, R, idx1);
+            indexer.indices(bvec, cells, strides, L, R, idx2);
+            assertTrue(indexer.getName() + ", L=" + L + ", R=" + R, Arrays.equals(idx1, idx2));
+        }
+    }
+
+    /**
+     * After some TD updates, the scores with and without kernel must be bit-identical. (Without the Vector API,
+     * both are calculated by the scalar path.)
+     */
+    @Test
+    public void kernelScoresMatchScalarPath() {
+        for (int prec : new int[]{NTuple4.PREC_DOUBLE, NTuple4.PREC_FLOAT})
+            for (boolean sym : new boolean[]{true, false}) {
+                XNTupleFuncs xnf = new XNTupleFuncsTTT();
+                ParTD td = new ParTD();
+                td.setAlpha(0.1);
+                ParNT nt = new ParNT();
+                nt.setUSESYMMETRY(sym);
+                nt.setWeightArena(true);
+                nt.setWeightPrecision(prec);
+                TDNTuple4Agt agt = new TDNTuple4Agt("TD", td, nt, new ParOther(), new ParRB(), new ParWrapper(),
+                        xnf.fixedNTuples(1), xnf, 500);
+                NTuple4ValueFunc f = agt.getNTupleValueFunc();
+                Random r = new Random(5);
+                ArrayList<StateObsWithBoardVector> states = new ArrayList<>();
+                for (int ep = 0; ep < 100; ep++) {
+                    StateObservation so = new StateObserverTTT();
+                    while (!so.isGameOver()) {
+                        StateObsWithBoardVector s = new StateObsWithBoardVector(so, xnf);
+                        int p = so.getPlayer();
+                        f.updateWeightsTD(s, p, f.getScoreI(s, p), r.nextDouble() * 2 - 1, 0, so);
+                        states.add(s);
+                        ArrayList<ACTIONS> acts = so.getAvailableActions();
+                        so.advance(acts.get(r.nextInt(acts.size())), null);
+                    }
+                }
+                for (StateObsWithBoardVector s : states)
+                    for (int p = 0; p < 2; p++) {
+                        agt.getParNT().setScoreKernel(false);
+                        double v1 = f.getScoreI(s, p);
+                        agt.getParNT().setScoreKernel(true);
+                        double v2 = f.getScoreI(s, p);
+                        assertEquals("prec=" + prec + ", sym=" + sym, Double.doubleToLongBits(v1),
+                                Double.doubleToLongBits(v2));
+                    }
+            }
+    }
+}
@@ -0,0 +1,108 @@
+package controllers.TD.ntuple4;
+
+import org.junit.Test;
+import params.ParNT;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Fuzz tests for {@link SparseLUT}: random updates are applied to a {@link SparseLUT} and to a {@link HashMap} as
+ * reference, and both must agree on every weight. A sparse {@link NTuple4} must agree with a dense one which got the
+ * same updates.
+ */
+public class SparseLUTTest {
+
+    @Test
+    public void fuzzAgainstHashMap() {
+        Random rand = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            SparseLUT sp = new SparseLUT(0);
+            HashMap<Long, Float> ref = new HashMap<>();
+            // few keys (many collisions and repeated updates) up to many keys (several rehashes):
+            long keyRange = (round % 2 == 0) ? 50 : 1L << 40;
+            int numAdds = 200 + rand.nextInt(20000);
+            for (int i = 0; i < numAdds; i++) {
+                long key = (long) (rand.nextDouble() * keyRange);
+                float dw = (rand.nextInt(8) == 0) ? 0.0f : (rand.nextInt(64) - 32) / 8.0f;
+                sp.add(key, dw);
+                if (dw != 0.0f || ref.containsKey(key)) ref.merge(key, dw, Float::sum);
+            }
+            assertEquals(ref.size(), sp.size());
+            for (Map.Entry<Long, Float> e : ref.entrySet())
+                assertEquals(e.getValue(), sp.get(e.getKey()), 0.0f);
+            for (int i = 0; i < 1000; i++) {
+                long key = (long) (rand.nextDouble() * keyRange);
+                if (!ref.containsKey(key)) assertEquals(0.0f, sp.get(key), 0.0f);
+            }
+
+            long[] keys = sp.getKeys();
+            double[] vals = sp.getValues();
+            assertEquals(sp.size(), keys.length);
+            assertEquals(sp.size(), vals.length);
+            for (int j = 0; j < keys.length; j++)
+                assertEquals(ref.get(keys[j]), vals[j], 0.0);
+
+            SparseLUT copy = sp.copy();
+            assertTrue(Arrays.equals(keys, copy.getKeys()));
+            assertTrue(Arrays.equals(vals, copy.getValues()));
+        }
+    }
+
+    @Test
+    public void capacityCap() {
+        Random rand = new Random(7);
+        int maxEntries = 100;
+        SparseLUT sp = new SparseLUT(maxEntries);
+        HashMap<Long, Float> ref = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            long key = rand.nextInt(1000);
+            sp.add(key, 1.0f);
+            ref.merge(key, 1.0f, Float::sum);
+            assertTrue(sp.size() <= maxEntries);
+        }
+        assertEquals(maxEntries, sp.size());
+        assertTrue(sp.getNumEvicted() > 0);
+        // an entry that survived the evictions may have lost earlier updates, but never has more than the reference
+        long[] keys = sp.getKeys();
+        double[] vals = sp.getValues();
+        for (int j = 0; j < keys.length; j++) {
+            assertTrue(vals[j] > 0);
+            assertTrue(vals[j] <= ref.get(keys[j]));
+        }
+    }
+
+    /**
+     * A sparse and a dense (float) n-tuple with the same updates have the same weights and the same
+     * {@link NTuple4#lutSum()}, {@link NTuple4#lutSumAbs()} and {@link NTuple4#lutHashSum()}
+     */
+    @Test
+    public void sparseMatchesDense() {
+        Random rand = new Random(3);
+        int[] nTuple = {0, 1, 2, 3, 4, 5};
+        int[] posVals = {3, 3, 3, 3, 3, 3, 3, 3, 3};
+        ParNT dPar = new ParNT();
+        dPar.setWeightPrecision(NTuple4.PREC_FLOAT);
+        ParNT sPar = new ParNT();
+        sPar.setSparseLut(true);
+        sPar.setSparseCap(0);
+        NTuple4 dense = new NTuple4(nTuple, posVals, dPar);
+        NTuple4 sparse = new NTuple4(nTuple, posVals, sPar);
+        int len = NTuple4.lutLength(nTuple, posVals);
+        for (int i = 0; i < 3000; i++) {
+            int index = rand.nextInt(len);
+            double delta = (rand.nextInt(64) - 32) / 8.0;     // exact in float, so both sums are exact
+            dense.updateIndex(index, 1.0, delta, 1.0);
+            sparse.updateIndex(index, 1.0, delta, 1.0);
+        }
+        for (int k = 0; k < len; k++)
+            assertEquals(dense.getWeight(k), sparse.getWeight(k), 0.0);
+        assertEquals(dense.lutSum(), sparse.lutSum(), 0.0);
+        assertEquals(dense.lutSumAbs(), sparse.lutSumAbs(), 0.0);
+        assertEquals(dense.lutHashSum(), sparse.lutHashSum());
+    }
+}
@@ -0,0 +1,65 @@
+package controllers.TD.ntuple4;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link TCAccumulator}
+ */
+public class TCAccumulatorTest {
+
+    @Test
+    public void newBlocksAreInitialized() {
+        TCAccumulator acc = new TCAccumulator(3 * TCAccumulator.BLOCK + 5, 0.5);
+        assertEquals(0, acc.getNumBlocks());
+        assertEquals(1.0, acc.getFactor(7), 0.0);
+        double[] blk = acc.block(TCAccumulator.BLOCK + 3);
+        int p = TCAccumulator.pos(TCAccumulator.BLOCK + 3);
+        assertEquals(0.5, blk[p], 0.0);
+        assertEquals(0.5, blk[p + 1], 0.0);
+        assertEquals(1.0, blk[p + 2], 0.0);
+        assertSame(blk, acc.block(2 * TCAccumulator.BLOCK - 1));
+        assertEquals(1, acc.getNumBlocks());
+    }
+
+    /**
+     * Several threads allocate the same blocks at the same time and each writes to its own entries: all threads
+     * must get the same block, so that no update is lost
+     */
+    @Test
+    public void concurrentAllocationKeepsAllUpdates() throws InterruptedException {
+        int numThreads = 8;
+        int numBlocks = 64;
+        for (int round = 0; round < 20; round++) {
+            TCAccumulator acc = new TCAccumulator(numBlocks * TCAccumulator.BLOCK, 0.0);
+            CountDownLatch start = new CountDownLatch(1);
+            Thread[] threads = new Thread[numThreads];
+            for (int t = 0; t < numThreads; t++) {
+                final int tt = t;
+                threads[t] = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int b = 0; b < numBlocks; b++) {
+                        int index = b * TCAccumulator.BLOCK + tt;
+                        double[] blk = acc.block(index);
+                        blk[TCAccumulator.pos(index)] = blk[TCAccumulator.pos(index) + 2] * (tt + 1);   // tcFactor=1
+                    }
+                });
+                threads[t].start();
+            }
+            start.countDown();
+            for (Thread th : threads) th.join();
+            assertEquals(numBlocks, acc.getNumBlocks());
+            double[] colN = acc.column(0);
+            for (int b = 0; b < numBlocks; b++)
+                for (int t = 0; t < numThreads; t++)
+                    assertEquals("block " + b + ", thread " + t, t + 1, colN[b * TCAccumulator.BLOCK + t], 0.0);
+        }
+    }
+}
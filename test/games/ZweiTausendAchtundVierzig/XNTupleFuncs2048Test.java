@@ -0,0 +1,52 @@
+package games.ZweiTausendAchtundVierzig;
+
+import games.XNTupleFuncs;
+import org.junit.Test;
+import tools.Types.ACTIONS;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link XNTupleFuncs2048}
+ */
+public class XNTupleFuncs2048Test {
+
+    /**
+     * The fused afterstate of {@link XNTupleFuncs2048#afterstate} must give the same board vector and rewards as
+     * {@code copy()}, {@code advanceDeterministic} and {@code advanceNondeterministic}. Checked for all actions of
+     * all states in 200 random episodes (about 160.000 cases), in both reward modes.
+     */
+    @Test
+    public void afterstateMatchesCopyAndAdvance() {
+        XNTupleFuncs xnf = new XNTupleFuncs2048();
+        Random r = new Random(1);
+        int[] bvec = new int[16];
+        double[] rewards = new double[2];
+        int n = 0;
+        for (int ep = 0; ep < 200; ep++) {
+            StateObserver2048 so = new StateObserver2048(new Random(ep));
+            while (!so.isGameOver()) {
+                for (ACTIONS act : so.getAvailableActions())
+                    for (boolean rgs : new boolean[]{true, false}) {
+                        String msg = "episode " + ep + ", action " + act.toInt() + ", rgs=" + rgs;
+                        assertTrue(msg, xnf.afterstate(so, act, rgs, bvec, rewards));
+                        StateObserver2048 ns = so.copy();
+                        ns.advanceDeterministic(act);
+                        assertTrue(msg, Arrays.equals(xnf.getBoardVector(ns).bvec, bvec));
+                        assertEquals(msg, ns.getReward(0, rgs), rewards[0], 0.0);
+                        assertFalse(msg, ns.isGameOver());
+                        ns.advanceNondeterministic(r);
+                        assertEquals(msg, ns.getReward(0, rgs), rewards[1], 0.0);
+                        n++;
+                    }
+                ArrayList<ACTIONS> acts = so.getAvailableActions();
+                so.advance(acts.get(r.nextInt(acts.size())), r);
+            }
+        }
+        assertTrue("only " + n + " cases", n > 100000);
+    }
+}